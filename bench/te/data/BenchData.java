@@ -0,0 +1,73 @@
+package te.data;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import te.data.Schema.ColumnInfo;
+import te.exceptions.BadData;
+import te.exceptions.BadSchema;
+import te.tools.CorpusGenerator;
+
+/**
+ * reproducible synthetic corpora for the benchmarks, from {@link CorpusGenerator}.
+ * covariate x is uniform on [0,1], so a box select on x <= f picks about fraction f of the docs.
+ */
+public class BenchData {
+	static final long SEED = 1234;
+
+	static CorpusGenerator generator(int numDocs) {
+		CorpusGenerator g = new CorpusGenerator();
+		g.numDocs = numDocs;
+		g.seed = SEED;
+		// same vocabulary for every corpus size, so query terms mean the same thing across sizes
+		g.heapsK = 50000;
+		g.heapsBeta = 0;
+		g.doclenDist = "lognormal";
+		g.doclenParams = new double[] { 4.3, 0.6 };
+		return g;
+	}
+
+	/** the word of this frequency rank (0 = most common) */
+	public static String word(int rank) {
+		CorpusGenerator g = generator(1);
+		g.init();
+		return g.word(rank);
+	}
+
+	public static File writeJsonLines(int numDocs) throws IOException {
+		File f = File.createTempFile("bench", ".jsonl");
+		f.deleteOnExit();
+		try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(f), StandardCharsets.UTF_8))) {
+			generator(numDocs).write(out, null);
+		}
+		return f;
+	}
+
+	/** loaded through the same steps as Main, with whitespace tokenization and unigrams. */
+	public static Corpus loadCorpus(int numDocs, boolean analyze) throws IOException, BadData, BadSchema {
+		File f = writeJsonLines(numDocs);
+		DataLoader dl = new DataLoader();
+		dl.loadJsonLines(f.getPath());
+		Corpus corpus = new Corpus();
+		corpus.setDataFromDataLoader(dl);
+		corpus.getSchema().columnTypes.put("x", new ColumnInfo("number"));
+		corpus.getSchema().columnTypes.put("y", new ColumnInfo("number"));
+		corpus.getSchema().columnTypes.put("group", new ColumnInfo("categorical"));
+		corpus.convertCovariateTypes();
+		corpus.calculateCovariateSummaries();
+		if (analyze) {
+			corpus.runTokenizer(NLP::whitespaceTokenize);
+			NLP.DocAnalyzer da = new NLP.UnigramAnalyzer();
+			for (Document d : corpus.allDocs()) {
+				NLP.analyzeDocument(da, d);
+			}
+			corpus.finalizeIndexing();
+		}
+		return corpus;
+	}
+}
@@ -0,0 +1,43 @@
+package te.data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+
+/** an analyzed, indexed corpus plus a doc selection of the requested size. */
+@State(Scope.Benchmark)
+public class CorpusState {
+	@Param({"1000", "10000", "100000"})
+	public int corpusSize;
+
+	@Param({"0.01", "0.1", "0.5"})
+	public double selectionFraction;
+
+	public Corpus corpus;
+	/** the first selectionFraction of the docs */
+	public List<Document> selectedDocs;
+	public DocSet selection;
+	/** all docs; the corpus' own index is private */
+	public InvertedIndex index;
+	/** a term query mixing common, mid and rare words */
+	public List<String> queryTerms;
+
+	@Setup
+	public void setup() throws Exception {
+		corpus = BenchData.loadCorpus(corpusSize, true);
+		int n = (int) Math.round(selectionFraction * corpusSize);
+		selectedDocs = new ArrayList<>(corpus.docsInOriginalOrder.subList(0, n));
+		selection = new DocSet(selectedDocs);
+		index = new InvertedIndex();
+		index.add(corpus.allDocs());
+		queryTerms = new ArrayList<>();
+		for (int rank : new int[] { 5, 100, 2000 }) {
+			queryTerms.add(BenchData.word(rank));
+		}
+	}
+}
@@ -0,0 +1,55 @@
+package te.data;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import te.data.Analysis.TermvecComparison;
+
+/** index construction and the query paths the UI hits on every brush or term click */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IndexBench {
+
+	@Benchmark
+	public InvertedIndex invertedIndexAdd(CorpusState s) {
+		InvertedIndex index = new InvertedIndex();
+		index.add(s.selectedDocs);
+		return index;
+	}
+
+	@Benchmark
+	public void invertedIndexGetMatchingDocs(CorpusState s, Blackhole bh) {
+		for (String term : s.queryTerms) {
+			bh.consume(s.index.getMatchingDocs(term));
+		}
+	}
+
+	/** brush box select: x <= selectionFraction */
+	@Benchmark
+	public DocSet selectBox(CorpusState s) {
+		return s.corpus.select("x", "y", 0, s.selectionFraction, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+	}
+
+	/** disjunctive term query */
+	@Benchmark
+	public DocSet selectTerms(CorpusState s) {
+		return s.corpus.select(s.queryTerms);
+	}
+
+	@Benchmark
+	public Object topEpmi(CorpusState s) {
+		TermvecComparison c = new TermvecComparison(s.selection.terms, s.corpus.globalTerms);
+		return c.topEpmi(300e-6, 1);
+	}
+}
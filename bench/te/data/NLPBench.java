@@ -0,0 +1,71 @@
+package te.data;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/** per-document tokenizing and term extraction, plus loading raw json lines */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NLPBench {
+
+	@Benchmark
+	public List<Token> whitespaceTokenize(TextState s) {
+		return NLP.whitespaceTokenize(s.nextDoc().text);
+	}
+
+	@Benchmark
+	public List<Token> stanfordTokenize(TextState s) {
+		return NLP.stanfordTokenize(s.nextDoc().text);
+	}
+
+	@State(Scope.Benchmark)
+	public static class Analyzer {
+		@Param({"1", "2", "3"})
+		public int order;
+		NLP.NgramAnalyzer analyzer;
+		@Setup public void setup() {
+			analyzer = new NLP.NgramAnalyzer();
+			analyzer.order = order;
+		}
+	}
+
+	@Benchmark
+	public List<TermInstance> ngramAnalyze(TextState s, Analyzer a) {
+		return a.analyzer.analyze(s.nextDoc());
+	}
+
+	@State(Scope.Benchmark)
+	public static class JsonFile {
+		@Param({"1000", "10000", "100000"})
+		public int corpusSize;
+		File file;
+		@Setup public void setup() throws Exception {
+			file = BenchData.writeJsonLines(corpusSize);
+		}
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public DataLoader loadJsonLines(JsonFile f) throws Exception {
+		DataLoader dl = new DataLoader();
+		dl.loadJsonLines(f.file.getPath());
+		return dl;
+	}
+}
@@ -0,0 +1,45 @@
+package te.data;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TermVectorBench {
+
+	/** count one doc's tokens */
+	@Benchmark
+	public TermVector increment(TextState s) {
+		TermVector tv = new TermVector();
+		for (Token t : s.nextDoc().tokens) {
+			tv.increment(t.text);
+		}
+		return tv;
+	}
+
+	/** sum the selected docs' term vectors */
+	@Benchmark
+	public TermVector addInPlace(CorpusState s) {
+		TermVector tv = new TermVector();
+		for (Document d : s.selectedDocs) {
+			tv.addInPlace(d.termVec);
+		}
+		return tv;
+	}
+
+	@Benchmark
+	public DocSet docSetConstruction(CorpusState s) {
+		return new DocSet(s.selectedDocs);
+	}
+}
@@ -0,0 +1,31 @@
+package te.data;
+
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+
+/** a fixed sample of docs for per-document benchmarks (tokenizers, analyzers).
+ * ops cycle through the sample so they don't all hit the same doc. */
+@State(Scope.Thread)
+public class TextState {
+	static final int SAMPLE_SIZE = 1000;
+
+	public List<Document> docs;
+	int next = 0;
+
+	@Setup
+	public void setup() throws Exception {
+		Corpus c = BenchData.loadCorpus(SAMPLE_SIZE, false);
+		docs = c.docsInOriginalOrder;
+		for (Document d : docs) d.tokens = NLP.whitespaceTokenize(d.text);
+	}
+
+	public Document nextDoc() {
+		Document d = docs.get(next);
+		next = (next+1) % docs.size();
+		return d;
+	}
+}
@@ -10,42 +10,93 @@ public class Analysis {
 	static int VIEW_TOTAL = 20;
 	static boolean VERBOSE = false;
 	
+	/**
+	 * which terms co-occur with the query terms, by token co-occurrence within docs (word_assoc.tex).
+	 * 'u' are candidates, 'v' is the query (the query terms' counts summed).  both scores rank by
+	 *   (sum_d n_du n_dv) / n_u
+	 * and only differ by a per-query constant:
+	 *   JOINT: that times N^2 / (n_v sum_d n_d^2), i.e. P(u,v) / P(u)P(v) for a token pair drawn from one doc
+	 *   COND:  that times N / (sum_d n_d n_dv),  i.e. P(u | a query token's doc) / P(u)
+	 * BOOL is the old ranking: lift of the term distribution of docs containing any query term.
+	 * the UI gets that straight from Corpus.select, so the matrix is only built for the other scores.
+	 * WINDOW isn't scored here but by WindowedCooccurrence; it's listed so the UI can offer all of them in one place.
+	 *
+	 * computed in one sparse matrix-vector product over the query docs' rows of corpus.termDocMatrix();
+	 * get these from Corpus.termTermAssociations(), which caches them per query.
+	 */
 	public static class TermTermAssociations {
+		public enum Score { BOOL, JOINT, COND, WINDOW }
+
 		public List<String> queryTerms;
 		public Corpus corpus;
-		
-		public List<String> topEpmi(int mincount) {
-			final List<String> terms = new ArrayList<>();
-			final List<Double> leftratios = new ArrayList<>();  // (sum_d n_du n_dv) / n_u
-			DocSet docSupp = corpus.select(queryTerms);
-			
-			U.pf("query term disjunction's numdocs: %s\n", docSupp.docs().size());
-			
-			// word_assoc.tex notation: 'u' are candidates, 'v' is query
-			// MAP:  u => (sum_d n_du n_dv)
-			TermVector candInnerProducts = new TermVector();
-			
-			// build up n_v
-			double numtokQueryTermsTotal = 0;
-			
-			for (Document doc : docSupp.docs()) {
-				// n_dv
-				double numtokQueryTerms = doc.termVec.valueSum(queryTerms);
-				numtokQueryTermsTotal += numtokQueryTerms;
-				// n_du
-				for (String candTerm : doc.termVec.support()) {
-					if (corpus.globalTerms.value(candTerm) < mincount) continue;
-					double numtokCandidate = doc.termVec.value(candTerm);
-					candInnerProducts.increment(candTerm, numtokQueryTerms * numtokCandidate);
+		/** term counts in the docs containing any query term */
+		public TermVector focus;
+		/** MAP:  u => (sum_d n_du n_dv) */
+		public TermVector candInnerProducts;
+		/** n_v */
+		public double numtokQueryTermsTotal;
+		/** sum_d n_d n_dv */
+		public double lengthWeightedQueryTotal;
+		public int numDocs;
+
+		public TermTermAssociations(Corpus corpus, List<String> queryTerms) {
+			this.corpus = corpus;
+			this.queryTerms = queryTerms;
+		}
+
+		public void compute() {
+			TermDocMatrix m = corpus.termDocMatrix();
+			DocBitmap docs = new DocBitmap();
+			for (String term : queryTerms) {
+				for (Document d : corpus.getIndex().getMatchingDocs(term)) {
+					if (d.termVec.value(term) > 0) docs.set(d.ordinal());
 				}
 			}
-			U.pf("co-occurring num terms: %s\n", candInnerProducts.support().size());
-			
-			for (Entry<String,Double> e : candInnerProducts.map.entrySet()) {
-				String v = e.getKey();
-				double inner = e.getValue();
-				terms.add(v);
-				leftratios.add(inner / corpus.globalTerms.value(v));
+			int[] rows = new int[docs.cardinality()];
+			int[] k = {0};
+			docs.forEach(o -> rows[k[0]++] = m.rowOfOrdinal[o]);
+			int[] queryCols = new int[queryTerms.size()];
+			for (int i=0; i<queryCols.length; i++) queryCols[i] = m.col(queryTerms.get(i));
+			TermDocMatrix.Product p = m.multiply(rows, queryCols);
+
+			numDocs = rows.length;
+			numtokQueryTermsTotal = p.queryTokens;
+			lengthWeightedQueryTotal = p.lengthWeightedQueryTokens;
+			focus = new TermVector();
+			candInnerProducts = new TermVector();
+			for (int c=0; c<p.counts.length; c++) {
+				if (p.counts[c] == 0) continue;
+				String u = m.term(c);
+				focus.map.put(u, p.counts[c]);
+				focus.totalCount += p.counts[c];
+				if (p.inner[c] > 0) candInnerProducts.map.put(u, p.inner[c]);
+			}
+			if (VERBOSE) U.pf("query term disjunction's numdocs: %s, co-occurring num terms: %s\n", numDocs, candInnerProducts.support().size());
+		}
+
+		/** (sum_d n_du n_dv) / n_u */
+		public double leftratio(String u) {
+			double n_u = corpus.globalTerms.value(u);
+			return n_u == 0 ? 0 : candInnerProducts.value(u) / n_u;
+		}
+		public double score(Score type, String u) {
+			switch (type) {
+			case JOINT: return leftratio(u) * jointoccurNormalizer(numtokQueryTermsTotal);
+			case COND:  return leftratio(u) * condoccurNormalizer();
+			case WINDOW: throw new IllegalArgumentException("WINDOW scores come from WindowedCooccurrence");
+			default:    return new TermvecComparison(focus, corpus.globalTerms).epmi(u);
+			}
+		}
+
+		/** ranked by leftratio; same filters as TermvecComparison.topEpmi, on the focus counts */
+		public List<String> topEpmi(double minprob, int mincount) {
+			final List<String> terms = new ArrayList<>();
+			final List<Double> leftratios = new ArrayList<>();
+			for (String u : candInnerProducts.support()) {
+				if (focus.value(u) < mincount) continue;
+				if (focus.value(u) / focus.totalCount < minprob) continue;
+				terms.add(u);
+				leftratios.add(leftratio(u));
 			}
 			List<Integer> inds = Arr.asList(Arr.rangeInts(terms.size()));
 			Collections.sort(inds, Comparator
@@ -54,7 +105,7 @@ public class Analysis {
 			);
 			
 			if (VERBOSE) {
-				double condoccurZ = condoccurNormalizer(docSupp, queryTerms);
+				double condoccurZ = condoccurNormalizer();
 				int j=-1;
 				for (int i : inds) {
 					if (++j>VIEW_TOTAL) break;
@@ -67,7 +118,19 @@ public class Analysis {
 							);
 				}
 			}
-			return null;
+			List<String> ret = new ArrayList<>();
+			for (int i : inds) ret.add(terms.get(i));
+			return ret;
+		}
+
+		/** for a term table: focus and global counts, and this score as the lift */
+		public TermvecComparison comparison(final Score type) {
+			if (type == Score.BOOL) return new TermvecComparison(focus, corpus.globalTerms);
+			return new TermvecComparison(focus, corpus.globalTerms) {
+				@Override public double epmi(String term) {
+					return score(type, term);
+				}
+			};
 		}
 		
 		/** N^2 / (n_v sum_d n_d^2) */
@@ -76,17 +139,109 @@ public class Analysis {
 			return Nsq / (n_v * corpus.doclenSumSq);
 		}
 		/** N / (sum_d n_d n_dv) */
-		double condoccurNormalizer(DocSet queryDocSupp, Collection<String> queryTerms) {
-			double sum = 0;
-			for (Document doc : queryDocSupp.docs()) {
-				double n_dv = doc.termVec.valueSum(queryTerms);
-				sum += doc.termVec.totalCount * n_dv;
+		double condoccurNormalizer() {
+			return corpus.globalTerms.totalCount / lengthWeightedQueryTotal;
+		}
+	}
+	/**
+	 * what occurs within k tokens of the query terms, from corpus.positionalIndex(): left and right context counts,
+	 * the words right before and after (as in a concordance), and windowed PMI.
+	 * unlike TermTermAssociations this doesn't count everything in a long doc as co-occurring.
+	 *
+	 * PMI is against independence of positions (Church and Hanks 1990): an occurrence has 2k context slots,
+	 * each holding u with probability n_u / N, so u is expected n_q * 2k * n_u / N times in the windows.
+	 * get these from Corpus.windowedCooccurrence(), which caches them per query.
+	 */
+	public static class WindowedCooccurrence {
+		public List<String> queryTerms;
+		public int k;
+		public Corpus corpus;
+		public TermVector left, right, window;
+		/** the adjacent tokens' lowercased text */
+		public TermVector next, prev;
+		/** n_q */
+		public int numOccurrences;
+		public int numDocs;
+		/** N, all term instances */
+		public double numInstances;
+		PositionalIndex index;
+
+		public WindowedCooccurrence(Corpus corpus, List<String> queryTerms, int k) {
+			this.corpus = corpus;
+			this.queryTerms = queryTerms;
+			this.k = k;
+		}
+
+		public void compute() {
+			index = corpus.positionalIndex();
+			PositionalIndex.Contexts c = index.contexts(queryTerms, k);
+			numOccurrences = c.numOccurrences;
+			numDocs = c.numDocs;
+			numInstances = index.numInstances();
+			left = new TermVector();
+			right = new TermVector();
+			window = new TermVector();
+			for (int t=0; t<c.left.length; t++) {
+				if (c.left[t] == 0 && c.right[t] == 0) continue;
+				String u = index.term(t);
+				if (c.left[t] > 0) left.increment(u, c.left[t]);
+				if (c.right[t] > 0) right.increment(u, c.right[t]);
+				window.increment(u, c.left[t] + c.right[t]);
+			}
+			next = new TermVector();
+			for (Map.Entry<String,Double> e : c.next.entrySet()) next.increment(e.getKey(), e.getValue());
+			prev = new TermVector();
+			for (Map.Entry<String,Double> e : c.prev.entrySet()) prev.increment(e.getKey(), e.getValue());
+		}
+
+		/** observed / expected window count */
+		public double lift(String u) {
+			double expected = numOccurrences * 2.0*k * index.count(u) / numInstances;
+			return expected == 0 ? 0 : window.value(u) / expected;
+		}
+		/** log2 lift */
+		public double pmi(String u) {
+			return Math.log(lift(u)) / Math.log(2);
+		}
+
+		/** by PMI; minprob and mincount apply to the window counts */
+		public List<String> topPmi(double minprob, int mincount) {
+			final List<String> terms = new ArrayList<>();
+			final List<Double> lifts = new ArrayList<>();
+			for (String u : window.support()) {
+				if (window.value(u) < mincount) continue;
+				if (window.value(u) / window.totalCount < minprob) continue;
+				terms.add(u);
+				lifts.add(lift(u));
 			}
-			return corpus.globalTerms.totalCount / sum;
+			List<Integer> inds = Arr.asList(Arr.rangeInts(terms.size()));
+			Collections.sort(inds, Comparator
+					.comparing((Integer i) -> -lifts.get(i))
+					.thenComparing((Integer i) -> -window.value(terms.get(i)))
+					.thenComparing((Integer i) -> terms.get(i))
+			);
+			List<String> ret = new ArrayList<>();
+			for (int i : inds) ret.add(terms.get(i));
+			return ret;
+		}
+
+		/** a vector's terms by count, most first */
+		public static List<String> topByCount(TermVector tv, int n) {
+			List<String> terms = new ArrayList<>(tv.support());
+			terms.sort(Comparator.comparing((String w) -> -tv.value(w)).thenComparing(w -> w));
+			return terms.subList(0, Math.min(n, terms.size()));
+		}
+
+		/** for a term table: window counts, global counts, and the lift */
+		public TermvecComparison comparison() {
+			return new TermvecComparison(window, corpus.globalTerms) {
+				@Override public double epmi(String term) {
+					return lift(term);
+				}
+			};
 		}
-//		public double epmi(String candidateTerm) {
-//		}
 	}
+
 	/** can use this for term<->docset association */
 	public static class TermvecComparison {
 		public TermVector focus, background;
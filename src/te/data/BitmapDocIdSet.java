@@ -0,0 +1,58 @@
+package te.data;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * a doc selection held as a bitmap of doc ordinals, seen as a set of docids.
+ * lets a big brush selection be passed around as a Set<String> without building one;
+ * Corpus.getDocs() recognizes it and reads the bitmap directly.  read-only.
+ */
+public class BitmapDocIdSet extends AbstractSet<String> {
+	final DocBitmap bits;
+	final Corpus corpus;
+	final int size;
+
+	BitmapDocIdSet(Corpus corpus, DocBitmap bits) {
+		this.corpus = corpus;
+		this.bits = bits;
+		this.size = bits.cardinality();
+	}
+
+	public DocBitmap bitmap() { return bits.copy(); }
+
+	@Override
+	public int size() { return size; }
+
+	@Override
+	public boolean contains(Object o) {
+		Document d = corpus.docById((String) o);
+		return d != null && bits.get(d.ordinal());
+	}
+
+	@Override
+	public Iterator<String> iterator() {
+		List<Document> docs = corpus.docs(bits);
+		return new Iterator<String>() {
+			int i = 0;
+			public boolean hasNext() { return i < docs.size(); }
+			public String next() {
+				if (i >= docs.size()) throw new NoSuchElementException();
+				return docs.get(i++).docid;
+			}
+		};
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (o instanceof BitmapDocIdSet) {
+			return bits.equals(((BitmapDocIdSet) o).bits);
+		}
+		return super.equals(o);
+	}
+
+	@Override
+	public int hashCode() { return super.hashCode(); }
+}
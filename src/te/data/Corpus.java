@@ -3,6 +3,8 @@ package te.data;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import te.data.Schema.ColumnInfo;
+import te.metrics.LatencyHistogram;
+import te.metrics.Metrics;
 import te.data.Schema.DataType;
 import utility.util.BasicFileIO;
 import utility.util.JsonUtil;
@@ -10,7 +12,12 @@ import utility.util.U;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 
 public class Corpus implements DataLayer {
 	private Map<String,Document> docsById;
@@ -26,10 +33,44 @@ public class Corpus implements DataLayer {
 	public Map<String,SummaryStats> covariateSummaries;
 	double doclenSumSq = 0;
 	public boolean needsCovariateTypeConversion = false;
+	/** docs (by ordinal) that are in the index and global stats.  queries only see these.
+	 * in progressive loading this grows chunk by chunk; otherwise it's everything after finalizeIndexing(). */
+	private DocBitmap indexedDocs = new DocBitmap();
+	/** non-null when the corpus lives in a CorpusServer; see attachRemote() */
+	private RemoteDataLayer remote;
+	/** built on first use by termDocMatrix(), then kept up to date by addToIndex() */
+	private TermDocMatrix termDocMatrix;
+	/** built on first use by positionalIndex(), then kept up to date by addToIndex() */
+	private PositionalIndex positionalIndex;
+	/** term sums by categorical level, built in the background on first indexing, then kept up to date by addToIndex() */
+	private volatile LevelTermVectors levelVectors;
+	private Future<?> levelVectorsBuild;
+	/** built on first use by docFrequencies(), then kept up to date by addToIndex() */
+	private PostingsBitmaps postingsBitmaps;
+	/** built on first use by facetCounts(), then kept up to date by addToIndex() until a doc doesn't fit its bins */
+	private FacetIndex facetIndex;
+	/** each covariate's values sorted, for range filters; built by calculateCovariateSummaries() and kept up to date by appendDocuments() */
+	private final Map<String,SortedColumnIndex> columnIndexes = new HashMap<>();
+	/** the scatterplot's docs bucketed for lasso/rectangle brushes, for the last axes asked for; null until then and after appends */
+	private volatile PointGridIndex pointIndex;
+	static int ASSOC_CACHE_SIZE = 64;
+	/** term-term association results by query, least recently used evicted first.  cleared when the index grows. */
+	private final Map<List<String>,Analysis.TermTermAssociations> assocCache = lruCache(ASSOC_CACHE_SIZE);
+	/** same for windowed co-occurrence, by query and then window size */
+	private final Map<List<String>,Analysis.WindowedCooccurrence> windowCache = lruCache(ASSOC_CACHE_SIZE);
+
+	static <K,V> Map<K,V> lruCache(final int size) {
+		return new LinkedHashMap<K,V>(16, 0.75f, true) {
+			@Override protected boolean removeEldestEntry(Map.Entry<K,V> e) {
+				return size() > size;
+			}
+		};
+	}
 	
 	public Corpus() {
 		docsById = new HashMap<>();
 		index = new InvertedIndex();
+		globalTerms = new TermVector();
 		docsInOriginalOrder = new ArrayList<>();
 		setSchema(new Schema());
 	}
@@ -41,37 +82,136 @@ public class Corpus implements DataLayer {
 
 	@Override
 	public DocSet getDocSet(Collection<String> docids) {
-		DocSet ds = new DocSet();
-		for (String docid : docids) {
-			ds.add( docsById.get(docid) );
+		if (remote != null) return remote.getDocSet(docids);
+		List<Document> docs = getDocs(docids);
+		LevelTermVectors lv = levelVectors;
+		if (lv != null && !lv.isEmpty()) {
+			TermVector terms;
+			try (LatencyHistogram.Timing t = Metrics.time("query.aggregate.levels")) {
+				DocBitmap selection;
+				if (docids instanceof BitmapDocIdSet && ((BitmapDocIdSet) docids).corpus == this) {
+					selection = DocBitmap.and(((BitmapDocIdSet) docids).bits, indexedDocs);
+				} else {
+					selection = new DocBitmap();
+					for (Document d : docs) selection.set(d.ordinal());
+				}
+				terms = lv.terms(selection, docs, docsInOriginalOrder);
+			}
+			if (terms != null) {
+				Metrics.counter("query.aggregate.levelHits").inc();
+				return new DocSet(docs, terms);
+			}
+		}
+		return aggregate(docs);
+	}
+	
+	/** the indexed docs with these ids, without summing up their terms.  remotely, that takes the server's docset. */
+	public List<Document> getDocs(Collection<String> docids) {
+		if (remote != null) return new ArrayList<>(remote.getDocSet(docids).docs());
+		if (docids instanceof BitmapDocIdSet && ((BitmapDocIdSet) docids).corpus == this) {
+			return docs(DocBitmap.and(((BitmapDocIdSet) docids).bits, indexedDocs));
+		}
+		List<Document> docs = new ArrayList<>();
+		try (LatencyHistogram.Timing t = Metrics.time("query.select")) {
+			for (String docid : docids) {
+				Document d = docsById.get(docid);
+				if (d != null && isIndexed(d)) docs.add(d);
+			}
 		}
-		return ds;
+		return docs;
 	}
 	
 	public DocSet naiveSelect(String xAttr, String yAttr, double minX, double maxX, double minY, double maxY) {
-		DocSet ds = new DocSet();
-		docsById.values().stream()
-			.filter(d -> 
-				getSchema().getDouble(d, xAttr) >= minX &&
-				getSchema().getDouble(d, xAttr) <= maxX &&
-				getSchema().getDouble(d, yAttr) >=minY &&
-				getSchema().getDouble(d, yAttr) <=maxY)
-			.forEach(d -> ds.add(d));
-		return ds;
+		List<Document> docs;
+		try (LatencyHistogram.Timing t = Metrics.time("query.select")) {
+			docs = docsById.values().stream()
+				.filter(d -> 
+					isIndexed(d) &&
+					getSchema().getDouble(d, xAttr) >= minX &&
+					getSchema().getDouble(d, xAttr) <= maxX &&
+					getSchema().getDouble(d, yAttr) >=minY &&
+					getSchema().getDouble(d, yAttr) <=maxY)
+				.collect(Collectors.toList());
+		}
+		return aggregate(docs);
+	}
+
+	/** sum up the selected docs' term vectors.  timed apart from the selection itself. */
+	static DocSet aggregate(Collection<Document> docs) {
+		try (LatencyHistogram.Timing t = Metrics.time("query.aggregate")) {
+			return new DocSet(docs);
+		}
 	}
 	
 	@Override
 	public DocSet select(String xAttr, String yAttr, double minX, double maxX, double minY, double maxY) {
-		return naiveSelect(xAttr, yAttr, minX, maxX, minY, maxY);
+		if (remote != null) return remote.select(xAttr, yAttr, minX, maxX, minY, maxY);
+		Map<String,double[]> ranges = new HashMap<>();
+		if (xAttr != null) ranges.put(xAttr, new double[] { minX, maxX });
+		if (yAttr != null) ranges.put(yAttr, new double[] { minY, maxY });
+		return aggregate(docs(selectRanges(ranges)));
+	}
+
+	/** the indexed docs within all these ranges (varname -> {min, max}, inclusive), intersected from the column indexes */
+	public DocBitmap selectRanges(Map<String,double[]> ranges) {
+		try (LatencyHistogram.Timing t = Metrics.time("query.select")) {
+			DocBitmap b = indexedDocs.copy();
+			for (Map.Entry<String,double[]> e : ranges.entrySet()) {
+				b.and(columnIndex(e.getKey()).range(e.getValue()[0], e.getValue()[1]));
+			}
+			return b;
+		}
+	}
+
+	/** the docs in a bitmap, in order */
+	public List<Document> docs(DocBitmap b) {
+		List<Document> docs = new ArrayList<>(b.cardinality());
+		b.forEach(i -> docs.add(docsInOriginalOrder.get(i)));
+		return docs;
+	}
+
+	/** a selection bitmap as a set of docids, without building one */
+	public Set<String> docIdSet(DocBitmap b) {
+		return new BitmapDocIdSet(this, b);
+	}
+	Document docById(String docid) {
+		return docsById.get(docid);
+	}
+
+	/** the docs as points on these two axes, for brushing.  one pair of axes is kept; appends drop it. */
+	public PointGridIndex pointIndex(String xattr, String yattr) {
+		PointGridIndex pi = pointIndex;
+		if (pi == null || !Objects.equals(pi.xattr, xattr) || !Objects.equals(pi.yattr, yattr)) {
+			try (LatencyHistogram.Timing t = Metrics.time("index.points")) {
+				pi = new PointGridIndex(getSchema(), xattr, yattr, docsInOriginalOrder);
+			}
+			pointIndex = pi;
+		}
+		return pi;
+	}
+	PointGridIndex pointIndexIfBuilt() {
+		return pointIndex;
+	}
+
+	/** a covariate's sorted values, for range lookups, quantiles and histograms.  built here if calculateCovariateSummaries() didn't. */
+	public SortedColumnIndex columnIndex(String varname) {
+		SortedColumnIndex ci = columnIndexes.get(varname);
+		if (ci == null) {
+			ci = new SortedColumnIndex(getSchema(), varname, docsInOriginalOrder);
+			columnIndexes.put(varname, ci);
+		}
+		return ci;
 	}
 	
 	@Override
 	public void runTokenizer(Function<String, List<Token>> tokenizer) {
-		long t0 = System.currentTimeMillis(); U.p("Running tokenizer");
-		for (Document d : docsById.values()) {
-			d.tokens = tokenizer.apply(d.text);
+		U.p("Running tokenizer");
+		try (LatencyHistogram.Timing t = Metrics.time("load.tokenize")) {
+			for (Document d : docsById.values()) {
+				d.tokens = tokenizer.apply(d.text);
+			}
+			U.pf("Tokenizer completed (%.0f ms)\n", 1e-6*t.elapsedNanos());
 		}
-		U.pf("Tokenizer completed (%d ms)\n", (System.currentTimeMillis()-t0) );
 	}
 	public void loadNLP(String filename) throws JsonProcessingException, IOException {
 		for (String line : BasicFileIO.openFileLines(filename)) {
@@ -84,12 +224,15 @@ public class Corpus implements DataLayer {
 	}
 	public void indicatorize() {
 		for (Document d : docsById.values()) {
-			TermVector newvec = new TermVector();
-			for (String w : d.termVec.support()) {
-				newvec.increment(w);
-			}
-			d.termVec = newvec;
+			indicatorize(d);
+		}
+	}
+	public static void indicatorize(Document d) {
+		TermVector newvec = new TermVector();
+		for (String w : d.termVec.support()) {
+			newvec.increment(w);
 		}
+		d.termVec = newvec;
 	}
 	public void finalizeIndexing() {
 		long t0=System.nanoTime();
@@ -98,45 +241,274 @@ public class Corpus implements DataLayer {
 //		hierSums.dump();
 
 		U.p("finalizing");
-		for (Document d : docsById.values()) {
-			index.add(d);
-			double n = d.termVec.totalCount;
-			doclenSumSq += n*n;
-		}
-		DocSet allds = new DocSet( docsById.values() );
-		globalTerms = allds.terms;
+		addToIndex(docsById.values());
 		U.pf("done finalizing (%.2f ms)\n", 1e-6*(System.nanoTime()-t0));
 	}
+	
+	/** make already-analyzed docs visible to queries: index them (as a new index segment) and add them to the global stats. */
+	public void addToIndex(Collection<Document> docs) {
+		List<Document> newdocs = new ArrayList<>();
+		try (LatencyHistogram.Timing t = Metrics.time("load.index")) {
+			for (Document d : docs) {
+				if (isIndexed(d)) continue;
+				newdocs.add(d);
+				double n = d.termVec.totalCount;
+				doclenSumSq += n*n;
+				globalTerms.addInPlace(d.termVec);
+			}
+			index.add(newdocs);
+			for (Document d : newdocs) indexedDocs.set(d.ordinal());
+			if (termDocMatrix != null) termDocMatrix.addRows(newdocs);
+			if (positionalIndex != null) positionalIndex.addRows(newdocs);
+			if (levelVectors != null) updateLevelVectors(newdocs);
+			if (facetIndex != null && !facetIndex.add(newdocs)) facetIndex = null;
+			if (postingsBitmaps != null) postingsBitmaps.add(newdocs);
+			assocCache.clear();
+			windowCache.clear();
+		}
+		Metrics.counter("load.docsIndexed").add(newdocs.size());
+		if (index.needsMerge()) mergeInBackground();
+		if (levelVectorsBuild == null) buildLevelVectorsInBackground();
+	}
+
+	/** the corpus's one background thread, for index merges and the like */
+	private static ExecutorService background;
+	private static synchronized ExecutorService background() {
+		if (background == null) {
+			background = Executors.newSingleThreadExecutor(r -> {
+				Thread t = new Thread(r, "corpus-background");
+				t.setDaemon(true);
+				t.setPriority(Thread.NORM_PRIORITY - 1);
+				return t;
+			});
+		}
+		return background;
+	}
+
+	/** at most one merge at a time; queries keep using the old segments until it's done */
+	private volatile boolean mergePending = false;
+	private synchronized void mergeInBackground() {
+		if (mergePending) return;
+		mergePending = true;
+		background().execute(() -> {
+			try (LatencyHistogram.Timing t = Metrics.time("index.merge")) {
+				index.merge();
+			} finally {
+				mergePending = false;
+			}
+		});
+	}
+
+	/** sum up the docs indexed so far by categorical level, off this thread.  docs indexed meanwhile get caught up on later. */
+	private void buildLevelVectorsInBackground() {
+		List<Document> docs = new ArrayList<>();
+		for (Document d : docsInOriginalOrder) if (isIndexed(d)) docs.add(d);
+		Schema sch = getSchema();
+		levelVectorsBuild = background().submit(() -> {
+			try (LatencyHistogram.Timing t = Metrics.time("index.levelVectors")) {
+				LevelTermVectors lv = new LevelTermVectors(sch);
+				if (!lv.isEmpty()) lv.add(docs);
+				levelVectors = lv;
+			}
+		});
+	}
+	private void updateLevelVectors(List<Document> newdocs) {
+		LevelTermVectors lv = levelVectors;
+		if (lv.isEmpty()) return;
+		if (lv.numCovered() < numIndexed() - newdocs.size()) {
+			// indexed while the build was running
+			List<Document> missed = new ArrayList<>();
+			for (Document d : docsInOriginalOrder) if (isIndexed(d) && !lv.covers(d)) missed.add(d);
+			lv.add(missed);
+		} else {
+			lv.add(newdocs);
+		}
+	}
+	/** waits for the level sums to be built.  for tests */
+	LevelTermVectors awaitLevelVectors() throws Exception {
+		if (levelVectorsBuild != null) levelVectorsBuild.get();
+		return levelVectors;
+	}
+
+	/** how these docs split over every categorical level and numeric bin; see FacetIndex */
+	public List<FacetIndex.Facet> facetCounts(DocBitmap matched) {
+		if (facetIndex == null) {
+			try (LatencyHistogram.Timing t = Metrics.time("index.facets")) {
+				List<Document> docs = new ArrayList<>();
+				for (Document d : docsInOriginalOrder) if (isIndexed(d)) docs.add(d);
+				facetIndex = new FacetIndex(getSchema(), docs);
+			}
+		}
+		try (LatencyHistogram.Timing t = Metrics.time("query.facets")) {
+			return facetIndex.count(matched, indexedDocs);
+		}
+	}
+
+	/** the indexed docs as a CSR doc x term matrix, for term-term association */
+	public TermDocMatrix termDocMatrix() {
+		if (termDocMatrix == null) {
+			try (LatencyHistogram.Timing t = Metrics.time("index.termDocMatrix")) {
+				List<Document> docs = new ArrayList<>();
+				for (Document d : docsInOriginalOrder) if (isIndexed(d)) docs.add(d);
+				termDocMatrix = new TermDocMatrix(docs);
+			}
+		}
+		return termDocMatrix;
+	}
+
+	/** document frequencies of terms in the selection's indexed docs, against all indexed docs.  not for remote corpora. */
+	public DocFrequencies docFrequencies(DocBitmap selection) {
+		assert remote == null;
+		if (postingsBitmaps == null) {
+			try (LatencyHistogram.Timing t = Metrics.time("index.postingsBitmaps")) {
+				List<Document> docs = new ArrayList<>();
+				for (Document d : docsInOriginalOrder) if (isIndexed(d)) docs.add(d);
+				postingsBitmaps = new PostingsBitmaps(docs);
+			}
+		}
+		return new DocFrequencies(postingsBitmaps, DocBitmap.and(selection, indexedDocs), numIndexed());
+	}
+
+	/** a doc selection as a bitmap; free for brush selections, which already are one */
+	public DocBitmap selectionBitmap(Collection<String> docids) {
+		if (docids instanceof BitmapDocIdSet && ((BitmapDocIdSet) docids).corpus == this) return ((BitmapDocIdSet) docids).bitmap();
+		DocBitmap b = new DocBitmap();
+		for (Document d : getDocs(docids)) b.set(d.ordinal());
+		return b;
+	}
+
+	/** term-term associations for this query (in any order), computed or from the cache.  not for remote corpora. */
+	public Analysis.TermTermAssociations termTermAssociations(Collection<String> queryTerms) {
+		assert remote == null;
+		List<String> key = new ArrayList<>(new TreeSet<>(queryTerms));
+		Analysis.TermTermAssociations tta = assocCache.get(key);
+		if (tta != null) {
+			Metrics.counter("query.termterm.cacheHits").inc();
+			return tta;
+		}
+		tta = new Analysis.TermTermAssociations(this, key);
+		try (LatencyHistogram.Timing t = Metrics.time("query.termterm.compute")) {
+			tta.compute();
+		}
+		assocCache.put(key, tta);
+		return tta;
+	}
+
+	/** term positions of the indexed docs, for windowed co-occurrence */
+	public PositionalIndex positionalIndex() {
+		if (positionalIndex == null) {
+			try (LatencyHistogram.Timing t = Metrics.time("index.positional")) {
+				List<Document> docs = new ArrayList<>();
+				for (Document d : docsInOriginalOrder) if (isIndexed(d)) docs.add(d);
+				positionalIndex = new PositionalIndex(docs);
+			}
+		}
+		return positionalIndex;
+	}
+
+	/** what occurs within k tokens of these terms, computed or from the cache.  not for remote corpora. */
+	public Analysis.WindowedCooccurrence windowedCooccurrence(Collection<String> queryTerms, int k) {
+		assert remote == null;
+		List<String> terms = new ArrayList<>(new TreeSet<>(queryTerms));
+		List<String> key = new ArrayList<>(terms);
+		key.add(Integer.toString(k));
+		Analysis.WindowedCooccurrence wc = windowCache.get(key);
+		if (wc != null) {
+			Metrics.counter("query.window.cacheHits").inc();
+			return wc;
+		}
+		wc = new Analysis.WindowedCooccurrence(this, terms, k);
+		try (LatencyHistogram.Timing t = Metrics.time("query.window.compute")) {
+			wc.compute();
+		}
+		windowCache.put(key, wc);
+		return wc;
+	}
+
+	public boolean isIndexed(Document d) {
+		return indexedDocs.get(d.ordinal());
+	}
+	public int numIndexed() {
+		return indexedDocs.cardinality();
+	}
 
 	/** disjunction query */
 	@Override
 	public DocSet select(List<String> terms) {
-		DocSet ret = new DocSet();
-		for (String term : terms) {
-			for (Document d : index.getMatchingDocs(term)) {
-				if (d.termVec.value(term) > 0) {
-					ret.add(d);
+		if (remote != null) return remote.select(terms);
+		Set<Document> docs = new LinkedHashSet<>();
+		try (LatencyHistogram.Timing t = Metrics.time("query.select")) {
+			for (String term : terms) {
+				for (Document d : index.getMatchingDocs(term)) {
+					if (d.termVec.value(term) > 0) {
+						docs.add(d);
+					}
 				}
 			}
 		}
-		return ret;
+		return aggregate(docs);
 	}
 
 	public void calculateCovariateSummaries() {
-		covariateSummaries = new HashMap<>();
-		for (String k : getSchema().varnames()) covariateSummaries.put(k, new SummaryStats());
-		for (Document d : allDocs()) {
+		covariateSummaries = summarize(docsInOriginalOrder);
+		U.p("Covariate summary stats: " + covariateSummaries);
+		columnIndexes.clear();
+		try (LatencyHistogram.Timing t = Metrics.time("load.columnIndexes")) {
+			for (String varname : getSchema().varnames()) columnIndex(varname);
+		}
+	}
+	/** each covariate summarized over these docs */
+	public Map<String,SummaryStats> summarize(List<Document> docs) {
+		return summarize(docs, getSchema().varnames());
+	}
+	/** these covariates summarized over these docs.  a big list is split across threads, and the parts' summaries merged. */
+	public Map<String,SummaryStats> summarize(List<Document> docs, Collection<String> varnames) {
+		if (!Parallel.worthSplitting(docs.size())) {
+			return summarize(docs, varnames, 0, docs.size());
+		}
+		List<Callable<Map<String,SummaryStats>>> tasks = new ArrayList<>();
+		int per = (docs.size() + Parallel.NUM_TASKS - 1) / Parallel.NUM_TASKS;
+		for (int start=0; start < docs.size(); start += per) {
+			final int s = start, e = Math.min(start + per, docs.size());
+			tasks.add(() -> summarize(docs, varnames, s, e));
+		}
+		Map<String,SummaryStats> total = null;
+		for (Map<String,SummaryStats> part : Parallel.invokeAll(tasks)) {
+			if (total == null) { total = part; continue; }
+			for (Map.Entry<String,SummaryStats> e : part.entrySet()) total.get(e.getKey()).merge(e.getValue());
+		}
+		return total;
+	}
+	Map<String,SummaryStats> summarize(List<Document> docs, Collection<String> varnames, int start, int end) {
+		Map<String,SummaryStats> m = new HashMap<>();
+		for (String k : varnames) m.put(k, new SummaryStats());
+		for (int i=start; i<end; i++) {
+			Document d = docs.get(i);
+			for (Map.Entry<String,SummaryStats> e : m.entrySet()) {
+				if (d.covariates.containsKey(e.getKey())) e.getValue().add(getSchema().getDouble(d, e.getKey()));
+			}
+		}
+		return m;
+	}
+	/** add these docs' covariates into the summaries */
+	public void updateCovariateSummaries(Collection<Document> docs) {
+		for (String k : getSchema().varnames()) covariateSummaries.computeIfAbsent(k, x -> new SummaryStats());
+		for (Document d : docs) {
 			for (String varname : getSchema().varnames()) {
 				if (!d.covariates.containsKey(varname)) continue;
 				covariateSummaries.get(varname).add(getSchema().getDouble(d, varname));
 			}
 		}
-		U.p("Covariate summary stats: " + covariateSummaries);
 	}
 	
 	public void convertCovariateTypes() {
 		U.p("Covariate types, before conversion pass: " + getSchema().columnTypes);
-		for (Document d : allDocs()) {
+		convertCovariateTypes(allDocs());
+		U.p("Covariate types, after conversion pass: " + getSchema().columnTypes);
+	}
+	/** covariates as loaded from JSON, into the schema's types.  unseen categorical levels get added. */
+	void convertCovariateTypes(Collection<Document> docs) {
+		for (Document d : docs) {
 			for (String varname : getSchema().columnTypes.keySet()) {
 				if (!d.covariates.containsKey(varname)) continue;
 				ColumnInfo ci = getSchema().columnTypes.get(varname);
@@ -148,7 +520,38 @@ public class Corpus implements DataLayer {
 				
 			}
 		}
-		U.p("Covariate types, after conversion pass: " + getSchema().columnTypes);
+	}
+
+	/**
+	 * add new, already-analyzed docs to the loaded corpus; see te.ui.LiveAppender.
+	 * they get the next doc numbers, their covariates converted like the originals were,
+	 * and the covariate summaries, global term counts and index are updated for just them (the index as a new segment).
+	 * docs with a docid already in the corpus are skipped.  returns the docs that got added.
+	 */
+	public List<Document> appendDocuments(Collection<Document> docs) {
+		List<Document> added = new ArrayList<>();
+		for (Document d : docs) {
+			if (d.docid != null && docsById.containsKey(d.docid)) {
+				U.p("WARNING: skipping new doc with an existing docid: " + d.docid);
+				continue;
+			}
+			d.docnumOriginalOrder = docsInOriginalOrder.size() + 1;
+			if (d.docid == null) {
+				d.docid = "doc" + d.docnumOriginalOrder;
+				for (int trial=2; docsById.containsKey(d.docid); trial++) {
+					d.docid = "doc" + d.docnumOriginalOrder + "_" + trial;
+				}
+			}
+			docsInOriginalOrder.add(d);
+			docsById.put(d.docid, d);
+			added.add(d);
+		}
+		if (needsCovariateTypeConversion) convertCovariateTypes(added);
+		updateCovariateSummaries(added);
+		for (SortedColumnIndex ci : columnIndexes.values()) ci.add(getSchema(), added);
+		pointIndex = null;
+		addToIndex(added);
+		return added;
 	}
 
 	public void setDataFromDataLoader(DataLoader dataloader) {
@@ -162,11 +565,61 @@ public class Corpus implements DataLayer {
 		return schema;
 	}
 
+	InvertedIndex getIndex() {
+		return index;
+	}
+	TermDocMatrix termDocMatrixIfBuilt() {
+		return termDocMatrix;
+	}
+	PositionalIndex positionalIndexIfBuilt() {
+		return positionalIndex;
+	}
+	Collection<SortedColumnIndex> columnIndexes() {
+		return columnIndexes.values();
+	}
+	PostingsBitmaps postingsBitmapsIfBuilt() {
+		return postingsBitmaps;
+	}
+	FacetIndex facetIndexIfBuilt() {
+		return facetIndex;
+	}
+	LevelTermVectors levelVectorsIfBuilt() {
+		return levelVectors;
+	}
+	long indexedDocsSizeInBytes() {
+		return indexedDocs.sizeInBytes();
+	}
+
 	@Override
 	public Document pullDocument(String id) {
+		if (remote != null) return remote.pullDocument(id);
 		return docsById.get(id);
 	}
 
+	/**
+	 * serve this corpus from a CorpusServer.  the local docs become the server's metadata-only stubs,
+	 * which is all the covariate views need; queries and full documents (pullDocument) go to the server.
+	 */
+	public void attachRemote(RemoteDataLayer r) {
+		remote = r;
+		setSchema(r.getSchema());
+		docsInOriginalOrder = new ArrayList<>(r.allDocs());
+		docsById = new HashMap<>();
+		for (Document d : docsInOriginalOrder) {
+			docsById.put(d.docid, d);
+			indexedDocs.set(d.ordinal());
+		}
+		globalTerms = r.globalTerms;
+	}
+	public boolean isRemote() {
+		return remote != null;
+	}
+	/** full documents for these, in order.  locally the docs already are full; remotely they're pulled in one op. */
+	public List<Document> fullDocuments(Collection<Document> docs) {
+		if (remote == null) return new ArrayList<>(docs);
+		return remote.pullDocuments(docs.stream().map(d -> d.docid).collect(Collectors.toList()));
+	}
+
 	public void setSchema(Schema schema) {
 		this.schema = schema;
 	}
@@ -0,0 +1,68 @@
+package te.data;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+/**
+ * count-min sketch (Cormode and Muthukrishnan 2005) of term weights: any term's count, approximately, in fixed memory.
+ * estimates never undercount; with width w and depth d, they overcount by more than e*total/w with probability at most e^-d.
+ * updates are conservative (a row only goes up as far as the new estimate needs), which tightens that a lot in practice.
+ * the rows' hashes are h1 + row*h2 (Kirsch and Mitzenmacher 2006), from the two halves of one 128-bit murmur3 of the term,
+ * so they're independent enough for that bound; String.hashCode collisions would collide in every row.
+ */
+public class CountMinSketch {
+	final int width, depth;
+	final double[][] table;
+	double total = 0;
+
+	static final HashFunction MURMUR = Hashing.murmur3_128();
+
+	public CountMinSketch(int width, int depth) {
+		this.width = width;
+		this.depth = depth;
+		table = new double[depth][width];
+	}
+
+	/** {h1, h2} */
+	static long[] hash(String term) {
+		ByteBuffer b = ByteBuffer.wrap(MURMUR.hashString(term).asBytes()).order(ByteOrder.LITTLE_ENDIAN);
+		return new long[] { b.getLong(0), b.getLong(8) };
+	}
+
+	int bucket(long[] hash, int row) {
+		long h = hash[0] + row * hash[1];
+		return (int) ((h & Long.MAX_VALUE) % width);
+	}
+
+	public void add(String term, double weight) {
+		total += weight;
+		long[] hash = hash(term);
+		double target = estimate(hash) + weight;
+		for (int r=0; r<depth; r++) {
+			int c = bucket(hash, r);
+			if (table[r][c] < target) table[r][c] = target;
+		}
+	}
+
+	public double estimate(String term) {
+		return estimate(hash(term));
+	}
+	double estimate(long[] hash) {
+		double min = Double.POSITIVE_INFINITY;
+		for (int r=0; r<depth; r++) min = Math.min(min, table[r][bucket(hash, r)]);
+		return min;
+	}
+
+	public double total() { return total; }
+
+	/** multiply everything by f, e.g. to renormalize decayed weights */
+	public void scale(double f) {
+		for (double[] row : table) {
+			for (int c=0; c<width; c++) row[c] *= f;
+		}
+		total *= f;
+	}
+}
@@ -14,6 +14,10 @@ public interface DataLayer {
 
 	DocSet select(String xAttr, String yAttr, double minX, double maxX, double minY, double maxY);
 
+	/**
+	 * tokenize and analyze the docs in place.  only local layers do this: a remote one (RemoteDataLayer)
+	 * serves docs its server already tokenized, and throws UnsupportedOperationException.
+	 */
 	void runTokenizer(Function<String, List<Token>> tokenizer);
 
 	DocSet select(List<String> terms);
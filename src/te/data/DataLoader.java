@@ -26,6 +26,21 @@ public class DataLoader {
 //	Schema schemaSoFar = new Schema();
 	List<Document> docsInOriginalOrder = new ArrayList<>();
 	Map<String,Document> docsById = new HashMap<>();
+	/** keep only every n-th doc of each input, e.g. to estimate memory use from a sample (see HeapFootprint) */
+	public int sampleEvery = 1;
+	/** docs left out by sampling */
+	public long numSkipped = 0;
+	long numSeen = 0;
+	/** lines read from each JSON-lines file, and names of the files read from each directory.
+	 * a DocumentFeed picks up from there. */
+	public Map<String,Long> jsonLinesRead = new LinkedHashMap<>();
+	public Map<String,Set<String>> textFilesRead = new LinkedHashMap<>();
+
+	boolean skipForSample() {
+		if (numSeen++ % sampleEvery == 0) return false;
+		numSkipped++;
+		return true;
+	}
 	
 	static Set<String> SPECIAL_FIELDS;
 	static {
@@ -126,7 +141,10 @@ public class DataLoader {
 	}
 
 	public void loadJsonLines(String filename) throws BadData, IOException {
+		jsonLinesRead.put(filename, 0L);
 		for (String line : BasicFileIO.openFileLines(filename)) {
+			jsonLinesRead.merge(filename, 1L, Long::sum);
+			if (skipForSample()) continue;
 			Document doc = readDocFromJsonLine(line);
 			addDocumentRecord(doc, true);
 		}
@@ -152,6 +170,11 @@ public class DataLoader {
 	}
 	
 	public void loadTextFileAsDocumentText(String filename) throws BadData, IOException {
+		addDocumentRecord(readTextFile(filename), false);
+	}
+
+	/** does NOT change storage state */
+	Document readTextFile(String filename) throws BadData, IOException {
 		String name = Configuration.basename(filename);
 		String docid = name.replace("\\.txt$", "");
 		if ( ! isValidDocid(docid)) {
@@ -161,16 +184,19 @@ public class DataLoader {
 		Document d = new Document();
 		d.text = text;
 		d.docid = docid;
-		addDocumentRecord(d, false);
+		return d;
 	}
 	
 	public void loadTextFilesFromDirectory(String dirname) throws BadData, IOException {
 		FileSystem FS = FileSystems.getDefault();
 		int n = 0;
 		U.p("Loading from directory " + dirname);
+		Set<String> seen = textFilesRead.computeIfAbsent(dirname, k -> new HashSet<>());
 		try (DirectoryStream<Path> stream =
 				Files.newDirectoryStream(FS.getPath(dirname), "*.txt")) {
 			for (Path textfile : stream) {
+				seen.add(textfile.getFileName().toString());
+				if (skipForSample()) continue;
 				loadTextFileAsDocumentText(textfile.toString());
 				n++;
 			}
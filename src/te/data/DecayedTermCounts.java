@@ -0,0 +1,53 @@
+package te.data;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * background term counts for a stream: every doc so far, weighted down by age with a half-life in units of
+ * a numeric covariate, in a CountMinSketch so that rare terms get a count too, in fixed memory.
+ * halfLife = infinity means no decay, i.e. plain all-time counts.
+ *
+ * uses forward decay (Cormode et al. 2009): a doc at time t is added with weight 2^((t-landmark)/halfLife),
+ * which grows instead of old weights shrinking, so nothing has to be touched per update.
+ * only ratios mean anything (which is all lift needs), and when weights get too big everything is rescaled.
+ */
+public class DecayedTermCounts {
+	public final double halfLife;
+	final CountMinSketch sketch;
+	double landmark = Double.NaN;
+
+	public DecayedTermCounts(double halfLife, int sketchWidth, int sketchDepth) {
+		this.halfLife = halfLife;
+		sketch = new CountMinSketch(sketchWidth, sketchDepth);
+	}
+
+	double weight(double t) {
+		if (Double.isInfinite(halfLife)) return 1;
+		if (Double.isNaN(landmark)) landmark = t;
+		double exponent = (t - landmark) / halfLife;
+		if (exponent > 500) {
+			sketch.scale(Math.pow(2, -exponent));
+			landmark = t;
+			exponent = 0;
+		}
+		return Math.pow(2, exponent);
+	}
+
+	public void add(Document doc, double t) {
+		double w = weight(t);
+		for (Map.Entry<String,Double> e : doc.termVec.map.entrySet()) {
+			sketch.add(e.getKey(), w * e.getValue());
+		}
+	}
+
+	/** a vector with estimated counts of these terms, and the (decayed) total as totalCount, to compare against */
+	public TermVector estimates(Collection<String> terms) {
+		TermVector tv = new TermVector();
+		for (String term : terms) tv.map.put(term, sketch.estimate(term));
+		tv.totalCount = sketch.total();
+		return tv;
+	}
+
+	public double total() { return sketch.total(); }
+}
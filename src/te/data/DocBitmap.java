@@ -0,0 +1,569 @@
+package te.data;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * compressed bitmap over document ordinals (see {@link Document#ordinal()}).
+ *
+ * same basic layout as a roaring bitmap: the ordinal space is cut into 64k-wide chunks,
+ * and each chunk is stored the cheapest way for its contents --
+ *   absent (all zeros), FULL (all ones), a sorted array of low bits (sparse), or 1024 words (dense).
+ * so range sets/clears over big contiguous regions are basically free,
+ * membership is O(1)-ish (binary search inside a sparse chunk),
+ * and a term that occurs in 3 docs doesn't cost 8kb.
+ *
+ * not threadsafe.  treat a bitmap as immutable once it's been handed to another thread.
+ */
+public class DocBitmap {
+	static final int CHUNK_SHIFT = 16;
+	static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+	static final int CHUNK_MASK = CHUNK_SIZE - 1;
+	static final int NUM_WORDS = CHUNK_SIZE / 64;
+	/** above this many members, a sparse chunk converts to dense words.  same threshold as roaring. */
+	static final int ARRAY_MAX = 4096;
+
+	private Chunk[] chunks = new Chunk[0];
+
+	public DocBitmap() {}
+
+	public static DocBitmap of(int... ordinals) {
+		DocBitmap b = new DocBitmap();
+		for (int i : ordinals) b.set(i);
+		return b;
+	}
+	/** all docs in the range [from,to) */
+	public static DocBitmap range(int from, int to) {
+		DocBitmap b = new DocBitmap();
+		b.setRange(from, to);
+		return b;
+	}
+
+	///////////////  single-bit ops  ///////////////
+
+	public boolean get(int i) {
+		if (i < 0) return false;
+		int c = i >>> CHUNK_SHIFT;
+		if (c >= chunks.length || chunks[c]==null) return false;
+		return chunks[c].contains(i & CHUNK_MASK);
+	}
+
+	public void set(int i) {
+		assert i >= 0 : "negative ordinal " + i;
+		chunkForWrite(i >>> CHUNK_SHIFT).add(i & CHUNK_MASK);
+	}
+
+	public void clear(int i) {
+		if (i < 0) return;
+		int c = i >>> CHUNK_SHIFT;
+		if (c >= chunks.length || chunks[c]==null) return;
+		chunks[c].remove(i & CHUNK_MASK);
+		if (chunks[c].n==0) chunks[c] = null;
+	}
+
+	///////////////  range ops, [from,to)  ///////////////
+
+	public void setRange(int from, int to) {
+		assert from >= 0;
+		if (to <= from) return;
+		int c1 = from >>> CHUNK_SHIFT, c2 = (to-1) >>> CHUNK_SHIFT;
+		ensureChunks(c2+1);
+		for (int c=c1; c<=c2; c++) {
+			int lo = c==c1 ? from & CHUNK_MASK : 0;
+			int hi = c==c2 ? ((to-1) & CHUNK_MASK) + 1 : CHUNK_SIZE;
+			if (lo==0 && hi==CHUNK_SIZE) {
+				chunks[c] = Chunk.full();
+			} else {
+				if (chunks[c]==null) chunks[c] = new Chunk();
+				chunks[c].addRange(lo, hi);
+			}
+		}
+	}
+
+	public void clearRange(int from, int to) {
+		from = Math.max(from, 0);
+		to = Math.min(to, chunks.length * CHUNK_SIZE);
+		if (to <= from) return;
+		int c1 = from >>> CHUNK_SHIFT, c2 = (to-1) >>> CHUNK_SHIFT;
+		for (int c=c1; c<=c2; c++) {
+			if (chunks[c]==null) continue;
+			int lo = c==c1 ? from & CHUNK_MASK : 0;
+			int hi = c==c2 ? ((to-1) & CHUNK_MASK) + 1 : CHUNK_SIZE;
+			if (lo==0 && hi==CHUNK_SIZE) {
+				chunks[c] = null;
+			} else {
+				chunks[c].removeRange(lo, hi);
+				if (chunks[c].n==0) chunks[c] = null;
+			}
+		}
+	}
+
+	public void clear() {
+		chunks = new Chunk[0];
+	}
+
+	///////////////  whole-set queries  ///////////////
+
+	public int cardinality() {
+		int n = 0;
+		for (Chunk ch : chunks) if (ch != null) n += ch.n;
+		return n;
+	}
+
+	public boolean isEmpty() {
+		for (Chunk ch : chunks) if (ch != null) return false;
+		return true;
+	}
+
+	/** smallest member >= from, or -1 if none */
+	public int nextSetBit(int from) {
+		from = Math.max(from, 0);
+		for (int c = from >>> CHUNK_SHIFT; c < chunks.length; c++) {
+			if (chunks[c]==null) continue;
+			int lo = c==(from >>> CHUNK_SHIFT) ? from & CHUNK_MASK : 0;
+			int r = chunks[c].nextSetBit(lo);
+			if (r >= 0) return (c << CHUNK_SHIFT) | r;
+		}
+		return -1;
+	}
+	public int min() { return nextSetBit(0); }
+	/** largest member, or -1 if empty */
+	public int max() {
+		for (int c=chunks.length-1; c>=0; c--) {
+			if (chunks[c]==null) continue;
+			return (c << CHUNK_SHIFT) | chunks[c].last();
+		}
+		return -1;
+	}
+
+	/** visits members in increasing order */
+	public void forEach(IntConsumer fn) {
+		for (int c=0; c<chunks.length; c++) {
+			Chunk ch = chunks[c];
+			if (ch==null) continue;
+			int base = c << CHUNK_SHIFT;
+			if (ch.isFull()) {
+				for (int j=0; j<CHUNK_SIZE; j++) fn.accept(base | j);
+			} else if (ch.array != null) {
+				for (int j=0; j<ch.n; j++) fn.accept(base | ch.array[j]);
+			} else {
+				for (int w=0; w<NUM_WORDS; w++) {
+					long word = ch.words[w];
+					while (word != 0) {
+						int bit = Long.numberOfTrailingZeros(word);
+						fn.accept(base | (w<<6) | bit);
+						word &= word-1;
+					}
+				}
+			}
+		}
+	}
+
+	public int[] toArray() {
+		int[] ret = new int[cardinality()];
+		int[] k = new int[1];
+		forEach(i -> ret[k[0]++] = i);
+		return ret;
+	}
+
+	///////////////  set algebra  ///////////////
+
+	/** |this AND other|, without materializing the intersection */
+	public int andCardinality(DocBitmap other) {
+		int n = 0;
+		int m = Math.min(chunks.length, other.chunks.length);
+		for (int c=0; c<m; c++) {
+			Chunk a = chunks[c], b = other.chunks[c];
+			if (a==null || b==null) continue;
+			n += Chunk.andCardinality(a, b);
+		}
+		return n;
+	}
+
+	public boolean intersects(DocBitmap other) {
+		int m = Math.min(chunks.length, other.chunks.length);
+		for (int c=0; c<m; c++) {
+			Chunk a = chunks[c], b = other.chunks[c];
+			if (a != null && b != null && Chunk.andCardinality(a, b) > 0) return true;
+		}
+		return false;
+	}
+
+	/** in-place intersection */
+	public DocBitmap and(DocBitmap other) {
+		for (int c=0; c<chunks.length; c++) {
+			if (chunks[c]==null) continue;
+			Chunk b = c < other.chunks.length ? other.chunks[c] : null;
+			chunks[c] = b==null ? null : Chunk.and(chunks[c], b);
+		}
+		return this;
+	}
+
+	/** in-place union */
+	public DocBitmap or(DocBitmap other) {
+		ensureChunks(other.chunks.length);
+		for (int c=0; c<other.chunks.length; c++) {
+			Chunk b = other.chunks[c];
+			if (b==null) continue;
+			chunks[c] = chunks[c]==null ? b.copy() : Chunk.or(chunks[c], b);
+		}
+		return this;
+	}
+
+	/** in-place difference: this minus other */
+	public DocBitmap andNot(DocBitmap other) {
+		int m = Math.min(chunks.length, other.chunks.length);
+		for (int c=0; c<m; c++) {
+			if (chunks[c]==null || other.chunks[c]==null) continue;
+			chunks[c] = Chunk.andNot(chunks[c], other.chunks[c]);
+		}
+		return this;
+	}
+
+	public static DocBitmap and(DocBitmap a, DocBitmap b) { return a.copy().and(b); }
+	public static DocBitmap or(DocBitmap a, DocBitmap b) { return a.copy().or(b); }
+	public static DocBitmap andNot(DocBitmap a, DocBitmap b) { return a.copy().andNot(b); }
+
+	public DocBitmap copy() {
+		DocBitmap b = new DocBitmap();
+		b.chunks = new Chunk[chunks.length];
+		for (int c=0; c<chunks.length; c++) {
+			b.chunks[c] = chunks[c]==null ? null : chunks[c].copy();
+		}
+		return b;
+	}
+
+	/** rough retained size, for memory accounting */
+	public long sizeInBytes() {
+		long n = 16 + 16 + 8L*chunks.length;
+		for (Chunk ch : chunks) {
+			if (ch==null) continue;
+			n += 24;
+			if (ch.array != null) n += 16 + 2L*ch.array.length;
+			if (ch.words != null) n += 16 + 8L*ch.words.length;
+		}
+		return n;
+	}
+
+	/** the part of sizeInBytes holding the set docs themselves; the rest is fixed per bitmap and per chunk */
+	public long dataSizeInBytes() {
+		long n = 0;
+		for (Chunk ch : chunks) {
+			if (ch==null) continue;
+			if (ch.array != null) n += 2L*ch.array.length;
+			if (ch.words != null) n += 8L*ch.words.length;
+		}
+		return n;
+	}
+
+	@Override public boolean equals(Object o) {
+		if (!(o instanceof DocBitmap)) return false;
+		DocBitmap other = (DocBitmap) o;
+		if (cardinality() != other.cardinality()) return false;
+		return andCardinality(other) == cardinality();
+	}
+	@Override public int hashCode() {
+		int[] h = new int[]{ 1 };
+		forEach(i -> h[0] = 31*h[0] + i);
+		return h[0];
+	}
+	@Override public String toString() {
+		int n = cardinality();
+		if (n > 20) return String.format("DocBitmap[%d docs, %d..%d]", n, min(), max());
+		return "DocBitmap" + Arrays.toString(toArray());
+	}
+
+	///////////////  internals  ///////////////
+
+	private void ensureChunks(int n) {
+		if (chunks.length < n) {
+			chunks = Arrays.copyOf(chunks, Math.max(n, chunks.length*2));
+		}
+	}
+	private Chunk chunkForWrite(int c) {
+		ensureChunks(c+1);
+		if (chunks[c]==null) chunks[c] = new Chunk();
+		return chunks[c];
+	}
+
+	/** one 64k-wide container.  exactly one of: full (both arrays null, n==CHUNK_SIZE), sparse array, or dense words. */
+	static final class Chunk {
+		char[] array;
+		long[] words;
+		int n;
+
+		Chunk() {
+			array = new char[4];
+		}
+		static Chunk full() {
+			Chunk ch = new Chunk();
+			ch.array = null;
+			ch.n = CHUNK_SIZE;
+			return ch;
+		}
+		static Chunk dense(long[] words) {
+			Chunk ch = new Chunk();
+			ch.array = null;
+			ch.words = words;
+			ch.recount();
+			return ch.normalize();
+		}
+		boolean isFull() { return array==null && words==null; }
+
+		Chunk copy() {
+			Chunk ch = new Chunk();
+			ch.array = array==null ? null : Arrays.copyOf(array, Math.max(n, 4));
+			ch.words = words==null ? null : words.clone();
+			ch.n = n;
+			return ch;
+		}
+
+		boolean contains(int x) {
+			if (array != null) return Arrays.binarySearch(array, 0, n, (char) x) >= 0;
+			if (words != null) return (words[x >>> 6] & (1L << x)) != 0;
+			return true;
+		}
+
+		void add(int x) {
+			if (array != null) {
+				int pos = Arrays.binarySearch(array, 0, n, (char) x);
+				if (pos >= 0) return;
+				if (n >= ARRAY_MAX) {
+					toDense();
+					add(x);
+					return;
+				}
+				pos = -pos - 1;
+				if (n==array.length) array = Arrays.copyOf(array, Math.min(ARRAY_MAX, n*2));
+				System.arraycopy(array, pos, array, pos+1, n-pos);
+				array[pos] = (char) x;
+				n++;
+			}
+			else if (words != null) {
+				long bit = 1L << x;
+				if ((words[x >>> 6] & bit)==0) {
+					words[x >>> 6] |= bit;
+					n++;
+				}
+			}
+		}
+
+		void remove(int x) {
+			if (isFull()) toDense();
+			if (array != null) {
+				int pos = Arrays.binarySearch(array, 0, n, (char) x);
+				if (pos < 0) return;
+				System.arraycopy(array, pos+1, array, pos, n-pos-1);
+				n--;
+			}
+			else {
+				long bit = 1L << x;
+				if ((words[x >>> 6] & bit) != 0) {
+					words[x >>> 6] &= ~bit;
+					n--;
+				}
+			}
+		}
+
+		void addRange(int lo, int hi) {
+			if (isFull()) return;
+			if (array != null && n + (hi-lo) <= ARRAY_MAX) {
+				for (int x=lo; x<hi; x++) add(x);
+				return;
+			}
+			if (array != null) toDense();
+			setWordRange(words, lo, hi, true);
+			recount();
+			normalizeInPlace();
+		}
+
+		void removeRange(int lo, int hi) {
+			if (array != null) {
+				int a = lowerBound(lo), b = lowerBound(hi);
+				System.arraycopy(array, b, array, a, n-b);
+				n -= b-a;
+				return;
+			}
+			if (isFull()) toDense();
+			setWordRange(words, lo, hi, false);
+			recount();
+			normalizeInPlace();
+		}
+
+		int nextSetBit(int from) {
+			if (isFull()) return from;
+			if (array != null) {
+				int pos = lowerBound(from);
+				return pos < n ? array[pos] : -1;
+			}
+			int w = from >>> 6;
+			long word = words[w] & (-1L << from);
+			while (true) {
+				if (word != 0) return (w<<6) + Long.numberOfTrailingZeros(word);
+				if (++w >= NUM_WORDS) return -1;
+				word = words[w];
+			}
+		}
+
+		int last() {
+			if (isFull()) return CHUNK_SIZE-1;
+			if (array != null) return array[n-1];
+			for (int w=NUM_WORDS-1; w>=0; w--) {
+				if (words[w] != 0) return (w<<6) + 63 - Long.numberOfLeadingZeros(words[w]);
+			}
+			return -1;
+		}
+
+		/** first index in the sparse array whose value is >= x */
+		int lowerBound(int x) {
+			int lo=0, hi=n;
+			while (lo < hi) {
+				int mid = (lo+hi) >>> 1;
+				if (array[mid] < x) lo = mid+1; else hi = mid;
+			}
+			return lo;
+		}
+
+		void toDense() {
+			long[] w = new long[NUM_WORDS];
+			if (array != null) {
+				for (int j=0; j<n; j++) w[array[j] >>> 6] |= 1L << array[j];
+			} else {
+				Arrays.fill(w, -1L);
+			}
+			words = w;
+			array = null;
+		}
+		long[] denseWords() {
+			if (words != null) return words;
+			Chunk tmp = copy();
+			tmp.toDense();
+			return tmp.words;
+		}
+
+		void recount() {
+			int c = 0;
+			for (long w : words) c += Long.bitCount(w);
+			n = c;
+		}
+		/** pick the cheapest representation for the current contents */
+		Chunk normalize() {
+			normalizeInPlace();
+			return n==0 ? null : this;
+		}
+		void normalizeInPlace() {
+			if (words==null) return;
+			if (n==CHUNK_SIZE) {
+				words = null;
+			} else if (n <= ARRAY_MAX) {
+				char[] arr = new char[Math.max(n, 4)];
+				int k = 0;
+				for (int w=0; w<NUM_WORDS; w++) {
+					long word = words[w];
+					while (word != 0) {
+						arr[k++] = (char) ((w<<6) + Long.numberOfTrailingZeros(word));
+						word &= word-1;
+					}
+				}
+				array = arr;
+				words = null;
+			}
+		}
+
+		static int andCardinality(Chunk a, Chunk b) {
+			if (a.isFull()) return b.n;
+			if (b.isFull()) return a.n;
+			if (a.array != null && b.array != null) {
+				int i=0, j=0, c=0;
+				while (i < a.n && j < b.n) {
+					if (a.array[i] < b.array[j]) i++;
+					else if (a.array[i] > b.array[j]) j++;
+					else { c++; i++; j++; }
+				}
+				return c;
+			}
+			if (a.array != null || b.array != null) {
+				Chunk sparse = a.array != null ? a : b;
+				long[] w = a.array != null ? b.words : a.words;
+				int c = 0;
+				for (int j=0; j<sparse.n; j++) {
+					char x = sparse.array[j];
+					if ((w[x >>> 6] & (1L << x)) != 0) c++;
+				}
+				return c;
+			}
+			int c = 0;
+			for (int w=0; w<NUM_WORDS; w++) c += Long.bitCount(a.words[w] & b.words[w]);
+			return c;
+		}
+
+		static Chunk and(Chunk a, Chunk b) {
+			if (a.isFull()) return b.copy();
+			if (b.isFull()) return a;
+			if (a.array != null || b.array != null) {
+				Chunk sparse = a.array != null ? a : b;
+				Chunk other = sparse==a ? b : a;
+				Chunk ret = new Chunk();
+				ret.array = new char[Math.max(sparse.n, 4)];
+				for (int j=0; j<sparse.n; j++) {
+					if (other.contains(sparse.array[j])) ret.array[ret.n++] = sparse.array[j];
+				}
+				return ret.n==0 ? null : ret;
+			}
+			long[] w = new long[NUM_WORDS];
+			for (int k=0; k<NUM_WORDS; k++) w[k] = a.words[k] & b.words[k];
+			return dense(w);
+		}
+
+		static Chunk or(Chunk a, Chunk b) {
+			if (a.isFull() || b.isFull()) return full();
+			if (a.array != null && b.array != null && a.n + b.n <= ARRAY_MAX) {
+				Chunk ret = new Chunk();
+				ret.array = new char[Math.max(a.n + b.n, 4)];
+				int i=0, j=0;
+				while (i < a.n || j < b.n) {
+					char x;
+					if (j >= b.n || (i < a.n && a.array[i] < b.array[j])) x = a.array[i++];
+					else if (i >= a.n || b.array[j] < a.array[i]) x = b.array[j++];
+					else { x = a.array[i++]; j++; }
+					ret.array[ret.n++] = x;
+				}
+				return ret;
+			}
+			long[] w = a.denseWords().clone();
+			long[] bw = b.denseWords();
+			for (int k=0; k<NUM_WORDS; k++) w[k] |= bw[k];
+			return dense(w);
+		}
+
+		static Chunk andNot(Chunk a, Chunk b) {
+			if (b.isFull()) return null;
+			if (a.array != null) {
+				Chunk ret = new Chunk();
+				ret.array = new char[Math.max(a.n, 4)];
+				for (int j=0; j<a.n; j++) {
+					if (!b.contains(a.array[j])) ret.array[ret.n++] = a.array[j];
+				}
+				return ret.n==0 ? null : ret;
+			}
+			long[] w = a.denseWords().clone();
+			long[] bw = b.denseWords();
+			for (int k=0; k<NUM_WORDS; k++) w[k] &= ~bw[k];
+			return dense(w);
+		}
+
+		/** [lo,hi) */
+		static void setWordRange(long[] words, int lo, int hi, boolean value) {
+			if (hi <= lo) return;
+			int w1 = lo >>> 6, w2 = (hi-1) >>> 6;
+			long firstMask = -1L << lo;
+			long lastMask = -1L >>> -hi;
+			for (int w=w1; w<=w2; w++) {
+				long mask = -1L;
+				if (w==w1) mask &= firstMask;
+				if (w==w2) mask &= lastMask;
+				if (value) words[w] |= mask; else words[w] &= ~mask;
+			}
+		}
+	}
+}
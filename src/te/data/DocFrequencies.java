@@ -0,0 +1,55 @@
+package te.data;
+
+/**
+ * per-term document frequencies in a doc selection versus all indexed docs, by popcount of postings AND selection.
+ * counterpart of TermvecComparison's token counts: a term repeated 300 times in one doc counts once here.
+ * the association scores are on the 2x2 table of docs (selected or not) x (has the term or not).
+ */
+public class DocFrequencies {
+	final PostingsBitmaps postings;
+	final DocBitmap selection;
+	public final int numFocusDocs, numDocs;
+
+	public DocFrequencies(PostingsBitmaps postings, DocBitmap selection, int numDocs) {
+		this.postings = postings;
+		this.selection = selection;
+		this.numFocusDocs = selection.cardinality();
+		this.numDocs = numDocs;
+	}
+
+	/** selected docs with the term */
+	public int focus(String term) {
+		return postings.df(term, selection);
+	}
+	/** all docs with the term */
+	public int background(String term) {
+		return postings.df(term);
+	}
+
+	/** share of selected docs with the term over the share of all docs with it.  0 when either is empty. */
+	public static double lift(int focusDf, int backgroundDf, int numFocusDocs, int numDocs) {
+		if (focusDf == 0 || numFocusDocs == 0) return 0;
+		return ((double) focusDf / numFocusDocs) / ((double) backgroundDf / numDocs);
+	}
+	public double lift(String term) {
+		return lift(focus(term), background(term), numFocusDocs, numDocs);
+	}
+
+	/**
+	 * log-likelihood ratio (G^2) of term occurrence against selection, signed negative when the term is
+	 * rarer in the selection than elsewhere.  unlike lift, it needs more evidence for rare terms to score high.
+	 */
+	public static double g2(int focusDf, int backgroundDf, int numFocusDocs, int numDocs) {
+		double a = focusDf, b = numFocusDocs - focusDf, c = backgroundDf - focusDf, d = numDocs - numFocusDocs - c;
+		double n = numDocs;
+		if (n == 0 || numFocusDocs == 0 || numFocusDocs == numDocs) return 0;
+		double g = 2 * (ll(a, (a+b)*(a+c)/n) + ll(b, (a+b)*(b+d)/n) + ll(c, (c+d)*(a+c)/n) + ll(d, (c+d)*(b+d)/n));
+		return a/(a+b) >= (a+c)/n ? g : -g;
+	}
+	static double ll(double observed, double expected) {
+		return observed == 0 ? 0 : observed * Math.log(observed / expected);
+	}
+	public double g2(String term) {
+		return g2(focus(term), background(term), numFocusDocs, numDocs);
+	}
+}
@@ -21,6 +21,12 @@ public class DocSet {
 			add(d);
 		}
 	}
+	/** docs whose terms are already summed up, e.g. by LevelTermVectors */
+	DocSet(Collection<Document> _docs, TermVector terms) {
+		init();
+		for (Document d : _docs) docsById.put(d.docid, d);
+		this.terms = terms;
+	}
 	public Collection<Document> docs() {
 		return docsById.values();
 	}
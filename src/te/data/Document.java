@@ -53,14 +53,19 @@ public class Document {
 		return tokens.get(0).ner != null;
 	}
 
-	/** returns -1 if no such token */
+	/** zero-based position in the corpus's original order.  this is the key used by {@link DocBitmap}. */
+	public int ordinal() {
+		return docnumOriginalOrder - 1;
+	}
+
+	/** returns -1 if no such token.  binary search, since tokens are in char order. */
 	public int getIndexOfFirstTokenAtOrAfterCharIndex(int charind) {
-		for (int t=0; t<tokens.size(); t++) {
-			if (tokens.get(t).startChar >= charind) {
-				return t;
-			}
+		int lo=0, hi=tokens.size();
+		while (lo < hi) {
+			int mid = (lo+hi) >>> 1;
+			if (tokens.get(mid).startChar < charind) lo = mid+1; else hi = mid;
 		}
-		return -1;
+		return lo < tokens.size() ? lo : -1;
 	}
 	
 	@Override public String toString() { return String.format("Document[docid=%s]", docid); }
@@ -0,0 +1,201 @@
+package te.data;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import te.exceptions.BadData;
+import utility.util.U;
+
+/**
+ * new documents showing up in a data source after it was loaded: lines appended to a JSON-lines file,
+ * or new .txt files in a directory.  te.ui.LiveAppender polls these on a background thread.
+ * or, JSON lines arriving on a stream (stdin, or connections to a local port), as for te.ui.StreamMonitor;
+ * those are read on their own threads and queued up for poll().
+ *
+ * records are parsed the same way DataLoader parses them, but not merged into anything;
+ * they come back without doc numbers, and the JSON ones possibly without docids.
+ * a line only counts once its newline is written, and a file once its size stops changing between polls,
+ * so half-written records are never read.
+ */
+public class DocumentFeed {
+	/** most bytes of a JSON-lines file to read per poll */
+	static int MAX_READ = 16 << 20;
+
+	final String path;
+	final boolean isDirectory;
+	/** for streams, lines read so far and not yet polled */
+	ConcurrentLinkedQueue<String> streamLines;
+	AtomicInteger openStreams = new AtomicInteger();
+	boolean acceptsMore = false;
+	final DataLoader parser = new DataLoader();
+
+	// JSON lines
+	long offset = 0;
+	long linesToSkip;
+	// directory
+	Set<String> seenFiles;
+	Map<String,Long> pendingSizes = new HashMap<>();
+
+	private DocumentFeed(String path, boolean isDirectory) {
+		this.path = path;
+		this.isDirectory = isDirectory;
+	}
+
+	/** new lines after the first linesAlreadyRead */
+	public static DocumentFeed tailJsonLines(String filename, long linesAlreadyRead) {
+		DocumentFeed f = new DocumentFeed(filename, false);
+		f.linesToSkip = linesAlreadyRead;
+		return f;
+	}
+	/** new .txt files, other than the ones named */
+	public static DocumentFeed watchDirectory(String dirname, Collection<String> filesAlreadyRead) {
+		DocumentFeed f = new DocumentFeed(dirname, true);
+		f.seenFiles = new HashSet<>(filesAlreadyRead);
+		return f;
+	}
+
+	/** JSON lines from a stream, e.g. System.in, until it ends */
+	public static DocumentFeed fromStream(InputStream in, String name) {
+		DocumentFeed f = new DocumentFeed(name, false);
+		f.streamLines = new ConcurrentLinkedQueue<>();
+		f.readInBackground(in, name);
+		return f;
+	}
+	/** JSON lines sent to this local port, over any number of connections, one after another or at once */
+	public static DocumentFeed listen(int port) throws IOException {
+		DocumentFeed f = new DocumentFeed("localhost:" + port, false);
+		f.streamLines = new ConcurrentLinkedQueue<>();
+		f.acceptsMore = true;
+		ServerSocket server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+		Thread t = new Thread(() -> {
+			while (true) {
+				try {
+					Socket conn = server.accept();
+					f.readInBackground(conn.getInputStream(), "connection from " + conn.getRemoteSocketAddress());
+				} catch (IOException e) {
+					U.pf("WARNING: %s stopped accepting: %s\n", f.path, e);
+					return;
+				}
+			}
+		}, "document-feed-listener");
+		t.setDaemon(true);
+		t.start();
+		return f;
+	}
+
+	void readInBackground(InputStream in, String name) {
+		openStreams.incrementAndGet();
+		Thread t = new Thread(() -> {
+			try (BufferedReader r = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+				String line;
+				while ((line = r.readLine()) != null) streamLines.add(line);
+			} catch (IOException e) {
+				U.pf("WARNING: reading %s failed: %s\n", name, e);
+			} finally {
+				openStreams.decrementAndGet();
+			}
+		}, "document-feed-reader");
+		t.setDaemon(true);
+		t.start();
+	}
+
+	/** a stream feed whose input has all ended and been polled.  files, directories and ports never finish. */
+	public boolean isFinished() {
+		return streamLines != null && !acceptsMore && openStreams.get() == 0 && streamLines.isEmpty();
+	}
+
+	/** the docs that showed up since the last poll */
+	public List<Document> poll() throws IOException {
+		return streamLines != null ? pollStream() : isDirectory ? pollDirectory() : pollJsonLines();
+	}
+
+	List<Document> pollStream() throws IOException {
+		List<Document> docs = new ArrayList<>();
+		String line;
+		while ((line = streamLines.poll()) != null) {
+			if (line.trim().isEmpty()) continue;
+			try {
+				docs.add(parser.readDocFromJsonLine(line));
+			} catch (BadData e) {
+				U.pf("WARNING: skipping bad record from %s: %s\n", path, e.getMessage());
+			}
+		}
+		return docs;
+	}
+
+	List<Document> pollJsonLines() throws IOException {
+		byte[] buf;
+		try (RandomAccessFile f = new RandomAccessFile(path, "r")) {
+			long len = f.length();
+			if (len < offset) {
+				U.pf("WARNING: %s got shorter; reading it again from the start\n", path);
+				offset = 0;
+			}
+			if (len == offset) return Collections.emptyList();
+			buf = new byte[(int) Math.min(len - offset, MAX_READ)];
+			f.seek(offset);
+			f.readFully(buf);
+		}
+		int end = buf.length;
+		while (end > 0 && buf[end-1] != '\n') end--;
+		if (end == 0) return Collections.emptyList();
+		offset += end;
+		List<Document> docs = new ArrayList<>();
+		for (String line : new String(buf, 0, end, StandardCharsets.UTF_8).split("\n")) {
+			if (linesToSkip > 0) { linesToSkip--; continue; }
+			if (line.trim().isEmpty()) continue;
+			try {
+				docs.add(parser.readDocFromJsonLine(line));
+			} catch (BadData e) {
+				U.pf("WARNING: skipping bad record in %s: %s\n", path, e.getMessage());
+			}
+		}
+		return docs;
+	}
+
+	List<Document> pollDirectory() throws IOException {
+		List<Document> docs = new ArrayList<>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(Paths.get(path), "*.txt")) {
+			for (Path textfile : stream) {
+				String name = textfile.getFileName().toString();
+				if (seenFiles.contains(name)) continue;
+				long size = Files.size(textfile);
+				Long lastSize = pendingSizes.put(name, size);
+				if (lastSize == null || lastSize != size) continue;
+				pendingSizes.remove(name);
+				seenFiles.add(name);
+				try {
+					docs.add(parser.readTextFile(textfile.toString()));
+				} catch (BadData e) {
+					U.pf("WARNING: skipping %s: %s\n", textfile, e.getMessage());
+				}
+			}
+		}
+		return docs;
+	}
+
+	@Override public String toString() {
+		return U.sf("DocumentFeed[%s %s]", streamLines != null ? "stream" : isDirectory ? "directory" : "jsonlines", path);
+	}
+}
@@ -0,0 +1,158 @@
+package te.data;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import te.data.Schema.ColumnInfo;
+import te.data.Schema.Levels.Level;
+
+/**
+ * a doc bitmap for each facet value: each level of a categorical covariate, and each of NUM_BINS equal-width bins
+ * of a numeric one.  counting how a doc set splits over every facet is then one popcount of an AND per value
+ * (DocBitmap.andCardinality), without looking at a single doc.
+ *
+ * bin edges are fixed when the index is built.  add() reports when a new doc falls outside them,
+ * and then Corpus rebuilds the index on next use.  not threadsafe; the swing thread owns it.
+ */
+public class FacetIndex {
+	public static int NUM_BINS = 10;
+
+	/** one covariate's values, with a doc bitmap each */
+	static class Column {
+		final String varname;
+		final boolean numeric;
+		final List<String> labels = new ArrayList<>();
+		final List<DocBitmap> docs = new ArrayList<>();
+		/** bin edges */
+		double min, width;
+
+		Column(String varname, boolean numeric) {
+			this.varname = varname;
+			this.numeric = numeric;
+		}
+		/** -1 if the doc has no value here, -2 if it's a number outside the bins */
+		int position(Schema schema, Document d) {
+			Object v = d.covariates.get(varname);
+			if (numeric) {
+				if (!(v instanceof Number)) return -1;
+				double x = ((Number) v).doubleValue();
+				if (width == 0) return x == min ? 0 : -2;
+				int b = (int) Math.floor((x - min) / width);
+				// the max goes in the last bin
+				if (b == labels.size() && x <= min + width*labels.size()) b--;
+				return b < 0 || b >= labels.size() ? -2 : b;
+			}
+			if (!(v instanceof String)) return -1;
+			Level l = schema.column(varname).levels.name2level.get(v);
+			return l == null || l.number >= labels.size() ? -2 : l.number;
+		}
+	}
+
+	final Schema schema;
+	final List<Column> columns = new ArrayList<>();
+
+	/** the docs' covariates set the bin edges */
+	public FacetIndex(Schema schema, Collection<Document> docs) {
+		this.schema = schema;
+		for (Map.Entry<String,ColumnInfo> e : schema.columnTypes.entrySet()) {
+			ColumnInfo ci = e.getValue();
+			if (ci.isCateg()) {
+				Column c = new Column(e.getKey(), false);
+				for (int i=0; i<ci.levels.levels().size(); i++) {
+					c.labels.add(ci.levels.num2level.get(i).displayName());
+					c.docs.add(new DocBitmap());
+				}
+				columns.add(c);
+			} else if (ci.dataType == Schema.DataType.NUMBER) {
+				Column c = new Column(e.getKey(), true);
+				double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+				for (Document d : docs) {
+					Object v = d.covariates.get(c.varname);
+					if (!(v instanceof Number)) continue;
+					min = Math.min(min, ((Number) v).doubleValue());
+					max = Math.max(max, ((Number) v).doubleValue());
+				}
+				if (min > max) continue;
+				int nbins = min == max ? 1 : NUM_BINS;
+				c.min = min;
+				c.width = (max - min) / nbins;
+				for (int b=0; b<nbins; b++) {
+					double lo = min + b*c.width, hi = b==nbins-1 ? max : min + (b+1)*c.width;
+					c.labels.add(String.format("%.4g to %.4g", lo, hi));
+					c.docs.add(new DocBitmap());
+				}
+				columns.add(c);
+			}
+		}
+		columns.sort((a, b) -> a.varname.compareTo(b.varname));
+		add(docs);
+	}
+
+	/** false if some doc didn't fit (a new level, or a number past the bins); the index is then incomplete */
+	public boolean add(Collection<Document> docs) {
+		boolean fits = true;
+		for (Document d : docs) {
+			for (Column c : columns) {
+				int p = c.position(schema, d);
+				if (p >= 0) c.docs.get(p).set(d.ordinal());
+				else if (p == -2) fits = false;
+			}
+		}
+		return fits;
+	}
+
+	/**
+	 * how the matched docs split over every facet value, against all docs.
+	 * the expected count for a value is its share of all the docs, times the number matched.
+	 */
+	public List<Facet> count(DocBitmap matched, DocBitmap all) {
+		int numMatched = matched.andCardinality(all);
+		int numAll = all.cardinality();
+		List<Facet> facets = new ArrayList<>();
+		for (Column c : columns) {
+			int n = c.labels.size();
+			Facet f = new Facet(c.varname, c.numeric, c.labels.toArray(new String[n]));
+			for (int i=0; i<n; i++) {
+				DocBitmap b = c.docs.get(i);
+				f.observed[i] = b.andCardinality(matched);
+				f.totals[i] = b.cardinality();
+				f.expected[i] = numAll == 0 ? 0 : (double) numMatched * f.totals[i] / numAll;
+			}
+			facets.add(f);
+		}
+		return facets;
+	}
+
+	public long sizeInBytes() {
+		long n = 0;
+		for (Column c : columns) {
+			for (DocBitmap b : c.docs) n += b.sizeInBytes();
+		}
+		return n;
+	}
+
+	/** the counts for one covariate, parallel arrays by value */
+	public static class Facet {
+		public final String varname;
+		public final boolean numeric;
+		public final String[] labels;
+		public final int[] observed, totals;
+		public final double[] expected;
+
+		Facet(String varname, boolean numeric, String[] labels) {
+			this.varname = varname;
+			this.numeric = numeric;
+			this.labels = labels;
+			observed = new int[labels.length];
+			totals = new int[labels.length];
+			expected = new double[labels.length];
+		}
+		public int size() { return labels.length; }
+		/** observed over expected; 0 where nothing is expected */
+		public double ratio(int i) {
+			return expected[i] == 0 ? 0 : observed[i] / expected[i];
+		}
+	}
+}
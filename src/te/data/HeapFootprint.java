@@ -0,0 +1,327 @@
+package te.data;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import utility.util.U;
+
+/**
+ * estimated retained heap, per major data structure of a loaded corpus.
+ *
+ * walks the actual objects, but sizes them with a model of the hotspot layout (headers, compressed oops,
+ * 8-byte alignment, HashMap/ArrayList internals) rather than measuring, since java 9+ won't let us reflect
+ * into java.util.  strings shared between structures are counted once, under the first one that has them.
+ * UI caches aren't reachable from the corpus, so they're modeled from the doc count.
+ *
+ * also extrapolates from a sample of the corpus (see {@link #extrapolate}), for sizing -Xmx before a full load.
+ * for that, each structure's bytes are split by what they grow with: the docs, the vocabulary, or the postings.
+ */
+public class HeapFootprint {
+	// layout model.  compressed oops (the default below 32GB heaps) unless the JVM says otherwise.
+	static final boolean COMPRESSED_OOPS = compressedOops();
+	static final int REF = COMPRESSED_OOPS ? 4 : 8;
+	static final int HEADER = COMPRESSED_OOPS ? 12 : 16;
+	static final int ARRAY_HEADER = COMPRESSED_OOPS ? 16 : 24;
+	/** java 9+ stores latin-1 strings with 1 byte per char */
+	static final boolean COMPACT_STRINGS = !System.getProperty("java.specification.version").startsWith("1.");
+
+	/** what a structure's bytes are proportional to */
+	public enum Scaling {
+		DOCS("docs"), VOCAB("vocab"), POSTINGS("postings");
+		final String label;
+		Scaling(String label) { this.label = label; }
+	}
+
+	/** structure name -> bytes, in report order */
+	public Map<String,Long> bytes = new LinkedHashMap<>();
+	/** structure name -> its bytes split by Scaling, indexed by ordinal */
+	public Map<String,long[]> byScaling = new LinkedHashMap<>();
+	public long numDocs;
+	public long numTokens;
+	/** (doc, distinct term) pairs: the inverted index's entries */
+	public long numPostings;
+	public long vocabSize;
+	/** {docs, distinct terms} after the first 1/16, 1/8, 1/4, 1/2 and all of the docs; fits the Heaps' law exponent */
+	public List<long[]> vocabGrowth = new ArrayList<>();
+
+	static boolean compressedOops() {
+		try {
+			com.sun.management.HotSpotDiagnosticMXBean hs = ManagementFactory.getPlatformMXBean(com.sun.management.HotSpotDiagnosticMXBean.class);
+			return Boolean.parseBoolean(hs.getVMOption("UseCompressedOops").getValue());
+		} catch (Throwable e) {
+			return true;
+		}
+	}
+
+	static long align(long n) { return (n + 7) & ~7L; }
+	static long object(int numRefs, int primitiveBytes) { return align(HEADER + numRefs*REF + primitiveBytes); }
+	static long refArray(long n) { return align(ARRAY_HEADER + n*REF); }
+	static long string(String s) {
+		if (s == null) return 0;
+		boolean latin1 = COMPACT_STRINGS;
+		if (latin1) {
+			for (int i=0; i<s.length(); i++) {
+				if (s.charAt(i) > 255) { latin1 = false; break; }
+			}
+		}
+		// String: header + value ref + hash + (coder/hash flags), then the backing array
+		return object(1, 8) + align(ARRAY_HEADER + (long) s.length() * (latin1 ? 1 : 2));
+	}
+	static long boxedInt(int x) { return x >= -128 && x <= 127 ? 0 : object(0, 4); }
+	static long boxedDouble() { return object(0, 8); }
+	/** default-constructed ArrayList, grown by appending */
+	static long arrayList(int n) {
+		int cap = n==0 ? 0 : 10;
+		while (cap < n) cap += cap >> 1;
+		return object(1, 8) + (cap==0 ? 0 : refArray(cap));
+	}
+	/** a HashMap's own structure: the map, its table and nodes.  not keys or values. */
+	static long hashMap(long n) {
+		long cap = 0;
+		if (n > 0) {
+			cap = 16;
+			while (cap * 0.75 < n) cap *= 2;
+		}
+		return object(6, 16) + (cap==0 ? 0 : refArray(cap)) + n * object(3, 4);
+	}
+
+	void add(String structure, long n) {
+		add(structure, Scaling.DOCS, n);
+	}
+
+	void add(String structure, Scaling s, long n) {
+		bytes.merge(structure, n, Long::sum);
+		byScaling.computeIfAbsent(structure, k -> new long[Scaling.values().length])[s.ordinal()] += n;
+	}
+
+	/** a structure of total bytes, of which some grow with the vocabulary and some with the postings */
+	void add(String structure, long total, long terms, long postings) {
+		add(structure, Scaling.DOCS, total - terms - postings);
+		add(structure, Scaling.VOCAB, terms);
+		add(structure, Scaling.POSTINGS, postings);
+	}
+
+	public static final String DOCS = "documents", TEXT = "text", TOKENS = "tokens", TERMINSTS = "term instances",
+			TIS_INDEXES = "term instance lookups", TERMVECS = "doc term vectors", INDEX = "inverted index",
+			GLOBAL = "globalTerms", COVARIATES = "covariates", INDEXED = "indexed-doc bitmap",
+			TERMDOC = "term-doc matrix", POSITIONAL = "positional index", LEVELS = "categorical level sums",
+			FACETS = "facet bitmaps", COLUMNS = "sorted covariate columns", POINTS = "brush point grid", POSTINGS = "postings bitmaps", UI = "UI point caches (modeled)";
+
+	public static HeapFootprint measure(Corpus corpus) {
+		HeapFootprint f = new HeapFootprint();
+		List<Document> docs = corpus.docsInOriginalOrder;
+		f.numDocs = docs.size();
+		Set<String> vocab = Collections.newSetFromMap(new java.util.HashMap<>());
+
+		f.add(DOCS, arrayList(docs.size()) + hashMap(docs.size()));
+		int i = 0;
+		int checkpoint = Math.max(1, docs.size() / 16);
+		for (Document d : docs) {
+			Set<Object> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+			f.add(DOCS, object(10, 4) + string(d.docid));
+			seen.add(d.docid);
+			if (d.text != null && seen.add(d.text)) f.add(TEXT, string(d.text));
+
+			if (d.tokens != null) {
+				f.numTokens += d.tokens.size();
+				long n = arrayList(d.tokens.size());
+				for (Token t : d.tokens) {
+					n += object(3, 8);
+					if (t.text != null && seen.add(t.text)) n += string(t.text);
+					if (t.pos != null && seen.add(t.pos)) n += string(t.pos);
+					if (t.ner != null && seen.add(t.ner)) n += string(t.ner);
+				}
+				f.add(TOKENS, n);
+			}
+
+			if (d.termInstances != null) {
+				long n = arrayList(d.termInstances.size());
+				for (TermInstance ti : d.termInstances) {
+					n += object(2, 0) + arrayList(ti.tokIndsInDoc.size());
+					for (int x : ti.tokIndsInDoc) n += boxedInt(x);
+					if (seen.add(ti.termName)) n += string(ti.termName);
+				}
+				f.add(TERMINSTS, n);
+				f.add(TIS_INDEXES, tisMap(d.tisByStartTokindex) + tisMap(d.tisByAllTokindexes)
+						+ tisMap(d.tisByStartCharindex) + tisMap(d.tisByEndCharindex));
+			}
+
+			if (d.termVec != null) {
+				int n = d.termVec.map.size();
+				f.add(TERMVECS, object(1, 8) + hashMap(n) + n*boxedDouble());
+				for (String k : d.termVec.map.keySet()) {
+					if (seen.add(k)) f.add(TERMVECS, string(k));
+				}
+				vocab.addAll(d.termVec.map.keySet());
+				f.numPostings += n;
+			}
+
+			if (d.covariates != null) {
+				long n = hashMap(d.covariates.size());
+				for (Map.Entry<String,Object> e : d.covariates.entrySet()) {
+					// keys are mostly the same few names, but each doc parsed its own copies from the json
+					n += string(e.getKey());
+					Object v = e.getValue();
+					n += v instanceof String ? string((String) v) : v==null ? 0 : object(0, 8);
+				}
+				f.add(COVARIATES, n);
+			}
+
+			i++;
+			if (i == checkpoint && i < docs.size()) {
+				f.vocabGrowth.add(new long[] { i, vocab.size() });
+				checkpoint *= 2;
+			}
+		}
+		f.vocabSize = vocab.size();
+		if (!docs.isEmpty()) f.vocabGrowth.add(new long[] { docs.size(), vocab.size() });
+
+		// per term: a map entry, a list and its array's header.  per posting: a slot in that array.
+		InvertedIndex index = corpus.getIndex();
+		f.add(INDEX, Scaling.VOCAB, hashMap(index.numTerms()) + index.numTerms()*(arrayList(0) + ARRAY_HEADER));
+		f.add(INDEX, Scaling.POSTINGS, (long) REF * index.numPostings());
+		int gn = corpus.globalTerms.map.size();
+		f.add(GLOBAL, Scaling.VOCAB, object(1, 8) + hashMap(gn) + gn*boxedDouble());
+		f.add(INDEXED, corpus.indexedDocsSizeInBytes());
+		for (SortedColumnIndex ci : corpus.columnIndexes()) f.add(COLUMNS, ci.sizeInBytes());
+		LevelTermVectors lv = corpus.levelVectorsIfBuilt();
+		if (lv != null) f.add(LEVELS, lv.sizeInBytes(), lv.termsSizeInBytes(), 0);
+		// these are only there once a term-term query (or a term query, for facets) has run
+		TermDocMatrix m = corpus.termDocMatrixIfBuilt();
+		if (m != null) f.add(TERMDOC, m.sizeInBytes(), m.termsSizeInBytes(), m.postingsSizeInBytes());
+		PositionalIndex pi = corpus.positionalIndexIfBuilt();
+		if (pi != null) f.add(POSITIONAL, pi.sizeInBytes(), pi.termsSizeInBytes(), pi.postingsSizeInBytes());
+		// a bitmap per covariate value or bin, a fixed number of them, each over the docs
+		FacetIndex fi = corpus.facetIndexIfBuilt();
+		if (fi != null) f.add(FACETS, fi.sizeInBytes());
+		PostingsBitmaps pb = corpus.postingsBitmapsIfBuilt();
+		if (pb != null) f.add(POSTINGS, pb.sizeInBytes(), pb.sizeInBytes() - pb.postingsSizeInBytes(), pb.postingsSizeInBytes());
+		PointGridIndex pg = corpus.pointIndexIfBuilt();
+		if (pg != null) f.add(POINTS, pg.sizeInBytes());
+
+		// BrushPanel: a MyPoint per doc in a list and a map by docid.  DocList: the docs in its list model, and a row map.
+		long nd = f.numDocs;
+		f.add(UI, object(2, 0)*nd + arrayList((int) nd) + hashMap(nd)
+				+ refArray(nd) + hashMap(nd) + nd*object(0, 4));
+		return f;
+	}
+
+	static long tisMap(Map<Integer, List<TermInstance>> m) {
+		if (m == null) return 0;
+		long n = hashMap(m.size());
+		for (Map.Entry<Integer, List<TermInstance>> e : m.entrySet()) {
+			n += boxedInt(e.getKey()) + arrayList(e.getValue().size());
+		}
+		return n;
+	}
+
+	public long total() {
+		long t = 0;
+		for (long b : bytes.values()) t += b;
+		return t;
+	}
+
+	/**
+	 * Heaps' law exponent: the least-squares slope of log(distinct terms) on log(docs) over the last three
+	 * vocabGrowth points, clamped to something sane.  the last ones, since the slope tends to fall as the corpus grows.
+	 */
+	public double heapsBeta() {
+		int from = Math.max(0, vocabGrowth.size() - 3);
+		int n = 0;
+		double sx = 0, sy = 0, sxx = 0, sxy = 0;
+		for (long[] pt : vocabGrowth.subList(from, vocabGrowth.size())) {
+			if (pt[1] <= 0) continue;
+			double x = Math.log(pt[0]), y = Math.log(pt[1]);
+			n++; sx += x; sy += y; sxx += x*x; sxy += x*y;
+		}
+		double d = n*sxx - sx*sx;
+		if (n < 2 || d <= 0) return 0.5;
+		return clampBeta((n*sxy - sx*sy) / d);
+	}
+
+	/**
+	 * the slope between each pair of consecutive vocabGrowth points: how much the exponent moves within the sample,
+	 * as an error bar on heapsBeta.  if it's falling, the full corpus is likely lower still.
+	 */
+	public double[] heapsBetaSteps() {
+		double[] ret = new double[Math.max(0, vocabGrowth.size() - 1)];
+		for (int i=1; i<vocabGrowth.size(); i++) {
+			long[] a = vocabGrowth.get(i-1), b = vocabGrowth.get(i);
+			ret[i-1] = a[1] <= 0 ? heapsBeta() : clampBeta(Math.log((double) b[1] / a[1]) / Math.log((double) b[0] / a[0]));
+		}
+		return ret;
+	}
+
+	static double clampBeta(double beta) {
+		return Math.max(0.3, Math.min(1.0, beta));
+	}
+
+	public HeapFootprint extrapolate(long totalDocs) {
+		return extrapolate(totalDocs, heapsBeta());
+	}
+
+	/**
+	 * predicted footprint for totalDocs documents, given this one measured on a uniform sample.
+	 * per-doc bytes scale with the docs, per-term bytes with the vocabulary, by (totalDocs/numDocs)^beta,
+	 * and per-posting bytes with the postings, which a uniform sample has the same number of per doc as the corpus.
+	 */
+	public HeapFootprint extrapolate(long totalDocs, double beta) {
+		HeapFootprint p = new HeapFootprint();
+		double ratio = (double) totalDocs / Math.max(numDocs, 1);
+		double[] ratios = new double[Scaling.values().length];
+		ratios[Scaling.DOCS.ordinal()] = ratio;
+		ratios[Scaling.VOCAB.ordinal()] = Math.pow(ratio, beta);
+		ratios[Scaling.POSTINGS.ordinal()] = ratio;
+		for (Map.Entry<String,long[]> e : byScaling.entrySet()) {
+			for (Scaling s : Scaling.values()) {
+				p.add(e.getKey(), s, (long) (e.getValue()[s.ordinal()] * ratios[s.ordinal()]));
+			}
+		}
+		p.numDocs = totalDocs;
+		p.numTokens = (long) (numTokens * ratio);
+		p.numPostings = (long) (numPostings * ratio);
+		p.vocabSize = (long) (vocabSize * ratios[Scaling.VOCAB.ordinal()]);
+		return p;
+	}
+
+	/** bytes -> a -Xmx value with room for query temporaries, the UI, and the garbage collector */
+	public static String recommendedXmx(long bytes) {
+		long mb = (long) Math.ceil(2.0 * bytes / (1 << 20)) + 256;
+		return mb >= 4096 ? U.sf("-Xmx%dg", (mb + 1023) / 1024) : U.sf("-Xmx%dm", mb);
+	}
+
+	public String report() {
+		StringBuilder sb = new StringBuilder();
+		long total = total();
+		sb.append(U.sf("%-28s %12s %8s %10s  %s\n", "structure", "MB", "%", "bytes/doc", "grows with"));
+		for (Map.Entry<String,Long> e : bytes.entrySet()) {
+			sb.append(U.sf("%-28s %12.1f %7.1f%% %10.0f  %s\n", e.getKey(), e.getValue() / 1048576.0,
+					100.0 * e.getValue() / Math.max(total, 1), (double) e.getValue() / Math.max(numDocs, 1),
+					growsWith(byScaling.get(e.getKey()))));
+		}
+		sb.append(U.sf("%-28s %12.1f %8s %10.0f\n", "TOTAL", total / 1048576.0, "", (double) total / Math.max(numDocs, 1)));
+		sb.append(U.sf("%,d docs, %,d tokens, %,d postings, %,d distinct terms.  %s oops%s.\n", numDocs, numTokens, numPostings, vocabSize,
+				COMPRESSED_OOPS ? "compressed" : "uncompressed", COMPACT_STRINGS ? ", compact strings" : ""));
+		return sb.toString();
+	}
+
+	/** the scalings that are at least a tenth of the bytes, biggest first */
+	static String growsWith(long[] parts) {
+		long total = 0;
+		for (long b : parts) total += b;
+		List<Scaling> ss = new ArrayList<>();
+		for (Scaling s : Scaling.values()) {
+			if (parts[s.ordinal()] > 0 && parts[s.ordinal()] >= total / 10) ss.add(s);
+		}
+		ss.sort((a, b) -> Long.compare(parts[b.ordinal()], parts[a.ordinal()]));
+		StringBuilder sb = new StringBuilder();
+		for (Scaling s : ss) sb.append(sb.length() == 0 ? "" : "+").append(s.label);
+		return sb.toString();
+	}
+}
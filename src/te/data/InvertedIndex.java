@@ -1,24 +1,146 @@
 package te.data;
 import java.util.*;
 
-/** yes, it's silly to call it "inverted" but it does make it clear what it is */
+/** yes, it's silly to call it "inverted" but it does make it clear what it is.
+ *
+ * it's a list of segments, one per batch of docs added, so adding docs never touches what's already indexed.
+ * segments are immutable once built, and the list is swapped whole, so readers don't need locks;
+ * merge() combines neighboring small segments, and can run on a background thread while queries use the old list.
+ * docs added one at a time go into a mutable tail segment instead, guarded by the lock, which is sealed into
+ * the list once it holds TAIL_DOCS docs (or when a batch comes in behind it).
+ * postings stay in the order docs were added.
+ */
 public class InvertedIndex {
-	private HashMap<String,List<Document>> docsByTerm;
+	/** merge once there are more segments than this */
+	public static int MAX_SEGMENTS = 8;
+	/** single-doc adds fill a tail segment up to this many docs before it joins the list */
+	public static int TAIL_DOCS = 4096;
+
+	static class Segment {
+		final HashMap<String,List<Document>> docsByTerm = new HashMap<>();
+		int numDocs = 0;
+		Segment() {
+		}
+		Segment(Collection<Document> docs) {
+			for (Document d : docs) add(d);
+		}
+		Segment(List<Segment> parts) {
+			for (Segment s : parts) {
+				for (Map.Entry<String,List<Document>> e : s.docsByTerm.entrySet()) {
+					docsByTerm.computeIfAbsent(e.getKey(), k -> new ArrayList<>()).addAll(e.getValue());
+				}
+				numDocs += s.numDocs;
+			}
+			for (List<Document> docs : docsByTerm.values()) ((ArrayList<Document>) docs).trimToSize();
+		}
+		void add(Document d) {
+			for (String term : d.termVec.support()) {
+				docsByTerm.computeIfAbsent(term, k -> new ArrayList<>()).add(d);
+			}
+			numDocs++;
+		}
+		long numPostings() {
+			long n = 0;
+			for (List<Document> docs : docsByTerm.values()) n += docs.size();
+			return n;
+		}
+	}
+
+	private volatile List<Segment> segments = Collections.emptyList();
+	/** single-doc adds, after everything in segments; null when empty.  its contents are guarded by this */
+	private volatile Segment tail = null;
+
 	public InvertedIndex() {
-		docsByTerm = new HashMap<>();
 	}
-	public void add(Document d) {
-		for (String term : d.termVec.support()) {
-			if (!docsByTerm.containsKey(term)) {
-				docsByTerm.put(term, new ArrayList<Document>());
-			}
-			docsByTerm.get(term).add(d);
+	/** the docs become a new segment */
+	public synchronized void add(Collection<Document> docs) {
+		if (docs.isEmpty()) return;
+		sealTail();
+		List<Segment> s = new ArrayList<>(segments);
+		s.add(new Segment(docs));
+		segments = s;
+	}
+	/** the doc goes into the tail segment */
+	public synchronized void add(Document d) {
+		if (tail == null) tail = new Segment();
+		tail.add(d);
+		if (tail.numDocs >= TAIL_DOCS) sealTail();
+	}
+	private void sealTail() {
+		if (tail == null) return;
+		for (List<Document> docs : tail.docsByTerm.values()) ((ArrayList<Document>) docs).trimToSize();
+		List<Segment> s = new ArrayList<>(segments);
+		s.add(tail);
+		segments = s;
+		tail = null;
+	}
+	public synchronized int numSegments() {
+		return segments.size() + (tail != null ? 1 : 0);
+	}
+	public boolean needsMerge() {
+		return segments.size() > MAX_SEGMENTS;
+	}
+	/**
+	 * merge the run of neighboring segments with the fewest docs, down to MAX_SEGMENTS/2 segments.
+	 * picking the smallest run each time keeps it roughly logarithmic: big segments rarely get rewritten.
+	 * the new segment is built without holding the lock; docs added meanwhile just land after it.
+	 * only one merge should run at a time.
+	 */
+	public void merge() {
+		List<Segment> snapshot = segments;
+		int runLength = snapshot.size() - MAX_SEGMENTS/2 + 1;
+		if (snapshot.size() <= 1 || runLength < 2) return;
+		int best = 0;
+		long bestSize = Long.MAX_VALUE;
+		for (int i=0; i+runLength <= snapshot.size(); i++) {
+			long size = 0;
+			for (int j=i; j<i+runLength; j++) size += snapshot.get(j).numDocs;
+			if (size < bestSize) { best = i; bestSize = size; }
+		}
+		List<Segment> run = snapshot.subList(best, best+runLength);
+		Segment merged = new Segment(run);
+		synchronized (this) {
+			List<Segment> s = new ArrayList<>(segments);
+			// the run is still in place: only merge() removes segments
+			int at = s.indexOf(run.get(0));
+			s.subList(at, at+runLength).clear();
+			s.add(at, merged);
+			segments = s;
 		}
 	}
+	public synchronized int numTerms() {
+		if (tail == null && segments.size()==1) return segments.get(0).docsByTerm.size();
+		Set<String> terms = new HashSet<>();
+		for (Segment s : segments) terms.addAll(s.docsByTerm.keySet());
+		if (tail != null) terms.addAll(tail.docsByTerm.keySet());
+		return terms.size();
+	}
+	public synchronized long numPostings() {
+		long n = 0;
+		for (Segment s : segments) n += s.numPostings();
+		if (tail != null) n += tail.numPostings();
+		return n;
+	}
 	public List<Document> getMatchingDocs(String term) {
-		if ( ! docsByTerm.containsKey(term)) {
-			return new ArrayList<>();
+		// tail before segments: a tail sealed in between is then in segs
+		Segment t = tail;
+		List<Segment> segs = segments;
+		if (t == null && segs.size()==1) {
+			List<Document> docs = segs.get(0).docsByTerm.get(term);
+			return docs != null ? docs : new ArrayList<>();
+		}
+		// the tail can be sealed into the list meanwhile, so read both under the lock
+		synchronized (this) {
+			List<Document> ret = new ArrayList<>();
+			for (Segment s : segments) {
+				List<Document> docs = s.docsByTerm.get(term);
+				if (docs != null) ret.addAll(docs);
+			}
+			if (tail != null) {
+				List<Document> docs = tail.docsByTerm.get(term);
+				if (docs != null) ret.addAll(docs);
+			}
+			return ret;
 		}
-		return docsByTerm.get(term);
 	}
 }
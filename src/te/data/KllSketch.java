@@ -0,0 +1,137 @@
+package te.data;
+
+import java.util.Arrays;
+
+/**
+ * KLL quantile sketch (Karnin, Lang and Liberty 2016): approximate quantiles of a stream of numbers in O(k log n) memory,
+ * rank error around 1.7/k with high probability.  two sketches merge into one of their union, so it can be
+ * built in pieces on different threads and combined.
+ *
+ * level h holds items that each stand for 2^h inputs.  when the sketch is over capacity, the lowest full level
+ * is sorted and every other item (from a random start) moves up a level, the rest are dropped.
+ * the top level gets k slots, and each lower one 2/3 as many as the one above.  with fewer than k inputs it's exact.
+ */
+public class KllSketch {
+	static final double C = 2.0/3;
+	final int k;
+	/** levels[h][0..sizes[h]) */
+	double[][] levels = new double[1][];
+	int[] sizes = new int[1];
+	/** items held, and how many fit; the latter changes only with the number of levels */
+	int size = 0, maxSize;
+	long n = 0;
+	/** for picking which half survives a compaction; seeded so a run is reproducible */
+	long rand = 0x2545F4914F6CDD1DL;
+
+	public KllSketch() { this(200); }
+	public KllSketch(int k) {
+		this.k = k;
+		levels[0] = new double[k];
+		maxSize = totalCapacity();
+	}
+
+	public long n() { return n; }
+
+	int capacity(int h) {
+		int depth = levels.length - 1 - h;
+		return Math.max(2, (int) Math.ceil(k * Math.pow(C, depth)));
+	}
+	int totalCapacity() {
+		int s = 0;
+		for (int h=0; h<levels.length; h++) s += capacity(h);
+		return s;
+	}
+
+	public void add(double x) {
+		n++;
+		append(0, x);
+		if (size > maxSize) compress();
+	}
+
+	void ensureLevels(int count) {
+		if (count <= levels.length) return;
+		int old = levels.length;
+		levels = Arrays.copyOf(levels, count);
+		sizes = Arrays.copyOf(sizes, count);
+		for (int h=old; h<count; h++) levels[h] = new double[k];
+		maxSize = totalCapacity();
+	}
+
+	void append(int h, double x) {
+		ensureLevels(h+1);
+		if (sizes[h] == levels[h].length) levels[h] = Arrays.copyOf(levels[h], 2*levels[h].length);
+		levels[h][sizes[h]++] = x;
+		size++;
+	}
+
+	/** compact the lowest over-capacity level, until the whole thing fits */
+	void compress() {
+		while (size > maxSize) {
+			for (int h=0; h<levels.length; h++) {
+				if (sizes[h] >= capacity(h)) {
+					compact(h);
+					break;
+				}
+			}
+		}
+	}
+
+	void compact(int h) {
+		double[] a = levels[h];
+		int m = sizes[h];
+		Arrays.sort(a, 0, m);
+		// an odd one out stays behind
+		int keep = m % 2;
+		double leftover = keep == 1 ? a[m-1] : 0;
+		rand ^= rand << 13; rand ^= rand >>> 7; rand ^= rand << 17;
+		int offset = (int) (rand & 1);
+		sizes[h] = 0;
+		size -= m;
+		for (int i=offset; i < m - keep; i += 2) append(h+1, a[i]);
+		if (keep == 1) append(h, leftover);
+	}
+
+	/** this becomes a sketch of both streams */
+	public KllSketch merge(KllSketch other) {
+		ensureLevels(other.levels.length);
+		for (int h=0; h<other.levels.length; h++) {
+			for (int i=0; i<other.sizes[h]; i++) append(h, other.levels[h][i]);
+		}
+		n += other.n;
+		compress();
+		return this;
+	}
+
+	/** the value at rank q*n, approximately; NaN when empty */
+	public double quantile(double q) {
+		int m = size;
+		if (m == 0) return Double.NaN;
+		double[] vals = new double[m];
+		long[] weights = new long[m];
+		int j = 0;
+		for (int h=0; h<levels.length; h++) {
+			for (int i=0; i<sizes[h]; i++) {
+				vals[j] = levels[h][i];
+				weights[j++] = 1L << h;
+			}
+		}
+		Integer[] order = new Integer[m];
+		for (int i=0; i<m; i++) order[i] = i;
+		Arrays.sort(order, (a, b) -> Double.compare(vals[a], vals[b]));
+		long total = 0;
+		for (long w : weights) total += w;
+		double target = Math.max(0, Math.min(1, q)) * total;
+		long cum = 0;
+		for (int i=0; i<m; i++) {
+			cum += weights[order[i]];
+			if (cum >= target) return vals[order[i]];
+		}
+		return vals[order[m-1]];
+	}
+
+	public long sizeInBytes() {
+		long b = HeapFootprint.object(3, 24);
+		for (double[] a : levels) b += HeapFootprint.align(16 + 8L*a.length);
+		return b;
+	}
+}
@@ -0,0 +1,141 @@
+package te.data;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import te.data.Schema.ColumnInfo;
+
+/**
+ * the summed term vector of each level of each categorical covariate, with the level's docs as a bitmap.
+ *
+ * a brush over a categorical axis tends to select whole levels (one party, one book), so the selection's terms
+ * can be had by adding up a few level vectors instead of every doc's.  a selection that's nearly a union of levels
+ * is done as that union, minus the level docs it left out, plus the selected docs outside those levels.
+ * see terms(): for each categorical variable it works out how many docs would need correcting,
+ * and uses the cheapest variable, if that beats summing the docs directly.
+ *
+ * built off the swing thread (Corpus.addToIndex starts it), then kept up to date on the swing thread.
+ * docs that got indexed in between are just not covered, which costs corrections, not correctness.
+ */
+public class LevelTermVectors {
+	/** use the level sums only if the docs to correct are at most this fraction of the selection */
+	static double MAX_CORRECTION_FRACTION = 0.25;
+
+	static class Level {
+		final TermVector terms = new TermVector();
+		final DocBitmap docs = new DocBitmap();
+		int numDocs = 0;
+	}
+
+	/** varname -> level name -> sums */
+	final Map<String,Map<String,Level>> levels = new HashMap<>();
+	/** docs added so far */
+	final DocBitmap covered = new DocBitmap();
+
+	public LevelTermVectors(Schema schema) {
+		for (Map.Entry<String,ColumnInfo> e : schema.columnTypes.entrySet()) {
+			if (e.getValue().isCateg()) levels.put(e.getKey(), new HashMap<>());
+		}
+	}
+
+	public boolean isEmpty() { return levels.isEmpty(); }
+	public int numCovered() { return covered.cardinality(); }
+	public boolean covers(Document d) { return covered.get(d.ordinal()); }
+
+	/** docs that are already in are skipped */
+	public void add(Collection<Document> docs) {
+		for (Document d : docs) {
+			if (covered.get(d.ordinal())) continue;
+			covered.set(d.ordinal());
+			for (Map.Entry<String,Map<String,Level>> e : levels.entrySet()) {
+				Object value = d.covariates.get(e.getKey());
+				if (!(value instanceof String)) continue;
+				Level l = e.getValue().computeIfAbsent((String) value, x -> new Level());
+				l.terms.addInPlace(d.termVec);
+				l.docs.set(d.ordinal());
+				l.numDocs++;
+			}
+		}
+	}
+
+	/**
+	 * the summed term vector of these docs (given as a bitmap and as the docs) from the level sums,
+	 * or null when correcting the nearest union of levels would take more than summing the docs.
+	 * byOrdinal finds the docs in left-out parts of levels.
+	 */
+	public TermVector terms(DocBitmap selection, Collection<Document> selectedDocs, List<Document> byOrdinal) {
+		int numSelected = selectedDocs.size();
+		if (numSelected == 0) return null;
+		String bestVar = null;
+		List<Level> bestTaken = null;
+		long bestCost = (long) Math.floor(MAX_CORRECTION_FRACTION * numSelected);
+		for (Map.Entry<String,Map<String,Level>> e : levels.entrySet()) {
+			// take a level when fewer of its docs are unselected than selected
+			List<Level> taken = new ArrayList<>();
+			long cost = numSelected;
+			for (Level l : e.getValue().values()) {
+				int in = l.docs.andCardinality(selection);
+				if (l.numDocs - in < in) {
+					taken.add(l);
+					cost += l.numDocs - 2*in;
+				}
+			}
+			if (!taken.isEmpty() && cost <= bestCost) {
+				bestCost = cost;
+				bestVar = e.getKey();
+				bestTaken = taken;
+			}
+		}
+		if (bestVar == null) return null;
+
+		// copying the biggest level's map is cheaper than adding it into an empty one
+		bestTaken.sort((x, y) -> Integer.compare(y.numDocs, x.numDocs));
+		TermVector tv = bestTaken.get(0).terms.copy();
+		DocBitmap union = bestTaken.get(0).docs.copy();
+		for (Level l : bestTaken.subList(1, bestTaken.size())) {
+			tv.addInPlace(l.terms);
+			union.or(l.docs);
+		}
+		DocBitmap.andNot(union, selection).forEach(i -> subtract(tv, byOrdinal.get(i).termVec));
+		for (Document d : selectedDocs) {
+			if (!union.get(d.ordinal())) tv.addInPlace(d.termVec);
+		}
+		return tv;
+	}
+
+	/** a doc's counts out of a sum it's in.  terms that reach 0 are dropped, so the support stays the same as summing. */
+	static void subtract(TermVector sum, TermVector tv) {
+		for (Map.Entry<String,Double> e : tv.map.entrySet()) {
+			double x = sum.value(e.getKey()) - e.getValue();
+			if (x == 0) sum.map.remove(e.getKey());
+			else sum.map.put(e.getKey(), x);
+		}
+		sum.totalCount -= tv.totalCount;
+	}
+
+	public long sizeInBytes() {
+		long n = termsSizeInBytes();
+		for (Map<String,Level> byName : levels.values()) {
+			n += HeapFootprint.hashMap(byName.size());
+			for (Level l : byName.values()) {
+				n += HeapFootprint.object(2, 4) + HeapFootprint.object(1, 8) + l.docs.sizeInBytes();
+			}
+		}
+		return n + covered.sizeInBytes();
+	}
+
+	/** the part of sizeInBytes in the levels' term sums, which grows with the vocabulary; the rest is per doc */
+	public long termsSizeInBytes() {
+		long n = 0;
+		for (Map<String,Level> byName : levels.values()) {
+			for (Level l : byName.values()) {
+				int k = l.terms.map.size();
+				n += HeapFootprint.hashMap(k) + k*HeapFootprint.boxedDouble();
+			}
+		}
+		return n;
+	}
+}
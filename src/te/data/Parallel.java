@@ -0,0 +1,52 @@
+package te.data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * the thread pool shared by scans over many docs or rows (term-doc products, positional contexts, covariate summaries).
+ * a big scan is cut into NUM_TASKS pieces, run here, and the caller combines the pieces' results.
+ */
+public class Parallel {
+	/** below this many items a scan runs on the calling thread */
+	static int MIN_ITEMS = 20000;
+	static final int NUM_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors());
+	/** how many pieces a big scan is split into */
+	static int NUM_TASKS = NUM_THREADS;
+	private static ExecutorService pool;
+
+	/** whether a scan over n items should be split up */
+	static boolean worthSplitting(int n) {
+		return n >= MIN_ITEMS && NUM_TASKS > 1;
+	}
+
+	/** runs the tasks on the pool and waits; their results, in order */
+	static <T> List<T> invokeAll(List<Callable<T>> tasks) {
+		List<T> results = new ArrayList<>();
+		try {
+			for (Future<T> f : pool().invokeAll(tasks)) results.add(f.get());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		}
+		return results;
+	}
+
+	static synchronized ExecutorService pool() {
+		if (pool == null) {
+			pool = Executors.newFixedThreadPool(NUM_THREADS, r -> {
+				Thread t = new Thread(r, "parallel-scan");
+				t.setDaemon(true);
+				return t;
+			});
+		}
+		return pool;
+	}
+}
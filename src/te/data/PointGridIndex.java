@@ -0,0 +1,268 @@
+package te.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * docs as points on two covariates (the scatterplot's axes), bucketed into a uniform grid for region queries.
+ *
+ * points are stored grouped by cell, CSR style: cell c's points are [cellStart[c], cellStart[c+1]) of xs/ys/ordinals.
+ * a rectangle takes every point of the cells it covers whole, and tests only the points in the cells on its edges.
+ * a polygon (lasso) does the same: its bounding box limits the cells looked at; cells an edge passes through get their
+ * points tested one by one (even-odd rule, against just the edges reaching that row of cells); every other cell is
+ * wholly in or out, which one scanline per row of cells settles for all of them at once.
+ * results are DocBitmaps of doc ordinals.
+ *
+ * for drawing at coarse zoom there's a pyramid of counts per cell (level()), each level merging 2x2 cells of the one below.
+ *
+ * immutable once built, apart from the lazily built pyramid; build a new one when the docs or axes change.
+ */
+public class PointGridIndex {
+	final String xattr, yattr;
+	final double minX, minY, cellW, cellH;
+	final int nx, ny;
+	final int[] cellStart;
+	final double[] xs, ys;
+	final int[] ordinals;
+	/** count grids by level, level 0 being this grid; built on first use */
+	final List<CountGrid> levels = new ArrayList<>();
+
+	/** a null attr puts everything at 0 on that axis, like the scatterplot does */
+	public PointGridIndex(Schema schema, String xattr, String yattr, List<Document> docs) {
+		this.xattr = xattr;
+		this.yattr = yattr;
+		int n = docs.size();
+		double[] px = new double[n], py = new double[n];
+		double x0 = Double.POSITIVE_INFINITY, x1 = Double.NEGATIVE_INFINITY, y0 = Double.POSITIVE_INFINITY, y1 = Double.NEGATIVE_INFINITY;
+		for (int i=0; i<n; i++) {
+			Document d = docs.get(i);
+			px[i] = xattr == null ? 0 : schema.getDouble(d, xattr);
+			py[i] = yattr == null ? 0 : schema.getDouble(d, yattr);
+			x0 = Math.min(x0, px[i]); x1 = Math.max(x1, px[i]);
+			y0 = Math.min(y0, py[i]); y1 = Math.max(y1, py[i]);
+		}
+		if (n == 0) { x0 = y0 = 0; x1 = y1 = 1; }
+		// about 8 points per cell
+		int side = (int) Math.max(1, Math.min(1024, Math.sqrt(n / 8.0)));
+		nx = ny = side;
+		minX = x0;
+		minY = y0;
+		cellW = x1 > x0 ? (x1 - x0) / nx : 1;
+		cellH = y1 > y0 ? (y1 - y0) / ny : 1;
+
+		// counting sort by cell
+		int[] cellOf = new int[n];
+		cellStart = new int[nx*ny + 1];
+		for (int i=0; i<n; i++) {
+			cellOf[i] = cellY(py[i]) * nx + cellX(px[i]);
+			cellStart[cellOf[i] + 1]++;
+		}
+		for (int c=0; c<nx*ny; c++) cellStart[c+1] += cellStart[c];
+		int[] fill = Arrays.copyOf(cellStart, nx*ny);
+		xs = new double[n];
+		ys = new double[n];
+		ordinals = new int[n];
+		for (int i=0; i<n; i++) {
+			int j = fill[cellOf[i]]++;
+			xs[j] = px[i];
+			ys[j] = py[i];
+			ordinals[j] = docs.get(i).ordinal();
+		}
+	}
+
+	public int size() { return xs.length; }
+
+	int cellX(double x) { return clamp((int) Math.floor((x - minX) / cellW), nx); }
+	int cellY(double y) { return clamp((int) Math.floor((y - minY) / cellH), ny); }
+	static int clamp(int i, int n) { return i < 0 ? 0 : i >= n ? n-1 : i; }
+
+	/** docs with x1 <= x <= x2 and y1 <= y <= y2 */
+	public DocBitmap rect(double x1, double y1, double x2, double y2) {
+		DocBitmap out = new DocBitmap();
+		if (x2 < x1 || y2 < y1) return out;
+		int cx1 = cellX(x1), cx2 = cellX(x2), cy1 = cellY(y1), cy2 = cellY(y2);
+		for (int cy=cy1; cy<=cy2; cy++) {
+			boolean rowInside = minY + cy*cellH >= y1 && minY + (cy+1)*cellH <= y2;
+			for (int cx=cx1; cx<=cx2; cx++) {
+				int c = cy*nx + cx;
+				boolean inside = rowInside && minX + cx*cellW >= x1 && minX + (cx+1)*cellW <= x2;
+				for (int j=cellStart[c]; j<cellStart[c+1]; j++) {
+					if (inside || (xs[j] >= x1 && xs[j] <= x2 && ys[j] >= y1 && ys[j] <= y2)) out.set(ordinals[j]);
+				}
+			}
+		}
+		return out;
+	}
+
+	/** docs inside the polygon with these vertices (closed implicitly), by the even-odd rule */
+	public DocBitmap polygon(double[] px, double[] py, int nv) {
+		DocBitmap out = new DocBitmap();
+		if (nv < 3) return out;
+		double bx1 = Double.POSITIVE_INFINITY, bx2 = Double.NEGATIVE_INFINITY, by1 = Double.POSITIVE_INFINITY, by2 = Double.NEGATIVE_INFINITY;
+		for (int i=0; i<nv; i++) {
+			bx1 = Math.min(bx1, px[i]); bx2 = Math.max(bx2, px[i]);
+			by1 = Math.min(by1, py[i]); by2 = Math.max(by2, py[i]);
+		}
+		int cx1 = cellX(bx1), cx2 = cellX(bx2), cy1 = cellY(by1), cy2 = cellY(by2);
+		int w = cx2 - cx1 + 1, h = cy2 - cy1 + 1;
+
+		// the edges that reach into each row of cells, CSR style like the points.  only these can cross a point in the row.
+		int[] rowStart = new int[h+1];
+		for (int i=0; i<nv; i++) {
+			int k = (i+1) % nv;
+			for (int cy=cellY(Math.min(py[i], py[k])); cy<=cellY(Math.max(py[i], py[k])); cy++) rowStart[cy-cy1+1]++;
+		}
+		for (int r=0; r<h; r++) rowStart[r+1] += rowStart[r];
+		int[] rowEdges = new int[rowStart[h]], fill = Arrays.copyOf(rowStart, h);
+
+		// cells some edge passes through: for each row the edge spans, the x extent of the edge within that row
+		boolean[] boundary = new boolean[w*h];
+		for (int i=0; i<nv; i++) {
+			int k = (i+1) % nv;
+			double ax = px[i], ay = py[i], bx = px[k], by = py[k];
+			int ry1 = cellY(Math.min(ay, by)), ry2 = cellY(Math.max(ay, by));
+			for (int cy=ry1; cy<=ry2; cy++) {
+				rowEdges[fill[cy-cy1]++] = i;
+				double lo = Math.max(Math.min(ay, by), minY + cy*cellH), hi = Math.min(Math.max(ay, by), minY + (cy+1)*cellH);
+				double xa = ay == by ? ax : xAt(ax, ay, bx, by, lo), xb = ay == by ? bx : xAt(ax, ay, bx, by, hi);
+				// rounding can put these a hair past the segment's ends
+				xa = Math.max(Math.min(ax, bx), Math.min(Math.max(ax, bx), xa));
+				xb = Math.max(Math.min(ax, bx), Math.min(Math.max(ax, bx), xb));
+				for (int cx=cellX(Math.min(xa, xb)); cx<=cellX(Math.max(xa, xb)); cx++) boundary[(cy-cy1)*w + (cx-cx1)] = true;
+			}
+		}
+
+		double[] crossings = new double[nv];
+		for (int cy=cy1; cy<=cy2; cy++) {
+			int e1 = rowStart[cy-cy1], e2 = rowStart[cy-cy1+1];
+			// the other cells are all in or all out: decide by their centers, from the crossings of the row's center line
+			double yc = minY + (cy + 0.5)*cellH;
+			int nc = 0;
+			for (int e=e1; e<e2; e++) {
+				int i = rowEdges[e], k = (i+1) % nv;
+				if ((py[i] > yc) != (py[k] > yc)) crossings[nc++] = xAt(px[i], py[i], px[k], py[k], yc);
+			}
+			Arrays.sort(crossings, 0, nc);
+			int next = 0;
+			for (int cx=cx1; cx<=cx2; cx++) {
+				int c = cy*nx + cx;
+				if (cellStart[c] == cellStart[c+1]) continue;
+				if (boundary[(cy-cy1)*w + (cx-cx1)]) {
+					for (int j=cellStart[c]; j<cellStart[c+1]; j++) {
+						boolean in = false;
+						for (int e=e1; e<e2; e++) {
+							int i = rowEdges[e], k = (i+1) % nv;
+							if ((py[i] > ys[j]) != (py[k] > ys[j]) && xs[j] < xAt(px[i], py[i], px[k], py[k], ys[j])) in = !in;
+						}
+						if (in) out.set(ordinals[j]);
+					}
+				} else {
+					double xc = minX + (cx + 0.5)*cellW;
+					while (next < nc && crossings[next] < xc) next++;
+					if (next % 2 == 1) {
+						for (int j=cellStart[c]; j<cellStart[c+1]; j++) out.set(ordinals[j]);
+					}
+				}
+			}
+		}
+		return out;
+	}
+
+	/** x where the segment a-b crosses height y (a's x for a horizontal segment) */
+	static double xAt(double ax, double ay, double bx, double by, double y) {
+		if (ay == by) return ax;
+		return ax + (y - ay) * (bx - ax) / (by - ay);
+	}
+
+	/** even-odd point in polygon */
+	public static boolean contains(double[] px, double[] py, int nv, double x, double y) {
+		boolean in = false;
+		for (int i=0, k=nv-1; i<nv; k=i++) {
+			if ((py[i] > y) != (py[k] > y) && x < xAt(px[i], py[i], px[k], py[k], y)) in = !in;
+		}
+		return in;
+	}
+
+	/** number of points per cell, on a grid aligned with the index's */
+	public static class CountGrid {
+		public final int nx, ny;
+		public final double minX, minY, cellW, cellH;
+		final int[] counts;
+
+		CountGrid(int nx, int ny, double minX, double minY, double cellW, double cellH) {
+			this.nx = nx; this.ny = ny;
+			this.minX = minX; this.minY = minY;
+			this.cellW = cellW; this.cellH = cellH;
+			counts = new int[nx*ny];
+		}
+
+		public int count(int cx, int cy) { return counts[cy*nx + cx]; }
+		public int cellX(double x) { return clamp((int) Math.floor((x - minX) / cellW), nx); }
+		public int cellY(double y) { return clamp((int) Math.floor((y - minY) / cellH), ny); }
+		public double cellMinX(int cx) { return minX + cx*cellW; }
+		public double cellMinY(int cy) { return minY + cy*cellH; }
+
+		/** points in the cells touching this rectangle */
+		public long sum(double x1, double y1, double x2, double y2) {
+			long n = 0;
+			for (int cy=cellY(y1); cy<=cellY(y2); cy++) {
+				for (int cx=cellX(x1); cx<=cellX(x2); cx++) n += counts[cy*nx + cx];
+			}
+			return n;
+		}
+
+		/** 2x2 cells of this into one */
+		CountGrid coarser() {
+			CountGrid g = new CountGrid((nx+1)/2, (ny+1)/2, minX, minY, 2*cellW, 2*cellH);
+			for (int cy=0; cy<ny; cy++) {
+				for (int cx=0; cx<nx; cx++) g.counts[(cy/2)*g.nx + cx/2] += counts[cy*nx + cx];
+			}
+			return g;
+		}
+
+		long sizeInBytes() { return HeapFootprint.object(1, 40) + HeapFootprint.align(16 + 4L*counts.length); }
+	}
+
+	/** the count grid with cells 2^level times the index's on a side.  the top level is a single cell. */
+	public synchronized CountGrid level(int level) {
+		if (levels.isEmpty()) {
+			CountGrid g = new CountGrid(nx, ny, minX, minY, cellW, cellH);
+			for (int c=0; c<nx*ny; c++) g.counts[c] = cellStart[c+1] - cellStart[c];
+			levels.add(g);
+			while (g.nx > 1 || g.ny > 1) {
+				g = g.coarser();
+				levels.add(g);
+			}
+		}
+		return levels.get(Math.min(level, levels.size() - 1));
+	}
+
+	/** the finest level whose cells are at least this big */
+	public synchronized int levelFor(double minCellW, double minCellH) {
+		level(0);
+		int level = 0;
+		while (level+1 < levels.size() && (levels.get(level).cellW < minCellW || levels.get(level).cellH < minCellH)) level++;
+		return level;
+	}
+
+	/** counts of just these docs, on a level's grid.  the docs needn't be indexed here, just have the covariates. */
+	public CountGrid countDocs(int level, Schema schema, Iterable<Document> docs) {
+		CountGrid shape = level(level);
+		CountGrid g = new CountGrid(shape.nx, shape.ny, minX, minY, shape.cellW, shape.cellH);
+		for (Document d : docs) {
+			double x = xattr == null ? 0 : schema.getDouble(d, xattr), y = yattr == null ? 0 : schema.getDouble(d, yattr);
+			g.counts[g.cellY(y)*g.nx + g.cellX(x)]++;
+		}
+		return g;
+	}
+
+	public long sizeInBytes() {
+		long b = HeapFootprint.object(8, 40) + HeapFootprint.align(16 + 4L*cellStart.length)
+				+ 2*HeapFootprint.align(16 + 8L*xs.length) + HeapFootprint.align(16 + 4L*ordinals.length);
+		synchronized (this) {
+			for (CountGrid g : levels) b += g.sizeInBytes();
+		}
+		return b;
+	}
+}
@@ -0,0 +1,226 @@
+package te.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * where each term occurs, by token position, for within-k-token co-occurrence (Analysis.WindowedCooccurrence).
+ *
+ * every term instance of every indexed doc is in flat arrays, doc after doc, each doc's instances in order of first token:
+ * its term id and first and last token.  a term's postings are the (ascending) global indexes of its instances,
+ * so a query's occurrences in a doc are a run of its merged postings, and its contexts are found by
+ * merging those against the doc's own instance list.  docs are independent, so a query splits across threads by docs.
+ * built from Document.termInstances; rows are appended as docs get indexed (Corpus.addToIndex).
+ * not threadsafe: appends and queries both happen on the swing thread.
+ */
+public class PositionalIndex {
+	final List<String> terms = new ArrayList<>();
+	final Map<String,Integer> termIds = new HashMap<>();
+	/** per term: its number of instances */
+	double[] termCounts = new double[1024];
+	/** per term: global instance indexes, ascending, and how many */
+	int[][] postings = new int[1024][];
+	int[] postingsSize = new int[1024];
+
+	final List<Document> docs = new ArrayList<>();
+	/** row r's instances are [rowStart[r], rowStart[r+1]) */
+	int[] rowStart = new int[1024];
+	/** per row: the longest instance, in tokens minus one (0 for unigrams) */
+	int[] maxSpan = new int[1024];
+	/** per instance */
+	int[] instTerm = new int[1 << 16], instFirst = new int[1 << 16], instLast = new int[1 << 16], instRow = new int[1 << 16];
+	int numInstances = 0;
+
+	public PositionalIndex() {}
+
+	public PositionalIndex(Collection<Document> docs) {
+		addRows(docs);
+	}
+
+	public void addRows(Collection<Document> newdocs) {
+		for (Document d : newdocs) {
+			int row = docs.size();
+			docs.add(d);
+			if (row + 2 > rowStart.length) {
+				rowStart = Arrays.copyOf(rowStart, rowStart.length * 2);
+				maxSpan = Arrays.copyOf(maxSpan, maxSpan.length * 2);
+			}
+			List<TermInstance> tis = d.termInstances == null ? new ArrayList<>() : new ArrayList<>(d.termInstances);
+			// the analyzers emit them in order already; stable, so same-start ones stay in analyzer order
+			tis.sort((a,b) -> Integer.compare(a.tokIndsInDoc.get(0), b.tokIndsInDoc.get(0)));
+			ensureInstances(numInstances + tis.size());
+			int span = 0;
+			for (TermInstance ti : tis) {
+				int t = addTerm(ti.termName);
+				int i = numInstances++;
+				instTerm[i] = t;
+				instFirst[i] = ti.tokIndsInDoc.get(0);
+				instLast[i] = ti.tokIndsInDoc.get(ti.tokIndsInDoc.size()-1);
+				instRow[i] = row;
+				span = Math.max(span, instLast[i] - instFirst[i]);
+				termCounts[t]++;
+				if (postings[t] == null) postings[t] = new int[4];
+				else if (postingsSize[t] == postings[t].length) postings[t] = Arrays.copyOf(postings[t], postings[t].length * 2);
+				postings[t][postingsSize[t]++] = i;
+			}
+			maxSpan[row] = span;
+			rowStart[row+1] = numInstances;
+		}
+	}
+
+	void ensureInstances(int n) {
+		if (n <= instTerm.length) return;
+		int cap = Math.max(n, instTerm.length + (instTerm.length >> 1));
+		instTerm = Arrays.copyOf(instTerm, cap);
+		instFirst = Arrays.copyOf(instFirst, cap);
+		instLast = Arrays.copyOf(instLast, cap);
+		instRow = Arrays.copyOf(instRow, cap);
+	}
+
+	int addTerm(String term) {
+		Integer c = termIds.get(term);
+		if (c != null) return c;
+		c = terms.size();
+		terms.add(term);
+		termIds.put(term, c);
+		if (c >= termCounts.length) {
+			termCounts = Arrays.copyOf(termCounts, termCounts.length * 2);
+			postings = Arrays.copyOf(postings, postings.length * 2);
+			postingsSize = Arrays.copyOf(postingsSize, postingsSize.length * 2);
+		}
+		return c;
+	}
+
+	public int numTerms() { return terms.size(); }
+	public int numInstances() { return numInstances; }
+	public String term(int id) { return terms.get(id); }
+	/** -1 if the term never occurs */
+	public int termId(String term) {
+		Integer c = termIds.get(term);
+		return c == null ? -1 : c;
+	}
+	public double count(String term) {
+		int t = termId(term);
+		return t < 0 ? 0 : termCounts[t];
+	}
+
+	/** the instances of any of these terms, ascending: their postings merged */
+	int[] occurrences(Collection<String> queryTerms) {
+		int[] merged = new int[0];
+		for (String q : queryTerms) {
+			int t = termId(q);
+			if (t < 0) continue;
+			merged = merge(merged, merged.length, postings[t], postingsSize[t]);
+		}
+		return merged;
+	}
+	static int[] merge(int[] a, int na, int[] b, int nb) {
+		int[] c = new int[na + nb];
+		int i=0, j=0, k=0;
+		while (i < na && j < nb) {
+			if (a[i] < b[j]) c[k++] = a[i++];
+			else if (a[i] > b[j]) c[k++] = b[j++];
+			else { c[k++] = a[i++]; j++; }
+		}
+		while (i < na) c[k++] = a[i++];
+		while (j < nb) c[k++] = b[j++];
+		return k == c.length ? c : Arrays.copyOf(c, k);
+	}
+
+	/**
+	 * contexts of the query's occurrences, within k tokens: an instance is left context if it ends 1..k tokens
+	 * before an occurrence starts, right context if it starts 1..k tokens after one ends.  overlapping ones are neither.
+	 * each (occurrence, context instance) pair counts once.  next/prev words are the adjacent tokens' lowercased text.
+	 */
+	public static class Contexts {
+		public double[] left, right;
+		public Map<String,Double> next = new HashMap<>(), prev = new HashMap<>();
+		public int numOccurrences, numDocs;
+	}
+
+	public Contexts contexts(Collection<String> queryTerms, int k) {
+		int[] occ = occurrences(queryTerms);
+		int numTasks = Parallel.worthSplitting(occ.length) ? Parallel.NUM_TASKS : 1;
+		if (numTasks == 1) return contexts(occ, 0, occ.length, k);
+
+		// split at doc boundaries
+		List<Callable<Contexts>> tasks = new ArrayList<>();
+		int per = (occ.length + numTasks - 1) / numTasks;
+		int start = 0;
+		while (start < occ.length) {
+			int end = Math.min(start + per, occ.length);
+			while (end < occ.length && instRow[occ[end]] == instRow[occ[end-1]]) end++;
+			final int s = start, e = end;
+			tasks.add(() -> contexts(occ, s, e, k));
+			start = end;
+		}
+		Contexts total = null;
+		for (Contexts c : Parallel.invokeAll(tasks)) {
+			if (total == null) { total = c; continue; }
+			for (int t=0; t < total.left.length; t++) {
+				total.left[t] += c.left[t];
+				total.right[t] += c.right[t];
+			}
+			for (Map.Entry<String,Double> e : c.next.entrySet()) total.next.merge(e.getKey(), e.getValue(), Double::sum);
+			for (Map.Entry<String,Double> e : c.prev.entrySet()) total.prev.merge(e.getKey(), e.getValue(), Double::sum);
+			total.numOccurrences += c.numOccurrences;
+			total.numDocs += c.numDocs;
+		}
+		return total;
+	}
+
+	/** occurrences occ[from..to), which start and end at doc boundaries */
+	Contexts contexts(int[] occ, int from, int to, int k) {
+		Contexts c = new Contexts();
+		c.left = new double[numTerms()];
+		c.right = new double[numTerms()];
+		c.numOccurrences = to - from;
+		int row = -1, rowEnd = 0, lo = 0, span = 0;
+		List<Token> tokens = null;
+		for (int x=from; x<to; x++) {
+			int g = occ[x];
+			if (instRow[g] != row) {
+				row = instRow[g];
+				lo = rowStart[row];
+				rowEnd = rowStart[row+1];
+				span = maxSpan[row];
+				tokens = docs.get(row).tokens;
+				c.numDocs++;
+			}
+			int s = instFirst[g], e = instLast[g];
+			// left: ends in [s-k, s-1].  instances are by first token, so skip the ones starting too early to reach
+			while (lo < rowEnd && instFirst[lo] < s - k - span) lo++;
+			for (int j=lo; j<rowEnd && instFirst[j] < s; j++) {
+				if (instLast[j] < s && instLast[j] >= s-k) c.left[instTerm[j]]++;
+			}
+			// right: starts in [e+1, e+k]
+			for (int j=g+1; j<rowEnd && instFirst[j] <= e+k; j++) {
+				if (instFirst[j] > e) c.right[instTerm[j]]++;
+			}
+			if (tokens != null) {
+				if (e+1 < tokens.size()) c.next.merge(tokens.get(e+1).text.toLowerCase(), 1.0, Double::sum);
+				if (s-1 >= 0) c.prev.merge(tokens.get(s-1).text.toLowerCase(), 1.0, Double::sum);
+			}
+		}
+		return c;
+	}
+
+	public long sizeInBytes() {
+		long n = 16L*instTerm.length + 4L*rowStart.length + 4L*maxSpan.length + 16L*termCounts.length;
+		for (int t=0; t<terms.size(); t++) n += 16 + 4L*postings[t].length;
+		return n;
+	}
+
+	/** the parts of sizeInBytes that grow with the vocabulary (per-term counts and list headers) and with the tokens */
+	public long termsSizeInBytes() { return 16L*termCounts.length + 16L*terms.size(); }
+	public long postingsSizeInBytes() {
+		long n = 16L*instTerm.length;
+		for (int t=0; t<terms.size(); t++) n += 4L*postings[t].length;
+		return n;
+	}
+}
@@ -0,0 +1,60 @@
+package te.data;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * each term's docs as a DocBitmap of ordinals: the inverted index again, in a form that intersects by popcount.
+ * a term's document frequency within a selection is |postings AND selection| (see DocFrequencies),
+ * with no pass over the selected docs' term vectors.
+ */
+public class PostingsBitmaps {
+	final Map<String,DocBitmap> byTerm = new HashMap<>();
+
+	public PostingsBitmaps(Collection<Document> docs) {
+		add(docs);
+	}
+
+	/** docs are usually added in ordinal order, so each set() appends to the end of a chunk */
+	public void add(Collection<Document> docs) {
+		for (Document d : docs) {
+			int ordinal = d.ordinal();
+			for (String term : d.termVec.support()) {
+				byTerm.computeIfAbsent(term, k -> new DocBitmap()).set(ordinal);
+			}
+		}
+	}
+
+	/** null if no doc has the term */
+	public DocBitmap get(String term) {
+		return byTerm.get(term);
+	}
+
+	/** number of docs with the term */
+	public int df(String term) {
+		DocBitmap b = byTerm.get(term);
+		return b == null ? 0 : b.cardinality();
+	}
+
+	/** number of docs in the selection with the term */
+	public int df(String term, DocBitmap selection) {
+		DocBitmap b = byTerm.get(term);
+		return b == null ? 0 : b.andCardinality(selection);
+	}
+
+	public int numTerms() { return byTerm.size(); }
+
+	public long sizeInBytes() {
+		long n = HeapFootprint.object(1, 0) + HeapFootprint.hashMap(byTerm.size());
+		for (DocBitmap b : byTerm.values()) n += b.sizeInBytes();
+		return n;
+	}
+
+	/** the part of sizeInBytes that grows with the postings, the bitmaps' contents.  the rest is per term. */
+	public long postingsSizeInBytes() {
+		long n = 0;
+		for (DocBitmap b : byTerm.values()) n += b.dataSizeInBytes();
+		return n;
+	}
+}
@@ -0,0 +1,311 @@
+package te.data;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import te.metrics.Counter;
+import te.metrics.LatencyHistogram;
+import te.metrics.Metrics;
+import utility.util.JsonUtil;
+import utility.util.U;
+
+/**
+ * a DataLayer whose corpus lives in a te.ui.CorpusServer, so several clients can share one loaded corpus.
+ *
+ * at startup the client gets the schema, every doc's metadata (as stub Documents, no text) and the global term counts.
+ * after that, queries go over the wire:
+ *  - batching: calls are queued as ops, and each round trip carries whatever has queued up, up to MAX_BATCH ops.
+ *  - pipelining: up to MAX_IN_FLIGHT round trips run at once, over keep-alive connections,
+ *    so a slow query doesn't hold up the ones behind it.
+ *  - caching: full documents (text, tokens, term instances) are kept in an LRU of CACHE_SIZE docs,
+ *    and prefetch() lets the UI pull the ones it's about to need in one go.
+ * the sync DataLayer methods just wait on their op.
+ */
+public class RemoteDataLayer implements DataLayer {
+	public static int MAX_BATCH = 32;
+	public static int MAX_IN_FLIGHT = 4;
+	public static int CACHE_SIZE = 10000;
+
+	final String baseUrl;
+	Schema schema;
+	List<Document> docs;
+	Map<String,Document> docsById;
+	public TermVector globalTerms;
+	/** the server's default scatterplot axes */
+	public String xattr, yattr;
+
+	final Map<String,Document> cache = new LinkedHashMap<String,Document>(16, 0.75f, true) {
+		@Override protected boolean removeEldestEntry(Map.Entry<String,Document> eldest) {
+			return size() > CACHE_SIZE;
+		}
+	};
+
+	static class Pending {
+		ObjectNode op;
+		CompletableFuture<JsonNode> result = new CompletableFuture<>();
+		Pending(ObjectNode op) { this.op = op; }
+	}
+	final ConcurrentLinkedQueue<Pending> queue = new ConcurrentLinkedQueue<>();
+	final ExecutorService senders = Executors.newFixedThreadPool(MAX_IN_FLIGHT, r -> {
+		Thread t = new Thread(r, "remote-data-layer");
+		t.setDaemon(true);
+		return t;
+	});
+
+	LatencyHistogram roundtripTimer = Metrics.timer("remote.roundtrip");
+	Counter numOps = Metrics.counter("remote.ops");
+	Counter numBatches = Metrics.counter("remote.batches");
+	Counter cacheHits = Metrics.counter("remote.cache.hits");
+	Counter cacheMisses = Metrics.counter("remote.cache.misses");
+
+	/** url like http://host:port */
+	public RemoteDataLayer(String url) throws IOException {
+		baseUrl = url.replaceAll("/+$", "");
+		long t0 = System.nanoTime();
+		JsonNode info = JsonUtil.readJson(get("/info"));
+		schema = WireFormat.schemaFromJson(info.get("schema"));
+		xattr = info.has("xattr") ? info.get("xattr").asText() : null;
+		yattr = info.has("yattr") ? info.get("yattr").asText() : null;
+		docs = new ArrayList<>(info.get("numDocs").asInt());
+		docsById = new HashMap<>();
+		for (String line : get("/docs").split("\n")) {
+			if (line.isEmpty()) continue;
+			Document d = WireFormat.metadataFromJson(JsonUtil.readJson(line));
+			docs.add(d);
+			docsById.put(d.docid, d);
+		}
+		globalTerms = WireFormat.termVectorFromJson(JsonUtil.readJson(get("/globalterms")));
+		U.pf("Connected to %s: %d docs, %d terms (%.0f ms)\n", baseUrl, docs.size(), globalTerms.support().size(),
+				1e-6*(System.nanoTime()-t0));
+	}
+
+	////////////////  DataLayer  ////////////////
+
+	@Override
+	public Collection<Document> allDocs() {
+		return docs;
+	}
+
+	@Override
+	public DocSet getDocSet(Collection<String> docids) {
+		if (docids.isEmpty()) return new DocSet();
+		ObjectNode op = op("docset");
+		op.set("docids", WireFormat.strings(docids));
+		return WireFormat.docSetFromJson(call(op), docsById);
+	}
+
+	@Override
+	public DocSet select(String xAttr, String yAttr, double minX, double maxX, double minY, double maxY) {
+		ObjectNode op = op("box");
+		op.put("xAttr", xAttr).put("yAttr", yAttr)
+			.put("minX", minX).put("maxX", maxX).put("minY", minY).put("maxY", maxY);
+		return WireFormat.docSetFromJson(call(op), docsById);
+	}
+
+	@Override
+	public void runTokenizer(Function<String, List<Token>> tokenizer) {
+		throw new UnsupportedOperationException("the server tokenizes its own corpus");
+	}
+
+	@Override
+	public DocSet select(List<String> terms) {
+		ObjectNode op = op("terms");
+		op.set("terms", WireFormat.strings(terms));
+		return WireFormat.docSetFromJson(call(op), docsById);
+	}
+
+	@Override
+	public Schema getSchema() {
+		return schema;
+	}
+
+	/** the full document, from the cache or the server.  null for an unknown docid. */
+	@Override
+	public Document pullDocument(String id) {
+		List<Document> ret = pullDocuments(Collections.singletonList(id));
+		return ret.isEmpty() ? null : ret.get(0);
+	}
+
+	////////////////  extras  ////////////////
+
+	/** full documents, in the given order; misses are fetched in a single op.  unknown docids are dropped. */
+	public List<Document> pullDocuments(Collection<String> docids) {
+		List<String> missing = new ArrayList<>();
+		synchronized (cache) {
+			for (String id : docids) {
+				if (!cache.containsKey(id) && docsById.containsKey(id)) missing.add(id);
+			}
+		}
+		cacheHits.add(docids.size() - missing.size());
+		if (!missing.isEmpty()) {
+			cacheMisses.add(missing.size());
+			addToCache(call(pullOp(missing)));
+		}
+		List<Document> ret = new ArrayList<>(docids.size());
+		synchronized (cache) {
+			for (String id : docids) {
+				Document d = cache.get(id);
+				if (d != null) ret.add(d);
+			}
+		}
+		return ret;
+	}
+
+	/** start pulling these docs into the cache, without waiting */
+	public void prefetch(Collection<String> docids) {
+		List<String> missing = new ArrayList<>();
+		synchronized (cache) {
+			for (String id : docids) {
+				if (!cache.containsKey(id) && docsById.containsKey(id)) missing.add(id);
+			}
+		}
+		if (missing.isEmpty()) return;
+		submit(pullOp(missing)).thenAccept(this::addToCache);
+	}
+
+	/** the top k terms of the docs by lift against the whole corpus, i.e. TermvecComparison.topEpmi done on the server.
+	 * each is {term, count, global, lift}. */
+	public List<JsonNode> topTerms(Collection<String> docids, double minprob, int mincount, int k) {
+		ObjectNode op = op("top");
+		op.set("docids", WireFormat.strings(docids));
+		op.put("minprob", minprob).put("mincount", mincount).put("k", k);
+		List<JsonNode> ret = new ArrayList<>();
+		for (JsonNode x : call(op)) ret.add(x);
+		return ret;
+	}
+
+	/** keyword-in-context lines for the terms, up to max of them; within docids if non-null.
+	 * each is {docid, left, hit, right}, with window tokens on either side. */
+	public List<JsonNode> kwic(Collection<String> terms, Collection<String> docids, int max, int window) {
+		ObjectNode op = op("kwic");
+		op.set("terms", WireFormat.strings(terms));
+		if (docids != null) op.set("docids", WireFormat.strings(docids));
+		op.put("max", max).put("window", window);
+		List<JsonNode> ret = new ArrayList<>();
+		for (JsonNode x : call(op)) ret.add(x);
+		return ret;
+	}
+
+	////////////////  transport  ////////////////
+
+	static ObjectNode op(String name) {
+		ObjectNode op = JsonUtil.newObject();
+		op.put("op", name);
+		return op;
+	}
+	static ObjectNode pullOp(Collection<String> docids) {
+		ObjectNode op = op("pull");
+		op.set("docids", WireFormat.strings(docids));
+		return op;
+	}
+
+	void addToCache(JsonNode pulled) {
+		List<Document> full = new ArrayList<>();
+		for (JsonNode j : pulled) {
+			Document stub = docsById.get(j.get("docid").asText());
+			if (stub != null) full.add(WireFormat.contentsFromJson(j, stub));
+		}
+		synchronized (cache) {
+			for (Document d : full) cache.put(d.docid, d);
+		}
+	}
+
+	JsonNode call(ObjectNode op) {
+		try {
+			return submit(op).get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new RuntimeException(e.getCause());
+		}
+	}
+
+	/** queue an op; it goes out with the next batch that has room */
+	CompletableFuture<JsonNode> submit(ObjectNode op) {
+		Pending p = new Pending(op);
+		queue.add(p);
+		numOps.inc();
+		senders.execute(this::sendBatch);
+		return p.result;
+	}
+
+	/** one round trip with whatever is queued.  there's one of these per submit, so some find the queue already drained. */
+	void sendBatch() {
+		List<Pending> batch = new ArrayList<>();
+		Pending p;
+		while (batch.size() < MAX_BATCH && (p = queue.poll()) != null) batch.add(p);
+		if (batch.isEmpty()) return;
+		numBatches.inc();
+		ArrayNode ops = JsonUtil.om.createArrayNode();
+		for (Pending x : batch) ops.add(x.op);
+		try (LatencyHistogram.Timing t = roundtripTimer.time()) {
+			JsonNode results = JsonUtil.readJson(post("/batch", JsonUtil.stringify(ops)));
+			for (int i=0; i<batch.size(); i++) {
+				JsonNode r = results.get(i);
+				if (r.has("error")) {
+					batch.get(i).result.completeExceptionally(new RuntimeException(
+							U.sf("%s failed on the server: %s", batch.get(i).op.get("op").asText(), r.get("error").asText())));
+				} else {
+					batch.get(i).result.complete(r.get("result"));
+				}
+			}
+		} catch (IOException | RuntimeException e) {
+			for (Pending x : batch) x.result.completeExceptionally(e instanceof IOException ? new UncheckedIOException((IOException) e) : e);
+		}
+	}
+
+	String get(String path) throws IOException {
+		HttpURLConnection conn = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+		return readResponse(conn);
+	}
+	String post(String path, String body) throws IOException {
+		HttpURLConnection conn = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+		conn.setRequestMethod("POST");
+		conn.setDoOutput(true);
+		conn.setRequestProperty("Content-Type", "application/json");
+		try (OutputStream out = conn.getOutputStream()) {
+			out.write(body.getBytes(StandardCharsets.UTF_8));
+		}
+		return readResponse(conn);
+	}
+	/** reads the whole body, which lets the connection go back to the keep-alive pool */
+	static String readResponse(HttpURLConnection conn) throws IOException {
+		int code = conn.getResponseCode();
+		InputStream in = code < 400 ? conn.getInputStream() : conn.getErrorStream();
+		ByteArrayOutputStream buf = new ByteArrayOutputStream();
+		if (in != null) {
+			try (InputStream is = in) {
+				byte[] b = new byte[1<<16];
+				int n;
+				while ((n = is.read(b)) > 0) buf.write(b, 0, n);
+			}
+		}
+		String s = new String(buf.toByteArray(), StandardCharsets.UTF_8);
+		if (code >= 400) throw new IOException(U.sf("HTTP %d from %s: %s", code, conn.getURL(), s));
+		return s;
+	}
+}
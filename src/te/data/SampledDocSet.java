@@ -0,0 +1,109 @@
+package te.data;
+
+import java.util.Collection;
+import java.util.Map;
+
+import te.data.Analysis.TermvecComparison;
+import utility.util.FastRandom;
+
+/**
+ * term counts of a doc selection estimated from a random sample of it, for when aggregating all of it is too slow.
+ *
+ * the selection is shuffled lazily (Fisher-Yates, one step per doc sampled), so the first n docs are always
+ * a uniform sample without replacement, and sampling more just extends it, until it's the whole selection and exact.
+ * each term's total is estimated as N/n times its sample sum, with the usual without-replacement variance,
+ *   N^2 (1 - n/N) s^2 / n,  s^2 the sample variance of the term's per-doc counts,
+ * and a normal-approximation 95% interval.  the selection's total token count is always exact, since doc lengths are cheap.
+ *
+ * not threadsafe; estimate() snapshots are immutable, so one thread can sample while others use the snapshots.
+ */
+public class SampledDocSet {
+	static final double Z95 = 1.96;
+	/** docs sampled per check of the clock */
+	static final int BATCH = 32;
+
+	final Document[] docs;
+	int numSampled = 0;
+	final FastRandom rand;
+	final TermVector sums = new TermVector();
+	final TermVector sumSquares = new TermVector();
+	final double totalTokens;
+
+	public SampledDocSet(Collection<Document> selection, FastRandom rand) {
+		docs = selection.toArray(new Document[selection.size()]);
+		this.rand = rand;
+		double n = 0;
+		for (Document d : docs) n += d.termVec.totalCount;
+		totalTokens = n;
+	}
+
+	public int numDocs() { return docs.length; }
+	public int numSampled() { return numSampled; }
+	public boolean isExact() { return numSampled == docs.length; }
+
+	/** n more docs, or as many as are left */
+	public void sampleMore(int n) {
+		int end = Math.min(docs.length, numSampled + n);
+		for (int i=numSampled; i<end; i++) {
+			int j = i + rand.nextInt(docs.length - i);
+			Document d = docs[j];
+			docs[j] = docs[i];
+			docs[i] = d;
+			for (Map.Entry<String,Double> e : d.termVec.map.entrySet()) {
+				double x = e.getValue();
+				sums.increment(e.getKey(), x);
+				sumSquares.increment(e.getKey(), x*x);
+			}
+		}
+		numSampled = end;
+	}
+
+	/** sample until this much time has passed or the whole selection is in */
+	public void sampleFor(long nanos) {
+		long t0 = System.nanoTime();
+		while (!isExact() && System.nanoTime() - t0 < nanos) sampleMore(BATCH);
+	}
+
+	/** the current estimate, against this background */
+	public Estimate estimate(TermVector background) {
+		return new Estimate(this, background);
+	}
+
+	/**
+	 * estimated focus counts (focus.totalCount is exact), compared against a background as usual,
+	 * with 95% intervals for the counts and lifts.  the background is taken as fixed.
+	 */
+	public static class Estimate extends TermvecComparison {
+		public final int numSampled, numDocs;
+		/** half-widths of the count intervals, by term; empty when exact */
+		final TermVector countHalfWidths = new TermVector();
+
+		Estimate(SampledDocSet s, TermVector background) {
+			super(new TermVector(), background);
+			numSampled = s.numSampled;
+			numDocs = s.docs.length;
+			double n = numSampled, N = numDocs;
+			double scale = n == 0 ? 0 : N / n;
+			for (Map.Entry<String,Double> e : s.sums.map.entrySet()) {
+				focus.map.put(e.getKey(), scale * e.getValue());
+				if (isExact() || n < 2) continue;
+				double sum = e.getValue();
+				double var = (s.sumSquares.value(e.getKey()) - sum*sum/n) / (n-1);
+				double varTotal = N*N * (1 - n/N) * Math.max(var, 0) / n;
+				countHalfWidths.map.put(e.getKey(), Z95 * Math.sqrt(varTotal));
+			}
+			focus.totalCount = s.totalTokens;
+		}
+
+		public boolean isExact() { return numSampled == numDocs; }
+		public double fractionSampled() { return numDocs == 0 ? 1 : (double) numSampled / numDocs; }
+		public double countHalfWidth(String term) {
+			return countHalfWidths.value(term);
+		}
+		/** the count interval carried through to the lift, which is linear in the count */
+		public double liftHalfWidth(String term) {
+			double c = focus.value(term);
+			return c == 0 ? 0 : epmi(term) * countHalfWidth(term) / c;
+		}
+	}
+}
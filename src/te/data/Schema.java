@@ -77,6 +77,10 @@ public class Schema {
 			this.set(dt);
 		}
 
+		public ColumnInfo(DataType type) {
+			this.set(type);
+		}
+
 		public ColumnInfo set(DataType type) {
 			dataType = type;
 			if (dataType==DataType.CATEG) {
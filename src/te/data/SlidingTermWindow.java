@@ -0,0 +1,96 @@
+package te.data;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * term counts of the docs in the last `width` units of a numeric covariate (e.g. a timestamp), in bounded memory.
+ *
+ * the window is cut into panes of width/numPanes; each pane keeps its docs' terms in a SpaceSaving sketch,
+ * and its token total exactly.  panes fall off whole as the latest time moves on, so the window slides in pane-sized steps.
+ * memory is at most numPanes+1 sketches of `capacity` terms, however many docs come through.
+ * docs may arrive out of order; ones older than the window are ignored.
+ */
+public class SlidingTermWindow {
+	public final double width;
+	public final int numPanes;
+	public final int capacity;
+	final double paneWidth;
+	double latest = Double.NEGATIVE_INFINITY;
+
+	static class Pane {
+		SpaceSaving terms;
+		double numTokens = 0;
+		int numDocs = 0;
+	}
+	/** by pane number, floor(t / paneWidth) */
+	final TreeMap<Long,Pane> panes = new TreeMap<>();
+
+	public SlidingTermWindow(double width, int numPanes, int capacity) {
+		assert width > 0 && numPanes > 0;
+		this.width = width;
+		this.numPanes = numPanes;
+		this.capacity = capacity;
+		this.paneWidth = width / numPanes;
+	}
+
+	long paneOf(double t) {
+		return (long) Math.floor(t / paneWidth);
+	}
+	long firstLivePane() {
+		return paneOf(latest) - numPanes;
+	}
+
+	/** counts doc.termVec at time t */
+	public void add(Document doc, double t) {
+		advanceTo(t);
+		long p = paneOf(t);
+		if (p < firstLivePane()) return;
+		Pane pane = panes.get(p);
+		if (pane == null) {
+			pane = new Pane();
+			pane.terms = new SpaceSaving(capacity);
+			panes.put(p, pane);
+		}
+		for (Map.Entry<String,Double> e : doc.termVec.map.entrySet()) {
+			pane.terms.add(e.getKey(), e.getValue());
+		}
+		pane.numTokens += doc.termVec.totalCount;
+		pane.numDocs++;
+	}
+
+	/** move the window's end to t, if that's later, dropping panes that fall out */
+	public void advanceTo(double t) {
+		if (t <= latest) return;
+		latest = t;
+		long first = firstLivePane();
+		for (Iterator<Long> it = panes.keySet().iterator(); it.hasNext(); ) {
+			if (it.next() < first) it.remove(); else break;
+		}
+	}
+
+	/** the window's tracked term counts.  totalCount is the exact number of tokens in the window,
+	 * which is more than the sum of the counts once the sketches are full. */
+	public TermVector terms() {
+		TermVector tv = new TermVector();
+		double tokens = 0;
+		for (Pane pane : panes.values()) {
+			pane.terms.addTo(tv);
+			tokens += pane.numTokens;
+		}
+		tv.totalCount = tokens;
+		return tv;
+	}
+
+	public int numDocs() {
+		int n = 0;
+		for (Pane pane : panes.values()) n += pane.numDocs;
+		return n;
+	}
+	public double latest() { return latest; }
+	/** the start of the oldest pane still in the window */
+	public double start() {
+		return panes.isEmpty() ? latest : panes.firstKey() * paneWidth;
+	}
+}
@@ -0,0 +1,136 @@
+package te.data;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import it.unimi.dsi.fastutil.ints.AbstractIntComparator;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+
+/**
+ * one covariate's values in sorted order, alongside the doc ordinals they belong to.
+ *
+ * a range [lo,hi] is a contiguous run of the sorted values, found by two binary searches,
+ * so range counts are O(log n) and the matching docs come out as a DocBitmap for ANDing with other ranges and the brush.
+ * quantiles are array lookups, and an equal-width histogram is a binary search per bin edge.
+ * categorical columns are indexed by level number, the same as the brush axes use.
+ *
+ * appends are merged in (O(n) per batch).  not threadsafe; the swing thread owns it.
+ */
+public class SortedColumnIndex {
+	final String varname;
+	/** sorted */
+	double[] values = new double[0];
+	/** ordinals[i] is the doc with values[i] */
+	int[] ordinals = new int[0];
+
+	public SortedColumnIndex(Schema schema, String varname, Collection<Document> docs) {
+		this.varname = varname;
+		add(schema, docs);
+	}
+
+	public int size() { return values.length; }
+	public double min() { return values.length == 0 ? Double.NaN : values[0]; }
+	public double max() { return values.length == 0 ? Double.NaN : values[values.length-1]; }
+
+	/** docs without this covariate are skipped */
+	public void add(Schema schema, Collection<Document> docs) {
+		int n = 0;
+		double[] v = new double[docs.size()];
+		int[] o = new int[docs.size()];
+		for (Document d : docs) {
+			if (!d.covariates.containsKey(varname)) continue;
+			v[n] = schema.getDouble(d, varname);
+			o[n] = d.ordinal();
+			n++;
+		}
+		final double[] vals = v;
+		int[] perm = new int[n];
+		for (int i=0; i<n; i++) perm[i] = i;
+		IntArrays.mergeSort(perm, new AbstractIntComparator() {
+			@Override public int compare(int a, int b) { return Double.compare(vals[a], vals[b]); }
+		});
+		// merge the sorted new ones into the old
+		double[] mv = new double[values.length + n];
+		int[] mo = new int[values.length + n];
+		int i = 0, j = 0, k = 0;
+		while (i < values.length || j < n) {
+			if (j == n || (i < values.length && values[i] <= vals[perm[j]])) {
+				mv[k] = values[i];
+				mo[k++] = ordinals[i++];
+			} else {
+				mv[k] = vals[perm[j]];
+				mo[k++] = o[perm[j++]];
+			}
+		}
+		values = mv;
+		ordinals = mo;
+	}
+
+	/** the first position with a value >= x */
+	public int lowerBound(double x) {
+		int lo = 0, hi = values.length;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (values[mid] < x) lo = mid+1; else hi = mid;
+		}
+		return lo;
+	}
+	/** the first position with a value > x */
+	public int upperBound(double x) {
+		int lo = 0, hi = values.length;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (values[mid] <= x) lo = mid+1; else hi = mid;
+		}
+		return lo;
+	}
+
+	/** how many docs have lo <= value <= hi */
+	public int count(double lo, double hi) {
+		return Math.max(0, upperBound(hi) - lowerBound(lo));
+	}
+
+	/** the docs with lo <= value <= hi */
+	public DocBitmap range(double lo, double hi) {
+		DocBitmap b = new DocBitmap();
+		for (int i=lowerBound(lo), end=upperBound(hi); i<end; i++) b.set(ordinals[i]);
+		return b;
+	}
+
+	/** the value at this fraction of the way through the sorted docs (nearest rank) */
+	public double quantile(double q) {
+		if (values.length == 0) return Double.NaN;
+		int i = (int) Math.round(q * (values.length - 1));
+		return values[Math.max(0, Math.min(values.length-1, i))];
+	}
+
+	/** nbins+1 edges with about the same number of docs between each pair */
+	public double[] equalFrequencyEdges(int nbins) {
+		double[] edges = new double[nbins+1];
+		for (int b=0; b<=nbins; b++) edges[b] = quantile((double) b / nbins);
+		return edges;
+	}
+
+	/** doc counts in nbins equal-width bins over [lo,hi]; the last bin includes hi */
+	public int[] equalWidthHistogram(double lo, double hi, int nbins) {
+		int[] counts = new int[nbins];
+		double width = (hi - lo) / nbins;
+		int prev = lowerBound(lo);
+		for (int b=0; b<nbins; b++) {
+			int next = b == nbins-1 ? upperBound(hi) : lowerBound(lo + (b+1)*width);
+			counts[b] = Math.max(0, next - prev);
+			prev = next;
+		}
+		return counts;
+	}
+
+	public long sizeInBytes() {
+		return HeapFootprint.object(3, 0) + HeapFootprint.align(16 + 8L*values.length) + HeapFootprint.align(16 + 4L*ordinals.length);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("SortedColumnIndex(%s, n=%d, range=%s)", varname, size(),
+				Arrays.toString(new double[] { min(), max() }));
+	}
+}
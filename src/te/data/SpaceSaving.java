@@ -0,0 +1,106 @@
+package te.data;
+
+import java.util.HashMap;
+
+/**
+ * Space-Saving heavy hitters (Metwally, Agrawal and El Abbadi 2005): approximate term counts in at most `capacity` counters.
+ *
+ * a term that isn't tracked takes over the smallest counter, and its count starts from that counter's value,
+ * which is recorded as its error.  so counts are overestimates by at most error(term) <= total/capacity,
+ * and every term with a true count above total/capacity is tracked.  weights may be fractional.
+ *
+ * the counters are a binary min-heap by count, each knowing its position, so updates are O(log capacity).
+ */
+public class SpaceSaving {
+	public final int capacity;
+	double total = 0;
+	final HashMap<String,Entry> entries = new HashMap<>();
+	final Entry[] heap;
+	int size = 0;
+
+	static class Entry {
+		String term;
+		double count, error;
+		int pos;
+	}
+
+	public SpaceSaving(int capacity) {
+		assert capacity > 0;
+		this.capacity = capacity;
+		heap = new Entry[capacity];
+	}
+
+	public void add(String term, double weight) {
+		total += weight;
+		Entry e = entries.get(term);
+		if (e != null) {
+			e.count += weight;
+			siftDown(e.pos);
+		} else if (size < capacity) {
+			e = new Entry();
+			e.term = term;
+			e.count = weight;
+			e.pos = size;
+			heap[size++] = e;
+			entries.put(term, e);
+			siftUp(e.pos);
+		} else {
+			e = heap[0];
+			entries.remove(e.term);
+			e.term = term;
+			e.error = e.count;
+			e.count += weight;
+			entries.put(term, e);
+			siftDown(0);
+		}
+	}
+
+	/** the (over)estimated count, or 0 if not tracked */
+	public double count(String term) {
+		Entry e = entries.get(term);
+		return e == null ? 0 : e.count;
+	}
+	/** how much count(term) may be over by */
+	public double error(String term) {
+		Entry e = entries.get(term);
+		return e == null ? minCount() : e.error;
+	}
+	/** an untracked term's true count is at most this */
+	public double minCount() {
+		return size < capacity ? 0 : heap[0].count;
+	}
+	public double total() { return total; }
+	public int size() { return size; }
+
+	/** add the tracked counts into tv.  tv's total goes up by the tracked counts, not by total(). */
+	public void addTo(TermVector tv) {
+		for (int i=0; i<size; i++) tv.increment(heap[i].term, heap[i].count);
+	}
+
+	void siftUp(int i) {
+		Entry e = heap[i];
+		while (i > 0) {
+			int parent = (i-1) >>> 1;
+			if (heap[parent].count <= e.count) break;
+			heap[i] = heap[parent];
+			heap[i].pos = i;
+			i = parent;
+		}
+		heap[i] = e;
+		e.pos = i;
+	}
+	void siftDown(int i) {
+		Entry e = heap[i];
+		while (true) {
+			int child = 2*i + 1;
+			if (child >= size) break;
+			if (child+1 < size && heap[child+1].count < heap[child].count) child++;
+			if (heap[child].count >= e.count) break;
+			heap[i] = heap[child];
+			heap[i].pos = i;
+			i = child;
+		}
+		heap[i] = e;
+		e.pos = i;
+	}
+}
@@ -2,21 +2,42 @@ package te.data;
 
 import utility.util.OnlineNormal1d;
 
+/**
+ * one covariate's mean, sd, min, max and approximate quantiles, in one pass.
+ * mergeable: summaries of parts (e.g. threads' shares of a selection) combine into the summary of the whole.
+ */
 public class SummaryStats {
 	private OnlineNormal1d meanvar = new OnlineNormal1d();
 	private double min=Double.POSITIVE_INFINITY;
 	private double max=Double.NEGATIVE_INFINITY;
+	private KllSketch quantiles = new KllSketch();
 	
 	public void add(double value) {
 		meanvar.add(value);
+		quantiles.add(value);
 		if (value < min) min = value;
 		if (value > max) max = value;
 	}
+	/** this becomes the summary of both */
+	public SummaryStats merge(SummaryStats other) {
+		meanvar.merge(other.meanvar);
+		quantiles.merge(other.quantiles);
+		min = Math.min(min, other.min);
+		max = Math.max(max, other.max);
+		return this;
+	}
 	public double n() { return meanvar.n(); }
 	public double mean() { return meanvar.mean(); }
 	public double sd() { return meanvar.sd(); }
 	public double min() { return min; }
 	public double max() { return max; }
+	/** approximate; see KllSketch */
+	public double quantile(double q) {
+		if (q <= 0) return min;
+		if (q >= 1) return max;
+		return quantiles.quantile(q);
+	}
+	public double median() { return quantile(0.5); }
 	
 	public String toString(){ 
 		return String.format("SummaryStats(n=%s mean=%s sd=%s min=%s max=%s)",
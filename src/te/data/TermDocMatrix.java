@@ -0,0 +1,171 @@
+package te.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * the indexed docs' term vectors as a sparse doc x term matrix, in CSR form:
+ * each row (doc) is a run of column (term) ids and counts in flat arrays.
+ *
+ * term-term association (Analysis.TermTermAssociations) is a sparse matrix-vector product over the query's rows,
+ * which on these arrays is a tight loop with no hashing or boxing, and splits across threads by rows.
+ * rows are appended as docs get indexed (Corpus.addToIndex); new terms get new column ids.
+ * not threadsafe: appends and products both happen on the swing thread.
+ */
+public class TermDocMatrix {
+	/** column id -> term */
+	final List<String> terms = new ArrayList<>();
+	final Map<String,Integer> termIds = new HashMap<>();
+	/** row r's entries are [rowStart[r], rowStart[r+1]) */
+	int[] rowStart = new int[1024];
+	int[] cols = new int[1 << 16];
+	double[] vals = new double[1 << 16];
+	int numRows = 0;
+	/** per column: its total count over all rows (= globalTerms) */
+	double[] colSums = new double[1024];
+	/** per row: its doc length */
+	double[] rowSums = new double[1024];
+	/** doc ordinal -> row, -1 for docs not in the matrix */
+	int[] rowOfOrdinal = new int[0];
+
+	public TermDocMatrix() {}
+
+	public TermDocMatrix(Collection<Document> docs) {
+		addRows(docs);
+	}
+
+	public void addRows(Collection<Document> docs) {
+		int newEntries = 0;
+		int maxOrdinal = rowOfOrdinal.length - 1;
+		for (Document d : docs) {
+			newEntries += d.termVec.map.size();
+			maxOrdinal = Math.max(maxOrdinal, d.ordinal());
+		}
+		int n = rowStart[numRows] + newEntries;
+		if (n > cols.length) {
+			int cap = Math.max(n, cols.length + (cols.length >> 1));
+			cols = Arrays.copyOf(cols, cap);
+			vals = Arrays.copyOf(vals, cap);
+		}
+		if (numRows + docs.size() + 1 > rowStart.length) {
+			int cap = Math.max(numRows + docs.size() + 1, rowStart.length + (rowStart.length >> 1));
+			rowStart = Arrays.copyOf(rowStart, cap);
+			rowSums = Arrays.copyOf(rowSums, cap);
+		}
+		if (maxOrdinal >= rowOfOrdinal.length) {
+			int old = rowOfOrdinal.length;
+			rowOfOrdinal = Arrays.copyOf(rowOfOrdinal, Math.max(maxOrdinal + 1, old + (old >> 1)));
+			Arrays.fill(rowOfOrdinal, old, rowOfOrdinal.length, -1);
+		}
+		for (Document d : docs) {
+			int e = rowStart[numRows];
+			for (Map.Entry<String,Double> te : d.termVec.map.entrySet()) {
+				int c = termId(te.getKey());
+				cols[e] = c;
+				vals[e] = te.getValue();
+				colSums[c] += te.getValue();
+				e++;
+			}
+			rowSums[numRows] = d.termVec.totalCount;
+			rowOfOrdinal[d.ordinal()] = numRows;
+			rowStart[++numRows] = e;
+		}
+	}
+
+	int termId(String term) {
+		Integer c = termIds.get(term);
+		if (c != null) return c;
+		c = terms.size();
+		terms.add(term);
+		termIds.put(term, c);
+		if (c >= colSums.length) colSums = Arrays.copyOf(colSums, colSums.length * 2);
+		return c;
+	}
+
+	public int numRows() { return numRows; }
+	public int numCols() { return terms.size(); }
+	public long numEntries() { return rowStart[numRows]; }
+	public String term(int col) { return terms.get(col); }
+	/** -1 if the term isn't in any row */
+	public int col(String term) {
+		Integer c = termIds.get(term);
+		return c == null ? -1 : c;
+	}
+	public double colSum(int col) { return colSums[col]; }
+	/** -1 if the doc isn't in the matrix */
+	public int row(Document d) {
+		int o = d.ordinal();
+		return o >= 0 && o < rowOfOrdinal.length ? rowOfOrdinal[o] : -1;
+	}
+
+	/**
+	 * for query columns v, over the given rows d, with n_dv = the row's total count of query columns:
+	 *   counts[u] = sum_d n_du          (the rows' summed term vector)
+	 *   inner[u]  = sum_d n_du n_dv     (A^T x, for x_d = n_dv)
+	 * and the scalars sum_d n_dv and sum_d n_d n_dv.
+	 */
+	public static class Product {
+		public double[] counts, inner;
+		public double queryTokens, lengthWeightedQueryTokens;
+	}
+
+	public Product multiply(int[] rows, int[] queryCols) {
+		boolean[] isQuery = new boolean[numCols()];
+		for (int c : queryCols) if (c >= 0) isQuery[c] = true;
+		if (!Parallel.worthSplitting(rows.length)) {
+			return multiply(rows, 0, rows.length, isQuery);
+		}
+		List<Callable<Product>> tasks = new ArrayList<>();
+		int per = (rows.length + Parallel.NUM_TASKS - 1) / Parallel.NUM_TASKS;
+		for (int start=0; start < rows.length; start += per) {
+			final int s = start, e = Math.min(start + per, rows.length);
+			tasks.add(() -> multiply(rows, s, e, isQuery));
+		}
+		Product total = null;
+		for (Product p : Parallel.invokeAll(tasks)) {
+			if (total == null) { total = p; continue; }
+			for (int c=0; c < total.counts.length; c++) {
+				total.counts[c] += p.counts[c];
+				total.inner[c] += p.inner[c];
+			}
+			total.queryTokens += p.queryTokens;
+			total.lengthWeightedQueryTokens += p.lengthWeightedQueryTokens;
+		}
+		return total;
+	}
+
+	Product multiply(int[] rows, int from, int to, boolean[] isQuery) {
+		Product p = new Product();
+		p.counts = new double[isQuery.length];
+		p.inner = new double[isQuery.length];
+		for (int i=from; i<to; i++) {
+			int r = rows[i];
+			int start = rowStart[r], end = rowStart[r+1];
+			double n_dv = 0;
+			for (int e=start; e<end; e++) {
+				if (isQuery[cols[e]]) n_dv += vals[e];
+			}
+			for (int e=start; e<end; e++) {
+				p.counts[cols[e]] += vals[e];
+				p.inner[cols[e]] += vals[e] * n_dv;
+			}
+			p.queryTokens += n_dv;
+			p.lengthWeightedQueryTokens += rowSums[r] * n_dv;
+		}
+		return p;
+	}
+
+
+	public long sizeInBytes() {
+		return 4L*rowStart.length + 12L*cols.length + 8L*colSums.length + 8L*rowSums.length + 4L*rowOfOrdinal.length;
+	}
+
+	/** the parts of sizeInBytes that grow with the vocabulary (the column sums) and with the postings (the entries) */
+	public long termsSizeInBytes() { return 8L*colSums.length; }
+	public long postingsSizeInBytes() { return 12L*cols.length; }
+}
@@ -6,6 +6,7 @@ import java.util.List;
 public class TermQuery {
 	public List<String> terms;
 	private DocSet matchingDocs = null;
+	private DocBitmap matchingBitmap = null;
 	private Corpus corpus;
 	
 	public TermQuery(Corpus corpus) {
@@ -19,6 +20,14 @@ public class TermQuery {
 		}
 		return matchingDocs;
 	}
+	/** the same docs, by ordinal */
+	public DocBitmap getMatchingDocBitmap() {
+		if (matchingBitmap == null) {
+			matchingBitmap = new DocBitmap();
+			for (Document d : getMatchingDocs().docs()) matchingBitmap.set(d.ordinal());
+		}
+		return matchingBitmap;
+	}
 	
 	@Override
 	public String toString() {
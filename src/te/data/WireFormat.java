@@ -0,0 +1,177 @@
+package te.data;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import te.data.Schema.ColumnInfo;
+import te.data.Schema.DataType;
+import te.data.Schema.Levels.Level;
+import utility.util.JsonUtil;
+
+/**
+ * JSON encoding of corpus data for te.ui.CorpusServer and RemoteDataLayer.
+ * in te.data since decoding has to build TermVectors and Documents from the inside.
+ *
+ * a document travels in two parts: its metadata (docid, number, covariates), sent once for the whole corpus
+ * as a stub Document, and its contents (text, tokens, term instances), pulled on demand into a full one.  term vectors and the term instance lookups
+ * are rebuilt from the term instances on arrival, the same way NLP.analyzeDocument builds them.
+ */
+public class WireFormat {
+
+	public static ObjectNode schemaToJson(Schema schema) {
+		ObjectNode j = JsonUtil.newObject();
+		for (Map.Entry<String,ColumnInfo> e : schema.columnTypes.entrySet()) {
+			ObjectNode col = j.putObject(e.getKey());
+			col.put("type", e.getValue().dataType.name());
+			if (e.getValue().levels != null) {
+				ArrayNode levels = col.putArray("levels");
+				List<Level> ls = new ArrayList<>(e.getValue().levels.levels());
+				ls.sort((a,b) -> Integer.compare(a.number, b.number));
+				for (Level l : ls) levels.add(l.name);
+			}
+		}
+		return j;
+	}
+	public static Schema schemaFromJson(JsonNode j) {
+		Schema schema = new Schema();
+		for (Iterator<Map.Entry<String,JsonNode>> it = j.fields(); it.hasNext(); ) {
+			Map.Entry<String,JsonNode> e = it.next();
+			ColumnInfo ci = new ColumnInfo(DataType.valueOf(e.getValue().get("type").asText()));
+			if (e.getValue().has("levels")) {
+				for (JsonNode l : e.getValue().get("levels")) ci.levels.addLevel(l.asText());
+			}
+			schema.columnTypes.put(e.getKey(), ci);
+		}
+		return schema;
+	}
+
+	public static ObjectNode metadataToJson(Document d) {
+		ObjectNode j = JsonUtil.newObject();
+		j.put("docid", d.docid);
+		j.put("num", d.docnumOriginalOrder);
+		ObjectNode cov = j.putObject("covariates");
+		for (Map.Entry<String,Object> e : d.covariates.entrySet()) {
+			Object v = e.getValue();
+			if (v instanceof Number) cov.put(e.getKey(), ((Number) v).doubleValue());
+			else if (v instanceof Boolean) cov.put(e.getKey(), (Boolean) v);
+			else if (v != null) cov.put(e.getKey(), v.toString());
+		}
+		return j;
+	}
+	/** a document with only its metadata; contents get filled in later by contentsFromJson */
+	public static Document metadataFromJson(JsonNode j) {
+		Document d = new Document();
+		d.docid = j.get("docid").asText();
+		d.docnumOriginalOrder = j.get("num").asInt();
+		for (Iterator<Map.Entry<String,JsonNode>> it = j.get("covariates").fields(); it.hasNext(); ) {
+			Map.Entry<String,JsonNode> e = it.next();
+			JsonNode v = e.getValue();
+			d.covariates.put(e.getKey(), v.isNumber() ? (Object) v.asDouble() : v.isBoolean() ? (Object) v.asBoolean() : v.asText());
+		}
+		return d;
+	}
+
+	public static ObjectNode contentsToJson(Document d) {
+		ObjectNode j = JsonUtil.newObject();
+		j.put("docid", d.docid);
+		j.put("text", d.text);
+		ArrayNode toks = j.putArray("tokens");
+		for (Token t : d.tokens) {
+			ArrayNode a = toks.addArray();
+			a.add(t.text).add(t.startChar).add(t.endChar);
+			if (t.pos != null || t.ner != null) a.add(t.pos).add(t.ner);
+		}
+		ArrayNode tis = j.putArray("terminsts");
+		for (TermInstance ti : d.termInstances) {
+			ArrayNode a = tis.addArray();
+			a.add(ti.termName);
+			for (int i : ti.tokIndsInDoc) a.add(i);
+		}
+		return j;
+	}
+	/** a full document: the stub's metadata, plus text, tokens, term instances and everything derived from them.
+	 * a new object, so the stub itself stays light. */
+	public static Document contentsFromJson(JsonNode j, Document stub) {
+		Document d = new Document();
+		d.docid = stub.docid;
+		d.docnumOriginalOrder = stub.docnumOriginalOrder;
+		d.covariates = stub.covariates;
+		d.text = j.get("text").asText();
+		List<Token> tokens = new ArrayList<>();
+		for (JsonNode a : j.get("tokens")) {
+			Token t = new Token();
+			t.text = a.get(0).asText();
+			t.startChar = a.get(1).asInt();
+			t.endChar = a.get(2).asInt();
+			if (a.size() > 3) {
+				t.pos = a.get(3).isNull() ? null : a.get(3).asText();
+				t.ner = a.get(4).isNull() ? null : a.get(4).asText();
+			}
+			tokens.add(t);
+		}
+		List<TermInstance> tis = new ArrayList<>();
+		for (JsonNode a : j.get("terminsts")) {
+			List<Integer> inds = new ArrayList<>(a.size()-1);
+			for (int i=1; i<a.size(); i++) inds.add(a.get(i).asInt());
+			tis.add(new TermInstance(a.get(0).asText(), inds));
+		}
+		d.tokens = tokens;
+		NLP.analyzeDocument(doc -> tis, d);
+		return d;
+	}
+
+	public static ObjectNode termVectorToJson(TermVector tv) {
+		ObjectNode j = JsonUtil.newObject();
+		for (Map.Entry<String,Double> e : tv.map.entrySet()) {
+			j.put(e.getKey(), e.getValue());
+		}
+		return j;
+	}
+	public static TermVector termVectorFromJson(JsonNode j) {
+		TermVector tv = new TermVector();
+		for (Iterator<Map.Entry<String,JsonNode>> it = j.fields(); it.hasNext(); ) {
+			Map.Entry<String,JsonNode> e = it.next();
+			tv.increment(e.getKey(), e.getValue().asDouble());
+		}
+		return tv;
+	}
+
+	/** the doc ids and the summed term vector; the docs themselves are looked up on the other end */
+	public static ObjectNode docSetToJson(DocSet ds) {
+		ObjectNode j = JsonUtil.newObject();
+		ArrayNode ids = j.putArray("docids");
+		for (String id : ds.docsById.keySet()) ids.add(id);
+		j.set("terms", termVectorToJson(ds.terms));
+		return j;
+	}
+	/** docsById: the receiver's documents.  ids it doesn't know are dropped. */
+	public static DocSet docSetFromJson(JsonNode j, Map<String,Document> docsById) {
+		DocSet ds = new DocSet();
+		for (JsonNode id : j.get("docids")) {
+			Document d = docsById.get(id.asText());
+			if (d != null) ds.docsById.put(d.docid, d);
+		}
+		ds.terms = termVectorFromJson(j.get("terms"));
+		return ds;
+	}
+
+	public static ArrayNode strings(Collection<String> xs) {
+		ArrayNode a = JsonUtil.om.createArrayNode();
+		for (String x : xs) a.add(x);
+		return a;
+	}
+	public static List<String> strings(JsonNode a) {
+		if (a == null) return Collections.emptyList();
+		List<String> ret = new ArrayList<>(a.size());
+		for (JsonNode x : a) ret.add(x.asText());
+		return ret;
+	}
+}
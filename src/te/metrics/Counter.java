@@ -0,0 +1,22 @@
+package te.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class Counter implements CounterMXBean {
+	public final String name;
+	final AtomicLong value = new AtomicLong();
+
+	public Counter(String name) {
+		this.name = name;
+	}
+	public void inc() { value.incrementAndGet(); }
+	public void add(long n) { value.addAndGet(n); }
+
+	@Override public String getName() { return name; }
+	@Override public long getCount() { return value.get(); }
+	@Override public void reset() { value.set(0); }
+
+	@Override public String toString() {
+		return name + "=" + value.get();
+	}
+}
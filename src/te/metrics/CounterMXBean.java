@@ -0,0 +1,8 @@
+package te.metrics;
+
+/** JMX view of a {@link Counter} */
+public interface CounterMXBean {
+	String getName();
+	long getCount();
+	void reset();
+}
@@ -0,0 +1,164 @@
+package te.metrics;
+
+import java.awt.EventQueue;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.RepaintManager;
+import javax.swing.SwingUtilities;
+
+import utility.util.U;
+
+/**
+ * notices when the swing thread is stuck, and says who did it.
+ *
+ * a daemon thread posts a heartbeat to the event queue every SAMPLE_INTERVAL_MS and times how long it takes to run.
+ * if one is still pending after STALL_THRESHOLD_MS, the EDT's stack is captured and attributed to whatever
+ * event/handler the TimedEventBus is dispatching at that moment (or none, e.g. if it's stuck in a paint).
+ * the stall is logged when detected, then again with its total duration when the EDT comes back.
+ *
+ * also keeps frame times, by timing RepaintManager.paintDirtyRegions(), which is where all the deferred repaints happen.
+ * cumulative stats go in Metrics (edt.lag, edt.frame, edt.stall), recent ones in rolling windows for the PerfOverlay.
+ */
+public class EdtWatchdog {
+	public static long STALL_THRESHOLD_MS = 500;
+	public static long SAMPLE_INTERVAL_MS = 50;
+	static int MAX_STALLS_KEPT = 20;
+	static int STACK_DEPTH_LOGGED = 25;
+
+	public static class Stall {
+		public String eventType;
+		public String handler;
+		public StackTraceElement[] stack;
+		/** until the EDT comes back, how long it had been blocked when detected */
+		public volatile long durationNanos;
+		public volatile boolean ended = false;
+
+		public String describe() {
+			return U.sf("%s%s %.0f ms", eventType, handler==null ? "" : " in " + handler, 1e-6*durationNanos)
+					+ (ended ? "" : "+");
+		}
+	}
+
+	final TimedEventBus bus;
+	volatile Thread edt;
+	/** nanoTime of the heartbeat that's been posted and hasn't run yet, or -1 */
+	volatile long pendingSince = -1;
+	volatile Stall currentStall;
+	final List<Stall> stalls = new ArrayList<>();
+	int numStalls = 0;
+
+	public final RollingWindow recentLag = new RollingWindow(200);
+	public final RollingWindow recentFrames = new RollingWindow(200);
+	final LatencyHistogram lagTimer = Metrics.timer("edt.lag");
+	final LatencyHistogram frameTimer = Metrics.timer("edt.frame");
+	final LatencyHistogram stallTimer = Metrics.timer("edt.stall");
+	Thread thread;
+
+	/** bus can be null, then stalls just don't get attributed */
+	public EdtWatchdog(TimedEventBus bus) {
+		this.bus = bus;
+	}
+
+	public void start() {
+		SwingUtilities.invokeLater(() -> {
+			edt = Thread.currentThread();
+			RepaintManager.setCurrentManager(new FrameTimingRepaintManager());
+		});
+		thread = new Thread(this::watch, "edt-watchdog");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	void watch() {
+		while (true) {
+			try {
+				Thread.sleep(SAMPLE_INTERVAL_MS);
+			} catch (InterruptedException e) {
+				return;
+			}
+			long now = System.nanoTime();
+			long posted = pendingSince;
+			if (posted == -1) {
+				pendingSince = now;
+				EventQueue.invokeLater(() -> heartbeat(now));
+			}
+			else if (currentStall==null && now - posted > STALL_THRESHOLD_MS*1000000) {
+				stallDetected(now - posted);
+			}
+			else if (currentStall != null) {
+				currentStall.durationNanos = now - posted;
+			}
+		}
+	}
+
+	void stallDetected(long blockedNanos) {
+		Stall s = new Stall();
+		Object event = bus==null ? null : bus.currentEvent;
+		Object handler = bus==null ? null : bus.currentHandler;
+		s.eventType = event==null ? "(no event)" : event.getClass().getSimpleName();
+		s.handler = handler==null ? null : handler.toString();
+		s.stack = edt==null ? new StackTraceElement[0] : edt.getStackTrace();
+		s.durationNanos = blockedNanos;
+		currentStall = s;
+		synchronized(stalls) {
+			numStalls++;
+			stalls.add(s);
+			if (stalls.size() > MAX_STALLS_KEPT) stalls.remove(0);
+		}
+		StringBuilder sb = new StringBuilder();
+		for (int i=0; i<Math.min(s.stack.length, STACK_DEPTH_LOGGED); i++) {
+			sb.append("\tat ").append(s.stack[i]).append("\n");
+		}
+		if (s.stack.length > STACK_DEPTH_LOGGED) sb.append("\t...\n");
+		U.pf("EDT STALL: blocked %.0f ms during %s\n%s", 1e-6*blockedNanos, s.describe(), sb);
+	}
+
+	/** on the EDT */
+	void heartbeat(long posted) {
+		edt = Thread.currentThread();
+		long lag = System.nanoTime() - posted;
+		lagTimer.record(lag);
+		recentLag.add(lag);
+		Stall s = currentStall;
+		if (s != null) {
+			s.durationNanos = lag;
+			s.ended = true;
+			stallTimer.record(lag);
+			Metrics.counter("edt.stalls." + s.eventType).inc();
+			U.pf("EDT stall ended: %s\n", s.describe());
+			currentStall = null;
+		}
+		pendingSince = -1;
+	}
+
+	public int numStalls() {
+		synchronized(stalls) { return numStalls; }
+	}
+	/** most recent, or null */
+	public Stall lastStall() {
+		synchronized(stalls) { return stalls.isEmpty() ? null : stalls.get(stalls.size()-1); }
+	}
+
+	class FrameTimingRepaintManager extends RepaintManager {
+		@Override
+		public void paintDirtyRegions() {
+			long t0 = System.nanoTime();
+			super.paintDirtyRegions();
+			long dt = System.nanoTime() - t0;
+			frameTimer.record(dt);
+			recentFrames.add(dt);
+		}
+	}
+
+	/** for the overlay to paint into */
+	public List<String> statusLines() {
+		List<String> lines = new ArrayList<>();
+		long[] f = recentFrames.sorted(), l = recentLag.sorted();
+		lines.add(U.sf("frame  p50 %.1f  p99 %.1f  max %.1f ms", 1e-6*RollingWindow.quantile(f,.5), 1e-6*RollingWindow.quantile(f,.99), 1e-6*RollingWindow.quantile(f,1)));
+		lines.add(U.sf("edt lag  p50 %.1f  p99 %.1f  max %.1f ms", 1e-6*RollingWindow.quantile(l,.5), 1e-6*RollingWindow.quantile(l,.99), 1e-6*RollingWindow.quantile(l,1)));
+		Stall s = lastStall();
+		lines.add(U.sf("stalls %d", numStalls()) + (s==null ? "" : "  last: " + s.describe()));
+		return lines;
+	}
+}
@@ -0,0 +1,98 @@
+package te.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * durations in log-spaced buckets: 4 per power of two (so about 19% wide), from 1ns up to ~18 minutes.
+ * recording is lock-free and allocation-free, so it's fine on the swing thread and in tight loops.
+ * quantiles are read off the buckets, accurate to within a bucket width.
+ */
+public class LatencyHistogram implements LatencyHistogramMXBean {
+	static final int SUB_BUCKETS = 4;
+	static final int NUM_BUCKETS = 40 * SUB_BUCKETS;
+
+	public final String name;
+	final AtomicLongArray buckets = new AtomicLongArray(NUM_BUCKETS);
+	final AtomicLong count = new AtomicLong();
+	final AtomicLong sumNanos = new AtomicLong();
+	final AtomicLong maxNanos = new AtomicLong();
+
+	public LatencyHistogram(String name) {
+		this.name = name;
+	}
+
+	static int bucketOf(long nanos) {
+		if (nanos <= 1) return 0;
+		int b = (int) (SUB_BUCKETS * Math.log(nanos) / Math.log(2));
+		return Math.min(b, NUM_BUCKETS-1);
+	}
+	/** geometric middle of the bucket */
+	static double bucketMiddle(int b) {
+		return Math.pow(2, (b + 0.5) / SUB_BUCKETS);
+	}
+
+	public void record(long nanos) {
+		if (nanos < 0) nanos = 0;
+		buckets.incrementAndGet(bucketOf(nanos));
+		count.incrementAndGet();
+		sumNanos.addAndGet(nanos);
+		long m;
+		while (nanos > (m = maxNanos.get()) && !maxNanos.compareAndSet(m, nanos)) {}
+	}
+
+	/** for try-with-resources: records the time from here until close() */
+	public Timing time() {
+		return new Timing(this);
+	}
+
+	public static class Timing implements AutoCloseable {
+		final LatencyHistogram h;
+		final long t0 = System.nanoTime();
+		long end = -1;
+		Timing(LatencyHistogram h) { this.h = h; }
+		/** up to now, or up to close() if it's been closed */
+		public long elapsedNanos() { return (end==-1 ? System.nanoTime() : end) - t0; }
+		/** idempotent */
+		@Override public void close() {
+			if (end != -1) return;
+			end = System.nanoTime();
+			h.record(end - t0);
+		}
+	}
+
+	/** in nanoseconds.  q in [0,1]. */
+	public double quantileNanos(double q) {
+		long n = count.get();
+		if (n == 0) return 0;
+		long rank = (long) Math.ceil(q * n);
+		long seen = 0;
+		for (int b=0; b<NUM_BUCKETS; b++) {
+			seen += buckets.get(b);
+			if (seen >= rank && seen > 0) {
+				return Math.min(bucketMiddle(b), maxNanos.get());
+			}
+		}
+		return maxNanos.get();
+	}
+
+	public void reset() {
+		for (int b=0; b<NUM_BUCKETS; b++) buckets.set(b, 0);
+		count.set(0);
+		sumNanos.set(0);
+		maxNanos.set(0);
+	}
+
+	@Override public String getName() { return name; }
+	@Override public long getCount() { return count.get(); }
+	@Override public double getTotalMillis() { return 1e-6 * sumNanos.get(); }
+	@Override public double getMeanMillis() { long n = count.get(); return n==0 ? 0 : 1e-6 * sumNanos.get() / n; }
+	@Override public double getP50Millis() { return 1e-6 * quantileNanos(0.5); }
+	@Override public double getP90Millis() { return 1e-6 * quantileNanos(0.9); }
+	@Override public double getP99Millis() { return 1e-6 * quantileNanos(0.99); }
+	@Override public double getMaxMillis() { return 1e-6 * maxNanos.get(); }
+
+	@Override public String toString() {
+		return String.format("%s[n=%d p50=%.2fms p99=%.2fms max=%.2fms]", name, getCount(), getP50Millis(), getP99Millis(), getMaxMillis());
+	}
+}
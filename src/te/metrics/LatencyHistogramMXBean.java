@@ -0,0 +1,14 @@
+package te.metrics;
+
+/** JMX view of a {@link LatencyHistogram} */
+public interface LatencyHistogramMXBean {
+	String getName();
+	long getCount();
+	double getTotalMillis();
+	double getMeanMillis();
+	double getP50Millis();
+	double getP90Millis();
+	double getP99Millis();
+	double getMaxMillis();
+	void reset();
+}
@@ -0,0 +1,103 @@
+package te.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import utility.util.U;
+
+/**
+ * global registry of named latency histograms and counters.
+ *
+ * names are dotted, by convention
+ *   load.*     loading/analysis stages
+ *   query.*    per-query breakdown: query.KIND for the whole query and query.KIND.{aggregate,rank,render} for its
+ *              stages, KIND being docdriven, sampled (docdriven with approximate_selections) or termterm.
+ *              query.select and query.aggregate time the Corpus calls themselves, whichever kind of query made them
+ *   handler.*  one per @Subscribe method, see {@link TimedEventBus}
+ *   event.*    whole dispatch of one event type, all handlers included
+ *
+ * every metric is also registered as a JMX MXBean under "te:type=...,name=...", so jconsole/jvisualvm can watch
+ * p50/p99 on a live session.  {@link #installExitReport()} prints everything once at exit.
+ */
+public class Metrics {
+	static final ConcurrentMap<String,LatencyHistogram> timers = new ConcurrentHashMap<>();
+	static final ConcurrentMap<String,Counter> counters = new ConcurrentHashMap<>();
+	static boolean exitReportInstalled = false;
+
+	public static LatencyHistogram timer(String name) {
+		LatencyHistogram h = timers.get(name);
+		if (h != null) return h;
+		h = new LatencyHistogram(name);
+		LatencyHistogram prev = timers.putIfAbsent(name, h);
+		if (prev != null) return prev;
+		registerMBean("Timer", name, h);
+		return h;
+	}
+
+	public static Counter counter(String name) {
+		Counter c = counters.get(name);
+		if (c != null) return c;
+		c = new Counter(name);
+		Counter prev = counters.putIfAbsent(name, c);
+		if (prev != null) return prev;
+		registerMBean("Counter", name, c);
+		return c;
+	}
+
+	/** try (LatencyHistogram.Timing t = Metrics.time("load.tokenize")) { ... } */
+	public static LatencyHistogram.Timing time(String name) {
+		return timer(name).time();
+	}
+
+	static void registerMBean(String type, String name, Object bean) {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			server.registerMBean(bean, new ObjectName("te:type=" + type + ",name=" + ObjectName.quote(name)));
+		} catch (Exception e) {
+			// monitoring is best-effort; the metric still works without jmx
+			U.p("couldn't register mbean for " + name + ": " + e);
+		}
+	}
+
+	public static void resetAll() {
+		for (LatencyHistogram h : timers.values()) h.reset();
+		for (Counter c : counters.values()) c.reset();
+	}
+
+	public static String report() {
+		StringBuilder sb = new StringBuilder();
+		List<String> names = new ArrayList<>(timers.keySet());
+		names.sort(null);
+		sb.append(U.sf("%-50s %8s %10s %9s %9s %9s %9s\n", "timer", "n", "total_ms", "mean_ms", "p50_ms", "p99_ms", "max_ms"));
+		for (String name : names) {
+			LatencyHistogram h = timers.get(name);
+			if (h.getCount()==0) continue;
+			sb.append(U.sf("%-50s %8d %10.1f %9.2f %9.2f %9.2f %9.2f\n", name, h.getCount(), h.getTotalMillis(),
+					h.getMeanMillis(), h.getP50Millis(), h.getP99Millis(), h.getMaxMillis()));
+		}
+		names = new ArrayList<>(counters.keySet());
+		names.sort(null);
+		for (String name : names) {
+			Counter c = counters.get(name);
+			if (c.getCount()==0) continue;
+			sb.append(U.sf("%-50s %8d\n", name, c.getCount()));
+		}
+		return sb.toString();
+	}
+
+	/** idempotent */
+	public static synchronized void installExitReport() {
+		if (exitReportInstalled) return;
+		exitReportInstalled = true;
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			if (timers.isEmpty() && counters.isEmpty()) return;
+			System.out.print("\n=== te metrics ===\n" + report());
+		}, "metrics-report"));
+	}
+}
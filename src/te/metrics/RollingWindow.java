@@ -0,0 +1,36 @@
+package te.metrics;
+
+import java.util.Arrays;
+
+/** the last N samples, for "how is it doing right now" stats that a cumulative histogram can't give. */
+public class RollingWindow {
+	final long[] samples;
+	int next = 0;
+	int size = 0;
+
+	public RollingWindow(int capacity) {
+		samples = new long[capacity];
+	}
+
+	public synchronized void add(long x) {
+		samples[next] = x;
+		next = (next+1) % samples.length;
+		size = Math.min(size+1, samples.length);
+	}
+
+	public synchronized int size() { return size; }
+
+	/** sorted copy of the current window */
+	public synchronized long[] sorted() {
+		long[] ret = Arrays.copyOf(samples, size);
+		Arrays.sort(ret);
+		return ret;
+	}
+
+	/** q in [0,1] on a sorted array; 0 if empty */
+	public static long quantile(long[] sorted, double q) {
+		if (sorted.length==0) return 0;
+		int i = (int) Math.ceil(q * sorted.length) - 1;
+		return sorted[Math.max(0, Math.min(sorted.length-1, i))];
+	}
+}
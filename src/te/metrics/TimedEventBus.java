@@ -0,0 +1,168 @@
+package te.metrics;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.google.common.eventbus.DeadEvent;
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
+
+/**
+ * a drop-in EventBus that records how long every @Subscribe handler takes, into Metrics timers "handler.CLASS.METHOD".
+ * "event.EVENTCLASS" times a whole top-level post, including the events its handlers post in turn;
+ * that's the latency of one user interaction as far as the bus is concerned.
+ *
+ * guava's dispatch() isn't overridable from outside its package, so this keeps its own handler registry,
+ * with the same semantics as the synchronous guava bus:
+ * handlers for the event's class and all its supertypes, posts from inside a handler are queued and run
+ * after the current handler returns (in order, on the same thread), handler exceptions are logged and don't
+ * stop the other handlers, an event nobody handles is reposted as a DeadEvent, and registering an object again
+ * doesn't add its handlers twice.
+ * handler exceptions are also counted, in the "handler.errors" counter.
+ */
+public class TimedEventBus extends EventBus {
+	static final Logger logger = Logger.getLogger(TimedEventBus.class.getName());
+
+	static class Handler {
+		final Object target;
+		final Method method;
+		final LatencyHistogram timer;
+		Handler(Object target, Method method) {
+			this.target = target;
+			this.method = method;
+			this.timer = Metrics.timer("handler." + target.getClass().getSimpleName() + "." + method.getName());
+		}
+		/** the same method on the same object, like guava's Subscriber */
+		@Override public boolean equals(Object o) {
+			if (!(o instanceof Handler)) return false;
+			Handler h = (Handler) o;
+			return target == h.target && method.equals(h.method);
+		}
+		@Override public int hashCode() {
+			return (31 + method.hashCode()) * 31 + System.identityHashCode(target);
+		}
+		@Override public String toString() {
+			return target.getClass().getSimpleName() + "." + method.getName();
+		}
+	}
+
+	final Map<Class<?>, CopyOnWriteArrayList<Handler>> handlersByType = new ConcurrentHashMap<>();
+	static final Map<Class<?>, Set<Class<?>>> hierarchyCache = new ConcurrentHashMap<>();
+
+	final ThreadLocal<Queue<Object[]>> queue = ThreadLocal.withInitial(ArrayDeque::new);
+	final ThreadLocal<Boolean> isDispatching = ThreadLocal.withInitial(() -> false);
+
+	/** what's being dispatched right now, null when idle.  read by the EdtWatchdog from its own thread. */
+	public volatile Object currentEvent;
+	public volatile Object currentHandler;
+
+	@Override
+	public void register(Object target) {
+		for (Method m : target.getClass().getMethods()) {
+			if (!m.isAnnotationPresent(Subscribe.class)) continue;
+			Class<?>[] params = m.getParameterTypes();
+			if (params.length != 1) {
+				throw new IllegalArgumentException("Method " + m + " has @Subscribe annotation, but requires " + params.length + " arguments.  Event handler methods must require a single argument.");
+			}
+			m.setAccessible(true);
+			handlersByType.computeIfAbsent(params[0], k -> new CopyOnWriteArrayList<>()).addIfAbsent(new Handler(target, m));
+		}
+	}
+
+	@Override
+	public void unregister(Object target) {
+		boolean found = false;
+		for (List<Handler> hs : handlersByType.values()) {
+			for (Handler h : hs) {
+				if (h.target == target) { hs.remove(h); found = true; }
+			}
+		}
+		if (!found) {
+			throw new IllegalArgumentException("missing event handler for an annotated method. Is " + target + " registered?");
+		}
+	}
+
+	@Override
+	public void post(Object event) {
+		boolean dispatched = false;
+		for (Class<?> type : typesOf(event.getClass())) {
+			List<Handler> hs = handlersByType.get(type);
+			if (hs == null) continue;
+			for (Handler h : hs) {
+				queue.get().add(new Object[]{ event, h });
+				dispatched = true;
+			}
+		}
+		if (!dispatched && !(event instanceof DeadEvent)) {
+			post(new DeadEvent(this, event));
+			return;
+		}
+		dispatchQueuedEvents();
+	}
+
+	@Override
+	protected void dispatchQueuedEvents() {
+		if (isDispatching.get()) return;
+		isDispatching.set(true);
+		Object first = null;
+		long t0 = System.nanoTime();
+		try {
+			Queue<Object[]> q = queue.get();
+			Object[] next;
+			while ((next = q.poll()) != null) {
+				if (first == null) first = next[0];
+				dispatch(next[0], (Handler) next[1]);
+			}
+		} finally {
+			isDispatching.set(false);
+			if (first != null) {
+				Metrics.timer("event." + first.getClass().getSimpleName()).record(System.nanoTime() - t0);
+			}
+		}
+	}
+
+	void dispatch(Object event, Handler h) {
+		currentEvent = event;
+		currentHandler = h;
+		long t0 = System.nanoTime();
+		try {
+			h.method.invoke(h.target, event);
+		} catch (InvocationTargetException e) {
+			logger.log(Level.SEVERE, "Could not dispatch event: " + event + " to handler " + h, e.getCause());
+			Metrics.counter("handler.errors").inc();
+		} catch (IllegalAccessException e) {
+			throw new Error("Method became inaccessible: " + event, e);
+		} finally {
+			h.timer.record(System.nanoTime() - t0);
+			currentEvent = null;
+			currentHandler = null;
+		}
+	}
+
+	/** the class, its superclasses and all interfaces */
+	static Set<Class<?>> typesOf(Class<?> concreteClass) {
+		return hierarchyCache.computeIfAbsent(concreteClass, c -> {
+			Set<Class<?>> ret = new LinkedHashSet<>();
+			List<Class<?>> todo = new ArrayList<>();
+			todo.add(c);
+			while (!todo.isEmpty()) {
+				Class<?> x = todo.remove(0);
+				if (x == null || !ret.add(x)) continue;
+				todo.add(x.getSuperclass());
+				for (Class<?> i : x.getInterfaces()) todo.add(i);
+			}
+			return ret;
+		});
+	}
+}
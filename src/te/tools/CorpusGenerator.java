@@ -0,0 +1,343 @@
+package te.tools;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import utility.util.FastRandom;
+import utility.util.JsonUtil;
+import utility.util.U;
+
+/**
+ * writes big synthetic corpora for scale testing, in the formats Main loads:
+ * data.jsonl (DataLoader.loadJsonLines), optionally nlp.tsv (Corpus.loadNLP), and a config.conf with the schema.
+ *
+ * the text model:
+ *  - vocabulary size follows heaps' law for the expected number of tokens, V = K * N^beta,
+ *    and background words are drawn from a zipf distribution over it.
+ *  - covariate x ~ U(0,1) and categorical "group" drive term usage.  with probability numericStrength*x a token
+ *    comes from the x-topic instead, and with probability categStrength from the doc's group's topic.
+ *    topics are zipfian over a random set of mid-frequency words.  so those words correlate with x or group,
+ *    with the strength controlled by those two knobs.  covariate y ~ N(0,1) is pure noise, as a control.
+ *  - doc lengths are fixed, poisson, or lognormal.
+ *
+ * everything is streamed one doc at a time, so the number of docs is only limited by disk.
+ * the same seed always gives the same corpus.
+ *
+ * usage: CorpusGenerator outdir [--docs N] [--seed S] [--doclen lognormal:4.5,0.8 | poisson:100 | fixed:100]
+ *            [--zipf 1.07] [--heaps-k 30] [--heaps-beta 0.5] [--levels 5] [--topic-size 200]
+ *            [--numeric-strength 0.2] [--categ-strength 0.1] [--nlp]
+ */
+public class CorpusGenerator {
+	public int numDocs = 10000;
+	public long seed = 42;
+	public double zipfExponent = 1.07;
+	public double heapsK = 30;
+	public double heapsBeta = 0.5;
+	/** "fixed", "poisson", or "lognormal" */
+	public String doclenDist = "lognormal";
+	/** fixed: [n].  poisson: [lambda].  lognormal: [mu, sigma] of log length. */
+	public double[] doclenParams = { 4.5, 0.8 };
+	public int numLevels = 5;
+	public int topicSize = 200;
+	public double numericStrength = 0.2;
+	public double categStrength = 0.1;
+	/** tokens per sentence, for the nlp file */
+	public int sentenceLength = 20;
+
+	FastRandom rand;
+	String[] vocab;
+	AliasSampler background;
+	AliasSampler topicSampler;
+	/** topic 0 is the x-topic, 1..numLevels are the group topics.  entries are word ranks. */
+	int[][] topicWords;
+
+	public CorpusGenerator() {}
+
+	/** sets up the vocabulary and topics.  called by the write methods; call directly to use word() before writing. */
+	public void init() {
+		rand = new FastRandom(seed);
+		int V = vocabSize();
+		vocab = new String[V];
+		double[] weights = new double[V];
+		for (int r=0; r<V; r++) {
+			vocab[r] = pseudoword(r);
+			weights[r] = Math.pow(r+1, -zipfExponent);
+		}
+		background = new AliasSampler(weights);
+
+		double[] tw = new double[topicSize];
+		for (int i=0; i<topicSize; i++) tw[i] = Math.pow(i+1, -zipfExponent);
+		topicSampler = new AliasSampler(tw);
+		// topic words are mid-frequency: not stopword-like, not singletons
+		// a topic bigger than that range just repeats words; it can't reach past the vocabulary
+		int lo = Math.min(50, V/10), hi = Math.min(V, Math.max(lo+topicSize, 20000));
+		topicWords = new int[numLevels+1][topicSize];
+		for (int t=0; t<=numLevels; t++) {
+			for (int i=0; i<topicSize; i++) {
+				topicWords[t][i] = lo + rand.nextInt(hi-lo);
+			}
+		}
+	}
+
+	public double meanDoclen() {
+		switch (doclenDist) {
+		case "fixed":
+		case "poisson":
+			return doclenParams[0];
+		case "lognormal":
+			return Math.exp(doclenParams[0] + doclenParams[1]*doclenParams[1]/2);
+		default:
+			throw new IllegalArgumentException("unknown doc length distribution " + doclenDist);
+		}
+	}
+
+	/** heaps' law for the expected total number of tokens */
+	public int vocabSize() {
+		double n = numDocs * meanDoclen();
+		return (int) Math.max(1000, Math.min(Integer.MAX_VALUE/2, heapsK * Math.pow(n, heapsBeta)));
+	}
+
+	/** the word with this frequency rank (0 = most common) in the background distribution */
+	public String word(int rank) {
+		return vocab[rank];
+	}
+
+	/** consonant-vowel syllables, counting in base-#syllables, so every rank gets a unique word
+	 * and frequent words are short.  a rank-dependent offset keeps adjacent ranks from looking alike. */
+	static final String CONS = "bcdfghjklmnprstvwz", VOWELS = "aeiou";
+	static String pseudoword(int rank) {
+		int base = CONS.length() * VOWELS.length();
+		StringBuilder sb = new StringBuilder();
+		long x = rank + 1;
+		int k = 0;
+		while (x > 0) {
+			int syl = (int) ((x + 7*k) % base);
+			sb.append(CONS.charAt(syl / VOWELS.length())).append(VOWELS.charAt(syl % VOWELS.length()));
+			x /= base;
+			k++;
+		}
+		return sb.toString();
+	}
+
+	int sampleDoclen() {
+		switch (doclenDist) {
+		case "fixed":
+			return (int) doclenParams[0];
+		case "poisson":
+			return Math.max(1, rand.nextPoisson(doclenParams[0]));
+		case "lognormal":
+			return Math.max(1, (int) Math.round(Math.exp(doclenParams[0] + doclenParams[1]*rand.nextGaussian())));
+		default:
+			throw new IllegalArgumentException("unknown doc length distribution " + doclenDist);
+		}
+	}
+
+	public String levelName(int level) {
+		return "g" + level;
+	}
+
+	/** one generated doc.  tokens are joined by single spaces, so whitespace tokenization recovers them. */
+	public static class Doc {
+		public String id;
+		public double x, y;
+		public String group;
+		public List<String> tokens = new ArrayList<>();
+	}
+
+	/** docs must be generated in order, since they share one random stream */
+	public Doc nextDoc(int docnum) {
+		Doc d = new Doc();
+		d.id = "doc" + docnum;
+		d.x = rand.nextUniform();
+		d.y = rand.nextGaussian();
+		int level = rand.nextInt(numLevels);
+		d.group = levelName(level);
+		int n = sampleDoclen();
+		double px = numericStrength * d.x;
+		for (int i=0; i<n; i++) {
+			double u = rand.nextUniform();
+			int rank;
+			if (u < px) {
+				rank = topicWords[0][topicSampler.sample(rand)];
+			} else if (u < px + categStrength) {
+				rank = topicWords[1+level][topicSampler.sample(rand)];
+			} else {
+				rank = background.sample(rand);
+			}
+			d.tokens.add(vocab[rank]);
+		}
+		return d;
+	}
+
+	public static String text(Doc d) {
+		return String.join(" ", d.tokens);
+	}
+
+	public static ObjectNode toJson(Doc d) {
+		ObjectNode j = JsonUtil.newObject();
+		j.put("id", d.id);
+		j.put("x", d.x);
+		j.put("y", d.y);
+		j.put("group", d.group);
+		j.put("text", text(d));
+		return j;
+	}
+
+	/** the annotation format Document.loadFromNLP reads: sentences with tokens and char offsets */
+	public ObjectNode toNLPJson(Doc d) {
+		ObjectNode j = JsonUtil.newObject();
+		ArrayNode sents = j.putArray("sentences");
+		int charpos = 0;
+		for (int s=0; s<d.tokens.size(); s += sentenceLength) {
+			ObjectNode jsent = sents.addObject();
+			ArrayNode toks = jsent.putArray("tokens");
+			ArrayNode offsets = jsent.putArray("char_offsets");
+			for (int i=s; i<Math.min(d.tokens.size(), s+sentenceLength); i++) {
+				String w = d.tokens.get(i);
+				toks.add(w);
+				offsets.addArray().add(charpos).add(charpos + w.length());
+				charpos += w.length() + 1;
+			}
+		}
+		return j;
+	}
+
+	/** streams numDocs docs as json lines.  nlpOut is optional. */
+	public void write(Writer dataOut, Writer nlpOut) throws IOException {
+		init();
+		long t0 = System.nanoTime();
+		for (int i=1; i<=numDocs; i++) {
+			Doc d = nextDoc(i);
+			dataOut.write(toJson(d).toString());
+			dataOut.write("\n");
+			if (nlpOut != null) {
+				nlpOut.write(d.id + "\t" + toNLPJson(d).toString() + "\n");
+			}
+			if (i % 100000 == 0) {
+				U.pf("%d docs (%.1f s)\n", i, 1e-9*(System.nanoTime()-t0));
+			}
+		}
+	}
+
+	public String configText(boolean withNLP) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(U.sf("# synthetic corpus: %d docs, seed %d, vocab %d, zipf %s, doclen %s %s\n",
+				numDocs, seed, vocabSize(), zipfExponent, doclenDist, java.util.Arrays.toString(doclenParams)));
+		sb.append("data = data.jsonl\n");
+		sb.append(withNLP ? "nlp_file = nlp.tsv\n" : "tokenizer = WhitespaceTokenizer\n");
+		sb.append("x = x\n");
+		sb.append("y = y\n");
+		sb.append("schema {\n");
+		sb.append("  x: number\n");
+		sb.append("  y: number\n");
+		sb.append("  group: { type: categorical, values: [");
+		for (int l=0; l<numLevels; l++) {
+			sb.append(l>0 ? ", " : "").append(levelName(l));
+		}
+		sb.append("] }\n");
+		sb.append("}\n");
+		return sb.toString();
+	}
+
+	/** writes data.jsonl, config.conf, and with withNLP, nlp.tsv into outdir */
+	public void writeCorpusDirectory(File outdir, boolean withNLP) throws IOException {
+		outdir.mkdirs();
+		try (Writer data = open(new File(outdir, "data.jsonl"));
+				Writer nlp = withNLP ? open(new File(outdir, "nlp.tsv")) : null) {
+			write(data, nlp);
+		}
+		try (Writer conf = open(new File(outdir, "config.conf"))) {
+			conf.write(configText(withNLP));
+		}
+	}
+
+	static Writer open(File f) throws IOException {
+		return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(f), StandardCharsets.UTF_8), 1<<16);
+	}
+
+	/** walker/vose alias method: O(1) draws from a fixed discrete distribution */
+	static class AliasSampler {
+		final double[] prob;
+		final int[] alias;
+
+		AliasSampler(double[] weights) {
+			int n = weights.length;
+			prob = new double[n];
+			alias = new int[n];
+			double sum = 0;
+			for (double w : weights) sum += w;
+			double[] scaled = new double[n];
+			int[] small = new int[n], large = new int[n];
+			int ns=0, nl=0;
+			for (int i=0; i<n; i++) {
+				scaled[i] = weights[i] * n / sum;
+				if (scaled[i] < 1) small[ns++] = i; else large[nl++] = i;
+			}
+			while (ns > 0 && nl > 0) {
+				int s = small[--ns], l = large[--nl];
+				prob[s] = scaled[s];
+				alias[s] = l;
+				scaled[l] = (scaled[l] + scaled[s]) - 1;
+				if (scaled[l] < 1) small[ns++] = l; else large[nl++] = l;
+			}
+			while (nl > 0) prob[large[--nl]] = 1;
+			while (ns > 0) prob[small[--ns]] = 1;
+		}
+
+		int sample(FastRandom r) {
+			int i = r.nextInt(prob.length);
+			return r.nextUniform() < prob[i] ? i : alias[i];
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.out.println("Usage: CorpusGenerator outdir [--docs N] [--seed S] [--doclen lognormal:mu,sigma|poisson:lambda|fixed:n]\n" +
+					"         [--zipf s] [--heaps-k K] [--heaps-beta b] [--levels L] [--topic-size n]\n" +
+					"         [--numeric-strength a] [--categ-strength c] [--nlp]");
+			System.exit(1);
+		}
+		CorpusGenerator g = new CorpusGenerator();
+		File outdir = new File(args[0]);
+		boolean withNLP = false;
+		for (int i=1; i<args.length; i++) {
+			switch (args[i]) {
+			case "--docs": g.numDocs = Integer.parseInt(args[++i]); break;
+			case "--seed": g.seed = Long.parseLong(args[++i]); break;
+			case "--zipf": g.zipfExponent = Double.parseDouble(args[++i]); break;
+			case "--heaps-k": g.heapsK = Double.parseDouble(args[++i]); break;
+			case "--heaps-beta": g.heapsBeta = Double.parseDouble(args[++i]); break;
+			case "--levels": g.numLevels = Integer.parseInt(args[++i]); break;
+			case "--topic-size": g.topicSize = Integer.parseInt(args[++i]); break;
+			case "--numeric-strength": g.numericStrength = Double.parseDouble(args[++i]); break;
+			case "--categ-strength": g.categStrength = Double.parseDouble(args[++i]); break;
+			case "--nlp": withNLP = true; break;
+			case "--doclen": {
+				String[] parts = args[++i].split(":");
+				g.doclenDist = parts[0];
+				String[] ps = parts.length > 1 ? parts[1].split(",") : new String[0];
+				g.doclenParams = new double[ps.length];
+				for (int k=0; k<ps.length; k++) g.doclenParams[k] = Double.parseDouble(ps[k]);
+				break;
+			}
+			default:
+				throw new IllegalArgumentException("unknown option " + args[i]);
+			}
+		}
+		if (g.topicSize < 1 || g.topicSize > g.vocabSize()) {
+			throw new IllegalArgumentException(U.sf("--topic-size %d must be between 1 and the vocab size, %d", g.topicSize, g.vocabSize()));
+		}
+		U.pf("Writing %d docs to %s, vocab size %d\n", g.numDocs, outdir, g.vocabSize());
+		g.writeCorpusDirectory(outdir, withNLP);
+	}
+}
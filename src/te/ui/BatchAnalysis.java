@@ -0,0 +1,241 @@
+package te.ui;
+
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import te.data.Analysis.TermvecComparison;
+import te.data.Corpus;
+import te.data.DocSet;
+import te.data.Document;
+import te.data.Schema.ColumnInfo;
+import te.data.Schema.DataType;
+import te.data.Schema.Levels.Level;
+import te.metrics.LatencyHistogram;
+import te.metrics.Metrics;
+import utility.util.JsonUtil;
+import utility.util.U;
+
+/**
+ * headless counterpart to Launch: loads a config, then ranks terms for every facet of the covariates
+ * -- each level of a categorical, and binned ranges of a numeric one -- against the whole corpus,
+ * the same way the UI ranks a brushed selection (TermvecComparison.topEpmi).
+ *
+ *   java -cp mte.jar te.ui.BatchAnalysis config.conf [--format tsv|json] [--out FILE] [--top 100]
+ *        [--bins 5] [--equal-width] [--min-wpm 300] [--min-count 1] [--threads N]
+ *
+ * facets run in parallel.  they only read the corpus (doc term vectors, globalTerms), which is safe once loaded;
+ * each builds its own DocSet.  output order is fixed regardless: variables by name (the schema keeps no column
+ * order), then each variable's levels or bins in order.
+ * tsv has one row per (facet, term); json has one object per facet per line.  progress messages go to stderr.
+ */
+public class BatchAnalysis {
+	String format = "tsv";
+	String outfile = null;
+	int topK = 100;
+	int numBins = 5;
+	boolean equalWidthBins = false;
+	double minWPM = 300;
+	int minCount = 1;
+	int numThreads = Runtime.getRuntime().availableProcessors();
+
+	Corpus corpus;
+
+	/** a set of docs defined by one covariate */
+	static class Facet {
+		String variable;
+		String level;
+		List<Document> docs = new ArrayList<>();
+		// results
+		DocSet docset;
+		List<String> terms;
+		TermvecComparison comparison;
+		Facet(String variable, String level) { this.variable = variable; this.level = level; }
+	}
+
+	static void usage() {
+		System.out.println("Usage:  BatchAnalysis ConfigFilename [--format tsv|json] [--out File] [--top K] [--bins N] [--equal-width] [--min-wpm X] [--min-count N] [--threads N]");
+		System.exit(1);
+	}
+
+	public static void main(String[] args) throws Exception {
+		ClassLoader.getSystemClassLoader().setPackageAssertionStatus("te", true);
+		// results may go to stdout, so all the loading chatter goes to stderr
+		PrintStream stdout = System.out;
+		System.setOut(System.err);
+		BatchAnalysis ba = new BatchAnalysis();
+		List<String> mainArgs = new ArrayList<>();
+		for (int i=0; i<args.length; i++) {
+			String a = args[i];
+			boolean hasValue = i+1 < args.length;
+			if (a.equals("--format") && hasValue) ba.format = args[++i];
+			else if (a.equals("--out") && hasValue) ba.outfile = args[++i];
+			else if (a.equals("--top") && hasValue) ba.topK = Integer.parseInt(args[++i]);
+			else if (a.equals("--bins") && hasValue) ba.numBins = Integer.parseInt(args[++i]);
+			else if (a.equals("--equal-width")) ba.equalWidthBins = true;
+			else if (a.equals("--min-wpm") && hasValue) ba.minWPM = Double.parseDouble(args[++i]);
+			else if (a.equals("--min-count") && hasValue) ba.minCount = Integer.parseInt(args[++i]);
+			else if (a.equals("--threads") && hasValue) ba.numThreads = Integer.parseInt(args[++i]);
+			else if (a.startsWith("--") && !a.equals("--progressive")) { U.p("Unknown option: " + a); usage(); }
+			else mainArgs.add(a);
+		}
+		if (mainArgs.isEmpty()) usage();
+		if (!ba.format.equals("tsv") && !ba.format.equals("json")) usage();
+
+		Main main = new Main();
+		main.initializeFromCommandlineArgs(mainArgs.toArray(new String[0]));
+		main.finalizeCorpusAnalysisAfterConfiguration();
+		ba.corpus = main.corpus;
+
+		List<Facet> facets = ba.makeFacets();
+		ba.runAll(facets);
+		try (Writer w = ba.outfile == null
+				? new BufferedWriter(new OutputStreamWriter(stdout, StandardCharsets.UTF_8))
+				: Files.newBufferedWriter(Paths.get(ba.outfile), StandardCharsets.UTF_8)) {
+			ba.write(facets, new PrintWriter(w));
+		}
+	}
+
+	/** variables sorted by name, since Schema.columnTypes is unordered */
+	List<Facet> makeFacets() {
+		List<Facet> facets = new ArrayList<>();
+		List<String> varnames = new ArrayList<>(corpus.getSchema().varnames());
+		Collections.sort(varnames);
+		for (String var : varnames) {
+			ColumnInfo ci = corpus.getSchema().column(var);
+			if (ci.dataType == DataType.NUMBER) {
+				facets.addAll(numericFacets(var));
+			} else {
+				facets.addAll(categoricalFacets(var, ci));
+			}
+		}
+		return facets;
+	}
+
+	/** levels in schema order when the schema has them, otherwise in order of appearance */
+	List<Facet> categoricalFacets(String var, ColumnInfo ci) {
+		Map<String,Facet> byLevel = new LinkedHashMap<>();
+		if (ci.levels != null) {
+			List<Level> levels = new ArrayList<>(ci.levels.levels());
+			levels.sort(Comparator.comparingInt(l -> l.number));
+			for (Level l : levels) byLevel.put(l.name, new Facet(var, l.name));
+		}
+		for (Document d : corpus.allDocs()) {
+			if (!corpus.isIndexed(d)) continue;
+			Object v = d.covariates.get(var);
+			if (v == null) continue;
+			String level = String.valueOf(v);
+			byLevel.computeIfAbsent(level, k -> new Facet(var, k)).docs.add(d);
+		}
+		return new ArrayList<>(byLevel.values());
+	}
+
+	/** numBins bins, with equal numbers of docs (ties stay together) or of equal width */
+	List<Facet> numericFacets(String var) {
+		List<Document> docs = new ArrayList<>();
+		for (Document d : corpus.allDocs()) {
+			if (corpus.isIndexed(d) && d.covariates.get(var) instanceof Number) docs.add(d);
+		}
+		if (docs.isEmpty()) return Collections.emptyList();
+		double[] values = new double[docs.size()];
+		Integer[] order = new Integer[docs.size()];
+		for (int i=0; i<docs.size(); i++) {
+			values[i] = ((Number) docs.get(i).covariates.get(var)).doubleValue();
+			order[i] = i;
+		}
+		java.util.Arrays.sort(order, (a,b) -> Double.compare(values[a], values[b]));
+		double min = values[order[0]], max = values[order[order.length-1]];
+
+		// cutpoints: bin k is [cuts[k], cuts[k+1]), the last one closed
+		List<Double> cuts = new ArrayList<>();
+		for (int k=0; k<numBins; k++) {
+			double c = equalWidthBins ? min + k*(max-min)/numBins : values[order[(int) ((long) k*order.length/numBins)]];
+			if (cuts.isEmpty() || c > cuts.get(cuts.size()-1)) cuts.add(c);
+		}
+		cuts.add(max);
+		List<Facet> facets = new ArrayList<>();
+		int nb = Math.max(1, cuts.size()-1);
+		for (int k=0; k<nb; k++) {
+			boolean last = k==nb-1;
+			double lo = cuts.get(k), hi = cuts.get(Math.min(k+1, cuts.size()-1));
+			facets.add(new Facet(var, U.sf("[%.4g, %.4g%s", lo, hi, last ? "]" : ")")));
+		}
+		int k = 0;
+		for (int i : order) {
+			while (k < nb-1 && values[i] >= cuts.get(k+1)) k++;
+			facets.get(k).docs.add(docs.get(i));
+		}
+		return facets;
+	}
+
+	void runAll(List<Facet> facets) throws Exception {
+		long t0 = System.nanoTime();
+		ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, numThreads));
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (Facet f : facets) {
+				futures.add(pool.submit(() -> run(f)));
+			}
+			for (Future<?> fu : futures) fu.get();
+		} finally {
+			pool.shutdown();
+		}
+		U.pf("%d facets ranked in %.1f s on %d threads\n", facets.size(), 1e-9*(System.nanoTime()-t0), numThreads);
+	}
+
+	void run(Facet f) {
+		try (LatencyHistogram.Timing t = Metrics.time("batch.facet")) {
+			f.docset = new DocSet(f.docs);
+			f.comparison = new TermvecComparison(f.docset.terms, corpus.globalTerms);
+			List<String> ranked = f.comparison.topEpmi(minWPM / 1e6, minCount);
+			f.terms = ranked.subList(0, Math.min(topK, ranked.size()));
+		}
+	}
+
+	void write(List<Facet> facets, PrintWriter out) {
+		if (format.equals("tsv")) {
+			out.println("variable\tlevel\tdocs\trank\tterm\tcount\tglobal_count\tlift");
+		}
+		for (Facet f : facets) {
+			if (format.equals("tsv")) {
+				for (int r=0; r<f.terms.size(); r++) {
+					String w = f.terms.get(r);
+					out.printf("%s\t%s\t%d\t%d\t%s\t%d\t%d\t%.4f\n", f.variable, f.level, f.docs.size(), r+1, w,
+							(long) f.comparison.focus.value(w), (long) f.comparison.background.value(w), f.comparison.epmi(w));
+				}
+			} else {
+				ObjectNode j = JsonUtil.newObject();
+				j.put("variable", f.variable);
+				j.put("level", f.level);
+				j.put("docs", f.docs.size());
+				ArrayNode terms = j.putArray("terms");
+				for (String w : f.terms) {
+					ObjectNode t = terms.addObject();
+					t.put("term", w);
+					t.put("count", (long) f.comparison.focus.value(w));
+					t.put("global_count", (long) f.comparison.background.value(w));
+					t.put("lift", f.comparison.epmi(w));
+				}
+				out.println(j.toString());
+			}
+		}
+		out.flush();
+	}
+}
@@ -0,0 +1,313 @@
+package te.ui;
+
+import javax.swing.DefaultListSelectionModel;
+import javax.swing.ListSelectionModel;
+import javax.swing.event.EventListenerList;
+import javax.swing.event.ListSelectionEvent;
+import javax.swing.event.ListSelectionListener;
+
+import te.data.DocBitmap;
+
+/**
+ * ListSelectionModel backed by a {@link DocBitmap} over row indexes.
+ *
+ * replaces the old copy of the JDK's DefaultListSelectionModel.  that one processes every index one at a time
+ * (and fires per-index dirty marking), which is way too slow to mirror a brush selection of 100k+ docs into the doc list.
+ * here range sets/clears are bulk bitmap ops, membership is O(1), and {@link #setSelection(DocBitmap)}
+ * swaps in a whole new selection with a single event.
+ *
+ * the interactive behavior (anchor/lead, shift-extension, the three selection modes) follows
+ * {@link DefaultListSelectionModel}.
+ */
+public class BitmapListSelectionModel implements ListSelectionModel {
+	private DocBitmap selected = new DocBitmap();
+	private int selectionMode = MULTIPLE_INTERVAL_SELECTION;
+	private int anchorIndex = -1;
+	private int leadIndex = -1;
+	private boolean isAdjusting = false;
+
+	// dirty range, inclusive, not yet reported to listeners
+	private int firstChangedIndex = Integer.MAX_VALUE;
+	private int lastChangedIndex = -1;
+	private int firstAdjustedIndex = Integer.MAX_VALUE;
+	private int lastAdjustedIndex = -1;
+
+	protected EventListenerList listenerList = new EventListenerList();
+
+	////////////////  bulk API  //////////////////
+
+	/**
+	 * replace the whole selection, firing one event.
+	 * anchor/lead are mapped to the ends of the new selection, keeping the old direction,
+	 * so shift+arrowkeys keep working after a selection arrives from elsewhere.
+	 * (the JDK model can't set a selection without clobbering anchor/lead; see JDK-4337119.)
+	 */
+	public void setSelection(DocBitmap rows) {
+		int oldMin = getMinSelectionIndex(), oldMax = getMaxSelectionIndex();
+		boolean forward = anchorIndex <= leadIndex;
+		selected = rows.copy();
+		int newMin = getMinSelectionIndex(), newMax = getMaxSelectionIndex();
+		if (forward) {
+			anchorIndex = newMin;
+			leadIndex = newMax;
+		} else {
+			anchorIndex = newMax;
+			leadIndex = newMin;
+		}
+		markAsDirty(oldMin, oldMax);
+		markAsDirty(newMin, newMax);
+		fireValueChanged();
+	}
+
+	/** a copy of the current selection */
+	public DocBitmap getSelection() {
+		return selected.copy();
+	}
+
+	public int[] getSelectedIndices() {
+		return selected.toArray();
+	}
+
+	public int getSelectedItemsCount() {
+		return selected.cardinality();
+	}
+
+	////////////////  ListSelectionModel  //////////////////
+
+	@Override public int getMinSelectionIndex() { return selected.min(); }
+	@Override public int getMaxSelectionIndex() { return selected.max(); }
+	@Override public boolean isSelectedIndex(int index) { return selected.get(index); }
+	@Override public boolean isSelectionEmpty() { return selected.isEmpty(); }
+	@Override public int getAnchorSelectionIndex() { return anchorIndex; }
+	@Override public int getLeadSelectionIndex() { return leadIndex; }
+	@Override public boolean getValueIsAdjusting() { return isAdjusting; }
+	@Override public int getSelectionMode() { return selectionMode; }
+
+	@Override
+	public void setSelectionMode(int selectionMode) {
+		switch (selectionMode) {
+		case SINGLE_SELECTION:
+		case SINGLE_INTERVAL_SELECTION:
+		case MULTIPLE_INTERVAL_SELECTION:
+			this.selectionMode = selectionMode;
+			break;
+		default:
+			throw new IllegalArgumentException("invalid selectionMode");
+		}
+	}
+
+	@Override
+	public void setSelectionInterval(int index0, int index1) {
+		if (index0 == -1 || index1 == -1) return;
+		if (selectionMode == SINGLE_SELECTION) index0 = index1;
+		updateLeadAnchorIndices(index0, index1);
+		int lo = Math.min(index0, index1), hi = Math.max(index0, index1);
+		markAsDirty(getMinSelectionIndex(), getMaxSelectionIndex());
+		selected.clear();
+		selected.setRange(lo, hi+1);
+		markAsDirty(lo, hi);
+		fireValueChanged();
+	}
+
+	@Override
+	public void addSelectionInterval(int index0, int index1) {
+		if (index0 == -1 || index1 == -1) return;
+		if (selectionMode == SINGLE_SELECTION) {
+			setSelectionInterval(index0, index1);
+			return;
+		}
+		int lo = Math.min(index0, index1), hi = Math.max(index0, index1);
+		if (selectionMode == SINGLE_INTERVAL_SELECTION && !isSelectionEmpty()
+				&& (hi < getMinSelectionIndex()-1 || lo > getMaxSelectionIndex()+1)) {
+			setSelectionInterval(index0, index1);
+			return;
+		}
+		updateLeadAnchorIndices(index0, index1);
+		selected.setRange(lo, hi+1);
+		markAsDirty(lo, hi);
+		fireValueChanged();
+	}
+
+	@Override
+	public void removeSelectionInterval(int index0, int index1) {
+		if (index0 == -1 || index1 == -1) return;
+		updateLeadAnchorIndices(index0, index1);
+		int lo = Math.min(index0, index1), hi = Math.max(index0, index1);
+		// removing from the middle of a single interval would split it, so remove through the end instead
+		if (selectionMode != MULTIPLE_INTERVAL_SELECTION
+				&& lo > getMinSelectionIndex() && hi < getMaxSelectionIndex()) {
+			hi = getMaxSelectionIndex();
+		}
+		selected.clearRange(lo, hi+1);
+		markAsDirty(lo, hi);
+		fireValueChanged();
+	}
+
+	@Override
+	public void clearSelection() {
+		if (isSelectionEmpty()) return;
+		markAsDirty(getMinSelectionIndex(), getMaxSelectionIndex());
+		selected.clear();
+		fireValueChanged();
+	}
+
+	@Override
+	public void setAnchorSelectionIndex(int anchorIndex) {
+		updateLeadAnchorIndices(anchorIndex, leadIndex);
+		fireValueChanged();
+	}
+
+	/** like the JDK: moves the lead and extends (or shrinks) the anchor..lead region to match the anchor's state. */
+	@Override
+	public void setLeadSelectionIndex(int newLead) {
+		int anchor = anchorIndex;
+		if (newLead == -1) {
+			if (anchor == -1) {
+				updateLeadAnchorIndices(anchor, newLead);
+				fireValueChanged();
+			}
+			return;
+		} else if (anchor == -1) {
+			return;
+		}
+		if (leadIndex == -1) leadIndex = newLead;
+		boolean shouldSelect = selected.get(anchor);
+		int oldMin = Math.min(anchor, leadIndex), oldMax = Math.max(anchor, leadIndex);
+		// a single selection just moves to the new lead
+		if (selectionMode == SINGLE_SELECTION) {
+			anchor = newLead;
+			shouldSelect = true;
+		}
+		int newMin = Math.min(anchor, newLead), newMax = Math.max(anchor, newLead);
+		updateLeadAnchorIndices(anchor, newLead);
+		if (shouldSelect) {
+			selected.clearRange(oldMin, oldMax+1);
+			selected.setRange(newMin, newMax+1);
+		} else {
+			selected.setRange(oldMin, oldMax+1);
+			selected.clearRange(newMin, newMax+1);
+		}
+		markAsDirty(Math.min(oldMin, newMin), Math.max(oldMax, newMax));
+		fireValueChanged();
+	}
+
+	/** rows were inserted into the list model.  shifts everything at/after the insertion point. */
+	@Override
+	public void insertIndexInterval(int index, int length, boolean before) {
+		int insMinIndex = before ? index : index + 1;
+		int insMaxIndex = insMinIndex + length - 1;
+		boolean setInserted = selected.get(index);
+		DocBitmap shifted = new DocBitmap();
+		selected.forEach(i -> shifted.set(i >= insMinIndex ? i + length : i));
+		if (setInserted && selectionMode != SINGLE_SELECTION) {
+			shifted.setRange(insMinIndex, insMaxIndex+1);
+		}
+		selected = shifted;
+		int leadIn = leadIndex, anchorIn = anchorIndex;
+		if (leadIn > index || (before && leadIn == index)) leadIn += length;
+		if (anchorIn > index || (before && anchorIn == index)) anchorIn += length;
+		updateLeadAnchorIndices(anchorIn, leadIn);
+		markAsDirty(insMinIndex, Math.max(getMaxSelectionIndex(), insMaxIndex));
+		fireValueChanged();
+	}
+
+	@Override
+	public void removeIndexInterval(int index0, int index1) {
+		int rmMinIndex = Math.min(index0, index1), rmMaxIndex = Math.max(index0, index1);
+		int gap = rmMaxIndex - rmMinIndex + 1;
+		int oldMax = getMaxSelectionIndex();
+		DocBitmap shifted = new DocBitmap();
+		selected.forEach(i -> {
+			if (i < rmMinIndex) shifted.set(i);
+			else if (i > rmMaxIndex) shifted.set(i - gap);
+		});
+		selected = shifted;
+		int leadIn = leadIndex, anchorIn = anchorIndex;
+		// the JDK leaves an anchor/lead of 0 alone when the first rows go
+		if (leadIn == 0 && rmMinIndex == 0) {
+		} else if (leadIn > rmMaxIndex) leadIn -= gap; else if (leadIn >= rmMinIndex) leadIn = rmMinIndex - 1;
+		if (anchorIn == 0 && rmMinIndex == 0) {
+		} else if (anchorIn > rmMaxIndex) anchorIn -= gap; else if (anchorIn >= rmMinIndex) anchorIn = rmMinIndex - 1;
+		updateLeadAnchorIndices(anchorIn, leadIn);
+		markAsDirty(rmMinIndex, Math.max(oldMax, rmMaxIndex));
+		fireValueChanged();
+	}
+
+	@Override
+	public void setValueIsAdjusting(boolean isAdjusting) {
+		if (isAdjusting != this.isAdjusting) {
+			this.isAdjusting = isAdjusting;
+			fireValueChanged();
+		}
+	}
+
+	@Override
+	public void addListSelectionListener(ListSelectionListener l) {
+		listenerList.add(ListSelectionListener.class, l);
+	}
+	@Override
+	public void removeListSelectionListener(ListSelectionListener l) {
+		listenerList.remove(ListSelectionListener.class, l);
+	}
+	public ListSelectionListener[] getListSelectionListeners() {
+		return listenerList.getListeners(ListSelectionListener.class);
+	}
+
+	////////////////  events  //////////////////
+
+	private void updateLeadAnchorIndices(int anchorIndex, int leadIndex) {
+		if (this.anchorIndex != anchorIndex) {
+			markAsDirty(this.anchorIndex, this.anchorIndex);
+			markAsDirty(anchorIndex, anchorIndex);
+		}
+		if (this.leadIndex != leadIndex) {
+			markAsDirty(this.leadIndex, this.leadIndex);
+			markAsDirty(leadIndex, leadIndex);
+		}
+		this.anchorIndex = anchorIndex;
+		this.leadIndex = leadIndex;
+	}
+
+	private void markAsDirty(int lo, int hi) {
+		if (lo < 0 || hi < 0) return;
+		firstAdjustedIndex = Math.min(firstAdjustedIndex, lo);
+		lastAdjustedIndex = Math.max(lastAdjustedIndex, hi);
+	}
+
+	private void fireValueChanged() {
+		if (lastAdjustedIndex >= 0) {
+			// the JDK merges the adjusted range into the pending changed range while adjusting
+			firstChangedIndex = Math.min(firstChangedIndex, firstAdjustedIndex);
+			lastChangedIndex = Math.max(lastChangedIndex, lastAdjustedIndex);
+			int first = firstAdjustedIndex, last = lastAdjustedIndex;
+			firstAdjustedIndex = Integer.MAX_VALUE;
+			lastAdjustedIndex = -1;
+			if (isAdjusting) {
+				fireValueChanged(first, last, true);
+				return;
+			}
+		}
+		if (isAdjusting || lastChangedIndex < 0) return;
+		int first = firstChangedIndex, last = lastChangedIndex;
+		firstChangedIndex = Integer.MAX_VALUE;
+		lastChangedIndex = -1;
+		fireValueChanged(first, last, false);
+	}
+
+	private void fireValueChanged(int firstIndex, int lastIndex, boolean isAdjusting) {
+		Object[] listeners = listenerList.getListenerList();
+		ListSelectionEvent e = null;
+		for (int i = listeners.length - 2; i >= 0; i -= 2) {
+			if (listeners[i] == ListSelectionListener.class) {
+				if (e == null) {
+					e = new ListSelectionEvent(this, firstIndex, lastIndex, isAdjusting);
+				}
+				((ListSelectionListener) listeners[i+1]).valueChanged(e);
+			}
+		}
+	}
+
+	@Override public String toString() {
+		return String.format("%s %s anchor=%d lead=%d", getClass().getSimpleName(), selected, anchorIndex, leadIndex);
+	}
+}
@@ -0,0 +1,171 @@
+package te.ui;
+
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import te.data.Analysis.WindowedCooccurrence;
+import te.data.Corpus;
+import te.data.TermVector;
+import te.metrics.LatencyHistogram;
+import te.metrics.Metrics;
+import utility.util.BasicFileIO;
+import utility.util.JsonUtil;
+import utility.util.U;
+
+/**
+ * headless: loads a config, then for each query reports what occurs within k tokens of it
+ * (Analysis.WindowedCooccurrence): terms by windowed PMI, the most frequent left and right context terms,
+ * and the most frequent previous and next words.
+ *
+ *   java -cp mte.jar te.ui.Collocations config.conf --query climate,warming [--query ...] [--queries FILE]
+ *        [--window 5] [--top 20] [--min-count 2] [--format tsv|json] [--out FILE]
+ *
+ * a query is comma-separated terms, matching any of them.  --queries has one per line.
+ * tsv has one row per (query, list, term); json one object per query per line.  progress messages go to stderr.
+ */
+public class Collocations {
+	static final String[] LISTS = { "pmi", "left", "right", "prev", "next" };
+
+	String format = "tsv";
+	String outfile = null;
+	int k = 5;
+	int topK = 20;
+	int minCount = 2;
+	List<List<String>> queries = new ArrayList<>();
+	Corpus corpus;
+
+	static void usage() {
+		System.out.println("Usage:  Collocations ConfigFilename --query TERM[,TERM...] [--query ...] [--queries File] [--window K] [--top N] [--min-count N] [--format tsv|json] [--out File]");
+		System.exit(1);
+	}
+
+	public static void main(String[] args) throws Exception {
+		ClassLoader.getSystemClassLoader().setPackageAssertionStatus("te", true);
+		PrintStream stdout = System.out;
+		System.setOut(System.err);
+		Collocations c = new Collocations();
+		List<String> mainArgs = new ArrayList<>();
+		for (int i=0; i<args.length; i++) {
+			String a = args[i];
+			boolean hasValue = i+1 < args.length;
+			if (a.equals("--query") && hasValue) c.queries.add(parseQuery(args[++i]));
+			else if (a.equals("--queries") && hasValue) {
+				for (String line : BasicFileIO.openFileLines(args[++i])) {
+					if (!line.trim().isEmpty()) c.queries.add(parseQuery(line));
+				}
+			}
+			else if (a.equals("--window") && hasValue) c.k = Integer.parseInt(args[++i]);
+			else if (a.equals("--top") && hasValue) c.topK = Integer.parseInt(args[++i]);
+			else if (a.equals("--min-count") && hasValue) c.minCount = Integer.parseInt(args[++i]);
+			else if (a.equals("--format") && hasValue) c.format = args[++i];
+			else if (a.equals("--out") && hasValue) c.outfile = args[++i];
+			else if (a.startsWith("--")) { U.p("Unknown option: " + a); usage(); }
+			else mainArgs.add(a);
+		}
+		if (mainArgs.isEmpty() || c.queries.isEmpty() || c.k < 1) usage();
+		if (!c.format.equals("tsv") && !c.format.equals("json")) usage();
+
+		Main main = new Main();
+		main.initializeFromCommandlineArgs(mainArgs.toArray(new String[0]));
+		main.finalizeCorpusAnalysisAfterConfiguration();
+		c.corpus = main.corpus;
+
+		try (Writer w = c.outfile == null
+				? new BufferedWriter(new OutputStreamWriter(stdout, StandardCharsets.UTF_8))
+				: Files.newBufferedWriter(Paths.get(c.outfile), StandardCharsets.UTF_8)) {
+			c.runAll(new PrintWriter(w));
+		}
+	}
+
+	static List<String> parseQuery(String s) {
+		List<String> q = new ArrayList<>();
+		for (String t : s.split(",")) {
+			if (!t.trim().isEmpty()) q.add(t.trim().toLowerCase());
+		}
+		return q;
+	}
+
+	void runAll(PrintWriter out) {
+		long t0 = System.nanoTime();
+		if (format.equals("tsv")) {
+			out.println("query\twindow\toccurrences\tlist\trank\tterm\tcount\tpmi");
+		}
+		for (List<String> q : queries) {
+			WindowedCooccurrence wc;
+			try (LatencyHistogram.Timing t = Metrics.time("batch.collocations")) {
+				wc = corpus.windowedCooccurrence(q, k);
+			}
+			write(q, wc, out);
+		}
+		out.flush();
+		U.pf("%d queries in %.1f s\n", queries.size(), 1e-9*(System.nanoTime()-t0));
+	}
+
+	List<String> list(WindowedCooccurrence wc, String name) {
+		switch (name) {
+		case "pmi": {
+			List<String> ranked = wc.topPmi(0, minCount);
+			return ranked.subList(0, Math.min(topK, ranked.size()));
+		}
+		case "left":  return WindowedCooccurrence.topByCount(wc.left, topK);
+		case "right": return WindowedCooccurrence.topByCount(wc.right, topK);
+		case "prev":  return WindowedCooccurrence.topByCount(wc.prev, topK);
+		default:      return WindowedCooccurrence.topByCount(wc.next, topK);
+		}
+	}
+	static TermVector counts(WindowedCooccurrence wc, String name) {
+		switch (name) {
+		case "pmi":   return wc.window;
+		case "left":  return wc.left;
+		case "right": return wc.right;
+		case "prev":  return wc.prev;
+		default:      return wc.next;
+		}
+	}
+
+	void write(List<String> q, WindowedCooccurrence wc, PrintWriter out) {
+		String query = String.join(",", q);
+		// prev/next are words, not necessarily terms, so they get no PMI
+		boolean[] hasPmi = { true, true, true, false, false };
+		if (format.equals("tsv")) {
+			for (int l=0; l<LISTS.length; l++) {
+				List<String> terms = list(wc, LISTS[l]);
+				TermVector tv = counts(wc, LISTS[l]);
+				for (int r=0; r<terms.size(); r++) {
+					String w = terms.get(r);
+					out.printf("%s\t%d\t%d\t%s\t%d\t%s\t%d\t%s\n", query, k, wc.numOccurrences, LISTS[l], r+1, w,
+							(long) tv.value(w), hasPmi[l] ? U.sf("%.4f", wc.pmi(w)) : "");
+				}
+			}
+		} else {
+			ObjectNode j = JsonUtil.newObject();
+			ArrayNode qa = j.putArray("query");
+			for (String t : q) qa.add(t);
+			j.put("window", k);
+			j.put("occurrences", wc.numOccurrences);
+			j.put("docs", wc.numDocs);
+			for (int l=0; l<LISTS.length; l++) {
+				TermVector tv = counts(wc, LISTS[l]);
+				ArrayNode a = j.putArray(LISTS[l]);
+				for (String w : list(wc, LISTS[l])) {
+					ObjectNode t = a.addObject();
+					t.put("term", w);
+					t.put("count", (long) tv.value(w));
+					if (hasPmi[l]) t.put("pmi", wc.pmi(w));
+				}
+			}
+			out.println(j.toString());
+		}
+	}
+}
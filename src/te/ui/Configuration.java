@@ -4,6 +4,7 @@ import com.typesafe.config.Config;
 import com.typesafe.config.ConfigFactory;
 import te.data.DataLoader;
 import te.data.NLP;
+import te.data.Token;
 import te.exceptions.BadConfig;
 import te.exceptions.BadData;
 import te.exceptions.BadSchema;
@@ -11,6 +12,8 @@ import utility.util.U;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.List;
+import java.util.function.Function;
 
 public class Configuration {
 	Config conf;
@@ -65,35 +68,46 @@ public class Configuration {
 		}
 	}
 	
-	/** run this only once all the document texts are loaded */
+	/** run this only once all the document texts are loaded.
+	 * in progressive mode the tokenizer isn't run here; it's handed to main for the background loader. */
 	void doNLPBasedOnConfig() throws BadConfig, BadSchema, IOException {
-		if (conf.hasPath("nlp_file") && conf.hasPath("tokenizer"))
+		if (conf.hasPath("nlp_file") && conf.hasPath("tokenizer") && !main.append)
 			throw new BadConfig("Don't specify both tokenizer and nlp_file");
 		if (conf.hasPath("nlp_file")) {
 			String f = resolvePathExists(dirOfConfFile, conf.getString("nlp_file"));
 			main.corpus.loadNLP(f);
+			// docs appended later have no NLP output, so they get the tokenizer (only allowed along with nlp_file for this)
+			if (main.append) main.appendTokenizer = tokenizerFromConfig();
 		}
 		else {
-			String tname;
-			if (conf.hasPath("tokenizer")) {
-				tname = conf.getString("tokenizer");
+			Function<String,List<Token>> tokenizer = tokenizerFromConfig();
+			main.appendTokenizer = tokenizer;
+			if (main.progressive) {
+				main.deferredTokenizer = tokenizer;
 			} else {
-				U.p("Defaulting to tokenizer=StanfordTokenizer");
-				tname = "StanfordTokenizer";
-			}
-			switch (tname) {
-				case "WhitespaceTokenizer":
-					main.corpus.runTokenizer(NLP::whitespaceTokenize);
-					break;
-				case "StanfordTokenizer":
-					main.corpus.runTokenizer(NLP::stanfordTokenize);
-					break;
-				default:
-					throw new BadConfig("Unknown tokenizer: " + tname);
+				main.corpus.runTokenizer(tokenizer);
 			}
 		}
 	}
 	
+	Function<String,List<Token>> tokenizerFromConfig() throws BadConfig {
+		String tname;
+		if (conf.hasPath("tokenizer")) {
+			tname = conf.getString("tokenizer");
+		} else {
+			U.p("Defaulting to tokenizer=StanfordTokenizer");
+			tname = "StanfordTokenizer";
+		}
+		switch (tname) {
+			case "WhitespaceTokenizer":
+				return NLP::whitespaceTokenize;
+			case "StanfordTokenizer":
+				return NLP::stanfordTokenize;
+			default:
+				throw new BadConfig("Unknown tokenizer: " + tname);
+		}
+	}
+	
 	public void initWithConfig(Main _main, String filename, DataLoader dataloader) throws IOException, BadConfig, BadSchema {
 		
 		// TODO in the future, this function shouldn't be responsible for actually running potentially-expensive analysis routines.
@@ -107,7 +121,19 @@ public class Configuration {
 		U.p(conf);
 		
 		if (conf.hasPath("indicatorize") && conf.getBoolean("indicatorize")) {
-			main.afteranalysisCallback = () -> { main.corpus.indicatorize(); return null; };
+			main.indicatorize = true;
+		}
+		if (conf.hasPath("perf_overlay") && conf.getBoolean("perf_overlay")) {
+			main.perfOverlay = true;
+		}
+		if (conf.hasPath("progressive") && conf.getBoolean("progressive")) {
+			main.progressive = true;
+		}
+		if (conf.hasPath("append") && conf.getBoolean("append")) {
+			main.append = true;
+		}
+		if (conf.hasPath("approximate_selections") && conf.getBoolean("approximate_selections")) {
+			main.approximate = true;
 		}
 		if (conf.hasPath("data")) {
 			String path = resolvePathExists(dirOfConfFile, conf.getString("data"));
@@ -0,0 +1,250 @@
+package te.ui;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import te.data.Analysis.TermvecComparison;
+import te.data.Corpus;
+import te.data.DocSet;
+import te.data.Document;
+import te.data.TermInstance;
+import te.data.WireFormat;
+import te.metrics.LatencyHistogram;
+import te.metrics.Metrics;
+import utility.util.JsonUtil;
+import utility.util.U;
+
+/**
+ * holds one loaded corpus and answers DataLayer queries over HTTP, for te.data.RemoteDataLayer clients
+ * (e.g. Launch --remote http://localhost:8765), so several people can explore a big corpus with one copy in memory.
+ *
+ *   java -cp mte.jar te.ui.CorpusServer config.conf [--port 8765] [--host 127.0.0.1] [--threads N]
+ *
+ *   GET  /info         schema, default x/y covariates, number of docs
+ *   GET  /docs         one line per doc: docid, number, covariates
+ *   GET  /globalterms  corpus term counts
+ *   POST /batch        a JSON array of ops, answered with an array of {"result":..} or {"error":..} in the same order.
+ *      docset {docids}                        DocSet: docids and summed term vector
+ *      box    {xAttr,yAttr,minX,maxX,minY,maxY}
+ *      terms  {terms}                         docs with any of the terms
+ *      pull   {docids}                        full documents: text, tokens, term instances
+ *      top    {docids|terms, minprob, mincount, k}   top terms by lift, like the doc-driven term list
+ *      kwic   {terms, docids?, max, window}   keyword-in-context lines
+ *
+ * the corpus is read-only once loaded, so requests are served concurrently without locking.
+ * binds to localhost unless told otherwise; there is no authentication.
+ */
+public class CorpusServer {
+	int port = 8765;
+	String host = "127.0.0.1";
+	int numThreads = Runtime.getRuntime().availableProcessors();
+
+	Main main;
+	Corpus corpus;
+
+	static void usage() {
+		System.out.println("Usage:  CorpusServer ConfigFilename [--port N] [--host ADDR] [--threads N]");
+		System.exit(1);
+	}
+
+	public static void main(String[] args) throws Exception {
+		ClassLoader.getSystemClassLoader().setPackageAssertionStatus("te", true);
+		CorpusServer cs = new CorpusServer();
+		List<String> mainArgs = new ArrayList<>();
+		for (int i=0; i<args.length; i++) {
+			String a = args[i];
+			boolean hasValue = i+1 < args.length;
+			if (a.equals("--port") && hasValue) cs.port = Integer.parseInt(args[++i]);
+			else if (a.equals("--host") && hasValue) cs.host = args[++i];
+			else if (a.equals("--threads") && hasValue) cs.numThreads = Integer.parseInt(args[++i]);
+			else if (a.startsWith("--")) { U.p("Unknown option: " + a); usage(); }
+			else mainArgs.add(a);
+		}
+		if (mainArgs.isEmpty()) usage();
+		Metrics.installExitReport();
+
+		cs.main = new Main();
+		cs.main.initializeFromCommandlineArgs(mainArgs.toArray(new String[0]));
+		cs.main.finalizeCorpusAnalysisAfterConfiguration();
+		cs.corpus = cs.main.corpus;
+		cs.start();
+	}
+
+	void start() throws IOException {
+		HttpServer server = HttpServer.create(new InetSocketAddress(host, port), 0);
+		server.createContext("/info", ex -> handle(ex, this::info));
+		server.createContext("/docs", ex -> handle(ex, this::docs));
+		server.createContext("/globalterms", ex -> handle(ex, this::globalTerms));
+		server.createContext("/batch", ex -> handle(ex, this::batch));
+		server.setExecutor(Executors.newFixedThreadPool(Math.max(1, numThreads)));
+		server.start();
+		U.pf("Serving %d docs on http://%s:%d/ with %d threads\n", corpus.allDocs().size(), host, port, numThreads);
+	}
+
+	interface Endpoint {
+		String respond(HttpExchange ex) throws IOException;
+	}
+
+	static void handle(HttpExchange ex, Endpoint endpoint) throws IOException {
+		int code = 200;
+		String body;
+		try (LatencyHistogram.Timing t = Metrics.time("server" + ex.getHttpContext().getPath().replace('/', '.'))) {
+			body = endpoint.respond(ex);
+		} catch (Exception e) {
+			code = e instanceof IOException ? 400 : 500;
+			body = e.toString();
+			U.p("ERROR serving " + ex.getRequestURI() + ": " + e);
+		}
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		ex.getResponseHeaders().set("Content-Type", code==200 ? "application/json; charset=utf-8" : "text/plain; charset=utf-8");
+		ex.sendResponseHeaders(code, bytes.length);
+		try (OutputStream out = ex.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+
+	String info(HttpExchange ex) {
+		ObjectNode j = JsonUtil.newObject();
+		j.set("schema", WireFormat.schemaToJson(corpus.getSchema()));
+		if (main.xattr != null) j.put("xattr", main.xattr);
+		if (main.yattr != null) j.put("yattr", main.yattr);
+		j.put("numDocs", corpus.allDocs().size());
+		return j.toString();
+	}
+
+	String docs(HttpExchange ex) {
+		StringBuilder sb = new StringBuilder();
+		for (Document d : corpus.allDocs()) {
+			sb.append(WireFormat.metadataToJson(d).toString()).append('\n');
+		}
+		return sb.toString();
+	}
+
+	String globalTerms(HttpExchange ex) {
+		return WireFormat.termVectorToJson(corpus.globalTerms).toString();
+	}
+
+	String batch(HttpExchange ex) throws IOException {
+		JsonNode ops = JsonUtil.readJson(readBody(ex.getRequestBody()));
+		if (!ops.isArray()) throw new IOException("expected an array of ops");
+		Metrics.counter("server.ops").add(ops.size());
+		ArrayNode results = JsonUtil.om.createArrayNode();
+		for (JsonNode op : ops) {
+			ObjectNode r = results.addObject();
+			String name = op.path("op").asText();
+			try (LatencyHistogram.Timing t = Metrics.time("server.op." + name)) {
+				r.set("result", run(name, op));
+			} catch (Exception e) {
+				r.put("error", e.toString());
+			}
+		}
+		return results.toString();
+	}
+
+	JsonNode run(String name, JsonNode op) {
+		switch (name) {
+		case "docset":
+		case "box":
+		case "terms":
+			return WireFormat.docSetToJson(selection(op));
+		case "pull":
+			ArrayNode docs = JsonUtil.om.createArrayNode();
+			for (String id : WireFormat.strings(op.get("docids"))) {
+				Document d = corpus.pullDocument(id);
+				if (d != null && corpus.isIndexed(d)) docs.add(WireFormat.contentsToJson(d));
+			}
+			return docs;
+		case "top":
+			return top(selection(op), op.path("minprob").asDouble(0), op.path("mincount").asInt(1), op.path("k").asInt(100));
+		case "kwic":
+			return kwic(WireFormat.strings(op.get("terms")), op.has("docids") ? WireFormat.strings(op.get("docids")) : null,
+					op.path("max").asInt(100), op.path("window").asInt(10));
+		default:
+			throw new IllegalArgumentException("unknown op: " + name);
+		}
+	}
+
+	/** the docs an op is about: by id, by covariate box, or by terms */
+	DocSet selection(JsonNode op) {
+		if (op.has("docids")) {
+			return corpus.getDocSet(WireFormat.strings(op.get("docids")));
+		} else if (op.has("terms")) {
+			return corpus.select(WireFormat.strings(op.get("terms")));
+		} else if (op.has("xAttr")) {
+			return corpus.select(op.get("xAttr").asText(), op.get("yAttr").asText(),
+					op.get("minX").asDouble(), op.get("maxX").asDouble(), op.get("minY").asDouble(), op.get("maxY").asDouble());
+		}
+		throw new IllegalArgumentException("need docids, terms, or a box");
+	}
+
+	ArrayNode top(DocSet ds, double minprob, int mincount, int k) {
+		TermvecComparison comp = new TermvecComparison(ds.terms, corpus.globalTerms);
+		List<String> ranked = comp.topEpmi(minprob, mincount);
+		ArrayNode ret = JsonUtil.om.createArrayNode();
+		for (String w : ranked.subList(0, Math.min(k, ranked.size()))) {
+			ObjectNode t = ret.addObject();
+			t.put("term", w);
+			t.put("count", (long) comp.focus.value(w));
+			t.put("global", (long) comp.background.value(w));
+			t.put("lift", comp.epmi(w));
+		}
+		return ret;
+	}
+
+	/** like the KWIC panel: docs in docid order, hits in token order */
+	ArrayNode kwic(List<String> terms, Collection<String> docids, int max, int window) {
+		Set<String> termset = new HashSet<>(terms);
+		List<Document> docs = new ArrayList<>(corpus.select(terms).docs());
+		if (docids != null) {
+			Set<String> within = new HashSet<>(docids);
+			docs.removeIf(d -> !within.contains(d.docid));
+		}
+		docs.sort(Comparator.comparing(d -> d.docid));
+		ArrayNode ret = JsonUtil.om.createArrayNode();
+		for (Document d : docs) {
+			for (TermInstance ti : d.termInstances) {
+				if (!termset.contains(ti.termName)) continue;
+				if (ret.size() >= max) return ret;
+				int start = ti.tokIndsInDoc.get(0), end = ti.tokIndsInDoc.get(ti.tokIndsInDoc.size()-1) + 1;
+				ObjectNode line = ret.addObject();
+				line.put("docid", d.docid);
+				line.put("left", join(d, Math.max(0, start-window), start));
+				line.put("hit", join(d, start, end));
+				line.put("right", join(d, end, Math.min(d.tokens.size(), end+window)));
+			}
+		}
+		return ret;
+	}
+
+	static String join(Document d, int start, int end) {
+		return IntStream.range(start, end).mapToObj(i -> d.tokens.get(i).text).collect(Collectors.joining(" "));
+	}
+
+	static String readBody(InputStream in) throws IOException {
+		ByteArrayOutputStream buf = new ByteArrayOutputStream();
+		byte[] b = new byte[1<<16];
+		int n;
+		while ((n = in.read(b)) > 0) buf.write(b, 0, n);
+		return new String(buf.toByteArray(), StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,81 @@
+package te.ui;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.swing.JLabel;
+import javax.swing.SwingUtilities;
+
+import te.data.Corpus;
+import te.data.Document;
+import te.data.Schema;
+import te.data.SummaryStats;
+import te.metrics.LatencyHistogram;
+import te.metrics.Metrics;
+import utility.util.U;
+
+/**
+ * a query info label with a line per numeric covariate: its mean, sd and quartiles over the query's docs.
+ *
+ * the label's own text is shown right away; the summaries (Corpus.summarize, a full pass over the docs) are
+ * computed on a background thread and appended when they're done, unless the label has moved on to a newer
+ * query by then, the same way SelectionSampler hands back its estimates.
+ */
+public class CovariateSummarizer {
+	final Main main;
+	final JLabel label;
+	/** bumped on every show(); a summary for an older one is dropped */
+	volatile int generation = 0;
+
+	private static ExecutorService summarizer;
+
+	public CovariateSummarizer(Main main, JLabel label) {
+		this.main = main;
+		this.label = label;
+	}
+
+	/** swing thread.  text is html without the html tags. */
+	public void show(String text, List<Document> docs) {
+		int gen = ++generation;
+		Corpus corpus = main.corpus;
+		label.setText("<html>" + text + "</html>");
+		List<String> numeric = new ArrayList<>();
+		for (String varname : new TreeSet<>(corpus.getSchema().varnames())) {
+			if (corpus.getSchema().column(varname).dataType == Schema.DataType.NUMBER) numeric.add(varname);
+		}
+		if (docs.isEmpty() || numeric.isEmpty()) return;
+		executor().execute(() -> {
+			if (gen != generation) return;
+			Map<String,SummaryStats> summaries;
+			try (LatencyHistogram.Timing t = Metrics.time("query.summaries")) {
+				summaries = corpus.summarize(docs, numeric);
+			}
+			StringBuilder sb = new StringBuilder();
+			for (String varname : numeric) {
+				SummaryStats ss = summaries.get(varname);
+				if (ss.n() == 0) continue;
+				sb.append(U.sf("<br>&nbsp;&nbsp;%s: mean %.3g, sd %.3g, median %.3g, quartiles %.3g to %.3g",
+						varname, ss.mean(), ss.sd(), ss.median(), ss.quantile(0.25), ss.quantile(0.75)));
+			}
+			SwingUtilities.invokeLater(() -> {
+				if (gen != generation) return;
+				label.setText("<html>" + text + sb + "</html>");
+			});
+		});
+	}
+
+	static synchronized ExecutorService executor() {
+		if (summarizer == null) {
+			summarizer = Executors.newSingleThreadExecutor(r -> {
+				Thread t = new Thread(r, "covariate-summaries");
+				t.setDaemon(true);
+				return t;
+			});
+		}
+		return summarizer;
+	}
+}
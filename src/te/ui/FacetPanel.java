@@ -0,0 +1,98 @@
+package te.ui;
+
+import java.awt.BorderLayout;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.table.AbstractTableModel;
+
+import com.google.common.eventbus.Subscribe;
+
+import te.data.Corpus;
+import te.data.FacetIndex.Facet;
+import te.data.TermQuery;
+import te.ui.queries.AllQueries;
+import te.ui.queries.TermQueryChange;
+import utility.util.U;
+
+/**
+ * how the current term query's docs split over each covariate's levels (or bins, for numbers),
+ * against how many would be expected there if the query were independent of the covariate.
+ * refreshed on every term query change; see Corpus.facetCounts.
+ */
+public class FacetPanel {
+	JPanel top = new JPanel(new BorderLayout());
+	JLabel info = new JLabel();
+	FacetModel model = new FacetModel();
+
+	public FacetPanel() {
+		JTable table = new JTable(model);
+		table.setFillsViewportHeight(true);
+		top.add(info, BorderLayout.NORTH);
+		top.add(new JScrollPane(table), BorderLayout.CENTER);
+		info.setText("No selected terms");
+	}
+
+	public JPanel top() { return top; }
+
+	@Subscribe
+	public void refresh(TermQueryChange e) {
+		Corpus corpus = AllQueries.instance().corpus;
+		TermQuery tq = AllQueries.instance().termQuery();
+		if (tq.terms.isEmpty()) {
+			info.setText("No selected terms");
+			model.setFacets(Collections.emptyList());
+			return;
+		}
+		int n = tq.getMatchingDocs().docs().size();
+		info.setText(U.sf("%d docs with %s", n, String.join(", ", tq.terms)));
+		model.setFacets(corpus.facetCounts(tq.getMatchingDocBitmap()));
+	}
+
+	/** a row per facet value, grouped by covariate */
+	static class FacetModel extends AbstractTableModel {
+		static final String[] COLUMNS = { "Covariate", "Value", "Docs", "Of", "Expected", "Ratio" };
+		List<Facet> facets = Collections.emptyList();
+		/** row -> facet, and -> value within it */
+		int[] rowFacet = new int[0], rowValue = new int[0];
+
+		void setFacets(List<Facet> facets) {
+			this.facets = facets;
+			List<int[]> rows = new ArrayList<>();
+			for (int f=0; f<facets.size(); f++) {
+				for (int i=0; i<facets.get(f).size(); i++) rows.add(new int[] { f, i });
+			}
+			rowFacet = new int[rows.size()];
+			rowValue = new int[rows.size()];
+			for (int r=0; r<rows.size(); r++) {
+				rowFacet[r] = rows.get(r)[0];
+				rowValue[r] = rows.get(r)[1];
+			}
+			fireTableDataChanged();
+		}
+
+		@Override public int getRowCount() { return rowFacet.length; }
+		@Override public int getColumnCount() { return COLUMNS.length; }
+		@Override public String getColumnName(int c) { return COLUMNS[c]; }
+		@Override public Class<?> getColumnClass(int c) { return c <= 1 ? String.class : Object.class; }
+
+		@Override
+		public Object getValueAt(int row, int column) {
+			Facet f = facets.get(rowFacet[row]);
+			int i = rowValue[row];
+			switch (column) {
+			case 0: return f.varname;
+			case 1: return f.labels[i];
+			case 2: return f.observed[i];
+			case 3: return f.totals[i];
+			case 4: return U.sf("%.1f", f.expected[i]);
+			default: return U.sf("%.2f", f.ratio(i));
+			}
+		}
+	}
+}
@@ -0,0 +1,68 @@
+package te.ui;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import te.data.HeapFootprint;
+import utility.util.U;
+
+/**
+ * estimated heap use per data structure, for a corpus, without the UI.
+ *
+ *   java -cp mte.jar te.ui.HeapReport config.conf                 loads everything and reports
+ *   java -cp mte.jar te.ui.HeapReport --predict 100 config.conf   loads every 100th doc, predicts the full corpus
+ *
+ * the full-load report also shows the JVM's own count of the used heap after a GC, as a sanity check on the model.
+ */
+public class HeapReport {
+	static void usage() {
+		System.out.println("Usage:  HeapReport [--predict SampleEvery] ConfigFilename");
+		System.exit(1);
+	}
+
+	public static void main(String[] args) throws Exception {
+		int sampleEvery = 1;
+		List<String> mainArgs = new ArrayList<>();
+		for (int i=0; i<args.length; i++) {
+			if (args[i].equals("--predict") && i+1 < args.length) sampleEvery = Integer.parseInt(args[++i]);
+			else mainArgs.add(args[i]);
+		}
+		if (mainArgs.isEmpty()) usage();
+
+		Main main = new Main();
+		main.loadSampleEvery = sampleEvery;
+		main.initializeFromCommandlineArgs(mainArgs.toArray(new String[0]));
+		main.finalizeCorpusAnalysisAfterConfiguration();
+
+		HeapFootprint f = HeapFootprint.measure(main.corpus);
+		if (sampleEvery == 1) {
+			System.out.print("\n" + f.report());
+			System.gc();
+			Runtime rt = Runtime.getRuntime();
+			U.pf("estimated %.1f MB; JVM reports %.1f MB used after GC (includes code, libraries and loading garbage).\n",
+					f.total() / 1048576.0, (rt.totalMemory() - rt.freeMemory()) / 1048576.0);
+			U.pf("suggested: %s\n", HeapFootprint.recommendedXmx(f.total()));
+		} else {
+			long totalDocs = f.numDocs + main.numDocsNotSampled;
+			U.pf("\nSample: %d of %d docs (every %d)\n", f.numDocs, totalDocs, sampleEvery);
+			System.out.print(f.report());
+			HeapFootprint p = f.extrapolate(totalDocs);
+			U.pf("\nPredicted for all %d docs (vocabulary growth exponent %.2f, fit on the sample's last two prefix doublings):\n",
+					totalDocs, f.heapsBeta());
+			System.out.print(p.report());
+			double[] steps = f.heapsBetaSteps();
+			double lo = f.heapsBeta(), hi = lo;
+			StringBuilder sb = new StringBuilder();
+			for (double b : steps) {
+				sb.append(U.sf(" %.2f", b));
+				lo = Math.min(lo, b);
+				hi = Math.max(hi, b);
+			}
+			HeapFootprint plo = f.extrapolate(totalDocs, lo), phi = f.extrapolate(totalDocs, hi);
+			U.pf("exponent over each prefix doubling of the sample:%s.  over %.2f to %.2f: %,d to %,d distinct terms, %.1f to %.1f MB.\n",
+					sb, lo, hi, plo.vocabSize, phi.vocabSize, plo.total() / 1048576.0, phi.total() / 1048576.0);
+			U.pf("if it's falling, the vocabulary keeps growing slower past the sample, and the vocab parts are overestimated.\n");
+			U.pf("suggested: %s\n", HeapFootprint.recommendedXmx(p.total()));
+		}
+	}
+}
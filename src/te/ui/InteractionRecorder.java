@@ -0,0 +1,131 @@
+package te.ui;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Collection;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import utility.util.JsonUtil;
+import utility.util.U;
+
+/**
+ * writes user-level actions to a JSON-lines trace file, one object per action, e.g.
+ *   {"t":1234,"action":"brush","x1":0.1,"y1":-1,"x2":0.5,"y2":1,"width":600,"height":300}
+ *   {"t":1300,"action":"lasso","xs":[0.1,0.4,0.2],"ys":[-1,0,1],"width":600,"height":300,"regions":1}
+ * t is milliseconds since recording started.
+ *
+ * actions are recorded where they enter Main/BrushPanel, i.e. after the swing widgets have turned them into
+ * doc ids, terms and so on, so {@link ReplayBenchmark} can push the same values down the same code paths.
+ * started with --record FILE.
+ */
+public class InteractionRecorder {
+	Writer out;
+	long startTime = System.nanoTime();
+	String lastTermsDocdriven = "", lastTermsPinned = "";
+
+	public InteractionRecorder(String filename) throws IOException {
+		out = new BufferedWriter(Files.newBufferedWriter(Paths.get(filename), StandardCharsets.UTF_8));
+		U.pf("Recording interactions to %s\n", filename);
+	}
+
+	ObjectNode action(String name) {
+		ObjectNode j = JsonUtil.newObject();
+		j.put("t", (System.nanoTime() - startTime) / 1000000);
+		j.put("action", name);
+		return j;
+	}
+
+	synchronized void write(ObjectNode j) {
+		try {
+			out.write(j.toString());
+			out.write("\n");
+			// flushed per action, since the usual way to stop recording is to quit the app
+			out.flush();
+		} catch (IOException e) {
+			U.p("WARNING: couldn't write to interaction trace: " + e);
+		}
+	}
+
+	static ArrayNode strings(Collection<String> xs) {
+		ArrayNode a = JsonUtil.om.createArrayNode();
+		for (String x : xs) a.add(x);
+		return a;
+	}
+
+	static ArrayNode doubles(double[] xs) {
+		ArrayNode a = JsonUtil.om.createArrayNode();
+		for (double x : xs) a.add(x);
+		return a;
+	}
+
+	/**
+	 * brush rectangle in data coordinates, and the panel size it was drawn in.
+	 * regions: how many earlier rectangles/lassos it's unioned with (shift-drag), left out when none.
+	 */
+	public void brush(double x1, double y1, double x2, double y2, int width, int height, int regions) {
+		ObjectNode j = action("brush");
+		j.put("x1", x1); j.put("y1", y1);
+		j.put("x2", x2); j.put("y2", y2);
+		j.put("width", width); j.put("height", height);
+		if (regions > 0) j.put("regions", regions);
+		write(j);
+	}
+	/** lasso polygon so far, in data coordinates, like brush() */
+	public void lasso(double[] xs, double[] ys, int width, int height, int regions) {
+		ObjectNode j = action("lasso");
+		j.set("xs", doubles(xs));
+		j.set("ys", doubles(ys));
+		j.put("width", width); j.put("height", height);
+		if (regions > 0) j.put("regions", regions);
+		write(j);
+	}
+	public void brushClear() {
+		write(action("brush_clear"));
+	}
+	/** doc selection from the document list */
+	public void docs(Collection<String> docids) {
+		ObjectNode j = action("docs");
+		j.set("docids", strings(docids));
+		write(j);
+	}
+	/** selection in one of the term tables.  tables re-fire their selection on refresh, so only changes get recorded. */
+	public void terms(String table, Collection<String> terms) {
+		String key = terms.toString();
+		if (table.equals("pinned") ? key.equals(lastTermsPinned) : key.equals(lastTermsDocdriven)) return;
+		if (table.equals("pinned")) lastTermsPinned = key; else lastTermsDocdriven = key;
+		ObjectNode j = action("terms");
+		j.put("table", table);
+		j.set("terms", strings(terms));
+		write(j);
+	}
+	public void pin(String term) {
+		write(action("pin").put("term", term));
+	}
+	public void unpin(String term) {
+		write(action("unpin").put("term", term));
+	}
+	/** name is "tp" (term prob threshold) or "tc" (term count threshold) */
+	public void spinner(String name, double value) {
+		ObjectNode j = action("spinner");
+		j.put("name", name);
+		j.put("value", value);
+		write(j);
+	}
+	/** score is a TermTermAssociations.Score name */
+	public void termtermScore(String score) {
+		write(action("termterm_score").put("score", score));
+	}
+	/** terminstIndex is the index into the doc's termInstances, or -1 for a plain doc click */
+	public void fulldoc(String docid, int terminstIndex) {
+		ObjectNode j = action("fulldoc");
+		j.put("docid", docid);
+		if (terminstIndex >= 0) j.put("terminst", terminstIndex);
+		write(j);
+	}
+}
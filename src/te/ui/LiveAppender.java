@@ -0,0 +1,120 @@
+package te.ui;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Function;
+
+import javax.swing.Timer;
+
+import te.data.Corpus;
+import te.data.Document;
+import te.data.DocumentFeed;
+import te.data.NLP;
+import te.data.Token;
+import te.metrics.Counter;
+import te.metrics.LatencyHistogram;
+import te.metrics.Metrics;
+import utility.util.U;
+
+/**
+ * live append (--append): after loading, keep watching the data sources (see DocumentFeed)
+ * and add documents as they show up, without reloading anything.
+ *
+ * like ProgressiveLoader, new docs are tokenized + analyzed on a background thread and committed on the swing thread
+ * on a timer.  each commit is one new index segment (merged in the background, see InvertedIndex),
+ * and the global term counts, covariate summaries, scatterplot and doc list take in just the new docs.
+ * the user's selections stay as they are.
+ */
+public class LiveAppender {
+	static int POLL_INTERVAL_MS = 1000;
+	static int COMMIT_INTERVAL_MS = 1000;
+
+	Main main;
+	Corpus corpus;
+	List<DocumentFeed> feeds;
+	Function<String,List<Token>> tokenizer;
+
+	ConcurrentLinkedQueue<List<Document>> analyzedBatches = new ConcurrentLinkedQueue<>();
+	Timer commitTimer;
+	Thread thread;
+
+	LatencyHistogram analyzeDocTimer = Metrics.timer("append.analyzeDoc");
+	Counter numAppended = Metrics.counter("append.docs");
+
+	public LiveAppender(Main main, List<DocumentFeed> feeds, Function<String,List<Token>> tokenizer) {
+		this.main = main;
+		this.corpus = main.corpus;
+		this.feeds = feeds;
+		this.tokenizer = tokenizer;
+	}
+
+	/** call on the swing thread, once the initial load is done */
+	public void start() {
+		U.pf("Watching for new documents in: %s\n", feeds);
+		commitTimer = new Timer(COMMIT_INTERVAL_MS, e -> commitPending());
+		commitTimer.start();
+		thread = new Thread(this::watch, "live-appender");
+		thread.setDaemon(true);
+		thread.setPriority(Thread.NORM_PRIORITY - 1);
+		thread.start();
+	}
+
+	public void stop() {
+		if (commitTimer != null) commitTimer.stop();
+		if (thread != null) thread.interrupt();
+	}
+
+	void watch() {
+		while (!Thread.currentThread().isInterrupted()) {
+			for (DocumentFeed feed : feeds) {
+				List<Document> docs;
+				try {
+					docs = feed.poll();
+				} catch (IOException e) {
+					U.pf("WARNING: couldn't read %s: %s\n", feed, e);
+					continue;
+				}
+				if (docs.isEmpty()) continue;
+				List<Document> analyzed = new ArrayList<>();
+				for (Document d : docs) {
+					try (LatencyHistogram.Timing t = analyzeDocTimer.time()) {
+						d.tokens = tokenizer.apply(d.text);
+						NLP.analyzeDocument(main.da, d);
+						if (main.indicatorize) Corpus.indicatorize(d);
+						analyzed.add(d);
+					} catch (RuntimeException e) {
+						U.pf("WARNING: couldn't analyze new doc %s: %s\n", d.docid, e);
+					}
+				}
+				analyzedBatches.add(analyzed);
+			}
+			try {
+				Thread.sleep(POLL_INTERVAL_MS);
+			} catch (InterruptedException e) {
+				return;
+			}
+		}
+	}
+
+	/** swing thread */
+	void commitPending() {
+		List<Document> newdocs = new ArrayList<>();
+		List<Document> batch;
+		while ((batch = analyzedBatches.poll()) != null) {
+			newdocs.addAll(batch);
+		}
+		if (newdocs.isEmpty()) return;
+		long t0 = System.nanoTime();
+		List<Document> added;
+		try (LatencyHistogram.Timing t = Metrics.time("append.commit")) {
+			added = corpus.appendDocuments(newdocs);
+		}
+		if (added.isEmpty()) return;
+		numAppended.add(added.size());
+		main.refreshAfterAppend(added);
+		U.pf("Appended %d docs, %s total (%.0f ms)\n", added.size(), GUtil.commaize(corpus.allDocs().size()),
+				1e-6*(System.nanoTime()-t0));
+	}
+}
@@ -7,13 +7,19 @@ import bibliothek.gui.dock.station.split.SplitDockGrid;
 import com.google.common.eventbus.EventBus;
 import com.google.common.eventbus.Subscribe;
 import edu.stanford.nlp.util.StringUtils;
+import te.data.Analysis.TermTermAssociations;
 import te.data.Analysis.TermvecComparison;
 import te.data.*;
 import te.exceptions.BadConfig;
 import te.exceptions.BadData;
 import te.exceptions.BadSchema;
+import te.metrics.EdtWatchdog;
+import te.metrics.LatencyHistogram;
+import te.metrics.Metrics;
+import te.metrics.TimedEventBus;
 import te.ui.docview.BrushPanel;
 import te.ui.docview.DocList;
+import te.ui.docview.RangeFilterPanel;
 import te.ui.queries.*;
 import te.ui.textview.FullDocViewer;
 import te.ui.textview.KWICViewer;
@@ -32,9 +38,9 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
 import java.util.List;
+import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
 
 /* UI state and event architecture for  [A] <==> [B] <== [C]
@@ -71,7 +77,8 @@ import java.util.stream.IntStream;
 
 public class Main {
 	public Corpus corpus = new Corpus();
-	EventBus eventBus = new EventBus();
+	/** times every handler; see te.metrics */
+	EventBus eventBus = new TimedEventBus();
 
 	String xattr, yattr;
 
@@ -80,7 +87,12 @@ public class Main {
 	public List<String> termdrivenTerms = new ArrayList<>();
 
 	TermvecComparison docvarCompare;
-	TermvecComparison termtermBoolqueryCompare;
+	TermvecComparison termtermCompare;
+	/** how the term-associated terms are ranked; see Analysis.TermTermAssociations */
+	static final String[] TERMTERM_SCORE_NAMES = { "docs with the terms (bool)", "joint occurrence", "conditional occurrence", "within 5 tokens (PMI)" };
+	static final int TERMTERM_WINDOW = 5;
+	TermTermAssociations.Score termtermScore = TermTermAssociations.Score.BOOL;
+	JComboBox<String> termtermScoreChooser;
 
 	JFrame mainFrame;
 	TermTable  docdrivenTermTable;
@@ -89,10 +101,14 @@ public class Main {
 	BrushPanel brushPanel;
 	DocList doclistPanel;
 	KWICViewer kwicPanel;
+	FacetPanel facetPanel;
+	RangeFilterPanel rangeFilterPanel;
 	FullDocViewer fulldocPanel;
 	DefaultDockable fulldocDock;
 	InfoArea mainqueryInfo;
 	InfoArea subqueryInfo;
+	/** the info areas' covariate summary lines, computed in the background */
+	CovariateSummarizer mainquerySummaries, subquerySummaries;
 	JLabel termlistInfo;
 	JSpinner tpSpinner;
 	JSpinner tcSpinner;
@@ -101,6 +117,31 @@ public class Main {
 	DocdrivenTermsDock docdrivenTermsDock;
 
 	NLP.DocAnalyzer da = new NLP.UnigramAnalyzer();
+	boolean indicatorize = false;
+	/** show the UI right away and index the docs in the background; see ProgressiveLoader */
+	boolean progressive = false;
+	/** in progressive mode, the tokenizer from the config, to be run by the loader. null if docs come pre-tokenized. */
+	Function<String,List<Token>> deferredTokenizer;
+	ProgressiveLoader progressiveLoader;
+	/** frame times and stall stats drawn over the window; see PerfOverlay */
+	boolean perfOverlay = false;
+	EdtWatchdog edtWatchdog;
+	/** non-null when recording a trace for ReplayBenchmark (--record FILE) */
+	InteractionRecorder recorder;
+	/** load only every n-th doc; HeapReport uses this to predict memory from a sample */
+	int loadSampleEvery = 1;
+	long numDocsNotSampled = 0;
+	/** --remote URL: the corpus lives in a CorpusServer instead of being loaded here */
+	String remoteUrl;
+	/** keep watching the data files and directories for new docs after loading; see LiveAppender */
+	boolean append = false;
+	/** rank terms for big doc selections from a sample first, refining in the background; see SelectionSampler */
+	boolean approximate = false;
+	SelectionSampler sampler = new SelectionSampler(this);
+	/** for docs added by live append */
+	Function<String,List<Token>> appendTokenizer;
+	List<DocumentFeed> appendFeeds = new ArrayList<>();
+	LiveAppender liveAppender;
 	Supplier<Void> afteranalysisCallback = () -> null;
 	Supplier<Void> uiOverridesCallback = () -> null;
 
@@ -132,7 +173,8 @@ public class Main {
 	AllQueries AQ() { return AllQueries.instance(); }
 
 	void userSelectsTerminstForFullview(Document d, TermInstance ti) {
-		userSelectsSingleDocumentForFullview(d);
+		if (recorder != null) recorder.fulldoc(d.docid, d.termInstances.indexOf(ti));
+		showDocInFullview(d);
 		AQ().fulldocPanelCurrentDocID = d.docid;
 		FulldocChange e = new FulldocChange();
 		e.desiredTerminstToScrollTo = ti;
@@ -140,6 +182,10 @@ public class Main {
 	}
 
 	void userSelectsSingleDocumentForFullview(Document doc) {
+		if (recorder != null) recorder.fulldoc(doc.docid, -1);
+		showDocInFullview(doc);
+	}
+	void showDocInFullview(Document doc) {
 		AQ().fulldocPanelCurrentDocID = doc.docid;
 		FulldocChange e = new FulldocChange();
 		eventBus.post(e);
@@ -149,6 +195,10 @@ public class Main {
 	public void refreshFulldoc(FulldocChange e) {
 		Document doc = corpus.pullDocument(AQ().fulldocPanelCurrentDocID);
 		if (doc == null) return;
+		if ( ! corpus.isIndexed(doc)) {
+			fulldocDock.setTitleText("Document: " + doc.docid + " (still loading)");
+			return;
+		}
 		fulldocDock.setTitleText("Document: " + doc.docid);
 		fulldocPanel.show(AQ().termQuery().terms, doc);
 		if (e.desiredTerminstToScrollTo != null) {
@@ -162,35 +212,113 @@ public class Main {
 	}
 
 	void refreshDocdrivenTermList() {
+		refreshDocdrivenTermList(false);
+	}
+	/** keepSelection: the doc selection didn't change, just the stats (e.g. more of the corpus got loaded) */
+	void refreshDocdrivenTermList(boolean keepSelection) {
 		// two inputs.  1. docsel according to brush/doc panel.  2. freq thresh spinners.
-		DocSet curDS = AQ().curDocs();
-		docvarCompare = new TermvecComparison(curDS.terms, corpus.globalTerms);
-		docdrivenTerms.clear();
-		docdrivenTerms.addAll( docvarCompare.topEpmi(getTermProbThresh(), getTermCountThresh()) );
-		docdrivenTermTable.model.fireTableDataChanged();
+		boolean sampled = approximate && !corpus.isRemote();
+		String kind = sampled ? "query.sampled" : "query.docdriven";
+		try (LatencyHistogram.Timing total = Metrics.time(kind)) {
+			try (LatencyHistogram.Timing t = Metrics.time(kind + ".aggregate")) {
+				if (sampled) {
+					docvarCompare = sampler.comparison(AQ().docPanelSelectedDocIDs);
+				} else {
+					docvarCompare = new TermvecComparison(AQ().curDocs().terms, corpus.globalTerms);
+				}
+			}
+			docdrivenTerms.clear();
+			try (LatencyHistogram.Timing t = Metrics.time(kind + ".rank")) {
+				docdrivenTerms.addAll( docvarCompare.topEpmi(getTermProbThresh(), getTermCountThresh()) );
+			}
+			try (LatencyHistogram.Timing t = Metrics.time(kind + ".render")) {
+				if (keepSelection) {
+					docdrivenTermTable.updateCalculations();
+				} else {
+					docdrivenTermTable.refresh();
+				}
+			}
+		}
 
-		termlistInfo.setText(U.sf("%d/%d terms", docdrivenTerms.size(), curDS.terms.support().size()));
+		String info = U.sf("%d/%d terms", docdrivenTerms.size(), docvarCompare.focus.support().size());
+		if (docvarCompare instanceof SampledDocSet.Estimate && !((SampledDocSet.Estimate) docvarCompare).isExact()) {
+			SampledDocSet.Estimate est = (SampledDocSet.Estimate) docvarCompare;
+			info += U.sf(" (estimated from %d/%d docs)", est.numSampled, est.numDocs);
+		}
+		termlistInfo.setText(info);
 		pinnedTermTable.updateCalculations();
 //		int effectiveTermcountThresh = (int) Math.floor(getTermProbThresh() * curDS.terms.totalCount);
 //		termcountInfo.setText(effectiveTermcountThresh==0 ? "all terms" : U.sf("count >= %d", effectiveTermcountThresh));
 	}
 
+	/** for the term tables' doc-frequency columns: the doc selection's, by postings bitmaps.  not remotely. */
+	DocFrequencies selectionDocFrequencies() {
+		if (corpus.isRemote()) return null;
+		return corpus.docFrequencies(corpus.selectionBitmap(AQ().docPanelSelectedDocIDs));
+	}
+
 	void runTermTermQuery(TermQuery tq) {
-		// bool-occur
-		TermVector focus = corpus.select(tq.terms).terms;
-		termtermBoolqueryCompare = new TermvecComparison(focus, corpus.globalTerms);
-		termdrivenTerms = termtermBoolqueryCompare.topEpmi(getTermProbThresh(), getTermCountThresh());
-		termdrivenTermTable.model.fireTableDataChanged();
+		try (LatencyHistogram.Timing total = Metrics.time("query.termterm")) {
+			if (corpus.isRemote() || termtermScore == TermTermAssociations.Score.BOOL) {
+				// bool-occur is the docs-with-the-terms lift, which select gives directly (and it's all the server does).
+				// the term-doc matrix is only built for the scores that need it.
+				try (LatencyHistogram.Timing t = Metrics.time("query.termterm.aggregate")) {
+					TermVector focus = corpus.select(tq.terms).terms;
+					termtermCompare = new TermvecComparison(focus, corpus.globalTerms);
+				}
+				try (LatencyHistogram.Timing t = Metrics.time("query.termterm.rank")) {
+					termdrivenTerms = termtermCompare.topEpmi(getTermProbThresh(), getTermCountThresh());
+				}
+			} else if (termtermScore == TermTermAssociations.Score.WINDOW) {
+				Analysis.WindowedCooccurrence wc;
+				try (LatencyHistogram.Timing t = Metrics.time("query.termterm.aggregate")) {
+					wc = corpus.windowedCooccurrence(tq.terms, TERMTERM_WINDOW);
+					termtermCompare = wc.comparison();
+				}
+				try (LatencyHistogram.Timing t = Metrics.time("query.termterm.rank")) {
+					termdrivenTerms = wc.topPmi(getTermProbThresh(), getTermCountThresh());
+				}
+			} else {
+				TermTermAssociations tta;
+				try (LatencyHistogram.Timing t = Metrics.time("query.termterm.aggregate")) {
+					tta = corpus.termTermAssociations(tq.terms);
+					termtermCompare = tta.comparison(termtermScore);
+				}
+				try (LatencyHistogram.Timing t = Metrics.time("query.termterm.rank")) {
+					termdrivenTerms = tta.topEpmi(getTermProbThresh(), getTermCountThresh());
+				}
+			}
+			try (LatencyHistogram.Timing t = Metrics.time("query.termterm.render")) {
+				termdrivenTermTable.refresh();
+			}
+		}
 		String queryterms = tq.terms.stream().collect(Collectors.joining(", "));
 		String queryinfo = U.sf("%d %s: %s", tq.terms.size(), tq.terms.size()==1 ? "term" : "terms", queryterms);
 		termtermDescription.setText(U.sf("Terms most associated with %s", queryinfo));
 		termtermDescription.setToolTipText(queryinfo);
+	}
+
+	void setTermtermScore(TermTermAssociations.Score score) {
+		if (score == termtermScore) return;
+		if (recorder != null) recorder.termtermScore(score.name());
+		termtermScore = score;
+		runTermTermQuery(AQ().termQuery());
+	}
 
-		// joint- or cond-occur
-//		Analysis.TermTermAssociations tta = new Analysis.TermTermAssociations();
-//		tta.queryTerms = tq.terms;
-//		tta.corpus = corpus;
-//		List<String> termResults = tta.topEpmi(1);
+	/** progressive loading committed more docs.  everything derived from the corpus gets recomputed,
+	 * but the user's doc and term selections stay as they are. */
+	void refreshAfterCorpusGrowth() {
+		refreshDocdrivenTermList(true);
+		// a new TermQuery, since the old one cached its matching docs.  its listeners cover the other panels.
+		pushTermQueryChange();
+		eventBus.post(new AllQueryChange());
+	}
+
+	/** live append added docs.  they go into the doc views; the rest is refreshed the same as for progressive loading. */
+	void refreshAfterAppend(List<Document> added) {
+		brushPanel.addDocs(added, corpus);
+		doclistPanel.addDocs(added);
+		refreshAfterCorpusGrowth();
 	}
 
 	void pushTermQueryChange() {
@@ -203,7 +331,7 @@ public class Main {
 		TermQuery curTQ = AQ().termQuery();
 		String msg = curTQ.terms.size()==0 ? "No selected terms"
 				: curTQ.terms.size()+" selected terms: " + StringUtils.join(curTQ.terms, ", ");
-		subqueryInfo.setText(msg);
+		subquerySummaries.show(msg, curTQ.terms.isEmpty() ? Collections.emptyList() : new ArrayList<>(curTQ.getMatchingDocs().docs()));
 		runTermTermQuery(curTQ);
 		// these dont need to be explicitly called in the refresh pubsub framework
 		// but keep comments here so we know we need to single them out for subscriptions to termdrivenquery changes
@@ -219,18 +347,37 @@ public class Main {
 
 	@Subscribe
 	public void refreshQueryInfoPanel(AllQueryChange e) {
-		DocSet cd = AQ().curDocs();
+		List<Document> cd = AQ().curDocList();
+		// remote docs are metadata only, without term vectors: the total has to come from a DocSet
+		double numTokens = approximate && !corpus.isRemote()
+				? sampler.comparison(AQ().docPanelSelectedDocIDs).focus.totalCount
+				: AQ().curDocs().terms.totalCount;
 		String s = U.sf("Docvar selection: %s docs, %s wordtoks",
-				GUtil.commaize(cd.docs().size()),
-				GUtil.commaize((int) cd.terms.totalCount));
-		mainqueryInfo.setText(s);
+				GUtil.commaize(cd.size()),
+				GUtil.commaize((int) numTokens));
+		mainquerySummaries.show(s, cd);
+	}
+
+	/** range sliders moved.  with a brush, they narrow its selection; without one, they're the selection. */
+	void userChangesCovariateRanges(Map<String,double[]> ranges) {
+		AQ().covariateRanges = ranges;
+		AQ().covariateRangeDocs = ranges.isEmpty() ? null : corpus.selectRanges(ranges);
+		if (!brushPanel.refreshBrushSelection()) {
+			List<String> docids = new ArrayList<>();
+			if (!ranges.isEmpty()) {
+				for (Document d : corpus.docs(AQ().covariateRangeDocs)) docids.add(d.docid);
+			}
+			pushUpdatedDocSelectionFromDocPanel(docids);
+		}
+		brushPanel.repaint();
 	}
 
 	void pushUpdatedDocSelectionFromDocPanel(Collection<String> docids) {
-		Set<String> s = new HashSet<>(docids);
+		// brush selections come as bitmaps, and are kept that way
+		Set<String> s = docids instanceof BitmapDocIdSet ? (Set<String>) docids : new HashSet<>(docids);
 		boolean same = AQ().docPanelSelectedDocIDs.equals(s);
 		if (!same) {
-			AQ().docPanelSelectedDocIDs = new HashSet<>(docids);
+			AQ().docPanelSelectedDocIDs = s;
 			eventBus.post(new DocSelectionChange());
 		}
 	}
@@ -248,27 +395,24 @@ public class Main {
 	void addTermdriverAction(final TermTable tt) {
 		tt.table.getSelectionModel().addListSelectionListener(e -> {
 			if (!e.getValueIsAdjusting()) {
+				if (recorder != null) recorder.terms(tt==pinnedTermTable ? "pinned" : "docdriven", tt.getSelectedTerms());
 				pushTermQueryChange();
 			}});
 	}
 
 	void pinTerm(String term) {
+		if (recorder != null) recorder.pin(term);
 		if ( ! pinnedTerms.contains(term)) {
 			pinnedTerms.add(term);
-//			pinnedTermTable.model.fireTableRowsInserted(pinnedTerms.size()-2, pinnedTerms.size()-1);
-			pinnedTermTable.model.fireTableRowsInserted(0, pinnedTerms.size()-1);
+			pinnedTermTable.updateCalculations();
 //			pinnedTermTable.table.setRowSelectionInterval(pinnedTerms.size()-1, pinnedTerms.size()-1);
 			pushTermQueryChange();
 		}
 	}
 	void unpinTerm(String term) {
-		int[] rowsToDel = IntStream.range(0,pinnedTermTable.model.getRowCount())
-				.filter(row -> pinnedTermTable.getTermAt(row).equals(term))
-				.toArray();
-		for (int row : rowsToDel) {
-			pinnedTermTable.model.fireTableRowsDeleted(row,row);
-		}
+		if (recorder != null) recorder.unpin(term);
 		pinnedTerms.remove(term);
+		pinnedTermTable.updateCalculations();
 		pushTermQueryChange();
 	}
 
@@ -286,6 +430,7 @@ public class Main {
 		tpSpinner.setMinimumSize(new Dimension(20,-1));
 		tpSpinner.setValue(300 / 1e6);
 		tpSpinner.addChangeListener(e -> {
+			if (recorder != null) recorder.spinner("tp", getTermProbThresh());
 			refreshDocdrivenTermList();
 			eventBus.post(new AllQueryChange());  // todo should exclude docdriventermlist
 		});
@@ -293,6 +438,7 @@ public class Main {
 		tcSpinner = new JSpinner(new SpinnerNumberModel(1, 0, 1000, 1));
 		tcSpinner.setValue(1);  // should be 2 usually, i think?
 		tcSpinner.addChangeListener(e -> {
+			if (recorder != null) recorder.spinner("tc", getTermCountThresh());
 			refreshDocdrivenTermList();
 			eventBus.post(new AllQueryChange());  // todo should exclude docdriventermlist
 		});
@@ -304,6 +450,10 @@ public class Main {
 
 
 	void setupUI() {
+		setupUI(true);
+	}
+	/** without the frame, the panels are all there and wired up but never shown; that's enough for ReplayBenchmark. */
+	void setupUI(boolean withFrame) {
 		AQ().corpus = this.corpus;
 		eventBus.register(this);
 
@@ -330,19 +480,22 @@ public class Main {
 		docdrivenTermTable = new TermTable(new TermTableModel());
 		docdrivenTermTable.model.terms = () -> docdrivenTerms;
 		docdrivenTermTable.model.comparison = () -> docvarCompare;
+		docdrivenTermTable.model.docFrequencies = this::selectionDocFrequencies;
 		docdrivenTermTable.setupTermTable();
 		addTermdriverAction(docdrivenTermTable);
 		docdrivenTermTable.doubleClickListener = this::pinTerm;
 
 		termdrivenTermTable = new TermTable(new TermTableModel());
 		termdrivenTermTable.model.terms = () -> termdrivenTerms;
-		termdrivenTermTable.model.comparison = () -> termtermBoolqueryCompare;
+		termdrivenTermTable.model.comparison = () -> termtermCompare;
+		termdrivenTermTable.model.docFrequencies = () -> corpus.isRemote() ? null : corpus.docFrequencies(AQ().termQuery().getMatchingDocBitmap());
 		termdrivenTermTable.setupTermTable();
 		termdrivenTermTable.doubleClickListener = this::pinTerm;
 
 		pinnedTermTable = new TermTable(new TermTableModel());
 		pinnedTermTable.model.terms = () -> pinnedTerms;
 		pinnedTermTable.model.comparison = () -> docvarCompare;
+		pinnedTermTable.model.docFrequencies = this::selectionDocFrequencies;
 		pinnedTermTable.setupTermTable();
 		addTermdriverAction(pinnedTermTable);
 		pinnedTermTable.doubleClickListener = this::unpinTerm;
@@ -370,13 +523,27 @@ public class Main {
 				}
 			});
 		}};
-		termdrivenWrapper.add(termtermDescription, BorderLayout.NORTH);
+		termtermScoreChooser = new JComboBox<>(TERMTERM_SCORE_NAMES);
+		termtermScoreChooser.setSelectedIndex(termtermScore.ordinal());
+		termtermScoreChooser.setToolTipText("bool: lift in the docs with the terms.  joint, cond: token co-occurrence within docs, normalized two ways.  within 5 tokens: windowed PMI, shown as observed/expected.");
+		termtermScoreChooser.setEnabled(!corpus.isRemote());
+		termtermScoreChooser.addActionListener(e -> setTermtermScore(TermTermAssociations.Score.values()[termtermScoreChooser.getSelectedIndex()]));
+		JPanel termtermTop = new JPanel(new BorderLayout());
+		JPanel scorePanel = GUtil.emptyPanel();
+		scorePanel.setLayout(new FlowLayout(FlowLayout.LEFT));
+		scorePanel.add(new JLabel("Rank by"));
+		scorePanel.add(termtermScoreChooser);
+		termtermTop.add(scorePanel, BorderLayout.NORTH);
+		termtermTop.add(termtermDescription, BorderLayout.CENTER);
+		termdrivenWrapper.add(termtermTop, BorderLayout.NORTH);
 		termdrivenWrapper.add(termdrivenTermTable.top(), BorderLayout.CENTER);
 
 		//////////////////////////  right-side panel  /////////////////////////
 
 		mainqueryInfo = new InfoArea("");
 		subqueryInfo = new InfoArea("");
+		mainquerySummaries = new CovariateSummarizer(this, mainqueryInfo);
+		subquerySummaries = new CovariateSummarizer(this, subqueryInfo);
 
 		JPanel queryInfo = new JPanel() {{
 			setLayout(new BoxLayout(this, BoxLayout.PAGE_AXIS));
@@ -398,9 +565,13 @@ public class Main {
 		if (xattr != null) brushPanel.xattr = xattr;
 		if (yattr != null) brushPanel.yattr = yattr;
 		brushPanel.setDefaultXYLim(corpus);
+		brushPanel.recorder = recorder;
 		eventBus.register(brushPanel);
 
-		doclistPanel = new DocList(this::pushUpdatedDocSelectionFromDocPanel, new ArrayList<>(corpus.allDocs()));
+		doclistPanel = new DocList(docids -> {
+				if (recorder != null) recorder.docs(docids);
+				pushUpdatedDocSelectionFromDocPanel(docids);
+			}, new ArrayList<>(corpus.allDocs()));
 		doclistPanel.fulldocClickReceiver = this::userSelectsSingleDocumentForFullview;
 		eventBus.register(doclistPanel);
 
@@ -411,18 +582,27 @@ public class Main {
 
 		fulldocPanel = new FullDocViewer();
 
-		DockController controller = new DockController();
-		SplitDockStation station = new SplitDockStation();
-		controller.add(station);
+		rangeFilterPanel = new RangeFilterPanel(corpus, this::userChangesCovariateRanges);
 
-		SplitDockGrid grid = new SplitDockGrid();
+		facetPanel = new FacetPanel();
+		eventBus.register(facetPanel);
 
-		fulldocDock = new DefaultDockable("Document view") {{ add(fulldocPanel.top()); }};
 		docdrivenTermsDock = new DocdrivenTermsDock(this);
 		docdrivenTermsDock.add(docdrivenTermsWrapper);
 		docdrivenTermsDock.setTitleText("Document-associated terms");
 		eventBus.register(docdrivenTermsDock);
 
+		// refreshFulldoc retitles it, so it's needed headless too
+		fulldocDock = new DefaultDockable("Document view") {{ add(fulldocPanel.top()); }};
+
+		if (!withFrame) return;
+
+		DockController controller = new DockController();
+		SplitDockStation station = new SplitDockStation();
+		controller.add(station);
+
+		SplitDockGrid grid = new SplitDockGrid();
+
 //		double x=0.5, rx=1-0.5;
 		double w1=3, w2=6;
 		double y,h;
@@ -439,6 +619,8 @@ public class Main {
 		h=7;
 		grid.addDockable(w1,y, w2,h, new DefaultDockable("Doc Covariates") {{ add(brushPanel); }});
 		grid.addDockable(w1,y, w2,h, new DefaultDockable("Documents") {{ add(doclistPanel.top()); }});
+		grid.addDockable(w1,y, w2,h, new DefaultDockable("Term query facets") {{ add(facetPanel.top()); }});
+		grid.addDockable(w1,y, w2,h, new DefaultDockable("Covariate filters") {{ add(rangeFilterPanel.top()); }});
 		y += h;
 		h=15;
 		grid.addDockable(w1, y,           w2/2, h, new DefaultDockable("KWIC view") {{ add(kwicPanel.top()); }});
@@ -458,29 +640,40 @@ public class Main {
 	/////////////  startup initialization stuff   /////////////////////////////////////////////////////////////////////
 
 	static void usage() {
-		System.out.println("Usage:  Launch ConfigFilename");
+		System.out.println("Usage:  Launch ConfigFilename\n        Launch --remote http://host:port");
 		System.exit(1);
 	}
 
-	void finalizeCorpusAnalysisAfterConfiguration() {
-		long t0=System.nanoTime();
+	void analyzeCovariates() {
 		U.p("Analyzing covariates");
-
-		if (corpus.needsCovariateTypeConversion) {
-			corpus.convertCovariateTypes();
+		try (LatencyHistogram.Timing t = Metrics.time("load.covariates")) {
+			if (corpus.needsCovariateTypeConversion) {
+				corpus.convertCovariateTypes();
+			}
+			corpus.calculateCovariateSummaries();
+			U.pf("done analyzing covariates (%.0f ms)\n", 1e-6*t.elapsedNanos());
 		}
-		corpus.calculateCovariateSummaries();
-
-		U.pf("done analyzing covariates (%.0f ms)\n", 1e-6*(System.nanoTime()-t0));
-		t0=System.nanoTime(); U.p("Analyzing document texts");
+	}
 
-		for (Document doc : corpus.allDocs()) {
-			if (Thread.interrupted()) return;
-			NLP.analyzeDocument(da, doc);
+	/** loads the whole corpus on the calling thread.  with --progressive (or the config key), the tokenizer was
+	 * deferred for a background loader that only the UI starts; headless callers get it run here instead. */
+	void finalizeCorpusAnalysisAfterConfiguration() {
+		if (deferredTokenizer != null) {
+			corpus.runTokenizer(deferredTokenizer);
+			deferredTokenizer = null;
+			progressive = false;
+		}
+		analyzeCovariates();
+		U.p("Analyzing document texts");
+		try (LatencyHistogram.Timing t = Metrics.time("load.analyze")) {
+			for (Document doc : corpus.allDocs()) {
+				if (Thread.interrupted()) return;
+				NLP.analyzeDocument(da, doc);
+			}
+			if (indicatorize) corpus.indicatorize();
+			afteranalysisCallback.get();
+			U.pf("done analyzing doc texts (%.0f ms)\n", 1e-6*t.elapsedNanos());
 		}
-		afteranalysisCallback.get();
-
-		U.pf("done analyzing doc texts (%.0f ms)\n", 1e-6*(System.nanoTime()-t0));
 
 		corpus.finalizeIndexing();
 	}
@@ -491,11 +684,25 @@ public class Main {
 		boolean gotConfFile = false;
 		Configuration c = null;
 		DataLoader dataloader = new DataLoader();
+		dataloader.sampleEvery = loadSampleEvery;
 
-		for (String arg : args) {
+		for (int i=0; i<args.length; i++) {
+			String arg = args[i];
 			Path p = FS.getPath(arg);
 //			U.pf("%s  isfile %s  isdir %s\n", arg, Files.isRegularFile(p), Files.isDirectory(p));
-			if (Files.isDirectory(p)) {
+			if (arg.equals("--progressive")) {
+				progressive = true;
+			} else if (arg.equals("--append")) {
+				append = true;
+			} else if (arg.equals("--approximate")) {
+				approximate = true;
+			} else if (arg.equals("--perf-overlay")) {
+				perfOverlay = true;
+			} else if (arg.equals("--record") && i+1 < args.length) {
+				recorder = new InteractionRecorder(args[++i]);
+			} else if (arg.equals("--remote") && i+1 < args.length) {
+				remoteUrl = args[++i];
+			} else if (Files.isDirectory(p)) {
 				dataloader.loadTextFilesFromDirectory(arg);
 			} else if (Files.isRegularFile(p)) {
 				if (arg.matches(".*\\.(conf|config)$")) {
@@ -513,7 +720,20 @@ public class Main {
 				U.p("WARNING: can't handle argument: " + arg);
 			}
 		}
+		if (remoteUrl != null) {
+			RemoteDataLayer remote = new RemoteDataLayer(remoteUrl);
+			corpus.attachRemote(remote);
+			if (xattr == null || !setXAttr(xattr)) xattr = remote.xattr;
+			if (yattr == null || !setYAttr(yattr)) yattr = remote.yattr;
+			return;
+		}
 		corpus.setDataFromDataLoader(dataloader);
+		numDocsNotSampled = dataloader.numSkipped;
+		if (append) {
+			// pick up each source where the loader left off
+			dataloader.jsonLinesRead.forEach((f, n) -> appendFeeds.add(DocumentFeed.tailJsonLines(f, n)));
+			dataloader.textFilesRead.forEach((dir, files) -> appendFeeds.add(DocumentFeed.watchDirectory(dir, files)));
+		}
 		if (c==null) {
 			c = Configuration.defaultConfiguration(this);
 		}
@@ -521,16 +741,37 @@ public class Main {
 	}
 	public static void myMain(String[] args) throws Exception {
 		long t0=System.nanoTime();
+		Metrics.installExitReport();
 		final Main main = new Main();
+		main.edtWatchdog = new EdtWatchdog((TimedEventBus) main.eventBus);
+		main.edtWatchdog.start();
 
 		if (args.length < 1) usage();
 
 		main.initializeFromCommandlineArgs(args);
-		main.finalizeCorpusAnalysisAfterConfiguration();
+		if (main.progressive || main.corpus.isRemote()) {
+			// only the covariates are needed to put up the UI; the texts get indexed after, or live on the server
+			main.analyzeCovariates();
+		} else {
+			main.finalizeCorpusAnalysisAfterConfiguration();
+		}
 
 		SwingUtilities.invokeLater(() -> {
 			main.setupUI();
 			main.uiOverridesCallback.get();
+			if (main.progressive && !main.corpus.isRemote()) {
+				main.progressiveLoader = new ProgressiveLoader(main, main.deferredTokenizer);
+				main.mainFrame.add(main.progressiveLoader.statusPanel, BorderLayout.SOUTH);
+				main.progressiveLoader.start();
+			}
+			if (main.append && !main.corpus.isRemote()) {
+				main.liveAppender = new LiveAppender(main, main.appendFeeds, main.appendTokenizer);
+				// with progressive loading, it waits for the initial load; see ProgressiveLoader
+				if (!main.progressive) main.liveAppender.start();
+			}
+			if (main.perfOverlay) {
+				new PerfOverlay(main.edtWatchdog).install(main.mainFrame);
+			}
 			main.mainFrame.setVisible(true);
 			U.pf("UI ready (%.1f ms)\n", 1e-6 * (System.nanoTime() - t0));
 		});
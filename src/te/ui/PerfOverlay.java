@@ -0,0 +1,63 @@
+package te.ui;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.util.List;
+
+import javax.swing.JComponent;
+import javax.swing.JFrame;
+import javax.swing.JLayeredPane;
+import javax.swing.Timer;
+
+import te.metrics.EdtWatchdog;
+
+/**
+ * small box in the top right corner of the main window with recent frame times, EDT lag, and the last stall.
+ * sits in the frame's layered pane above the docking panels, and has no mouse listeners, so clicks go through it.
+ */
+public class PerfOverlay extends JComponent {
+	static int WIDTH = 330, HEIGHT = 50, MARGIN = 6;
+
+	EdtWatchdog watchdog;
+	Timer repaintTimer;
+
+	public PerfOverlay(EdtWatchdog watchdog) {
+		this.watchdog = watchdog;
+		setFont(new Font("Monospaced", Font.PLAIN, 10));
+		setOpaque(false);
+	}
+
+	public void install(JFrame frame) {
+		JLayeredPane lp = frame.getLayeredPane();
+		lp.add(this, JLayeredPane.PALETTE_LAYER);
+		Runnable place = () -> setBounds(lp.getWidth() - WIDTH - MARGIN, MARGIN, WIDTH, HEIGHT);
+		place.run();
+		lp.addComponentListener(new ComponentAdapter() {
+			@Override public void componentResized(ComponentEvent e) { place.run(); }
+		});
+		repaintTimer = new Timer(500, e -> repaint());
+		repaintTimer.start();
+	}
+
+	@Override
+	public void paintComponent(Graphics _g) {
+		Graphics2D g = (Graphics2D) _g;
+		g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+		g.setColor(new Color(0,0,0, 160));
+		g.fillRoundRect(0, 0, getWidth(), getHeight(), 8, 8);
+		g.setColor(Color.white);
+		FontMetrics fm = g.getFontMetrics();
+		List<String> lines = watchdog.statusLines();
+		int y = 4 + fm.getAscent();
+		for (String line : lines) {
+			g.drawString(line, 6, y);
+			y += fm.getHeight();
+		}
+	}
+}
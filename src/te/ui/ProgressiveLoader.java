@@ -0,0 +1,154 @@
+package te.ui;
+
+import java.awt.BorderLayout;
+import java.awt.Font;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Function;
+
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JProgressBar;
+import javax.swing.Timer;
+
+import te.data.Corpus;
+import te.data.Document;
+import te.data.NLP;
+import te.data.Token;
+import te.metrics.LatencyHistogram;
+import te.metrics.Metrics;
+import utility.util.U;
+
+/**
+ * progressive startup: the UI comes up with only covariates loaded, and documents are
+ * tokenized + analyzed on a background thread, in chunks, then committed into the index on the swing thread.
+ * queries only ever see committed docs (see Corpus.isIndexed), so everything stays consistent, just partial.
+ *
+ * commits are batched on a timer rather than per chunk, so the UI refreshes a couple times a second at most
+ * no matter how fast chunks come in.
+ */
+public class ProgressiveLoader {
+	Main main;
+	Corpus corpus;
+	/** null if docs are already tokenized (e.g. from an nlp_file) */
+	Function<String,List<Token>> tokenizer;
+
+	/** docs are handed off in chunks that take about this long to analyze */
+	static double TARGET_CHUNK_MS = 200;
+	static int COMMIT_INTERVAL_MS = 500;
+
+	ConcurrentLinkedQueue<List<Document>> analyzedChunks = new ConcurrentLinkedQueue<>();
+	volatile boolean analysisDone = false;
+	Timer commitTimer;
+	Thread thread;
+
+	// per-stage metrics.  background stages are written by the loader thread, read for display on the swing thread.
+	volatile long tokenizeNanos = 0, analyzeNanos = 0;
+	volatile int numAnalyzed = 0;
+	long indexNanos = 0;
+	LatencyHistogram tokenizeDocTimer = Metrics.timer("load.progressive.tokenizeDoc");
+	LatencyHistogram analyzeDocTimer = Metrics.timer("load.progressive.analyzeDoc");
+	long startTime;
+	int numTotal;
+
+	JPanel statusPanel;
+	JProgressBar progressBar;
+	JLabel statusLabel;
+
+	public ProgressiveLoader(Main main, Function<String,List<Token>> tokenizer) {
+		this.main = main;
+		this.corpus = main.corpus;
+		this.tokenizer = tokenizer;
+		numTotal = corpus.docsInOriginalOrder.size();
+
+		progressBar = new JProgressBar(0, Math.max(numTotal,1));
+		progressBar.setStringPainted(true);
+		statusLabel = new JLabel();
+		statusLabel.setFont(new Font("SansSerif", Font.PLAIN, 10));
+		statusPanel = new JPanel(new BorderLayout());
+		statusPanel.add(progressBar, BorderLayout.WEST);
+		statusPanel.add(statusLabel, BorderLayout.CENTER);
+	}
+
+	/** call on the swing thread, after the UI is set up */
+	public void start() {
+		startTime = System.nanoTime();
+		commitTimer = new Timer(COMMIT_INTERVAL_MS, e -> commitPending());
+		commitTimer.start();
+		thread = new Thread(this::analyzeAll, "progressive-loader");
+		thread.setDaemon(true);
+		thread.setPriority(Thread.NORM_PRIORITY - 1);
+		thread.start();
+		updateStatus();
+	}
+
+	void analyzeAll() {
+		List<Document> docs = corpus.docsInOriginalOrder;
+		int chunksize = 100;
+		int i = 0;
+		while (i < docs.size()) {
+			long t0 = System.nanoTime();
+			List<Document> chunk = new ArrayList<>(docs.subList(i, Math.min(docs.size(), i + chunksize)));
+			for (Document d : chunk) {
+				if (Thread.interrupted()) return;
+				long t1 = System.nanoTime();
+				if (tokenizer != null) d.tokens = tokenizer.apply(d.text);
+				long t2 = System.nanoTime();
+				NLP.analyzeDocument(main.da, d);
+				if (main.indicatorize) Corpus.indicatorize(d);
+				long t3 = System.nanoTime();
+				tokenizeNanos += t2-t1;
+				analyzeNanos += t3-t2;
+				tokenizeDocTimer.record(t2-t1);
+				analyzeDocTimer.record(t3-t2);
+			}
+			analyzedChunks.add(chunk);
+			i += chunk.size();
+			numAnalyzed = i;
+			// adapt the chunk size toward the target duration
+			double ms = 1e-6*(System.nanoTime() - t0);
+			chunksize = (int) Math.max(10, Math.min(50000, chunksize * TARGET_CHUNK_MS / Math.max(ms, 1)));
+		}
+		analysisDone = true;
+	}
+
+	/** swing thread */
+	void commitPending() {
+		boolean finished = analysisDone;  // read before draining, so nothing can be left behind
+		List<Document> newdocs = new ArrayList<>();
+		List<Document> chunk;
+		while ((chunk = analyzedChunks.poll()) != null) {
+			newdocs.addAll(chunk);
+		}
+		if (!newdocs.isEmpty()) {
+			long t0 = System.nanoTime();
+			corpus.addToIndex(newdocs);
+			indexNanos += System.nanoTime() - t0;
+			main.refreshAfterCorpusGrowth();
+		}
+		updateStatus();
+		if (finished) {
+			commitTimer.stop();
+			U.pf("Progressive load done: %s\n", metricsString());
+			main.afteranalysisCallback.get();
+			main.mainFrame.remove(statusPanel);
+			main.mainFrame.revalidate();
+			if (main.liveAppender != null) main.liveAppender.start();
+		}
+	}
+
+	String metricsString() {
+		double elapsed = 1e-9*(System.nanoTime() - startTime);
+		return U.sf("%s/%s docs indexed.  tokenize %.1fs, analyze %.1fs, index %.1fs; %.0f docs/sec",
+				GUtil.commaize(corpus.numIndexed()), GUtil.commaize(numTotal),
+				1e-9*tokenizeNanos, 1e-9*analyzeNanos, 1e-9*indexNanos,
+				corpus.numIndexed() / Math.max(elapsed, 1e-3));
+	}
+
+	void updateStatus() {
+		progressBar.setValue(corpus.numIndexed());
+		statusLabel.setText("  Loading: " + metricsString());
+		statusPanel.setToolTipText(U.sf("%s analyzed, not yet committed", GUtil.commaize(numAnalyzed - corpus.numIndexed())));
+	}
+}
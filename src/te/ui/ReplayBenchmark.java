@@ -0,0 +1,183 @@
+package te.ui;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.ListSelectionModel;
+import javax.swing.SwingUtilities;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import te.data.Analysis.TermTermAssociations;
+import te.data.Document;
+import te.metrics.Counter;
+import te.metrics.LatencyHistogram;
+import te.metrics.Metrics;
+import utility.util.BasicFileIO;
+import utility.util.JsonUtil;
+import utility.util.U;
+
+/**
+ * replays a trace from InteractionRecorder against a corpus, headless, and reports latency per action type.
+ *
+ *   java -cp mte.jar te.ui.ReplayBenchmark trace.jsonl [--repeat N] [--verbose] config.conf
+ *
+ * the UI panels are built but not shown (Main.setupUI(false)), and each action goes through the same Main/BrushPanel
+ * methods the widgets call.  an action's latency is from the start of the call until the swing queue has drained
+ * whatever it invokeLater'd, so deferred work counts.  actions run back to back; the trace's timestamps are ignored.
+ * the Metrics report at exit has the per-handler and select/aggregate/rank/render breakdown.
+ */
+public class ReplayBenchmark {
+	Main main;
+	List<JsonNode> actions = new ArrayList<>();
+	boolean verbose = false;
+
+	static void usage() {
+		System.out.println("Usage:  ReplayBenchmark TraceFile [--repeat N] [--verbose] ConfigFilename");
+		System.exit(1);
+	}
+
+	public static void main(String[] args) throws Exception {
+		if (System.getProperty("java.awt.headless")==null) {
+			System.setProperty("java.awt.headless", "true");
+		}
+		if (args.length < 2) usage();
+		ReplayBenchmark rb = new ReplayBenchmark();
+		String tracefile = args[0];
+		int repeat = 1;
+		List<String> mainArgs = new ArrayList<>();
+		for (int i=1; i<args.length; i++) {
+			if (args[i].equals("--repeat") && i+1 < args.length) repeat = Integer.parseInt(args[++i]);
+			else if (args[i].equals("--verbose")) rb.verbose = true;
+			else mainArgs.add(args[i]);
+		}
+		Metrics.installExitReport();
+		for (String line : BasicFileIO.openFileLines(tracefile)) {
+			if (line.trim().isEmpty()) continue;
+			rb.actions.add(JsonUtil.readJson(line));
+		}
+		U.pf("%d actions in %s\n", rb.actions.size(), tracefile);
+
+		rb.main = new Main();
+		rb.main.initializeFromCommandlineArgs(mainArgs.toArray(new String[0]));
+		rb.main.finalizeCorpusAnalysisAfterConfiguration();
+		SwingUtilities.invokeAndWait(() -> {
+			rb.main.setupUI(false);
+			rb.main.uiOverridesCallback.get();
+			rb.main.refreshDocdrivenTermList();
+		});
+		// only time the replay itself, not the load
+		Metrics.resetAll();
+
+		long t0 = System.nanoTime();
+		for (int r=0; r<repeat; r++) {
+			rb.replayAll();
+		}
+		double elapsed = 1e-9*(System.nanoTime() - t0);
+		U.pf("\nreplayed %d actions x %d in %.2f s\n", rb.actions.size(), repeat, elapsed);
+		for (String action : new String[]{"brush","lasso","brush_clear","docs","terms","pin","unpin","spinner","termterm_score","fulldoc"}) {
+			LatencyHistogram h = Metrics.timer("replay." + action);
+			if (h.getCount()==0) continue;
+			U.pf("%-12s n=%-6d p50 %8.2f ms   p99 %8.2f ms   max %8.2f ms\n", action, h.getCount(),
+					h.getP50Millis(), h.getP99Millis(), h.getMaxMillis());
+		}
+		System.exit(0);
+	}
+
+	/** a failed action (its own exception, or one a bus handler logged and swallowed) stops the replay with exit 1,
+	 * so a crashed handler never gets reported as a timing */
+	void replayAll() throws Exception {
+		Counter errors = Metrics.counter("handler.errors");
+		for (JsonNode j : actions) {
+			String action = j.get("action").asText();
+			long errorsBefore = errors.getCount();
+			long t0 = System.nanoTime();
+			try {
+				SwingUtilities.invokeAndWait(() -> apply(action, j));
+				SwingUtilities.invokeAndWait(() -> {});
+			} catch (InvocationTargetException e) {
+				U.p("ERROR: replay failed at " + j);
+				e.getCause().printStackTrace();
+				System.exit(1);
+			}
+			long dt = System.nanoTime() - t0;
+			if (errors.getCount() != errorsBefore) {
+				U.p("ERROR: an event handler threw during " + j + " (see the log above)");
+				System.exit(1);
+			}
+			Metrics.timer("replay." + action).record(dt);
+			if (verbose) U.pf("%8.2f ms\t%s\n", 1e-6*dt, j);
+		}
+	}
+
+	/** on the swing thread */
+	void apply(String action, JsonNode j) {
+		switch (action) {
+		case "brush":
+			main.brushPanel.replayBrush(j.get("x1").asDouble(), j.get("y1").asDouble(), j.get("x2").asDouble(), j.get("y2").asDouble(),
+					j.get("width").asInt(), j.get("height").asInt(), j.path("regions").asInt(0));
+			break;
+		case "lasso":
+			main.brushPanel.replayLasso(doubles(j.get("xs")), doubles(j.get("ys")),
+					j.get("width").asInt(), j.get("height").asInt(), j.path("regions").asInt(0));
+			break;
+		case "brush_clear":
+			main.brushPanel.replayBrushClear();
+			break;
+		case "docs":
+			main.pushUpdatedDocSelectionFromDocPanel(strings(j.get("docids")));
+			break;
+		case "terms": {
+			TermTable tt = j.get("table").asText().equals("pinned") ? main.pinnedTermTable : main.docdrivenTermTable;
+			// one selection event for the whole change, like a click
+			ListSelectionModel sel = tt.table.getSelectionModel();
+			sel.setValueIsAdjusting(true);
+			tt.selectTerms(strings(j.get("terms")));
+			sel.setValueIsAdjusting(false);
+			break;
+		}
+		case "pin":
+			main.pinTerm(j.get("term").asText());
+			break;
+		case "unpin":
+			main.unpinTerm(j.get("term").asText());
+			break;
+		case "spinner":
+			if (j.get("name").asText().equals("tp")) main.tpSpinner.setValue(j.get("value").asDouble());
+			else main.tcSpinner.setValue(j.get("value").asInt());
+			break;
+		case "termterm_score":
+			main.termtermScoreChooser.setSelectedIndex(TermTermAssociations.Score.valueOf(j.get("score").asText()).ordinal());
+			break;
+		case "fulldoc": {
+			Document d = main.corpus.pullDocument(j.get("docid").asText());
+			if (d == null) {
+				U.p("WARNING: trace refers to a doc not in this corpus: " + j.get("docid"));
+				break;
+			}
+			int ti = j.has("terminst") ? j.get("terminst").asInt() : -1;
+			if (ti >= 0 && d.termInstances != null && ti < d.termInstances.size()) {
+				main.userSelectsTerminstForFullview(d, d.termInstances.get(ti));
+			} else {
+				main.userSelectsSingleDocumentForFullview(d);
+			}
+			break;
+		}
+		default:
+			U.p("WARNING: unknown action in trace: " + action);
+		}
+	}
+
+	static double[] doubles(JsonNode a) {
+		double[] ret = new double[a.size()];
+		for (int i=0; i<ret.length; i++) ret[i] = a.get(i).asDouble();
+		return ret;
+	}
+
+	static List<String> strings(JsonNode a) {
+		List<String> ret = new ArrayList<>();
+		for (JsonNode x : a) ret.add(x.asText());
+		return ret;
+	}
+}
@@ -0,0 +1,88 @@
+package te.ui;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.swing.SwingUtilities;
+
+import te.data.Document;
+import te.data.SampledDocSet;
+import te.data.SampledDocSet.Estimate;
+import te.metrics.LatencyHistogram;
+import te.metrics.Metrics;
+import utility.util.FastRandom;
+
+/**
+ * approximate term stats for big doc selections (the approximate_selections option).
+ *
+ * a new selection gets sampled on the swing thread for BUDGET_MS, which gives an estimate right away
+ * (or the exact answer, for a selection that small).  the rest is sampled on a background thread,
+ * and every time the sample doubles, a new estimate is handed back to main, so the term list re-ranks
+ * and settles on the exact stats once the whole selection is in.  a newer selection abandons the old one.
+ */
+public class SelectionSampler {
+	static double BUDGET_MS = 50;
+	/** smaller selections are always done exactly, on the spot */
+	static int MIN_DOCS = 2000;
+
+	Main main;
+	/** what the current estimate is of: the selection, and how many docs were indexed then */
+	Set<String> docids;
+	int numIndexed = -1;
+	Estimate current;
+	/** bumped on every new selection; background work for an older one stops */
+	volatile int generation = 0;
+
+	private static ExecutorService refiner;
+
+	public SelectionSampler(Main main) {
+		this.main = main;
+	}
+
+	/** swing thread.  the stats for the current doc selection: the latest estimate if it's the same selection as before. */
+	public Estimate comparison(Set<String> selection) {
+		if (selection == docids && main.corpus.numIndexed() == numIndexed) return current;
+		int gen = ++generation;
+		docids = selection;
+		numIndexed = main.corpus.numIndexed();
+		List<Document> docs = main.corpus.getDocs(selection);
+		SampledDocSet sample = new SampledDocSet(docs, new FastRandom());
+		try (LatencyHistogram.Timing t = Metrics.time("query.sample")) {
+			if (docs.size() < MIN_DOCS) sample.sampleMore(docs.size());
+			else sample.sampleFor((long) (BUDGET_MS * 1e6));
+		}
+		current = sample.estimate(main.corpus.globalTerms);
+		if (!sample.isExact()) refineInBackground(sample, gen);
+		return current;
+	}
+
+	void refineInBackground(SampledDocSet sample, int gen) {
+		synchronized (SelectionSampler.class) {
+			if (refiner == null) {
+				refiner = Executors.newSingleThreadExecutor(r -> {
+					Thread t = new Thread(r, "selection-sampler");
+					t.setDaemon(true);
+					return t;
+				});
+			}
+		}
+		refiner.execute(() -> {
+			try (LatencyHistogram.Timing t = Metrics.time("query.sample.refine")) {
+				while (!sample.isExact() && gen == generation) {
+					// double the sample, a batch at a time so a newer selection can cut in
+					int target = Math.min(sample.numDocs(), 2*sample.numSampled());
+					while (sample.numSampled() < target && gen == generation) sample.sampleMore(256);
+					if (gen != generation) return;
+					Estimate e = sample.estimate(main.corpus.globalTerms);
+					SwingUtilities.invokeLater(() -> {
+						if (gen != generation) return;
+						current = e;
+						main.refreshDocdrivenTermList(true);
+					});
+				}
+			}
+		});
+	}
+}
@@ -0,0 +1,216 @@
+package te.ui;
+
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import te.data.Analysis.TermvecComparison;
+import te.data.DecayedTermCounts;
+import te.data.Document;
+import te.data.DocumentFeed;
+import te.data.NLP;
+import te.data.SlidingTermWindow;
+import te.data.TermVector;
+import te.data.Token;
+import te.metrics.LatencyHistogram;
+import te.metrics.Metrics;
+import utility.util.JsonUtil;
+import utility.util.U;
+
+/**
+ * watches a live stream of JSON-lines documents (stdin, or a local port) and keeps reporting which terms are surging:
+ * the terms of a recent window of docs, ranked by lift against the background of everything so far
+ * (TermvecComparison, same as the UI's doc-driven term list).
+ *
+ *   producer | java -cp mte.jar te.ui.StreamMonitor --key time --window 3600 [options]
+ *   java -cp mte.jar te.ui.StreamMonitor --listen 9999 --key time --window 3600 [options]
+ *
+ *   --key VAR          numeric covariate that orders the stream, e.g. a timestamp.  default: arrival order.
+ *   --window W         window width in units of the key (default 1000)
+ *   --panes N          the window slides in steps of W/N (default 10)
+ *   --half-life H      background decay, in units of the key; default: none, all-time counts
+ *   --capacity K       terms tracked per pane (default 5000); the count-min background is sized from it
+ *   --where VAR=LEVEL or VAR=LO:HI   also track the window of just these docs, against the same background.  repeatable.
+ *   --top K, --min-wpm X, --min-count N    like BatchAnalysis
+ *   --every SECONDS    how often to report (default 5), and once more when the input ends
+ *   --format tsv|json, --tokenizer WhitespaceTokenizer|StanfordTokenizer
+ *
+ * memory is bounded: sketches, not docs, are kept (see SlidingTermWindow, DecayedTermCounts).
+ * reports go to stdout, everything else to stderr.
+ */
+public class StreamMonitor {
+	String key = null;
+	double windowWidth = 1000;
+	int numPanes = 10;
+	double halfLife = Double.POSITIVE_INFINITY;
+	int capacity = 5000;
+	int topK = 20;
+	double minWPM = 300;
+	int minCount = 2;
+	double reportEverySec = 5;
+	String format = "tsv";
+	String tokenizerName = "StanfordTokenizer";
+	Integer listenPort = null;
+
+	/** a window of docs: all of them, or a --where selection */
+	static class Selection {
+		String name;
+		Predicate<Document> filter;
+		SlidingTermWindow window;
+	}
+	List<Selection> selections = new ArrayList<>();
+	DecayedTermCounts background;
+	NLP.DocAnalyzer da = new NLP.UnigramAnalyzer();
+	Function<String,List<Token>> tokenizer;
+	long numDocs = 0;
+	double lastTime = 0;
+
+	static void usage() {
+		System.out.println("Usage:  StreamMonitor [--listen PORT] [--key VAR] [--window W] [--panes N] [--half-life H] [--capacity K] [--where VAR=LEVEL|VAR=LO:HI ...] [--top K] [--min-wpm X] [--min-count N] [--every SECONDS] [--format tsv|json] [--tokenizer NAME]");
+		System.exit(1);
+	}
+
+	public static void main(String[] args) throws Exception {
+		ClassLoader.getSystemClassLoader().setPackageAssertionStatus("te", true);
+		PrintStream stdout = System.out;
+		System.setOut(System.err);
+		StreamMonitor sm = new StreamMonitor();
+		List<String> wheres = new ArrayList<>();
+		for (int i=0; i<args.length; i++) {
+			String a = args[i];
+			boolean hasValue = i+1 < args.length;
+			if (a.equals("--key") && hasValue) sm.key = args[++i];
+			else if (a.equals("--window") && hasValue) sm.windowWidth = Double.parseDouble(args[++i]);
+			else if (a.equals("--panes") && hasValue) sm.numPanes = Integer.parseInt(args[++i]);
+			else if (a.equals("--half-life") && hasValue) sm.halfLife = Double.parseDouble(args[++i]);
+			else if (a.equals("--capacity") && hasValue) sm.capacity = Integer.parseInt(args[++i]);
+			else if (a.equals("--where") && hasValue) wheres.add(args[++i]);
+			else if (a.equals("--top") && hasValue) sm.topK = Integer.parseInt(args[++i]);
+			else if (a.equals("--min-wpm") && hasValue) sm.minWPM = Double.parseDouble(args[++i]);
+			else if (a.equals("--min-count") && hasValue) sm.minCount = Integer.parseInt(args[++i]);
+			else if (a.equals("--every") && hasValue) sm.reportEverySec = Double.parseDouble(args[++i]);
+			else if (a.equals("--format") && hasValue) sm.format = args[++i];
+			else if (a.equals("--tokenizer") && hasValue) sm.tokenizerName = args[++i];
+			else if (a.equals("--listen") && hasValue) sm.listenPort = Integer.parseInt(args[++i]);
+			else { U.p("Unknown option: " + a); usage(); }
+		}
+		if (!sm.format.equals("tsv") && !sm.format.equals("json")) usage();
+		sm.tokenizer = sm.tokenizerName.equals("WhitespaceTokenizer") ? NLP::whitespaceTokenize : NLP::stanfordTokenize;
+		sm.background = new DecayedTermCounts(sm.halfLife, 4*sm.capacity*sm.numPanes, 4);
+		sm.addSelection("all", d -> true);
+		for (String w : wheres) sm.addSelection(w, whereFilter(w));
+
+		DocumentFeed feed = sm.listenPort != null ? DocumentFeed.listen(sm.listenPort) : DocumentFeed.fromStream(System.in, "stdin");
+		U.pf("Reading %s\n", feed);
+		PrintWriter out = new PrintWriter(new OutputStreamWriter(stdout, StandardCharsets.UTF_8));
+		sm.run(feed, out);
+	}
+
+	void addSelection(String name, Predicate<Document> filter) {
+		Selection s = new Selection();
+		s.name = name;
+		s.filter = filter;
+		s.window = new SlidingTermWindow(windowWidth, numPanes, capacity);
+		selections.add(s);
+	}
+
+	/** VAR=LEVEL matches the covariate's string value; VAR=LO:HI a number in [LO,HI) */
+	static Predicate<Document> whereFilter(String where) {
+		String[] kv = where.split("=", 2);
+		if (kv.length != 2) { U.p("Bad --where: " + where); usage(); }
+		String var = kv[0], value = kv[1];
+		String[] range = value.split(":", 2);
+		if (range.length == 2) {
+			double lo = Double.parseDouble(range[0]), hi = Double.parseDouble(range[1]);
+			return d -> {
+				JsonNode v = (JsonNode) d.covariates.get(var);
+				return v != null && v.isNumber() && v.asDouble() >= lo && v.asDouble() < hi;
+			};
+		}
+		return d -> {
+			JsonNode v = (JsonNode) d.covariates.get(var);
+			return v != null && v.asText().equals(value);
+		};
+	}
+
+	void run(DocumentFeed feed, PrintWriter out) throws Exception {
+		long lastReport = System.nanoTime();
+		while (true) {
+			List<Document> docs = feed.poll();
+			for (Document d : docs) add(d);
+			boolean finished = feed.isFinished();
+			if (finished || System.nanoTime() - lastReport > reportEverySec*1e9) {
+				report(out);
+				lastReport = System.nanoTime();
+			}
+			if (finished) break;
+			if (docs.isEmpty()) Thread.sleep(50);
+		}
+		U.pf("%d docs\n", numDocs);
+	}
+
+	void add(Document d) {
+		try (LatencyHistogram.Timing t = Metrics.time("stream.addDoc")) {
+			d.tokens = tokenizer.apply(d.text);
+			NLP.analyzeDocument(da, d);
+			numDocs++;
+			double time = numDocs;
+			if (key != null) {
+				JsonNode v = (JsonNode) d.covariates.get(key);
+				// docs without a usable key count as arriving at the last time seen
+				time = v != null && v.isNumber() ? v.asDouble() : lastTime;
+			}
+			lastTime = Math.max(lastTime, time);
+			background.add(d, time);
+			for (Selection s : selections) {
+				if (s.filter.test(d)) s.window.add(d, time);
+				else s.window.advanceTo(time);
+			}
+		}
+	}
+
+	void report(PrintWriter out) {
+		if (numDocs == 0) return;
+		if (format.equals("tsv")) {
+			out.println("selection\twindow_start\twindow_end\tdocs\trank\tterm\tcount\texpected_count\tlift");
+		}
+		for (Selection s : selections) {
+			TermVector focus = s.window.terms();
+			TermVector bg = background.estimates(focus.support());
+			TermvecComparison comp = new TermvecComparison(focus, bg);
+			List<String> ranked = comp.topEpmi(minWPM / 1e6, minCount);
+			ranked = ranked.subList(0, Math.min(topK, ranked.size()));
+			if (format.equals("tsv")) {
+				for (int r=0; r<ranked.size(); r++) {
+					String w = ranked.get(r);
+					out.printf("%s\t%s\t%s\t%d\t%d\t%s\t%.0f\t%.1f\t%.4f\n", s.name, s.window.start(), s.window.latest(),
+							s.window.numDocs(), r+1, w, focus.value(w), bg.value(w) / bg.totalCount * focus.totalCount, comp.epmi(w));
+				}
+			} else {
+				ObjectNode j = JsonUtil.newObject();
+				j.put("selection", s.name);
+				j.put("window_start", s.window.start());
+				j.put("window_end", s.window.latest());
+				j.put("docs", s.window.numDocs());
+				ArrayNode terms = j.putArray("terms");
+				for (String w : ranked) {
+					ObjectNode t = terms.addObject();
+					t.put("term", w);
+					t.put("count", focus.value(w));
+					t.put("lift", comp.epmi(w));
+				}
+				out.println(j.toString());
+			}
+		}
+		out.flush();
+	}
+}
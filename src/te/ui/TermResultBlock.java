@@ -0,0 +1,101 @@
+package te.ui;
+
+import java.util.List;
+
+import it.unimi.dsi.fastutil.ints.AbstractIntComparator;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import te.data.Analysis.TermvecComparison;
+import te.data.DocFrequencies;
+import te.data.SampledDocSet;
+
+/**
+ * the stats behind one term table, computed once per refresh.
+ *
+ * columns are parallel primitive arrays, indexed by term id (= position in the input term list).
+ * the rows are a permutation of term ids, so sorting by a column just reorders that int[] in place,
+ * comparing primitives; nothing gets boxed or recomputed by the table while rendering or sorting.
+ * the document-frequency columns are only filled in when given a DocFrequencies (they're null otherwise).
+ */
+public class TermResultBlock {
+	public static final int TERM=0, LOCAL=1, GLOBAL=3, LIFT=4, DOCS=5, GLOBAL_DOCS=6, DOC_LIFT=7, DOC_G2=8;
+
+	public final String[] terms;
+	public final int[] local;
+	public final int[] global;
+	public final double[] lift;
+	/** docs with the term in the selection and overall, and the doc-level association scores; see DocFrequencies */
+	public final int[] docs, globalDocs;
+	public final double[] docLift, docG2;
+	/** row -> term id */
+	final int[] rows;
+	/** non-null when local and lift are estimated from a sample of the docs; see SampledDocSet */
+	public final SampledDocSet.Estimate estimate;
+	/** 95% interval half-widths, when estimated */
+	public final double[] localError, liftError;
+
+	public TermResultBlock(List<String> termlist, TermvecComparison comparison) {
+		this(termlist, comparison, null);
+	}
+	public TermResultBlock(List<String> termlist, TermvecComparison comparison, DocFrequencies df) {
+		int n = termlist.size();
+		terms = termlist.toArray(new String[n]);
+		local = new int[n];
+		global = new int[n];
+		lift = new double[n];
+		rows = new int[n];
+		docs = df == null ? null : new int[n];
+		globalDocs = df == null ? null : new int[n];
+		docLift = df == null ? null : new double[n];
+		docG2 = df == null ? null : new double[n];
+		boolean estimated = comparison instanceof SampledDocSet.Estimate && !((SampledDocSet.Estimate) comparison).isExact();
+		estimate = estimated ? (SampledDocSet.Estimate) comparison : null;
+		localError = estimated ? new double[n] : null;
+		liftError = estimated ? new double[n] : null;
+		for (int i=0; i<n; i++) {
+			rows[i] = i;
+			if (df != null) {
+				docs[i] = df.focus(terms[i]);
+				globalDocs[i] = df.background(terms[i]);
+				docLift[i] = DocFrequencies.lift(docs[i], globalDocs[i], df.numFocusDocs, df.numDocs);
+				docG2[i] = DocFrequencies.g2(docs[i], globalDocs[i], df.numFocusDocs, df.numDocs);
+			}
+			if (comparison==null) continue;
+			local[i] = (int) Math.round(comparison.focus.value(terms[i]));
+			global[i] = (int) comparison.background.value(terms[i]);
+			lift[i] = comparison.epmi(terms[i]);
+			if (estimated) {
+				localError[i] = estimate.countHalfWidth(terms[i]);
+				liftError[i] = estimate.liftHalfWidth(terms[i]);
+			}
+		}
+	}
+
+	public int size() { return rows.length; }
+	public int termIdAt(int row) { return rows[row]; }
+	public String termAt(int row) { return terms[rows[row]]; }
+
+	/**
+	 * reorder rows by a column.  column -1 means the input order.
+	 * stable, and ties fall back to the input order, so e.g. the epmi ranking is the secondary sort.
+	 */
+	public void sortBy(final int column, final boolean ascending) {
+		final int sign = ascending ? 1 : -1;
+		IntArrays.mergeSort(rows, new AbstractIntComparator() {
+			@Override public int compare(int a, int b) {
+				int c;
+				switch (column) {
+				case TERM:   c = terms[a].compareTo(terms[b]); break;
+				case LOCAL:  c = Integer.compare(local[a], local[b]); break;
+				case GLOBAL: c = Integer.compare(global[a], global[b]); break;
+				case LIFT:   c = Double.compare(lift[a], lift[b]); break;
+				case DOCS:        c = docs == null ? 0 : Integer.compare(docs[a], docs[b]); break;
+				case GLOBAL_DOCS: c = docs == null ? 0 : Integer.compare(globalDocs[a], globalDocs[b]); break;
+				case DOC_LIFT:    c = docs == null ? 0 : Double.compare(docLift[a], docLift[b]); break;
+				case DOC_G2:      c = docs == null ? 0 : Double.compare(docG2[a], docG2[b]); break;
+				default:     c = 0;
+				}
+				return c != 0 ? sign*c : Integer.compare(a, b);
+			}
+		});
+	}
+}
@@ -9,7 +9,12 @@ import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.function.Consumer;
 
 public class TermTable {
@@ -18,6 +23,8 @@ public class TermTable {
 	TermTableModel model;
 	/** TermTable sends a *term* to this consumer. */
 	Consumer<String> doubleClickListener;
+	/** the optional columns, by model index, whether or not they're in the column model right now */
+	Map<Integer,TableColumn> optionalColumns = new TreeMap<>();
 
 	public JComponent top() { return scrollpane; }
 
@@ -107,8 +114,30 @@ public class TermTable {
 //			cc.setMinWidth(50);
 //			cc.setMaxWidth(50);
 			cc.setPreferredWidth(50);
+		// doc-frequency columns: hidden to start with, picked from a right-click menu on the header
+		for (int c=0; c<model.getColumnCount(); c++) {
+			if (!TermTableModel.isDocFrequencyColumn(c)) continue;
+			cc = table.getColumnModel().getColumn(table.convertColumnIndexToView(c));
+			cc.setCellRenderer(centerNumberRenderer);
+			cc.setPreferredWidth(50);
+			optionalColumns.put(c, cc);
+		}
+		for (TableColumn col : optionalColumns.values()) table.removeColumn(col);
+		table.getTableHeader().setComponentPopupMenu(columnMenu());
 
-		table.setAutoCreateRowSorter(true);
+		// sorting goes through the model's materialized columns, not a RowSorter, so view rows == model rows.
+		table.getTableHeader().addMouseListener(new MouseAdapter() {
+			@Override
+			public void mouseClicked(MouseEvent e) {
+				// right-click is the column menu
+				if (!SwingUtilities.isLeftMouseButton(e)) return;
+				int col = table.convertColumnIndexToModel(table.columnAtPoint(e.getPoint()));
+				if (col < 0 || col == 2) return;
+				// numbers default to biggest first; clicking the same column again flips it
+				boolean ascending = col==model.sortColumn ? !model.sortAscending : col==TermResultBlock.TERM;
+				sortBy(col, ascending);
+			}
+		});
 
 		table.addMouseListener(new MouseAdapter() {
 			@Override
@@ -134,17 +163,77 @@ public class TermTable {
 
 	}
 
+	JPopupMenu columnMenu() {
+		JPopupMenu menu = new JPopupMenu();
+		for (Map.Entry<Integer,TableColumn> e : optionalColumns.entrySet()) {
+			JCheckBoxMenuItem item = new JCheckBoxMenuItem(model.getColumnName(e.getKey()));
+			item.addActionListener(ev -> showColumn(e.getKey(), item.isSelected()));
+			menu.add(item);
+		}
+		return menu;
+	}
+
+	void showColumn(int c, boolean show) {
+		TableColumn col = optionalColumns.get(c);
+		boolean shown = table.convertColumnIndexToView(c) >= 0;
+		if (show == shown) return;
+		if (show) {
+			col.setHeaderValue(model.getColumnName(c));
+			table.addColumn(col);
+		} else {
+			table.removeColumn(col);
+		}
+		boolean any = false;
+		for (int oc : optionalColumns.keySet()) any |= table.convertColumnIndexToView(oc) >= 0;
+		if (any != model.docFrequencyColumnsShown) {
+			model.docFrequencyColumnsShown = any;
+			updateCalculations();
+		}
+	}
+
 	public String getTermAt(int row) {
-		return (String) table.getValueAt(row,0);
+		return model.getTermAt(row);
 	}
 
-	public void updateCalculations() {
-		for (int row=0; row<table.getRowCount(); row++) {
-			for (int col=1; col<table.getColumnCount(); col++) {
-				model.fireTableCellUpdated(row,col);
+	void sortBy(int col, boolean ascending) {
+		List<String> selected = getSelectedTerms();
+		table.getSelectionModel().setValueIsAdjusting(true);
+		model.sortBy(col, ascending);
+		for (int c=0; c<model.getColumnCount(); c++) {
+			String arrow = c!=col ? "" : ascending ? " \u25B2" : " \u25BC";
+			if (table.convertColumnIndexToView(c) < 0) continue;
+			table.getColumnModel().getColumn(table.convertColumnIndexToView(c)).setHeaderValue(model.getColumnName(c) + arrow);
+		}
+		table.getTableHeader().repaint();
+		selectTerms(selected);
+		table.getSelectionModel().setValueIsAdjusting(false);
+	}
+
+	/** the caller should have the selection model adjusting, so listeners only hear about the end result */
+	void selectTerms(Collection<String> terms) {
+		Set<String> termset = new HashSet<>(terms);
+		ListSelectionModel sel = table.getSelectionModel();
+		sel.clearSelection();
+		if (termset.isEmpty()) return;
+		for (int row=0; row<model.getRowCount(); row++) {
+			if (termset.contains(model.getTermAt(row))) {
+				sel.addSelectionInterval(row, row);
 			}
 		}
+	}
+
+	/** the term list changed; recompute the stats and reapply the sort */
+	public void refresh() {
+		model.refresh();
+	}
 
+	/** new stats and/or a few terms added or removed; keeps the selection on the same terms. */
+	public void updateCalculations() {
+		List<String> selected = getSelectedTerms();
+		table.getSelectionModel().setValueIsAdjusting(true);
+		model.refresh();
+		selectTerms(selected);
+		table.getSelectionModel().setValueIsAdjusting(false);
 	}
 
 }
@@ -160,10 +249,25 @@ class TermCellRenderer extends DefaultTableCellRenderer {
 	@Override
 	public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected, boolean hasFocus, int row, int column) {
 		Component c = super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
-		if (column==4) {
-			JLabel label = (JLabel) c;
-			String text = String.format("%.2f", (Number) value);
-			label.setText(text);
+		JLabel label = (JLabel) c;
+		// hidden columns shift the view's, so go by the model's
+		column = table.convertColumnIndexToModel(column);
+		if ((column==TermResultBlock.LIFT || column==TermResultBlock.DOC_LIFT) && value != null) {
+			label.setText(String.format("%.2f", (Number) value));
+		}
+		else if (column==TermResultBlock.DOC_G2 && value != null) {
+			label.setText(String.format("%.1f", (Number) value));
+		}
+		label.setToolTipText(null);
+		// counts and ratios estimated from a sample of the docs: "~", grey, and the interval on hover
+		TermResultBlock block = ((TermTableModel) table.getModel()).block;
+		if (block.estimate != null && (column==1 || column==4) && row < block.size()) {
+			int i = block.termIdAt(row);
+			label.setText("~" + label.getText());
+			if (!isSelected) label.setForeground(Color.GRAY);
+			label.setToolTipText(String.format("estimated from %d/%d docs; 95%% interval \u00b1%s",
+					block.estimate.numSampled, block.estimate.numDocs,
+					column==1 ? String.format("%.0f", block.localError[i]) : String.format("%.2f", block.liftError[i])));
 		}
 		return c;
 	}
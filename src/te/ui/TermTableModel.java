@@ -1,40 +1,80 @@
 package te.ui;
+import java.util.Collections;
 import java.util.List;
 import java.util.function.Supplier;
 
 import javax.swing.table.AbstractTableModel;
 
 import te.data.Analysis.TermvecComparison;
+import te.data.DocFrequencies;
 
-/** give this a termlist. it consults the global fcView for the terms' stats. */
+/** give this a termlist. it consults the global fcView for the terms' stats.
+ * the stats are materialized into a {@link TermResultBlock} on {@link #refresh()}, not computed per cell. */
 public class TermTableModel extends AbstractTableModel {
 	// these are lazy so can be swapped out or changed without this class needing to know
 	Supplier<List<String>> terms;
-	Supplier<TermvecComparison> comparison;  
-	
+	Supplier<TermvecComparison> comparison;
+	/** document frequencies for the same selection; only asked for while a doc-frequency column is shown. may be null. */
+	Supplier<DocFrequencies> docFrequencies;
+	boolean docFrequencyColumnsShown = false;
+
+	TermResultBlock block = new TermResultBlock(Collections.emptyList(), null);
+	/** -1 means the order of the term list */
+	int sortColumn = -1;
+	boolean sortAscending = false;
+
+	/** recompute the stats from the term list and comparison, keeping the current sort order */
+	public void refresh() {
+		TermvecComparison comp = comparison == null ? null : comparison.get();
+		DocFrequencies df = docFrequencies == null || !docFrequencyColumnsShown ? null : docFrequencies.get();
+		block = new TermResultBlock(terms.get(), comp, df);
+		if (sortColumn != -1) block.sortBy(sortColumn, sortAscending);
+		fireTableDataChanged();
+	}
+
+	public void sortBy(int column, boolean ascending) {
+		sortColumn = column;
+		sortAscending = ascending;
+		block.sortBy(column, ascending);
+		fireTableRowsUpdated(0, block.size()-1);
+	}
+
+	public String getTermAt(int row) {
+		return block.termAt(row);
+	}
+
 	@Override
 	public String getColumnName(int j) {
-		return (new String[]{ "term", "local","","global", "lift" })[ j ];
+		return (new String[]{ "term", "local","","global", "lift", "docs", "global docs", "doc lift", "doc G\u00b2" })[ j ];
 	}
 	@Override
 	public int getRowCount() {
-		return terms.get().size();
+		return block.size();
 	}
 	@Override
 	public int getColumnCount() {
-		return 5;
+		return 9;
+	}
+	/** columns from DocFrequencies, hidden until picked from the header's menu */
+	static boolean isDocFrequencyColumn(int c) {
+		return c >= TermResultBlock.DOCS;
 	}
 	@Override
 	public Object getValueAt(int rowIndex, int columnIndex) {
-		String t = terms.get().get(rowIndex);
-		double epmi = comparison == null || comparison.get()==null ? 0 
-								: comparison.get().epmi(t);
+		int i = block.termIdAt(rowIndex);
 		switch (columnIndex) {
-		case 0: return t;
-		case 1: return (int) comparison.get().focus.value(t);
+		case 0: return block.terms[i];
+		case 1: return block.local[i];
 		case 2: return ":";
-		case 3: return (int) comparison.get().background.value(t);
-		case 4: return epmi;
+		case 3: return block.global[i];
+		case 4: return block.lift[i];
+		}
+		if (block.docs == null) return null;
+		switch (columnIndex) {
+		case 5: return block.docs[i];
+		case 6: return block.globalDocs[i];
+		case 7: return block.docLift[i];
+		case 8: return block.docG2[i];
 		}
 		assert false; return null;
 	}
@@ -46,7 +86,11 @@ public class TermTableModel extends AbstractTableModel {
 		case 2: return String.class;
 		case 3: return Integer.class;
 		case 4: return Double.class;
+		case 5: return Integer.class;
+		case 6: return Integer.class;
+		case 7: return Double.class;
+		case 8: return Double.class;
 		}
 		assert false; return null;
 	}
-}
\ No newline at end of file
+}
@@ -2,9 +2,15 @@ package te.ui.docview;
 
 import com.google.common.eventbus.Subscribe;
 import te.data.Corpus;
+import te.data.DocBitmap;
+import te.data.DocSet;
 import te.data.Document;
+import te.data.PointGridIndex;
 import te.data.Schema;
+import te.metrics.LatencyHistogram;
+import te.metrics.Metrics;
 import te.ui.GUtil;
+import te.ui.InteractionRecorder;
 import te.ui.queries.AllQueries;
 import te.ui.queries.DocSelectionChange;
 import te.ui.queries.FulldocChange;
@@ -14,17 +20,29 @@ import utility.util.U;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
+import java.awt.geom.Path2D;
 import java.awt.geom.Point2D;
 import java.util.*;
 import java.util.List;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
+ * scatterplot of the docs on two covariates, brushed to select docs.
+ * drag draws a rectangle (drag inside it to move it); alt-drag draws a lasso instead;
+ * with shift held, the new rectangle or lasso is added to the ones already there and the selection is their union.
+ * regions are looked up in the corpus's PointGridIndex for the current axes.
+ *
+ * the mouse wheel zooms around the pointer, right-drag pans, double-click goes back to the whole data range.
+ * when more points are in view than about one per POINT_PIXELS pixels of plot, it draws the PointGridIndex's cell counts
+ * (at the finest level whose cells are at least MIN_CELL_PX across) instead of points, so a frame costs
+ * about as much as the plot has pixels, whatever the number of docs.
+ *
  * ISSUE: with the allqueries refactor, its data structures are updated fairly realtime.
  * would be better to have a more transaction/commit sort of process where a big changeset is atomically applied all at once.
  * it's either that, or a message approach.  the old system was a message approach, but that was starting to get messy.
  */
-public class BrushPanel extends JPanel implements MouseListener, MouseMotionListener {
+public class BrushPanel extends JPanel implements MouseListener, MouseMotionListener, MouseWheelListener {
 	
 	public String xattr, yattr;  // allowed to be NULL.
 	public Schema schema;
@@ -52,14 +70,21 @@ public class BrushPanel extends JPanel implements MouseListener, MouseMotionList
 	double tickLabelOffset = 2.0;
 	
 	Brush brush = null;
+	/** the lasso being drawn or held, in place of a rectangle brush */
+	Lasso lasso = null;
+	/** earlier regions of a multi-region brush.  the current brush or lasso is added here when shift-drag starts another. */
+	List<Region> regions = new ArrayList<>();
 	List<MyPoint> points = new ArrayList<>();
 	Map<String,MyPoint> pointsByDocid = new HashMap<>();
 	DocSelectionListener docselFromBrushReceiver;
+	/** null unless recording a trace */
+	public InteractionRecorder recorder;
 	/** intended always nonnull */
 	Set<String> lastDocidSelectionByBrush = Collections.emptySet();
 	
 //	Color BRUSH_COLOR = new Color(61,56,240);
 	Color BRUSH_COLOR = AllQueries.instance().docPanelQueryColor;
+	static final Color NOT_YET_INDEXED_COLOR = new Color(215,215,215);
 	
 	class MyPoint {
 		Document doc;
@@ -72,6 +97,15 @@ public class BrushPanel extends JPanel implements MouseListener, MouseMotionList
 			return AllQueries.instance().termQuery().getMatchingDocs().docsById.containsKey(doc.docid);
 //			return termquerySelectedPointDocIDs.contains(doc.docid);
 		}
+		/** during progressive loading, docs that queries can't see yet */
+		boolean isIndexed() {
+			return AllQueries.instance().corpus.isIndexed(doc);
+		}
+		/** outside the covariate range filters */
+		boolean isFilteredOut() {
+			DocBitmap b = AllQueries.instance().covariateRangeDocs;
+			return b != null && !b.get(doc.ordinal());
+		}
 		boolean isFulldocSelected() {
 			String d = AllQueries.instance().fulldocPanelCurrentDocID;
 			return d!=null && Objects.equals(d, doc.docid);
@@ -136,23 +170,21 @@ public class BrushPanel extends JPanel implements MouseListener, MouseMotionList
 	static enum Mode {
 		NO_BRUSH, 
 		DRAWING_BRUSH,  // you're starting the drag to draw the brush. 
+		DRAWING_LASSO,  // same, for a lasso: every drag adds a vertex
 		STILL_BRUSH,  // you're done drawing (mouse released) and the brush is being held in place
 		MOVING_BRUSH; // you're dragging the brush-box around.
 	}
 	
 	boolean isDuringBrush() {
-		return mode==Mode.DRAWING_BRUSH;
+		return mode==Mode.DRAWING_BRUSH || mode==Mode.DRAWING_LASSO;
 	}
 	
-	/** todo this is where to use spatial index structures */
-	List<Integer> selectPoints(Rectangle q) {
-		List<Integer> ret = new ArrayList<>();
-		for (int i=0; i<points.size(); i++) {
-			if (q.contains(points.get(i).physPoint())) {
-				ret.add(i);
-			}
-		}
-		return ret;
+	/** the region being drawn or held: the brush or the lasso */
+	Region current() {
+		return brush != null ? brush : lasso;
+	}
+	boolean isOnBrush(Point p) {
+		return brush != null && brush.getRegionPhys().contains(p);
 	}
 	
 	public BrushPanel(DocSelectionListener qr, Collection<Document> docs) {
@@ -162,6 +194,7 @@ public class BrushPanel extends JPanel implements MouseListener, MouseMotionList
         setBorder(BorderFactory.createLineBorder(Color.black));
 		addMouseListener(this);
 		addMouseMotionListener(this);
+		addMouseWheelListener(this);
 		addComponentListener(new ResizerHandler());
 		docselFromBrushReceiver = qr;
 		for (Document d : docs) {
@@ -172,6 +205,21 @@ public class BrushPanel extends JPanel implements MouseListener, MouseMotionList
 		}
 	}
 	
+	/** new docs from live append.  the axes are reset only if a new doc falls outside them, and the user hasn't zoomed. */
+	public void addDocs(Collection<Document> docs, Corpus corpus) {
+		boolean outside = false;
+		for (Document d : docs) {
+			MyPoint p = new MyPoint();
+			p.doc = d;
+			points.add(p);
+			pointsByDocid.put(d.docid, p);
+			double x = xOfDoc(d), y = yOfDoc(d);
+			outside |= x < minUserX || x > maxUserX || y < minUserY || y > maxUserY;
+		}
+		if (outside && !zoomed) setDefaultXYLim(corpus);
+		repaint();
+	}
+	
 	class ResizerHandler extends ComponentAdapter {
 		public void componentResized(ComponentEvent e) {
 			BrushPanel bp = ((BrushPanel) e.getComponent());
@@ -182,6 +230,44 @@ public class BrushPanel extends JPanel implements MouseListener, MouseMotionList
 	
 	@Override
 	public void mouseClicked(MouseEvent e) {
+		if (e.getClickCount() == 2 && SwingUtilities.isLeftMouseButton(e)) {
+			setDefaultXYLim(AllQueries.instance().corpus);
+			zoomed = false;
+			repaint();
+		}
+	}
+
+	static final double ZOOM_PER_NOTCH = 1.25;
+	/** user moved the view away from setDefaultXYLim()'s */
+	boolean zoomed = false;
+	/** where the last pan drag event was, or null when not panning */
+	Point panFrom = null;
+
+	static boolean isPanButton(MouseEvent e) {
+		return SwingUtilities.isRightMouseButton(e) || SwingUtilities.isMiddleMouseButton(e);
+	}
+
+	@Override
+	public void mouseWheelMoved(MouseWheelEvent e) {
+		// the user-space point under the mouse stays put
+		double f = Math.pow(ZOOM_PER_NOTCH, e.getPreciseWheelRotation());
+		double ux = x_p2u(e.getX()), uy = y_p2u(e.getY());
+		minUserX = ux - (ux - minUserX)*f;
+		maxUserX = ux + (maxUserX - ux)*f;
+		minUserY = uy - (uy - minUserY)*f;
+		maxUserY = uy + (maxUserY - uy)*f;
+		zoomed = true;
+		repaint();
+	}
+
+	void continuePan(MouseEvent e) {
+		double dx = (e.getX() - panFrom.x) * uscaleX()/pscaleX();
+		double dy = (e.getY() - panFrom.y) * uscaleY()/pscaleY();
+		minUserX -= dx; maxUserX -= dx;
+		minUserY += dy; maxUserY += dy;  // y-axis flip
+		panFrom = e.getPoint();
+		zoomed = true;
+		repaint();
 	}
 
 	@Override
@@ -194,7 +280,11 @@ public class BrushPanel extends JPanel implements MouseListener, MouseMotionList
 
 	@Override
 	public void mousePressed(MouseEvent e) {
-		if (mode==Mode.STILL_BRUSH && !brush.getRegionPhys().contains(e.getPoint())) {
+		if (isPanButton(e)) {
+			panFrom = e.getPoint();
+			return;
+		}
+		if (mode==Mode.STILL_BRUSH && !e.isShiftDown() && !isOnBrush(e.getPoint())) {
 			stopBrushDontPushUpdates();
 			pushEmptyDocSelection();
 		}
@@ -202,12 +292,18 @@ public class BrushPanel extends JPanel implements MouseListener, MouseMotionList
 	void stopBrushDontPushUpdates() {
 		setMode(Mode.NO_BRUSH);
 		brush = null;
+		lasso = null;
+		regions.clear();
 		lastDocidSelectionByBrush = Collections.emptySet();
 	}
 
 	@Override
 	public void mouseReleased(MouseEvent e) {
-		if (mode==Mode.DRAWING_BRUSH) {
+		if (panFrom != null && isPanButton(e)) {
+			panFrom = null;
+			return;
+		}
+		if (mode==Mode.DRAWING_BRUSH || mode==Mode.DRAWING_LASSO) {
 			setMode(Mode.STILL_BRUSH);
 		}
 		else if (mode==Mode.MOVING_BRUSH) {
@@ -226,12 +322,21 @@ public class BrushPanel extends JPanel implements MouseListener, MouseMotionList
 //		U.p("mousedrag at current mode " + mode);
 //		U.p("DRAG "+brush);
 		// TODO this is where to only analyze the diff from the previous brush position for a faster selected docset update.
+		if (panFrom != null) {
+			continuePan(e);
+			return;
+		}
 		if (mode==Mode.NO_BRUSH) {
 			// Start a brush
-			brush = new Brush(x_p2u(e.getX()), y_p2u(e.getY()));
+			startRegion(e);
 //			brush.storeCurrentPositionAsInitial();
 			pushEmptyDocSelection();
-			setMode(Mode.DRAWING_BRUSH);
+		}
+		else if (mode==Mode.STILL_BRUSH && e.isShiftDown()) {
+			// another region, added to the held ones
+			regions.add(current());
+			startRegion(e);
+			pushDocsInBrushSelection();
 		}
 		else if (mode==Mode.DRAWING_BRUSH) {
 			// keep drawing
@@ -239,7 +344,15 @@ public class BrushPanel extends JPanel implements MouseListener, MouseMotionList
 			brush.y2=y_p2u(e.getY());
 			pushDocsInBrushSelection();
 		}
-		else if (mode==Mode.STILL_BRUSH && brush.getRegionPhys().contains(e.getPoint())) {
+		else if (mode==Mode.DRAWING_LASSO) {
+			// vertices closer than a few pixels don't change the selection enough to redo it
+			Point2D.Double last = lasso.lastPhys();
+			if (Math.abs(e.getX() - last.x) + Math.abs(e.getY() - last.y) >= LASSO_MIN_STEP) {
+				lasso.add(x_p2u(e.getX()), y_p2u(e.getY()));
+				pushDocsInBrushSelection();
+			}
+		}
+		else if (mode==Mode.STILL_BRUSH && isOnBrush(e.getPoint())) {
 			// start a move
 			brush.initialMousePositionX = x_p2u(e.getX());
 			brush.initialMousePositionY = y_p2u(e.getY());
@@ -255,6 +368,21 @@ public class BrushPanel extends JPanel implements MouseListener, MouseMotionList
 		repaint();
 	}
 	
+	/** a new rectangle, or lasso with alt held, at the mouse */
+	void startRegion(MouseEvent e) {
+		double x = x_p2u(e.getX()), y = y_p2u(e.getY());
+		if (e.isAltDown()) {
+			brush = null;
+			lasso = new Lasso();
+			lasso.add(x, y);
+			setMode(Mode.DRAWING_LASSO);
+		} else {
+			lasso = null;
+			brush = new Brush(x, y);
+			setMode(Mode.DRAWING_BRUSH);
+		}
+	}
+	
 	void continueBrushMove(MouseEvent e) {
 		double dx = (x_p2u(e.getX()) - brush.initialMousePositionX);
 		double dy = (y_p2u(e.getY()) - brush.initialMousePositionY);
@@ -265,20 +393,76 @@ public class BrushPanel extends JPanel implements MouseListener, MouseMotionList
 	}
 	
 	void pushDocsInBrushSelection() {
-		Set<String> docsel = new HashSet<>();
-		for (int i : selectPoints(brush.getRegionPhys())) {
-			docsel.add(points.get(i).doc.docid);
-		}
+		if (recorder != null) {
+			if (brush != null) recorder.brush(brush.x1, brush.y1, brush.x2, brush.y2, getWidth(), getHeight(), regions.size());
+			else recorder.lasso(Arrays.copyOf(lasso.xs, lasso.n), Arrays.copyOf(lasso.ys, lasso.n), getWidth(), getHeight(), regions.size());
+		}
+		// union of the regions from the point grid, then only indexed docs within the range filters.
+		// the selection stays a bitmap all the way to the term query.
+		Corpus corpus = AllQueries.instance().corpus;
+		DocBitmap sel = new DocBitmap();
+		try (LatencyHistogram.Timing t = Metrics.time("query.select.region")) {
+			PointGridIndex pi = corpus.pointIndex(xattr, yattr);
+			for (Region r : regions) sel.or(r.select(pi));
+			sel.or(current().select(pi));
+		}
+		sel.and(corpus.selectRanges(AllQueries.instance().covariateRanges));
+		Set<String> docsel = corpus.docIdSet(sel);
 		lastDocidSelectionByBrush = docsel;
 		docselFromBrushReceiver.receiveDocSelection(docsel);
 	}
+	/** the range filters changed: redo the brush's selection.  false if there's no brush. */
+	public boolean refreshBrushSelection() {
+		if (current() == null || mode == Mode.NO_BRUSH) return false;
+		pushDocsInBrushSelection();
+		repaint();
+		return true;
+	}
+
+	/**
+	 * ReplayBenchmark: as if the user had just drawn this brush, on a panel of this size.
+	 * numEarlierRegions is how many regions it joins; one more than are held means the held one was just added.
+	 */
+	public void replayBrush(double x1, double y1, double x2, double y2, int width, int height, int numEarlierRegions) {
+		replayRegionStart(width, height, numEarlierRegions);
+		brush = new Brush(x1, y1);
+		brush.x2 = x2;
+		brush.y2 = y2;
+		lasso = null;
+		setMode(Mode.STILL_BRUSH);
+		pushDocsInBrushSelection();
+	}
+	/** ReplayBenchmark: same for a lasso */
+	public void replayLasso(double[] xs, double[] ys, int width, int height, int numEarlierRegions) {
+		replayRegionStart(width, height, numEarlierRegions);
+		brush = null;
+		lasso = new Lasso();
+		for (int i=0; i<xs.length; i++) lasso.add(xs[i], ys[i]);
+		setMode(Mode.STILL_BRUSH);
+		pushDocsInBrushSelection();
+	}
+	void replayRegionStart(int width, int height, int numEarlierRegions) {
+		if (getWidth()!=width || getHeight()!=height) {
+			setSize(width, height);
+			setMySize(width, height);
+		}
+		if (numEarlierRegions == 0) regions.clear();
+		else if (numEarlierRegions > regions.size() && current() != null) regions.add(current());
+	}
+	public void replayBrushClear() {
+		stopBrushDontPushUpdates();
+		pushEmptyDocSelection();
+	}
 
 	void pushEmptyDocSelection() {
+		if (recorder != null) recorder.brushClear();
 		lastDocidSelectionByBrush = Collections.emptySet();
 		docselFromBrushReceiver.receiveDocSelection(Collections.<String> emptyList());
 	}
 	
 	public void paintComponent(Graphics _g) {
+		// repaints are deferred past the event handlers, so they get their own timer
+		LatencyHistogram.Timing paintTiming = Metrics.time("paint.BrushPanel");
 		Graphics2D g = (Graphics2D)_g;
 		g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 		g.setBackground(Color.white);
@@ -286,34 +470,128 @@ public class BrushPanel extends JPanel implements MouseListener, MouseMotionList
 		
 		drawAxes(g);
 		
-		Collections.sort(points, Comparator
-				.comparingInt((MyPoint p) -> p.isTermquery1Selected() ? 1:0)
-				.thenComparingInt((MyPoint p) -> p.isDocquerySelected() ? 1:0)
-		);
-		
-		for (int i=0; i<points.size(); i++) {
-			MyPoint mp = points.get(i);
-			Color c = mp.isTermquery1Selected() ? AllQueries.instance().termQueryColor :
-							mp.isDocquerySelected() ? BRUSH_COLOR : 
-							Color.gray;
+		Shape clip = g.getClip();
+		g.clipRect((int) minPhysX, (int) minPhysY, (int) pscaleX() + 1, (int) pscaleY() + 1);
+		Corpus corpus = AllQueries.instance().corpus;
+		if (corpus == null) {
+			drawPoints(g, points);
+		}
+		else {
+			PointGridIndex pi = corpus.pointIndex(xattr, yattr);
+			int level = pi.levelFor(MIN_CELL_PX*uscaleX()/pscaleX(), MIN_CELL_PX*uscaleY()/pscaleY());
+			PointGridIndex.CountGrid grid = pi.level(level);
+			if (grid.sum(minUserX, minUserY, maxUserX, maxUserY) <= pscaleX()*pscaleY()/POINT_PIXELS) {
+				drawPoints(g, visiblePoints(corpus, pi));
+			} else {
+				drawCells(g, corpus, pi, level, grid);
+			}
+		}
+		g.setClip(clip);
+		String fulldoc = AllQueries.instance().fulldocPanelCurrentDocID;
+		if (fulldoc != null && pointsByDocid.containsKey(fulldoc)) {
+			Point2D.Double p = pointsByDocid.get(fulldoc).physPoint();
+			g.setColor(Color.black);
+			GUtil.drawCenteredCircle(g, p.x, p.y, 4, false);
+		}
+		renderBrush(g);
+		paintTiming.close();
+	}
+
+	/** at most one point drawn per this many pixels of plot; more than that and it's cell counts */
+	static final double POINT_PIXELS = 40;
+	/** count cells are at least this many pixels on a side */
+	static final int MIN_CELL_PX = 4;
+	/** more points than this are drawn without antialiasing, which costs several times more per point */
+	static final int ANTIALIAS_MAX_POINTS = 2000;
+
+	/** points in the view, from the grid, in drawing order: term query matches on top, then the doc selection */
+	List<MyPoint> visiblePoints(Corpus corpus, PointGridIndex pi) {
+		DocBitmap tq = AllQueries.instance().termQuery().getMatchingDocBitmap();
+		List<MyPoint> ret = new ArrayList<>(), docsel = new ArrayList<>(), termsel = new ArrayList<>();
+		for (Document d : corpus.docs(pi.rect(minUserX, minUserY, maxUserX, maxUserY))) {
+			MyPoint mp = pointsByDocid.get(d.docid);
+			if (mp == null) continue;
+			(tq.get(d.ordinal()) ? termsel : mp.isDocquerySelected() ? docsel : ret).add(mp);
+		}
+		ret.addAll(docsel);
+		ret.addAll(termsel);
+		return ret;
+	}
+
+	void drawPoints(Graphics2D g, List<MyPoint> pts) {
+		// the term query once per frame, not per point
+		DocBitmap tq = AllQueries.instance().termQuery().getMatchingDocBitmap();
+		Object aa = g.getRenderingHint(RenderingHints.KEY_ANTIALIASING);
+		if (pts.size() > ANTIALIAS_MAX_POINTS) g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+		for (int i=0; i<pts.size(); i++) {
+			MyPoint mp = pts.get(i);
+			boolean termSelected = tq.get(mp.doc.ordinal()), docSelected = !termSelected && mp.isDocquerySelected();
+			Color c = termSelected ? AllQueries.instance().termQueryColor :
+							docSelected ? BRUSH_COLOR : 
+							mp.isIndexed() && !mp.isFilteredOut() ? Color.gray : NOT_YET_INDEXED_COLOR;
 			g.setColor(c);
 			Point2D.Double p = mp.physPoint();
-			if (mp.isTermquery1Selected()) {
-				GUtil.drawCenteredTriangle(g, p.x, p.y, 3, mp.isTermquery1Selected());
+			if (termSelected) {
+				GUtil.drawCenteredTriangle(g, p.x, p.y, 3, true);
 			}
 			else {
-				GUtil.drawCenteredCircle(g, p.x, p.y, 3, mp.isTermquery1Selected());
-				if (mp.isDocquerySelected() && !mp.isTermquery1Selected()) {
-					GUtil.drawCenteredCircle(g, p.x, p.y, 2, mp.isTermquery1Selected());
+				GUtil.drawCenteredCircle(g, p.x, p.y, 3, false);
+				if (docSelected) {
+					GUtil.drawCenteredCircle(g, p.x, p.y, 2, false);
 				}
 			}
-			
-			g.setColor(Color.black);
-			if (mp.isFulldocSelected()) {
-				GUtil.drawCenteredCircle(g, p.x, p.y, 4, false);
+		}
+		g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, aa);
+	}
+
+	/** previous selection's counts per cell, kept while the selection, grid and level are the same */
+	class CellCounts {
+		Object source;
+		PointGridIndex pi;
+		int level;
+		PointGridIndex.CountGrid counts;
+
+		PointGridIndex.CountGrid get(Object source, PointGridIndex pi, int level, Supplier<Collection<Document>> docs) {
+			if (source != this.source || pi != this.pi || level != this.level) {
+				counts = pi.countDocs(level, schema, docs.get());
+				this.source = source;
+				this.pi = pi;
+				this.level = level;
 			}
+			return counts;
 		}
-		renderBrush(g);
+	}
+	CellCounts docselCounts = new CellCounts(), termqueryCounts = new CellCounts();
+
+	/** cells in the view shaded by log count, with the doc selection and term query matches laid over by their share */
+	void drawCells(Graphics2D g, Corpus corpus, PointGridIndex pi, int level, PointGridIndex.CountGrid grid) {
+		Set<String> docsel = AllQueries.instance().docPanelSelectedDocIDs;
+		DocSet tq = AllQueries.instance().termQuery().getMatchingDocs();
+		PointGridIndex.CountGrid sel = docselCounts.get(docsel, pi, level, () -> corpus.getDocs(docsel));
+		PointGridIndex.CountGrid term = termqueryCounts.get(tq, pi, level, tq::docs);
+		int cx1 = grid.cellX(minUserX), cx2 = grid.cellX(maxUserX), cy1 = grid.cellY(minUserY), cy2 = grid.cellY(maxUserY);
+		int most = 1;
+		for (int cy=cy1; cy<=cy2; cy++) {
+			for (int cx=cx1; cx<=cx2; cx++) most = Math.max(most, grid.count(cx, cy));
+		}
+		for (int cy=cy1; cy<=cy2; cy++) {
+			int py1 = (int) y_u2p(grid.cellMinY(cy+1)), py2 = (int) y_u2p(grid.cellMinY(cy));  // y-axis flip
+			for (int cx=cx1; cx<=cx2; cx++) {
+				int n = grid.count(cx, cy);
+				if (n == 0) continue;
+				int px1 = (int) x_u2p(grid.cellMinX(cx)), px2 = (int) x_u2p(grid.cellMinX(cx+1));
+				int shade = (int) (220 - 160 * Math.log1p(n) / Math.log1p(most));
+				g.setColor(new Color(shade, shade, shade));
+				g.fillRect(px1, py1, px2 - px1, py2 - py1);
+				overlay(g, sel.count(cx, cy), n, BRUSH_COLOR, px1, py1, px2 - px1, py2 - py1);
+				overlay(g, term.count(cx, cy), n, AllQueries.instance().termQueryColor, px1, py1, px2 - px1, py2 - py1);
+			}
+		}
+	}
+	static void overlay(Graphics2D g, int k, int n, Color c, int x, int y, int w, int h) {
+		if (k == 0) return;
+		g.setColor(new Color(c.getRed(), c.getGreen(), c.getBlue(), (int) (80 + 175.0 * k / n)));
+		g.fillRect(x, y, w, h);
 	}
 	
 	
@@ -341,8 +619,10 @@ public class BrushPanel extends JPanel implements MouseListener, MouseMotionList
 			return Collections.emptyList();
 		}
 		else if (schema.column(attr).isCateg()) {
+			double min = x_or_y==XorY.X ? minUserX : minUserY, max = x_or_y==XorY.X ? maxUserX : maxUserY;
 			return schema.column(attr).levels.levels().stream().
 					map((lev) -> (double) lev.number).
+					filter(x -> x >= min && x <= max).
 					collect(Collectors.toList());
 		}
 		else {
@@ -495,12 +775,11 @@ public class BrushPanel extends JPanel implements MouseListener, MouseMotionList
 
 	void renderBrush(Graphics2D g) {
 		if (mode==Mode.NO_BRUSH) return;
-		assert brush != null;
+		assert current() != null;
 		g.setColor(BRUSH_COLOR);
 		g.setStroke(new BasicStroke(3));
-		Rectangle r = brush.getRegionPhys();
-//		U.p("RENDER " + r);
-    	g.drawRect(r.x,r.y,r.width,r.height);
+		for (Region r : regions) r.render(g);
+		current().render(g);
 	}
 
 	@Override
@@ -508,8 +787,14 @@ public class BrushPanel extends JPanel implements MouseListener, MouseMotionList
 	}
 
 	
+	/** one part of the brush selection */
+	interface Region {
+		DocBitmap select(PointGridIndex pi);
+		void render(Graphics2D g);
+	}
+
 	/** selector thingy. coordinates are stored in user space */
-	class Brush {
+	class Brush implements Region {
 		double
 				x1=Double.NEGATIVE_INFINITY, y1=Double.NEGATIVE_INFINITY,
 				x2=Double.POSITIVE_INFINITY, y2=Double.POSITIVE_INFINITY;
@@ -532,6 +817,15 @@ public class BrushPanel extends JPanel implements MouseListener, MouseMotionList
 			return new Rectangle(px1,py1, px2-px1, py2-py1);
 		}
 		
+		public DocBitmap select(PointGridIndex pi) {
+			return pi.rect(Math.min(x1,x2), Math.min(y1,y2), Math.max(x1,x2), Math.max(y1,y2));
+		}
+		
+		public void render(Graphics2D g) {
+			Rectangle r = getRegionPhys();
+			g.drawRect(r.x,r.y,r.width,r.height);
+		}
+		
 		void storeCurrentPositionAsInitial() {
 			initx1=x1; initx2=x2; inity1=y1; inity2=y2; 
 		}
@@ -542,6 +836,40 @@ public class BrushPanel extends JPanel implements MouseListener, MouseMotionList
 		}
 	}
 	
+	static final int LASSO_MIN_STEP = 3;
+
+	/** freehand polygon, vertices in user space.  closed back to the first vertex. */
+	class Lasso implements Region {
+		double[] xs = new double[64], ys = new double[64];
+		int n = 0;
+		
+		void add(double x, double y) {
+			if (n == xs.length) {
+				xs = Arrays.copyOf(xs, 2*n);
+				ys = Arrays.copyOf(ys, 2*n);
+			}
+			xs[n] = x;
+			ys[n] = y;
+			n++;
+		}
+		
+		Point2D.Double lastPhys() {
+			return new Point2D.Double(x_u2p(xs[n-1]), y_u2p(ys[n-1]));
+		}
+		
+		public DocBitmap select(PointGridIndex pi) {
+			return pi.polygon(xs, ys, n);
+		}
+		
+		public void render(Graphics2D g) {
+			Path2D.Double path = new Path2D.Double();
+			path.moveTo(x_u2p(xs[0]), y_u2p(ys[0]));
+			for (int i=1; i<n; i++) path.lineTo(x_u2p(xs[i]), y_u2p(ys[i]));
+			path.closePath();
+			g.draw(path);
+		}
+	}
+	
 	///////////////////
 	
 	@Subscribe
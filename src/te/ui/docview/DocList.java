@@ -6,6 +6,7 @@ import java.awt.event.MouseEvent;
 import java.util.*;
 import java.util.function.Consumer;
 
+import javax.swing.AbstractListModel;
 import javax.swing.JComponent;
 import javax.swing.JLabel;
 import javax.swing.JList;
@@ -14,18 +15,19 @@ import javax.swing.ListCellRenderer;
 import javax.swing.ListModel;
 import javax.swing.ListSelectionModel;
 import javax.swing.SwingUtilities;
+import javax.swing.border.Border;
 import javax.swing.border.EmptyBorder;
 import javax.swing.border.LineBorder;
 import javax.swing.event.ListSelectionEvent;
 import javax.swing.event.ListSelectionListener;
 
 import com.google.common.eventbus.Subscribe;
-import com.google.common.primitives.Ints;
 
+import te.data.DocBitmap;
 import te.data.DocSet;
 import te.data.Document;
+import te.ui.BitmapListSelectionModel;
 import te.ui.GUtil;
-import te.ui.My_DefaultListSelectionModel;
 import te.ui.queries.AllQueries;
 import te.ui.queries.DocSelectionChange;
 import te.ui.queries.FulldocChange;
@@ -36,6 +38,10 @@ import utility.util.U;
 
 public class DocList {
 	JList<Document> jlist;
+	DocListModel model;
+	BitmapListSelectionModel selmodel;
+	/** row in the list for each docid, so incoming selections don't have to scan the whole list */
+	Map<String,Integer> rowByDocid = new HashMap<>();
 	JScrollPane scrollpane;
 	DocSelectionListener docselUpdateReceiver;
 	public Consumer<Document> fulldocClickReceiver;
@@ -43,10 +49,11 @@ public class DocList {
 	
 	public DocList(DocSelectionListener qr, List<Document> docsInOrderForDisplay) {
 		docselUpdateReceiver = qr;
-		Vector<Document> docOldVector = new Vector<Document>();
-		for (Document d : docsInOrderForDisplay) docOldVector.add(d);
-		jlist = new JList<>(docOldVector);
-		jlist.setSelectionModel(new My_DefaultListSelectionModel());
+		model = new DocListModel();
+		addDocs(docsInOrderForDisplay);
+		jlist = new JList<>(model);
+		selmodel = new BitmapListSelectionModel();
+		jlist.setSelectionModel(selmodel);
 		jlist.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
 		jlist.setLayoutOrientation(JList.VERTICAL_WRAP);
 		jlist.setVisibleRowCount(-1);
@@ -69,6 +76,28 @@ public class DocList {
 	}
 	
 	public JComponent top() { return scrollpane; }
+
+	/** new docs from live append go at the end */
+	public void addDocs(Collection<Document> docs) {
+		int row = model.getSize();
+		for (Document d : docs) {
+			rowByDocid.put(d.docid, row++);
+		}
+		model.addAll(docs);
+	}
+
+	/** like DefaultListModel, but appends a batch with one event, so the list lays out once per batch and not once per doc */
+	static class DocListModel extends AbstractListModel<Document> {
+		List<Document> docs = new ArrayList<>();
+		@Override public int getSize() { return docs.size(); }
+		@Override public Document getElementAt(int i) { return docs.get(i); }
+		void addAll(Collection<Document> newdocs) {
+			if (newdocs.isEmpty()) return;
+			int first = docs.size();
+			docs.addAll(newdocs);
+			fireIntervalAdded(this, first, docs.size()-1);
+		}
+	}
 	
 	class MyMouseListener extends MouseAdapter {
 	    public void mouseClicked(MouseEvent e) {
@@ -113,39 +142,52 @@ public class DocList {
 		// this is a little indirect.  maybe we should use our own ListModel eventually.
 		List<String> docids = new ArrayList<>();
 		ListModel<Document> m = jlist.getModel();
-		for (int i : jlist.getSelectedIndices()) {
-			docids.add(m.getElementAt(i).docid);
-		}
+		selmodel.getSelection().forEach(i -> docids.add(m.getElementAt(i).docid));
 		return docids;
 	}
 	
-	class MyCellRenderer implements ListCellRenderer<Document> {
+	/** one label, reconfigured for every cell, like DefaultListCellRenderer. */
+	@SuppressWarnings("serial")
+	static class MyCellRenderer extends JLabel implements ListCellRenderer<Document> {
+		static final Border NORMAL_BORDER = new EmptyBorder(1,2,1,2);
+		static final Border FULLDOC_BORDER = new LineBorder(Color.BLACK, 2);
+
+		MyCellRenderer() {
+			setOpaque(true);
+		}
 
 		@Override
 		public Component getListCellRendererComponent(
 				JList<? extends Document> list, Document doc, int index,
 				boolean isSelected, boolean cellHasFocus) {
 			AllQueries AQ = AllQueries.instance();
-			JLabel jl = new JLabel(doc.docid);
-			jl.setBorder(new EmptyBorder(1,2,1,2));
-			jl.setOpaque(true);
+			setText(doc.docid);
 			if (isSelected) {
-				jl.setBackground(AllQueries.highlightVersion(AQ.docPanelQueryColor));
+				setBackground(AllQueries.highlightVersion(AQ.docPanelQueryColor));
 			} else {
-				jl.setBackground(Color.WHITE);
+				setBackground(Color.WHITE);
 			}
 			DocSet termDocs = AQ.termQuery().getMatchingDocs();
 			if (termDocs.docsById.containsKey(doc.docid)) {
-				jl.setForeground(AllQueries.foregroundVersion(AQ.termQueryColor));
+				setForeground(AllQueries.foregroundVersion(AQ.termQueryColor));
 			} else {
-				jl.setForeground(Color.BLACK);
+				setForeground(Color.BLACK);
 			}
-			if (GUtil.nonnullEqual(doc.docid, AllQueries.instance().fulldocPanelCurrentDocID)) {
-				jl.setBorder(new LineBorder(Color.BLACK, 2));
+			if (GUtil.nonnullEqual(doc.docid, AQ.fulldocPanelCurrentDocID)) {
+				setBorder(FULLDOC_BORDER);
+			} else {
+				setBorder(NORMAL_BORDER);
 			}
-			
-			return jl;
+			return this;
 		}
+
+		// same trick as DefaultListCellRenderer: the label is only used as a rubber stamp, so skip the notification work.
+		@Override public void validate() {}
+		@Override public void invalidate() {}
+		@Override public void revalidate() {}
+		@Override public void repaint() {}
+		@Override public void repaint(long tm, int x, int y, int width, int height) {}
+		@Override protected void firePropertyChange(String propertyName, Object oldValue, Object newValue) {}
 	}
 	
 	@Subscribe
@@ -171,46 +213,17 @@ public class DocList {
 //		U.pf("REFRESH curstate\t"); status();
 		
 		// Turn off list selection listeners for the duration of this function
-		// really only for setSelectedIndices()
+		// really only for setSelection()
 		toggleListSelectionListener(false);
-		My_DefaultListSelectionModel m = (My_DefaultListSelectionModel) jlist.getSelectionModel();
-		/* The funky logic of resetting the anchor/lead could be moved into the ListSelectionModel.
-		 * in fact, the behavior we're working around here was reported as a bug and not fixed:
-		 * https://bugs.openjdk.java.net/browse/JDK-4337119
-		 * """
-		 *    The current API of DefaultListSelectionModel doesn't allow us to set
-		 *    the selection interval without affecting the lead/anchor indices.
-		 * """
-		 */
-		int oldAnchor = m.getAnchorSelectionIndex();
-		int oldLead = m.getLeadSelectionIndex();
-				
 		Set<String> seldocids = AllQueries.instance().docPanelSelectedDocIDs;
 //		U.pf("REFRESH received %d docids: %s\n", seldocids.size(), seldocids);
-		m.clearSelection();
-		List<Integer> inds = new ArrayList<>();
-		for (int i=0; i<jlist.getModel().getSize(); i++) {
-			Document d = jlist.getModel().getElementAt(i);
-			if (seldocids.contains(d.docid)) {
-				inds.add(i);
-			}
-		}
-		jlist.setSelectedIndices(Ints.toArray(inds));
-		
-		// look at old anchor/lead configuration and map to the new world.
-		// are there cases where the lead and anchor are not necessarily the min/max of the selection?
-		// for example, if the anchor is in the middle or something.
-		// the solution here works with shift+arrowkeys so i guess it's good enough...?
-		
-		if (oldAnchor <= oldLead) {
-			m.anchorIndex = m.getMinSelectionIndex();
-			m.leadIndex = m.getMaxSelectionIndex();
+		DocBitmap rows = new DocBitmap();
+		for (String docid : seldocids) {
+			Integer row = rowByDocid.get(docid);
+			if (row != null) rows.set(row);
 		}
-		else if (oldLead < oldAnchor) {
-			m.leadIndex = m.getMinSelectionIndex();
-			m.anchorIndex = m.getMaxSelectionIndex();
-		}
-		
+		// the model maps the old anchor/lead configuration onto the new selection.
+		selmodel.setSelection(rows);
 		toggleListSelectionListener(true);
 	}
 }
@@ -0,0 +1,152 @@
+package te.ui.docview;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.GridBagConstraints;
+import java.awt.GridBagLayout;
+import java.awt.Insets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+
+import javax.swing.JButton;
+import javax.swing.JComponent;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JSlider;
+
+import te.data.Corpus;
+import te.data.Schema.DataType;
+import te.data.SortedColumnIndex;
+import te.ui.queries.AllQueries;
+import utility.util.U;
+
+/**
+ * a low/high slider pair per numeric covariate, to filter docs on covariates that aren't on the brush axes.
+ * slider positions are quantiles (via the column's SortedColumnIndex), so skewed columns still slide evenly.
+ * each row shows the column's histogram with the kept range shaded.
+ * any change sends the ranges that are narrower than the full column to the receiver, as varname -> {min, max}.
+ */
+public class RangeFilterPanel {
+	static final int STEPS = 1000;
+	static final int HIST_BINS = 40;
+
+	JPanel top = new JPanel(new GridBagLayout());
+	List<Row> rows = new ArrayList<>();
+	Consumer<Map<String,double[]>> rangeReceiver;
+
+	class Row {
+		String varname;
+		SortedColumnIndex index;
+		JSlider low = new JSlider(0, STEPS, 0), high = new JSlider(0, STEPS, STEPS);
+		JLabel info = new JLabel();
+		Histogram hist = new Histogram(this);
+
+		double lo() { return index.quantile((double) low.getValue() / STEPS); }
+		double hi() { return index.quantile((double) high.getValue() / STEPS); }
+		boolean isFull() { return low.getValue() == 0 && high.getValue() == STEPS; }
+		void updateInfo() {
+			info.setText(U.sf("%.4g to %.4g  (%d docs)", lo(), hi(), index.count(lo(), hi())));
+		}
+	}
+
+	public RangeFilterPanel(Corpus corpus, Consumer<Map<String,double[]>> rangeReceiver) {
+		this.rangeReceiver = rangeReceiver;
+		GridBagConstraints c = new GridBagConstraints();
+		c.insets = new Insets(2, 4, 2, 4);
+		c.fill = GridBagConstraints.HORIZONTAL;
+		int y = 0;
+		for (String varname : new TreeSet<>(corpus.getSchema().varnames())) {
+			if (corpus.getSchema().column(varname).dataType != DataType.NUMBER) continue;
+			Row r = new Row();
+			r.varname = varname;
+			r.index = corpus.columnIndex(varname);
+			if (r.index.size() == 0) continue;
+			r.low.addChangeListener(e -> {
+				if (r.low.getValue() > r.high.getValue()) r.high.setValue(r.low.getValue());
+				changed(r);
+			});
+			r.high.addChangeListener(e -> {
+				if (r.high.getValue() < r.low.getValue()) r.low.setValue(r.high.getValue());
+				changed(r);
+			});
+			r.updateInfo();
+			rows.add(r);
+
+			c.gridy = y++; c.gridx = 0; c.weightx = 0; c.gridheight = 2;
+			top.add(new JLabel(varname), c);
+			c.gridx = 1; c.weightx = 1; c.gridheight = 1;
+			top.add(r.hist, c);
+			c.gridx = 2; c.weightx = 0;
+			top.add(r.info, c);
+			c.gridy = y++; c.gridx = 1; c.weightx = 1;
+			top.add(r.low, c);
+			c.gridx = 2;
+			top.add(r.high, c);
+		}
+		JButton reset = new JButton("Reset");
+		reset.addActionListener(e -> {
+			for (Row r : rows) {
+				r.low.setValue(0);
+				r.high.setValue(STEPS);
+			}
+		});
+		c.gridy = y++; c.gridx = 0; c.fill = GridBagConstraints.NONE; c.anchor = GridBagConstraints.WEST;
+		top.add(reset, c);
+		if (rows.isEmpty()) {
+			c.gridy = y; c.gridwidth = 3;
+			top.add(new JLabel("No numeric covariates"), c);
+		}
+	}
+
+	public JComponent top() { return new JScrollPane(top); }
+
+	void changed(Row r) {
+		r.updateInfo();
+		r.hist.repaint();
+		rangeReceiver.accept(ranges());
+	}
+
+	/** the current filters, leaving out full-range columns */
+	public Map<String,double[]> ranges() {
+		Map<String,double[]> m = new LinkedHashMap<>();
+		for (Row r : rows) {
+			if (!r.isFull()) m.put(r.varname, new double[] { r.lo(), r.hi() });
+		}
+		return m;
+	}
+
+	/** equal-width histogram of the whole column, the kept range in the brush color */
+	static class Histogram extends JComponent {
+		final Row row;
+
+		Histogram(Row row) {
+			this.row = row;
+			setPreferredSize(new Dimension(120, 24));
+		}
+
+		@Override
+		protected void paintComponent(Graphics g) {
+			SortedColumnIndex ci = row.index;
+			double min = ci.min(), max = ci.max();
+			int[] counts = ci.equalWidthHistogram(min, max, HIST_BINS);
+			int most = 1;
+			for (int n : counts) most = Math.max(most, n);
+			int w = getWidth(), h = getHeight();
+			double lo = row.lo(), hi = row.hi(), width = (max - min) / HIST_BINS;
+			Color kept = AllQueries.instance().docPanelQueryColor;
+			for (int b=0; b<counts.length; b++) {
+				double binLo = min + b*width, binHi = binLo + width;
+				g.setColor(binHi >= lo && binLo <= hi ? kept : Color.LIGHT_GRAY);
+				int x0 = b * w / counts.length, x1 = (b+1) * w / counts.length;
+				int bh = (int) Math.ceil((double) counts[b] * (h-1) / most);
+				g.fillRect(x0, h - bh, Math.max(1, x1 - x0 - 1), bh);
+			}
+		}
+	}
+}
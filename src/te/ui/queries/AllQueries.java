@@ -1,16 +1,24 @@
 package te.ui.queries;
 import te.data.Corpus;
+import te.data.DocBitmap;
 import te.data.DocSet;
+import te.data.Document;
 import te.data.TermQuery;
 import te.ui.GUtil;
 
 import java.awt.*;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /** intended to be a singleton that encapsulates all selections global in the system right now. */
 public class AllQueries {
 	public Set<String> docPanelSelectedDocIDs = Collections.emptySet();
+	/** covariate range filters (varname -> {min, max}), ANDed with the brush */
+	public Map<String,double[]> covariateRanges = Collections.emptyMap();
+	/** the docs passing covariateRanges; null when there are none */
+	public DocBitmap covariateRangeDocs;
 	public String fulldocPanelCurrentDocID;
 	private TermQuery _termQuery;
 	/** necessary for at least some convenience calls.  is this a bad idea to have here? */
@@ -45,6 +53,10 @@ public class AllQueries {
 	public DocSet curDocs() {
 		return corpus.getDocSet(docPanelSelectedDocIDs);
 	}
+	/** the selected docs, without aggregating their terms like curDocs() does */
+	public List<Document> curDocList() {
+		return corpus.getDocs(docPanelSelectedDocIDs);
+	}
 	
 	private static AllQueries _instance;
 	
@@ -1,6 +1,9 @@
 package te.ui.textview;
 
+import java.awt.Color;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
 
 import javax.swing.JComponent;
 
@@ -27,12 +30,20 @@ public class FullDocViewer {
 		showForCurrentDoc(terms, isNewDoc);
 	}
 
+	/** what the current highlights were built from, so they're only rebuilt when the doc or term query changes */
+	Document highlightedDoc;
+	Set<String> highlightedTerms;
+
 	public void showForCurrentDoc(Collection<String> terms, boolean isNewDoc) {
-		textarea.termHighlighter = ti -> terms.contains(ti.termName) ? 
-				AllQueries.foregroundVersion(AllQueries.instance().termQueryColor) 
-				: null;
+		Set<String> termset = new HashSet<>(terms);
+		if (isNewDoc || highlightedDoc != textarea.doc || !termset.equals(highlightedTerms)) {
+			Color color = AllQueries.foregroundVersion(AllQueries.instance().termQueryColor);
+			textarea.setTermHighlighter(ti -> termset.contains(ti.termName) ? color : null);
+			highlightedDoc = textarea.doc;
+			highlightedTerms = termset;
+		}
 		if (isNewDoc) {
-			textarea.launchTextRender(isNewDoc);
+			textarea.resetLayout(isNewDoc);
 		}
 	}
 	
@@ -0,0 +1,115 @@
+package te.ui.textview;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+import te.data.Document;
+import te.data.TermInstance;
+import te.data.Token;
+
+/**
+ * the highlighted term instances of one document, as char spans sorted by start.
+ *
+ * built once per (document, highlighter), e.g. when the term query changes,
+ * so painting and hit-testing only have to look at spans overlapping the chars they care about,
+ * instead of calling the highlighter on every term instance of every token that gets drawn.
+ *
+ * overlap queries binary search on the starts for where to stop, and on a running max of the ends
+ * for where to start.  term instances are short (ngrams), so there's little in between that doesn't overlap.
+ */
+public class HighlightIndex {
+	public static final HighlightIndex EMPTY = new HighlightIndex();
+
+	int n;
+	int[] starts;
+	int[] ends;
+	/** maxEnds[i] = max(ends[0..i]) */
+	int[] maxEnds;
+	TermInstance[] terminsts;
+	Color[] colors;
+
+	private HighlightIndex() {
+		starts = ends = maxEnds = new int[0];
+		terminsts = new TermInstance[0];
+		colors = new Color[0];
+	}
+
+	/** highlighter returns null for "dont highlight this one" */
+	public HighlightIndex(Document doc, Function<TermInstance,Color> highlighter) {
+		List<TermInstance> tis = doc.termInstances != null ? doc.termInstances : Collections.emptyList();
+		List<TermInstance> hits = new ArrayList<>();
+		List<Color> hitColors = new ArrayList<>();
+		for (TermInstance ti : tis) {
+			Color c = highlighter.apply(ti);
+			if (c==null) continue;
+			hits.add(ti);
+			hitColors.add(c);
+		}
+		n = hits.size();
+		int[] s = new int[n], e = new int[n];
+		Integer[] order = new Integer[n];
+		for (int i=0; i<n; i++) {
+			TermInstance ti = hits.get(i);
+			int lo=Integer.MAX_VALUE, hi=Integer.MIN_VALUE;
+			for (int tokind : ti.tokIndsInDoc) {
+				Token t = doc.tokens.get(tokind);
+				lo = Math.min(lo, t.startChar);
+				hi = Math.max(hi, t.endChar);
+			}
+			s[i]=lo; e[i]=hi;
+			order[i]=i;
+		}
+		// stable, so for the same start, later term instances still come later (and win when painting)
+		Arrays.sort(order, (a,b) -> Integer.compare(s[a], s[b]));
+		starts = new int[n]; ends = new int[n]; maxEnds = new int[n];
+		terminsts = new TermInstance[n];
+		colors = new Color[n];
+		for (int j=0; j<n; j++) {
+			int i = order[j];
+			starts[j] = s[i];
+			ends[j] = e[i];
+			maxEnds[j] = j==0 ? e[i] : Math.max(maxEnds[j-1], e[i]);
+			terminsts[j] = hits.get(i);
+			colors[j] = hitColors.get(i);
+		}
+	}
+
+	public int size() { return n; }
+
+	public interface SpanVisitor {
+		void visit(TermInstance ti, Color color, int startChar, int endChar);
+	}
+
+	/** visits highlighted spans overlapping the char range [from,to), in start order. */
+	public void forEachOverlapping(int from, int to, SpanVisitor visitor) {
+		// first index whose start is >= to
+		int lo=0, hi=n;
+		while (lo < hi) {
+			int mid = (lo+hi) >>> 1;
+			if (starts[mid] < to) lo = mid+1; else hi = mid;
+		}
+		int last = lo;
+		// first index whose running max end is > from.  nothing before it can overlap.
+		lo=0; hi=last;
+		while (lo < hi) {
+			int mid = (lo+hi) >>> 1;
+			if (maxEnds[mid] <= from) lo = mid+1; else hi = mid;
+		}
+		for (int i=lo; i<last; i++) {
+			if (ends[i] > from) {
+				visitor.visit(terminsts[i], colors[i], starts[i], ends[i]);
+			}
+		}
+	}
+
+	/** the highlighted term instance covering this char, or null.  if several do, the last one painted. */
+	public TermInstance terminstAt(int charindex) {
+		TermInstance[] ret = new TermInstance[1];
+		forEachOverlapping(charindex, charindex+1, (ti,c,s,e) -> ret[0]=ti);
+		return ret[0];
+	}
+}
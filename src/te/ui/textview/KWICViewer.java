@@ -27,7 +27,7 @@ import com.google.common.base.Function;
 import com.google.common.collect.Ordering;
 import com.google.common.eventbus.Subscribe;
 
-import te.data.DocSet;
+import te.data.Corpus;
 import te.data.Document;
 import te.data.TermInstance;
 import te.ui.queries.AllQueries;
@@ -45,6 +45,8 @@ public class KWICViewer  {
 	public BiConsumer<Document,TermInstance> fulldocTerminstClickReceiver;
 	
 	public int wordRadius = 5;
+	/** when the corpus is remote, only this many docs get pulled over to show */
+	public static int REMOTE_MAX_DOCS = 200;
 	private Set<String> termset;
 	private List<Document> doclist;
 
@@ -222,9 +224,17 @@ public class KWICViewer  {
 		return IntStream.range(startIndex,endIndex).mapToObj(j -> tokens.get(j))
 			.collect(Collectors.joining(joiner));
 	}
-	public void show(Collection<String> terms, DocSet docs) {
-		doclist = new ArrayList<>(docs.docs());
+	public void show(Collection<String> terms, Collection<Document> docs) {
+		doclist = new ArrayList<>(docs);
 		Collections.sort(doclist, Ordering.natural().onResultOf(d -> d.docid));
+		Corpus corpus = AllQueries.instance().corpus;
+		if (corpus != null && corpus.isRemote()) {
+			// remote docs are stubs without text.  pull just the ones with hits, and not too many of those.
+			Set<String> hitDocids = AllQueries.instance().termQuery().getMatchingDocs().docsById.keySet();
+			doclist.removeIf(d -> !hitDocids.contains(d.docid));
+			if (doclist.size() > REMOTE_MAX_DOCS) doclist = new ArrayList<>(doclist.subList(0, REMOTE_MAX_DOCS));
+			doclist = corpus.fullDocuments(doclist);
+		}
 		termset = new HashSet<>(terms);
 		SwingUtilities.invokeLater(this::buildViews);
 	}
@@ -275,8 +285,7 @@ public class KWICViewer  {
 	@Subscribe public void refreshFull(DocSelectionChange e) { refreshFull(); }
 	@Subscribe public void refreshFull(TermQueryChange e) { refreshFull(); }
 	public void refreshFull() {
-		DocSet curDS = AllQueries.instance().curDocs();
-		show(AllQueries.instance().termQuery().terms, curDS);
+		show(AllQueries.instance().termQuery().terms, AllQueries.instance().curDocList());
 	}
 	
 
@@ -7,18 +7,23 @@ import utility.util.BasicFileIO;
 import utility.util.U;
 
 import javax.swing.*;
+import javax.swing.Timer;
 import java.awt.*;
 import java.awt.event.ComponentAdapter;
 import java.awt.event.ComponentEvent;
+import java.awt.event.MouseEvent;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.OptionalInt;
+import java.util.Map;
 import java.util.function.Function;
+import java.util.function.IntUnaryOperator;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
+import com.google.common.primitives.Ints;
+
 /**
  * the rationale for this class is to allow faster updating compared to throwing html at the swing rich text area
  * esp with dynamically changing the styling.  (an html renderer with good css support has this built-in, of course)
@@ -32,12 +37,10 @@ public class MyTextArea {
 	InternalTextArea area;
 	JScrollPane scrollpane;
 	Document doc;
-	/** this function lazily specifies in-text highlights at the term level.
-	 * if it's set to null, means dont highlight anything.
-	 * returns null means dont highlight this term. 
-	 * eventually we'll want to return a style object, not just a color.
+	/** in-text highlights at the term level, for the current doc.
+	 * eventually we'll want a style object, not just a color.
 	 */
-	Function<TermInstance, Color> termHighlighter;
+	HighlightIndex highlights = HighlightIndex.EMPTY;
 	public JComponent top() { return scrollpane; }
 
 	/* rendering model.  no extra paragraph spacing. thus screen lines are all that matters.
@@ -49,20 +52,46 @@ public class MyTextArea {
 	static int FONT_HEIGHT = 14;
 	static Font NORMAL_FONT = new Font("Times", Font.PLAIN, FONT_HEIGHT);
 	
-	int getLineHeight() {
-		Graphics tmpg = area.getGraphicsConfiguration().createCompatibleVolatileImage(200,10).getGraphics();
-		int h = getLineHeight(tmpg);
-		tmpg.dispose();
-		return h;
+	FontMetrics layoutMetrics;
+	/** widths for the common characters, so measuring doesn't have to go through the font for every char */
+	int[] asciiWidths;
+
+	FontMetrics layoutMetrics() {
+		if (layoutMetrics==null) {
+			layoutMetrics = area.getFontMetrics(NORMAL_FONT);
+			asciiWidths = new int[256];
+			for (char c=0; c<256; c++) asciiWidths[c] = layoutMetrics.charWidth(c);
+		}
+		return layoutMetrics;
+	}
+	int charWidth(char c) {
+		layoutMetrics();
+		return c < 256 ? asciiWidths[c] : layoutMetrics.charWidth(c);
 	}
-	int getLineHeight(Graphics g) {
-		int fontHeight = g.getFontMetrics(NORMAL_FONT).getHeight();
-		return fontHeight;
-//		return (int) Math.ceil(fontHeight*1.0);
+
+	int getLineHeight() {
+		return layoutMetrics().getHeight();
 	}
 
 	/** this can't handle hard breaks. only infers soft breaks. */
 	public static List<Integer> calculateBreaks(Document doc, int charstart, int charend, int width, Function<String,Integer> widthMeasure) {
+		int[] prefix = prefixWidths(doc.text, charstart, charend, c -> widthMeasure.apply(String.valueOf((char) c)));
+		return calculateBreaks(doc, charstart, charend, width, prefix);
+	}
+	
+	/** cumulative widths: prefix[i] is the rendered width of text[charstart, charstart+i).
+	 * so any candidate segment [a,b) measures as prefix[b-charstart]-prefix[a-charstart] without building substrings.
+	 * (this ignores kerning across characters, which is fine for line breaking.) */
+	static int[] prefixWidths(String text, int charstart, int charend, IntUnaryOperator charWidth) {
+		int[] prefix = new int[charend-charstart+1];
+		for (int i=charstart; i<charend; i++) {
+			prefix[i-charstart+1] = prefix[i-charstart] + charWidth.applyAsInt(text.charAt(i));
+		}
+		return prefix;
+	}
+
+	/** soft breaks for [charstart,charend), given cumulative widths from {@link #prefixWidths} */
+	public static List<Integer> calculateBreaks(Document doc, int charstart, int charend, int width, int[] prefixWidths) {
 		List<Integer> possBreaks = possibleBreakpoints(doc, charstart, charend);
 //		U.p("POSSBREAKS  " + possBreaks);
 		if (possBreaks.size()>0) assert possBreaks.get(possBreaks.size()-1) != doc.text.length();
@@ -72,9 +101,8 @@ public class MyTextArea {
 		List <Integer> breaks = new ArrayList<>();
 		
 		for (int possBreak : possBreaks) {
-			String cand = doc.text.substring(curStart,possBreak);
-			int w = widthMeasure.apply(cand);
-//			U.pf("W=%3d  %d:%d  CAND [[%s]]\n", w, curStart, possBreak, cand.replace("\n", "[N]"));
+			int w = prefixWidths[possBreak-charstart] - prefixWidths[curStart-charstart];
+//			U.pf("W=%3d  %d:%d\n", w, curStart, possBreak);
 			if (w > widthLeft) {
 				if (curStart>charstart) {
 					breaks.add(curStart);
@@ -127,143 +155,297 @@ public class MyTextArea {
 		}
 	}
 	
-	/** a Rendering is legitimate for a specific desired rending width */
-	static class Rendering {
-		List<Span> screenlineCharSpans = new ArrayList<>();
-		int totalScreenLines=0;
-	}
-	
-	/** can fail with null if thread is interrupted */
-	Rendering renderWordWrapping(int width) {
-		if (doc==null) return null;
-		Rendering r = new Rendering();
-		if (paragraphSpans==null) return r;
+	/** 
+	 * line layout of the current document for one specific width.
+	 * 
+	 * paragraphs are laid out lazily: the ones in (or near) the viewport at paint time,
+	 * and the rest a little at a time in the background on the swing thread.
+	 * until a paragraph is laid out its line count is an estimate from its length.
+	 * screenline positions come from a fenwick tree over the per-paragraph line counts,
+	 * so they stay O(log n) to query while estimates are being replaced by real counts.
+	 */
+	class Layout {
+		final int width;
+		/** per paragraph soft breaks; null if not laid out yet */
+		final int[][] softbreaks;
+		final int[] numLines;
+		/** fenwick tree over numLines, 1-based */
+		final int[] tree;
+		int totalLines = 0;
+		int numLaidOut = 0;
+		/** background fill cursor: every paragraph before this is laid out */
+		int fillCursor = 0;
 
-		FontMetrics fm = new Canvas(GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration()).getFontMetrics(NORMAL_FONT);
-		
-		for (int p=0; p<paragraphSpans.size(); p++) {
-			if (Thread.interrupted()) { return null; }
-			Span pspan = paragraphSpans.get(p);
-//			U.pf("PARA %-15s ||| %s\n", pspan, GUtil.substring(doc.text, pspan).replace("\n","[N]").replace(" ","[S]"));
-			List<Integer> softbreaks = calculateBreaks(doc, pspan.start, pspan.end, width, fm::stringWidth);
-//			U.p("BREAKS " + softbreaks);
-			List<Span> screenlineCharSpans = GUtil.breakpointsToSpans(pspan.start, softbreaks, pspan.end);
-			for (Span scs : screenlineCharSpans) {
-				if (Thread.interrupted()) { return null; }
-				r.screenlineCharSpans.add(scs);
-//				U.pf("SL %-15s ||| %s\n", scs, GUtil.substring(doc.text, scs).replace("\n","[N]").replace(" ","[S]"));
+		Layout(int width) {
+			this.width = width;
+			int n = paragraphSpans.size();
+			softbreaks = new int[n][];
+			numLines = new int[n];
+			tree = new int[n+1];
+			double avgCharWidth = charWidth('n');
+			for (int p=0; p<n; p++) {
+				Span ps = paragraphSpans.get(p);
+				numLines[p] = Math.max(1, (int) Math.ceil((ps.end-ps.start) * avgCharWidth / Math.max(width,1)));
+				totalLines += numLines[p];
+			}
+			// linear-time fenwick construction
+			for (int i=1; i<=n; i++) {
+				tree[i] += numLines[i-1];
+				int parent = i + (i & -i);
+				if (parent <= n) tree[parent] += tree[i];
 			}
 		}
-		r.totalScreenLines = r.screenlineCharSpans.size();
-		return r;
+
+		boolean isComplete() { return numLaidOut == numLines.length; }
+		boolean isLaidOut(int p) { return softbreaks[p] != null; }
+
+		void layOut(int p) {
+			if (softbreaks[p] != null) return;
+			Span ps = paragraphSpans.get(p);
+			int[] prefix = prefixWidths(doc.text, ps.start, ps.end, c -> charWidth((char) c));
+			softbreaks[p] = Ints.toArray(calculateBreaks(doc, ps.start, ps.end, width, prefix));
+			numLaidOut++;
+			int delta = (softbreaks[p].length + 1) - numLines[p];
+			if (delta != 0) {
+				numLines[p] += delta;
+				totalLines += delta;
+				for (int i=p+1; i<tree.length; i += i & -i) tree[i] += delta;
+			}
+		}
+
+		/** screenline index of the paragraph's first line */
+		int firstLineOf(int p) {
+			int sum = 0;
+			for (int i=p; i>0; i -= i & -i) sum += tree[i];
+			return sum;
+		}
+
+		/** the paragraph containing this screenline */
+		int paragraphAtLine(int line) {
+			int n = numLines.length;
+			if (line >= totalLines) return n-1;
+			int pos = 0, rem = line;
+			for (int step = Integer.highestOneBit(Math.max(n,1)); step > 0; step >>= 1) {
+				if (pos+step <= n && tree[pos+step] <= rem) {
+					pos += step;
+					rem -= tree[pos];
+				}
+			}
+			return pos;
+		}
+
+		/** lays out everything overlapping screenlines [firstline,lastline] */
+		void ensureLaidOut(int firstline, int lastline) {
+			firstline = Math.max(firstline, 0);
+			// laying out a paragraph only moves the paragraphs after it, so walking forward is stable.
+			int p = paragraphAtLine(firstline);
+			while (p < numLines.length && firstLineOf(p) <= lastline) {
+				layOut(p);
+				p++;
+			}
+		}
+
+		/** char span of a screenline.  lays out its paragraph if needed. */
+		Span lineSpan(int line) {
+			int p = paragraphAtLine(line);
+			layOut(p);
+			int k = GUtil.bounded(line - firstLineOf(p), 0, numLines[p]-1);
+			Span ps = paragraphSpans.get(p);
+			int[] br = softbreaks[p];
+			int s = k==0 ? ps.start : br[k-1];
+			int e = k==br.length ? ps.end : br[k];
+			return new Span(s, e);
+		}
+
+		/** screenline containing the char index.  lays out its paragraph if needed. */
+		int lineOfCharindex(int ci) {
+			int p = paragraphOfCharindex(ci);
+			layOut(p);
+			int[] br = softbreaks[p];
+			int k = 0;
+			while (k < br.length && br[k] <= ci) k++;
+			return firstLineOf(p) + k;
+		}
 	}
-	public void requestScrollToTerminst(TermInstance ti) {
-		if (!renderIsReady) {
-			termToScrollToWhenRenderIsDone = ti;
-			return;
+	
+	int paragraphOfCharindex(int ci) {
+		int lo=0, hi=paragraphSpans.size()-1;
+		while (lo < hi) {
+			int mid = (lo+hi+1) >>> 1;
+			if (paragraphSpans.get(mid).start <= ci) lo = mid; else hi = mid-1;
 		}
-		else {
-			scrollToTerminst(ti, finishedRendering);	
+		return lo;
+	}
+
+	/** layouts for recently used widths, so dragging a window edge back and forth doesn't redo everything */
+	Map<Integer,Layout> layoutsByWidth = new LinkedHashMap<Integer,Layout>(8, 0.75f, true) {
+		@Override protected boolean removeEldestEntry(Map.Entry<Integer,Layout> eldest) {
+			return size() > 4;
 		}
+	};
+
+	/** null if there's nothing to lay out */
+	Layout currentLayout() {
+		int width = area.getWidth();
+		if (doc==null || paragraphSpans==null || width <= 0) return null;
+		Layout L = layoutsByWidth.get(width);
+		if (L==null) {
+			L = new Layout(width);
+			layoutsByWidth.put(width, L);
+		}
+		return L;
 	}
-	/** don't call this unless rendering is complete */
-	private  void scrollToTerminst(TermInstance ti, Rendering r) {
+
+	/** highlighter returns null means dont highlight this term.  null highlighter means dont highlight anything. */
+	public void setTermHighlighter(Function<TermInstance, Color> termHighlighter) {
+		highlights = doc==null || termHighlighter==null ? HighlightIndex.EMPTY : new HighlightIndex(doc, termHighlighter);
+		area.repaint();
+	}
+
+	/** char index under the point, or -1 if it's not over text */
+	int charindexAt(Point p) {
+		Layout L = currentLayout();
+		if (L==null || L.numLines.length==0) return -1;
+		int line = p.y / getLineHeight();
+		if (line >= L.totalLines) return -1;
+		Span span = L.lineSpan(line);
+		int x = 0;
+		for (int ci=span.start; ci<span.end; ci++) {
+			x += charWidth(doc.text.charAt(ci));
+			if (x > p.x) return ci;
+		}
+		return -1;
+	}
+
+	public void requestScrollToTerminst(TermInstance ti) {
 		int ci = doc.tokens.get(ti.tokIndsInDoc.get(0)).startChar;
-		scrollToCharindex(ci, r);
+		pendingScrollCharindex = ci;
+		expectedViewY = -1;
+		if (currentLayout() != null) {
+			scrollToCharindex(ci);
+		}
+		// otherwise it happens once the area has a size
 	}
-	/** don't call this unless rendering is complete */
-	private void scrollToCharindex(int ci, Rendering r) {
-//		U.p("searching for charindex " + ci);
-		OptionalInt screenLine = IntStream.range(0,r.totalScreenLines)
-				.filter((si) -> r.screenlineCharSpans.get(si).contains(ci))
-				.findFirst();
-		if (!screenLine.isPresent()) {
-			// wasn't able to find one? weird.
-			U.p("couldnt find matching screenline containing charindex " + ci);
-			return;
+
+	/** 
+	 * centers the char index in the viewport, using the current (possibly partly estimated) layout.
+	 * as the background fill replaces estimates above it, this gets re-run so the position refines,
+	 * until the user scrolls somewhere else.
+	 */
+	private void scrollToCharindex(int ci) {
+		Layout L = currentLayout();
+		if (L==null) return;
+		int si = L.lineOfCharindex(ci);
+		updatePreferredHeight(L);
+		int lineHeight = getLineHeight();
+		int y = (int) ((double) baselineYvalueForScreenline(si) - 0.5*lineHeight);
+		int topShouldBe = y - scrollpane.getViewport().getHeight()/2;
+		topShouldBe = GUtil.bounded(topShouldBe, 0, Math.max(0, area.getHeight() - scrollpane.getViewport().getHeight()));
+		scrollpane.getViewport().setViewPosition(new Point(0, topShouldBe));
+		expectedViewY = topShouldBe;
+		if (isLaidOutThrough(L, paragraphOfCharindex(ci))) {
+			pendingScrollCharindex = -1;
 		}
-		int si = screenLine.getAsInt();
-//		U.p("screenline " + si);
-		
-		int y = (int) ((double) baselineYvalueForScreenline(si) - 0.5*getLineHeight());
-		int topShouldBe = y - scrollpane.getHeight()/2;
-		topShouldBe = GUtil.bounded(topShouldBe, 0, area.getHeight());
-		area.scrollRectToVisible(new Rectangle(0, topShouldBe, scrollpane.getWidth(), scrollpane.getHeight()));
+	}
+	static boolean isLaidOutThrough(Layout L, int p) {
+		return L.fillCursor > p || L.isComplete();
 	}
 	
 	/* Here's the model:
-	 * a resize launches a new text-rendering thread.
-	 * once it's done, then it asks swing for a new repaint.  at that time, painting will be done better.
-	 * 
-	 * when doing many resizes, we dont want to launch 10 or 20 simultaneous text rendering theads.
-	 * so: at any time, only one text-rendering thread should be active.
-	 * the latest one gets priority.
-	 * this is implemented by killing the currently running thread (well, using Thread.interrupt bcs that's supposed to be safer).
-	 * finally, there's a lock around the thread management and launching code, which hopefully should be pretty quick.  it's the render that's potentially slow.
-	 * 
-	 * assuming this is all on the swing edt.
+	 * painting lays out whatever paragraphs it needs (viewport plus a margin) right then; that's cheap.
+	 * everything else gets laid out in small time slices on the swing thread by fillTimer,
+	 * which also keeps the viewport anchored on the same text while estimated line counts above it turn into real ones.
+	 * a resize just means a different Layout (maybe cached).  nothing runs off the swing thread, so no locking.
 	 */
 
-	Rendering finishedRendering = null;
-	Thread rerenderThread = null;
-	TermInstance termToScrollToWhenRenderIsDone = null;
-	Object renderThreadManagementLock = new Object();
-	boolean renderIsReady = false;
+	int pendingScrollCharindex = -1;
+	/** where we last put the viewport for the pending scroll.  if it moved since, the user took over. */
+	int expectedViewY = -1;
+	int preferredHeightLines = -1;
+	static int FILL_SLICE_MS = 8;
+	Timer fillTimer = new Timer(5, e -> fillSomeLayout());
 	
-	void launchTextRender(final boolean isNewDoc) {
-		// take the current width as given, then compute a new height to force it to.
-		long t0 = System.nanoTime();
-		
-		synchronized(renderThreadManagementLock) {
-			renderIsReady = false;
-			if (rerenderThread!=null && rerenderThread.isAlive()) {
-//				U.p("trying to kill thread");
-				rerenderThread.interrupt();
-			}
-			Thread t = new Thread( () -> {
-				int w = area.getWidth();
-//				U.pf("w=%d start render thread\n", w);
-				Rendering r = renderWordWrapping(w);  // here is the expensive call
-				if (r==null) return;
-				// should the last lines here be wrapped in a sync block?
-				int newHeight = (r.totalScreenLines + 1)* getLineHeight();
-				area.setPreferredSize(new Dimension(-1, newHeight));
-//				U.pf("w=%d textflow %.2f ms\n", w, (System.nanoTime()-t0)/1e6);
-				area.revalidate();
-				if (Thread.interrupted()) return;
-				if (termToScrollToWhenRenderIsDone != null) {
-					scrollToTerminst(termToScrollToWhenRenderIsDone, r);
-					termToScrollToWhenRenderIsDone = null;
-				} else if (isNewDoc) {
-					scrollpane.getVerticalScrollBar().setValue(0);
-				}
-				finishedRendering = r;
-				renderIsReady = true;
-				top().repaint();
-			});
-			rerenderThread = t;
-			t.start();
+	/** forget all layouts.  call when the document or its text changed. */
+	void resetLayout(final boolean isNewDoc) {
+		layoutsByWidth.clear();
+		preferredHeightLines = -1;
+		if (isNewDoc) {
+			pendingScrollCharindex = -1;
+			scrollpane.getVerticalScrollBar().setValue(0);
+		}
+		Layout L = currentLayout();
+		if (L != null) updatePreferredHeight(L);
+		fillTimer.restart();
+		top().repaint();
+	}
+
+	void updatePreferredHeight(Layout L) {
+		if (L.totalLines == preferredHeightLines) return;
+		preferredHeightLines = L.totalLines;
+		int newHeight = (L.totalLines + 1) * getLineHeight();
+		area.setPreferredSize(new Dimension(-1, newHeight));
+		// resize right away, so that a scroll position computed from this layout isn't clamped to the old height
+		area.setSize(area.getWidth(), newHeight);
+		area.revalidate();
+	}
+
+	/** one background time slice of layout */
+	void fillSomeLayout() {
+		Layout L = currentLayout();
+		if (L==null || L.isComplete()) {
+			fillTimer.stop();
+			return;
+		}
+		Rectangle view = scrollpane.getViewport().getViewRect();
+		int[] anchor = viewAnchor(L, view.y);
+		long deadline = System.nanoTime() + FILL_SLICE_MS*(long)1e6;
+		while (L.fillCursor < L.numLines.length && System.nanoTime() < deadline) {
+			L.layOut(L.fillCursor++);
+		}
+		updatePreferredHeight(L);
+
+		if (pendingScrollCharindex >= 0 && (expectedViewY < 0 || view.y == expectedViewY)) {
+			scrollToCharindex(pendingScrollCharindex);
+		} else {
+			pendingScrollCharindex = -1;
+			restoreViewAnchor(L, anchor, view);
 		}
+		if (L.isComplete()) fillTimer.stop();
 	}
 	
+	/** (paragraph, line within it, pixel offset) at the top of the viewport */
+	int[] viewAnchor(Layout L, int viewY) {
+		int lineHeight = getLineHeight();
+		int topLine = viewY / lineHeight;
+		int topPara = L.paragraphAtLine(topLine);
+		return new int[] { topPara, topLine - L.firstLineOf(topPara), viewY - topLine*lineHeight };
+	}
+	/** after line counts above the viewport changed, scroll so the same text is at the top again */
+	void restoreViewAnchor(Layout L, int[] anchor, Rectangle view) {
+		int p = anchor[0];
+		int newTopLine = L.firstLineOf(p) + Math.min(anchor[1], L.numLines[p]-1);
+		int newY = newTopLine*getLineHeight() + anchor[2];
+		if (newY != view.y) {
+			scrollpane.getViewport().setViewPosition(new Point(view.x, newY));
+		}
+	}
+
 	int baselineYvalueForScreenline(int screenline) {
 		return (screenline + 1) * getLineHeight();
 	}
 
-	/** draw in the clipping region based on the current text rendering. */
+	/** draw in the clipping region, laying out whatever is visible first. */
 	void draw(Graphics2D g, int width) {
-		long t0 = System.nanoTime();
-
 		Rectangle clip = g.getClipBounds();
-		Rendering rend = finishedRendering;
-		if (rend==null) {
+		g.setColor(Color.WHITE);
+		g.fillRect(clip.x,clip.y,clip.width,clip.height);
+		Layout L = currentLayout();
+		if (L==null || L.numLines.length==0) {
 //			U.p("exit draw() early");
 			return;
 		}
 		
 		int lineHeight = getLineHeight();
-		g.setColor(Color.WHITE);
-		g.fillRect(clip.x,clip.y,clip.width,clip.height);
 		g.setColor(Color.BLACK);
 	    g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 	    g.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_NORMALIZE);
@@ -272,18 +454,33 @@ public class MyTextArea {
 	    int firstline = clip.y / lineHeight;
 	    int lastline = (clip.y + clip.height) / lineHeight;
 	    firstline--; firstline=Math.max(firstline,0);
-	    lastline++; lastline=Math.min(lastline, rend.totalScreenLines-1);
+	    lastline++;
+	    // lay out a viewport's worth of margin on both sides, so small scrolls don't shift things around
+	    int margin = scrollpane.getViewport().getHeight() / lineHeight + 1;
+	    Rectangle view = scrollpane.getViewport().getViewRect();
+	    int[] anchor = viewAnchor(L, view.y);
+	    int anchorLine = L.firstLineOf(anchor[0]);
+	    L.ensureLaidOut(firstline - margin, lastline + margin);
+	    if (L.firstLineOf(anchor[0]) != anchorLine && pendingScrollCharindex < 0) {
+	    	// stuff above the viewport changed height; this paint is off, so fix the position and paint again
+	    	SwingUtilities.invokeLater(() -> { updatePreferredHeight(L); restoreViewAnchor(L, anchor, view); });
+	    }
+	    lastline=Math.min(lastline, L.totalLines-1);
 //	    U.pf("screenlines %d..%d\n", firstline,lastline);
 	    
 	    for (int line=firstline; line<=lastline; line++) {
-	    	Span span = rend.screenlineCharSpans.get(line);
+	    	Span span = L.lineSpan(line);
 	    	drawTextInSpan(span, g, 0, (line+1)*lineHeight);
 	    }
-//		U.pf("END draw %.2f ms\n", (System.nanoTime()-t0)/1e6);
+	    if (preferredHeightLines != L.totalLines) {
+	    	SwingUtilities.invokeLater(() -> updatePreferredHeight(L));
+	    }
+	    if (!L.isComplete() && !fillTimer.isRunning()) {
+	    	fillTimer.start();
+	    }
 	}
 	
 	/** ASSUME this is all within one screenline. */
-	@SuppressWarnings("unchecked")
 	private void drawTextInSpan(Span charspanToDraw, Graphics2D g, int x, int y) {
 		// simple solution: just draw the damn text
 //    	String str = GUtil.substring(doc.text, charspanToDraw);
@@ -292,6 +489,17 @@ public class MyTextArea {
     	// more complex: check tokens for highlighting. also have to draw non-token gaps.
 		FontMetrics fm = g.getFontMetrics(NORMAL_FONT);
     	int[] tis = getTokenIndexesInSpan(doc, charspanToDraw);
+    	// term-level highlights, from only the spans overlapping this line
+    	Color[] tokColors = new Color[tis.length];
+    	if (tis.length>0) {
+    		int firstTok = tis[0];
+    		highlights.forEachOverlapping(charspanToDraw.start, charspanToDraw.end, (ti,c,s,e) -> {
+    			for (int toki : ti.tokIndsInDoc) {
+    				int j = toki - firstTok;
+    				if (j>=0 && j<tis.length && tis[j]==toki) tokColors[j] = c;
+    			}
+    		});
+    	}
     	
     	// 1. nontoken segment before first token, if any
     	// 2. each token
@@ -317,17 +525,7 @@ public class MyTextArea {
     		int charend = tok.endChar;
     		String s = doc.text.substring(charstart, charend);
     		
-    		// check for term-level things.
-    		Color color = Color.BLACK;
-    		if (termHighlighter != null) {
-        		for (TermInstance terminst : doc.tisByAllTokindexes.getOrDefault(toki, 
-        					(List<TermInstance>) Collections.EMPTY_LIST)) {
-        			Color cc = termHighlighter.apply(terminst);
-        			if (cc != null) {
-        				color=cc;
-        			}
-        		}
-    		}
+    		Color color = tokColors[i]!=null ? tokColors[i] : Color.BLACK;
     		// ok draw it now
     		g.setColor(color);
     		g.drawString(s, curx, y);
@@ -355,8 +553,12 @@ public class MyTextArea {
     	
 	}
 	static int[] getTokenIndexesInSpan(Document d, Span charspan) {
-		// should use indexing to be faster on long documents
-		return IntStream.range(0, d.tokens.size())
+		// tokens are in char order, so find the first one by binary search then walk forward
+		int first = d.getIndexOfFirstTokenAtOrAfterCharIndex(charspan.start);
+		if (first==-1) return new int[0];
+		int last = first;
+		while (last < d.tokens.size() && d.tokens.get(last).startChar < charspan.end) last++;
+		return IntStream.range(first, last)
 				.filter(ti -> {
 					Token t = d.tokens.get(ti);
 					return GUtil.spanContainedIn(t.startChar, t.endChar, charspan); 
@@ -369,11 +571,13 @@ public class MyTextArea {
 	void setDocument(Document newdoc) {
 		if (this.doc==newdoc) return;
 		this.doc = newdoc;
+		highlights = HighlightIndex.EMPTY;
 		if (newdoc!=null) loadDocumentIntoRenderingDatastructures();
 	}
 	void loadDocumentIntoRenderingDatastructures() {
 		assert doc!=null : "document must be set before calling this";
 		paragraphSpans = GUtil.splitIntoSpans("\n", doc.text);
+		layoutsByWidth.clear();
 //		for (Span s : paragraphSpans) {
 //			U.pf("PARA %-15s ||| %s\n", s, GUtil.substring(doc.text, s).replace("\n","[N]").replace(" ","[S]"));
 //		}
@@ -381,14 +585,28 @@ public class MyTextArea {
 	
 	class InternalTextArea extends JPanel {
 		InternalTextArea() {
+			ToolTipManager.sharedInstance().registerComponent(this);
 //			setPreferredSize(new Dimension(200,-1));
 			addComponentListener(new ComponentAdapter() {
 				@Override public void componentResized(ComponentEvent e)  {
-					launchTextRender(false);
+					Layout L = currentLayout();
+					if (L==null) return;
+					updatePreferredHeight(L);
+					if (pendingScrollCharindex >= 0) {
+						scrollToCharindex(pendingScrollCharindex);
+					}
+					fillTimer.restart();
 				}
 			});
 		}
 		
+		@Override public String getToolTipText(MouseEvent e) {
+			int ci = charindexAt(e.getPoint());
+			if (ci==-1) return null;
+			TermInstance ti = highlights.terminstAt(ci);
+			return ti==null ? null : ti.termName;
+		}
+
 		@Override public void paintComponent(Graphics _g) {
 			Graphics2D g = (Graphics2D) _g;
 //			U.pf("SIZE %s  CLIP %s  VIEWABLE %s\n", getSize(), g.getClip(), getVisibleRect());
@@ -402,6 +620,7 @@ public class MyTextArea {
 		scrollpane = new JScrollPane(area);
 		scrollpane.setVerticalScrollBarPolicy(JScrollPane.VERTICAL_SCROLLBAR_ALWAYS);
 		scrollpane.getVerticalScrollBar().setUnitIncrement(10);
+		fillTimer.setRepeats(true);
 //		scrollpane.getVerticalScrollBar().setBlockIncrement(10);
 //		scrollpane.setViewportView(area);
 	}
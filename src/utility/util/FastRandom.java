@@ -231,8 +231,12 @@ public class FastRandom implements Serializable {
 
 
     /** Return random integer from Poission with parameter lambda.  
-     * The mean of this distribution is lambda.  The variance is lambda. */
+     * The mean of this distribution is lambda.  The variance is lambda.
+     * Knuth's multiplication method for small lambda; it's O(lambda), and for lambda past ~745
+     * exp(-lambda) underflows to 0 and it never stops.  So from 30 up, Hormann's PTRS
+     * transformed rejection ("The transformed rejection method for generating Poisson random variables", 1993). */
     public int nextPoisson(double lambda) {
+    	if (lambda >= 30) return nextPoissonPTRS(lambda);
     	int i,j,v=-1;
     	double l=Math.exp(-lambda),p;
     	p=1.0;
@@ -243,6 +247,31 @@ public class FastRandom implements Serializable {
     	return v;
     }
 
+    int nextPoissonPTRS(double lambda) {
+    	double slam = Math.sqrt(lambda), loglam = Math.log(lambda);
+    	double b = 0.931 + 2.53*slam, a = -0.059 + 0.02483*b;
+    	double invalpha = 1.1239 + 1.1328/(b - 3.4), vr = 0.9277 - 3.6224/(b - 2);
+    	while (true) {
+    		double u = nextUniform() - 0.5, v = nextUniform();
+    		double us = 0.5 - Math.abs(u);
+    		double k = Math.floor((2*a/us + b)*u + lambda + 0.43);
+    		if (us >= 0.07 && v <= vr) return (int) k;
+    		if (k < 0 || (us < 0.013 && v > us)) continue;
+    		if (Math.log(v) + Math.log(invalpha) - Math.log(a/(us*us) + b) <= -lambda + k*loglam - logFactorial(k)) {
+    			return (int) k;
+    		}
+    	}
+    }
+
+    /** log(k!) by Stirling's series, exact enough (~1e-10) once shifted up past 10 */
+    static double logFactorial(double k) {
+    	double shift = 0, x = k + 1;
+    	while (x < 10) { shift += Math.log(x); x += 1; }
+    	double x2 = x*x;
+    	return (x - 0.5)*Math.log(x) - x + 0.5*Math.log(2*Math.PI)
+    			+ 1/(12*x) - 1/(360*x*x2) + 1/(1260*x2*x2*x) - shift;
+    }
+
     /** Return nextPoisson(1). */
     public int nextPoisson() {
     	return nextPoisson(1);
@@ -34,6 +34,16 @@ public class OnlineNormal1d {
 		n--;
 	}
 
+	/** add in another estimator's items (Chan, Golub and LeVeque's pairwise update) */
+	public void merge(OnlineNormal1d other) {
+		if (other.n == 0) return;
+		int total = n + other.n;
+		double delta = other.m - m;
+		ss += other.ss + delta*delta * ((double) n * other.n / total);
+		m += delta * other.n / total;
+		n = total;
+	}
+
 	public double var() { 
 		if (n==0) return 0;
 		return ss / n; 
@@ -0,0 +1,77 @@
+package te.data;
+
+import org.junit.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class DocBitmapTest {
+
+	@Test
+	public void basics() {
+		DocBitmap b = DocBitmap.of(3, 70000, 5);
+		assertTrue(b.get(3));
+		assertTrue(b.get(70000));
+		assertFalse(b.get(4));
+		assertFalse(b.get(-1));
+		assertFalse(b.get(1000000));
+		assertEquals(3, b.cardinality());
+		assertArrayEquals(new int[]{3,5,70000}, b.toArray());
+		b.clear(5);
+		assertArrayEquals(new int[]{3,70000}, b.toArray());
+		assertEquals(70000, b.nextSetBit(4));
+		assertEquals(70000, b.max());
+		assertEquals(-1, b.nextSetBit(70001));
+	}
+
+	@Test
+	public void ranges() {
+		DocBitmap b = DocBitmap.range(10, 200000);
+		assertEquals(200000-10, b.cardinality());
+		assertFalse(b.get(9));
+		assertTrue(b.get(10));
+		assertTrue(b.get(199999));
+		assertFalse(b.get(200000));
+		b.clearRange(60000, 140000);
+		assertEquals(200000-10-80000, b.cardinality());
+		assertTrue(b.get(59999));
+		assertFalse(b.get(60000));
+		assertTrue(b.get(140000));
+		assertEquals(140000, b.nextSetBit(60000));
+		b.clear(10);
+		assertEquals(11, b.min());
+	}
+
+	/** compare everything against java.util.BitSet on random data with a mix of sparse and dense chunks */
+	@Test
+	public void randomAgainstBitSet() {
+		Random r = new Random(42);
+		for (int trial=0; trial<20; trial++) {
+			BitSet x = new BitSet(), y = new BitSet();
+			DocBitmap a = new DocBitmap(), b = new DocBitmap();
+			fill(r, x, a, trial % 3==0 ? 0.5 : 0.01);
+			fill(r, y, b, trial % 2==0 ? 0.3 : 0.002);
+			if (trial % 4==0) { a.setRange(1000, 90000); x.set(1000, 90000); }
+
+			BitSet and = (BitSet) x.clone(); and.and(y);
+			BitSet or = (BitSet) x.clone(); or.or(y);
+			BitSet andNot = (BitSet) x.clone(); andNot.andNot(y);
+
+			assertEquals(x.cardinality(), a.cardinality());
+			assertEquals(and.cardinality(), a.andCardinality(b));
+			assertArrayEquals(and.stream().toArray(), DocBitmap.and(a,b).toArray());
+			assertArrayEquals(or.stream().toArray(), DocBitmap.or(a,b).toArray());
+			assertArrayEquals(andNot.stream().toArray(), DocBitmap.andNot(a,b).toArray());
+			assertEquals(!and.isEmpty(), a.intersects(b));
+		}
+	}
+
+	static void fill(Random r, BitSet x, DocBitmap a, double density) {
+		int n = 200000;
+		for (int i=0; i<n; i++) {
+			if (r.nextDouble() < density) { x.set(i); a.set(i); }
+		}
+	}
+}
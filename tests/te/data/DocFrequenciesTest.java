@@ -0,0 +1,72 @@
+package te.data;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class DocFrequenciesTest {
+
+	static List<Document> docs(int n, Random r) {
+		String[] vocab = { "a", "b", "c", "d", "e", "f", "g", "h" };
+		List<Document> docs = new ArrayList<>();
+		for (int i=0; i<n; i++) {
+			StringBuilder sb = new StringBuilder();
+			int len = 1 + r.nextInt(12);
+			// skewed, with repeats within a doc
+			for (int j=0; j<len; j++) sb.append(vocab[Math.min(r.nextInt(8), r.nextInt(8))]).append(' ');
+			docs.add(TestCorpora.doc(sb.toString()));
+		}
+		return docs;
+	}
+
+	@Test
+	public void popcountsMatchTermVectors() {
+		Random r = new Random(1);
+		Corpus c = new Corpus();
+		c.appendDocuments(docs(2000, r));
+		DocBitmap sel = new DocBitmap();
+		for (int i=0; i<2000; i++) if (r.nextInt(3) == 0) sel.set(i);
+
+		DocFrequencies df = c.docFrequencies(sel);
+		assertEquals(sel.cardinality(), df.numFocusDocs);
+		assertEquals(2000, df.numDocs);
+		for (String term : new String[] { "a", "d", "h", "zzz" }) {
+			int inSel = 0, all = 0;
+			for (Document d : c.allDocs()) {
+				if (d.termVec.value(term) == 0) continue;
+				all++;
+				if (sel.get(d.ordinal())) inSel++;
+			}
+			assertEquals(term, inSel, df.focus(term));
+			assertEquals(term, all, df.background(term));
+		}
+
+		// appended docs are picked up by the postings already built
+		List<Document> more = new ArrayList<>();
+		for (int i=0; i<10; i++) more.add(TestCorpora.doc("zzz zzz zzz"));
+		c.appendDocuments(more);
+		DocFrequencies after = c.docFrequencies(DocBitmap.range(0, 2005));
+		assertEquals(5, after.focus("zzz"));
+		assertEquals(10, after.background("zzz"));
+	}
+
+	@Test
+	public void scores() {
+		// in 30 of 100 selected docs, and 40 of 1000 overall
+		assertEquals(0.3 / 0.04, DocFrequencies.lift(30, 40, 100, 1000), 1e-9);
+		assertEquals(0, DocFrequencies.lift(0, 40, 100, 1000), 0);
+		double g = DocFrequencies.g2(30, 40, 100, 1000);
+		// the same table by hand
+		double[] obs = { 30, 70, 10, 890 }, exp = { 100*40/1000.0, 100*960/1000.0, 900*40/1000.0, 900*960/1000.0 };
+		double expected = 0;
+		for (int i=0; i<4; i++) expected += 2 * obs[i] * Math.log(obs[i] / exp[i]);
+		assertEquals(expected, g, 1e-9);
+		// rarer in the selection than elsewhere: negative
+		assertTrue(DocFrequencies.g2(1, 400, 100, 1000) < 0);
+		assertEquals(0, DocFrequencies.g2(4, 40, 100, 1000), 1e-9);
+	}
+}
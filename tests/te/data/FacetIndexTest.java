@@ -0,0 +1,70 @@
+package te.data;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import te.data.FacetIndex.Facet;
+
+import static org.junit.Assert.*;
+
+public class FacetIndexTest {
+
+	static Document doc(String text, String g, double x) {
+		Document d = TestCorpora.doc(text);
+		d.covariates.put("g", g);
+		d.covariates.put("x", x);
+		return d;
+	}
+
+	static Corpus corpus() {
+		List<Document> docs = new ArrayList<>();
+		for (int i=0; i<10; i++) docs.add(doc(i < 3 ? "cat dog" : "dog", i < 5 ? "a" : "b", i));
+		return TestCorpora.corpus(docs, "g", new String[] { "a", "b" }, "x");
+	}
+
+	@Test
+	public void countsAndRatios() {
+		Corpus c = corpus();
+		TermQuery tq = new TermQuery(c);
+		tq.terms.add("cat");
+		List<Facet> facets = c.facetCounts(tq.getMatchingDocBitmap());
+		assertEquals(2, facets.size());
+
+		Facet g = facets.get(0);
+		assertEquals("g", g.varname);
+		assertArrayEquals(new int[] { 3, 0 }, g.observed);
+		assertArrayEquals(new int[] { 5, 5 }, g.totals);
+		assertEquals(1.5, g.expected[0], 1e-9);
+		assertEquals(2.0, g.ratio(0), 1e-9);
+
+		// x is 0..9 in 10 bins, one doc each; the max is in the last one
+		Facet x = facets.get(1);
+		assertEquals(10, x.size());
+		assertEquals(1, x.totals[9]);
+		assertEquals(1, x.observed[0]);
+		assertEquals(0, x.observed[9]);
+	}
+
+	@Test
+	public void docsPastTheBinsRebuild() {
+		Corpus c = corpus();
+		TermQuery tq = new TermQuery(c);
+		tq.terms.add("cat");
+		c.facetCounts(tq.getMatchingDocBitmap());
+		FacetIndex before = c.facetIndexIfBuilt();
+
+		c.appendDocuments(Arrays.asList(doc("cat", "a", 5)));
+		assertSame(before, c.facetIndexIfBuilt());
+		c.appendDocuments(Arrays.asList(doc("cat", "b", 100)));
+		assertNull(c.facetIndexIfBuilt());
+
+		tq = new TermQuery(c);
+		tq.terms.add("cat");
+		Facet x = c.facetCounts(tq.getMatchingDocBitmap()).get(1);
+		assertEquals(1, x.observed[9]);
+		assertEquals(12, Arrays.stream(x.totals).sum());
+	}
+}
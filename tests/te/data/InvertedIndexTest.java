@@ -0,0 +1,67 @@
+package te.data;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class InvertedIndexTest {
+
+	static Document doc(String id, String... terms) {
+		Document d = new Document();
+		d.docid = id;
+		d.termVec = new TermVector();
+		for (String t : terms) d.termVec.increment(t);
+		return d;
+	}
+
+	@Test
+	public void segmentsMergeKeepingOrder() {
+		InvertedIndex index = new InvertedIndex();
+		List<Document> all = new ArrayList<>();
+		for (int i=0; i<20; i++) {
+			Document d = doc("d"+i, "all", i%2==0 ? "even" : "odd");
+			all.add(d);
+			index.add(Arrays.asList(d));
+		}
+		assertEquals(20, index.numSegments());
+		assertTrue(index.needsMerge());
+		long postings = index.numPostings();
+
+		index.merge();
+		assertFalse(index.needsMerge());
+		assertEquals(InvertedIndex.MAX_SEGMENTS/2, index.numSegments());
+		assertEquals(all, index.getMatchingDocs("all"));
+		assertEquals(10, index.getMatchingDocs("odd").size());
+		assertEquals(postings, index.numPostings());
+		assertEquals(3, index.numTerms());
+		assertTrue(index.getMatchingDocs("nope").isEmpty());
+	}
+
+	@Test
+	public void singleAddsFillATail() {
+		InvertedIndex index = new InvertedIndex();
+		int n = 3*InvertedIndex.TAIL_DOCS + 10;
+		List<Document> all = new ArrayList<>();
+		for (int i=0; i<n; i++) {
+			Document d = doc("d"+i, "all", i%2==0 ? "even" : "odd");
+			all.add(d);
+			index.add(d);
+		}
+		assertEquals(4, index.numSegments());
+		assertEquals(all, index.getMatchingDocs("all"));
+		assertEquals(n/2, index.getMatchingDocs("odd").size());
+		assertEquals(3, index.numTerms());
+		assertEquals(2L*n, index.numPostings());
+
+		// a batch goes after the tail's docs
+		Document last = doc("last", "all");
+		all.add(last);
+		index.add(Arrays.asList(last));
+		assertEquals(5, index.numSegments());
+		assertEquals(all, index.getMatchingDocs("all"));
+	}
+}
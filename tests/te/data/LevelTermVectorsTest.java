@@ -0,0 +1,86 @@
+package te.data;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import te.metrics.Metrics;
+
+import static org.junit.Assert.*;
+
+public class LevelTermVectorsTest {
+
+	static Corpus corpus(int n, long seed) {
+		Random r = new Random(seed);
+		List<Document> docs = new ArrayList<>();
+		for (int i=0; i<n; i++) {
+			StringBuilder sb = new StringBuilder();
+			for (int j=0; j<10; j++) sb.append("w").append(r.nextInt(30)).append(' ');
+			Document d = TestCorpora.doc(sb.toString());
+			// a few docs have no level
+			if (i % 17 != 0) d.covariates.put("g", "abc".substring(i%3, i%3+1));
+			docs.add(d);
+		}
+		return TestCorpora.corpus(docs, "g", new String[] { "a", "b", "c" });
+	}
+
+	static Set<String> ids(Corpus c, String level) {
+		Set<String> s = new HashSet<>();
+		for (Document d : c.allDocs()) if (level.equals(d.covariates.get("g"))) s.add(d.docid);
+		return s;
+	}
+
+	static void assertSameTerms(Corpus c, Set<String> docids) {
+		TermVector expected = new DocSet(c.getDocs(docids)).terms;
+		DocSet ds = c.getDocSet(docids);
+		assertEquals(docids.size(), ds.docs().size());
+		assertEquals(expected.map, ds.terms.map);
+		assertEquals(expected.totalCount, ds.terms.totalCount, 1e-9);
+	}
+
+	@Test
+	public void levelsAndNearUnions() throws Exception {
+		Corpus c = corpus(300, 1);
+		assertNotNull(c.awaitLevelVectors());
+		long hits = Metrics.counter("query.aggregate.levelHits").getCount();
+
+		assertSameTerms(c, ids(c, "a"));
+		Set<String> ab = ids(c, "a");
+		ab.addAll(ids(c, "b"));
+		assertSameTerms(c, ab);
+		// all of a but two docs, plus one doc of c, plus one with no level
+		Set<String> near = ids(c, "a");
+		List<String> a = new ArrayList<>(near);
+		near.remove(a.get(0));
+		near.remove(a.get(1));
+		near.add(ids(c, "c").iterator().next());
+		near.add(c.docsInOriginalOrder.get(0).docid);
+		assertSameTerms(c, near);
+		assertEquals(hits + 3, Metrics.counter("query.aggregate.levelHits").getCount());
+
+		// nothing like a level: summed directly
+		Set<String> few = new HashSet<>();
+		for (int i=0; i<300; i+=10) few.add(c.docsInOriginalOrder.get(i).docid);
+		assertSameTerms(c, few);
+		assertEquals(hits + 3, Metrics.counter("query.aggregate.levelHits").getCount());
+	}
+
+	@Test
+	public void appendedDocsAreCovered() throws Exception {
+		Corpus c = corpus(100, 2);
+		c.awaitLevelVectors();
+		Corpus more = corpus(50, 3);
+		List<Document> docs = new ArrayList<>();
+		for (Document d : more.allDocs()) {
+			d.docid = null;
+			docs.add(d);
+		}
+		c.appendDocuments(docs);
+		assertEquals(150, c.levelVectorsIfBuilt().numCovered());
+		assertSameTerms(c, ids(c, "b"));
+	}
+}
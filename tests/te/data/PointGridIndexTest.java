@@ -0,0 +1,116 @@
+package te.data;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class PointGridIndexTest {
+
+	static Corpus corpus(int n, long seed) {
+		Random r = new Random(seed);
+		List<Document> docs = new ArrayList<>();
+		for (int i=0; i<n; i++) {
+			Document d = TestCorpora.doc("a b");
+			// clumped, with repeated values, like real covariates
+			d.covariates.put("x", i % 7 == 0 ? 3.0 : r.nextGaussian());
+			d.covariates.put("y", (double) r.nextInt(50) / 10);
+			docs.add(d);
+		}
+		return TestCorpora.corpus(docs, "x", "y");
+	}
+
+	static double x(Document d) { return (Double) d.covariates.get("x"); }
+	static double y(Document d) { return (Double) d.covariates.get("y"); }
+
+	@Test
+	public void rectanglesMatchAScan() {
+		Corpus c = corpus(5000, 1);
+		PointGridIndex pi = c.pointIndex("x", "y");
+		assertEquals(5000, pi.size());
+		Random r = new Random(2);
+		for (int trial=0; trial<50; trial++) {
+			double x1 = r.nextGaussian()*2, x2 = x1 + r.nextDouble()*3, y1 = r.nextDouble()*6 - 1, y2 = y1 + r.nextDouble()*3;
+			DocBitmap expected = new DocBitmap();
+			for (Document d : c.allDocs()) {
+				if (x(d) >= x1 && x(d) <= x2 && y(d) >= y1 && y(d) <= y2) expected.set(d.ordinal());
+			}
+			assertEquals(expected, pi.rect(x1, y1, x2, y2));
+		}
+		assertEquals(5000, pi.rect(-100, -100, 100, 100).cardinality());
+	}
+
+	@Test
+	public void lassosMatchAScan() {
+		Corpus c = corpus(5000, 3);
+		PointGridIndex pi = c.pointIndex("x", "y");
+		Random r = new Random(4);
+		for (int trial=0; trial<50; trial++) {
+			// a wobbly star around a random center, self-intersecting now and then
+			int nv = 3 + r.nextInt(200);
+			double cx = r.nextGaussian(), cy = r.nextDouble()*5;
+			double[] px = new double[nv], py = new double[nv];
+			for (int i=0; i<nv; i++) {
+				double a = 2*Math.PI*i/nv + (trial % 5 == 0 ? r.nextDouble() : 0), rad = 0.2 + 2*r.nextDouble();
+				px[i] = cx + rad*Math.cos(a);
+				py[i] = cy + rad*Math.sin(a);
+			}
+			DocBitmap expected = new DocBitmap();
+			for (Document d : c.allDocs()) {
+				if (PointGridIndex.contains(px, py, nv, x(d), y(d))) expected.set(d.ordinal());
+			}
+			assertEquals("trial " + trial, expected, pi.polygon(px, py, nv));
+		}
+		// a square around everything, and a degenerate lasso
+		assertEquals(5000, pi.polygon(new double[] { -100, 100, 100, -100 }, new double[] { -100, -100, 100, 100 }, 4).cardinality());
+		assertTrue(pi.polygon(new double[] { 0, 1 }, new double[] { 0, 1 }, 2).isEmpty());
+	}
+
+	@Test
+	public void countPyramid() {
+		Corpus c = corpus(5000, 7);
+		PointGridIndex pi = c.pointIndex("x", "y");
+		int top = pi.levelFor(Double.MAX_VALUE, Double.MAX_VALUE);
+		assertEquals(0, pi.levelFor(0, 0));
+		for (int level=0; level<=top; level++) {
+			PointGridIndex.CountGrid g = pi.level(level);
+			assertEquals(5000, g.sum(-100, -100, 100, 100));
+			// recounting every doc lands in the same cells
+			PointGridIndex.CountGrid recount = pi.countDocs(level, c.getSchema(), c.allDocs());
+			for (int cy=0; cy<g.ny; cy++) {
+				for (int cx=0; cx<g.nx; cx++) assertEquals(g.count(cx, cy), recount.count(cx, cy));
+			}
+			// a cell's count is its points
+			int cx = g.cellX(0), cy = g.cellY(2);
+			assertEquals(g.count(cx, cy), pi.rect(g.cellMinX(cx), g.cellMinY(cy), Math.nextDown(g.cellMinX(cx+1)), Math.nextDown(g.cellMinY(cy+1))).cardinality());
+		}
+		assertEquals(1, pi.level(top).nx * pi.level(top).ny);
+	}
+
+	@Test
+	public void bitmapSelectionsAsDocids() {
+		Corpus c = corpus(300, 5);
+		DocBitmap b = c.pointIndex("x", "y").rect(-1, 0, 1, 2);
+		Set<String> ids = c.docIdSet(b);
+		Set<String> expected = new HashSet<>();
+		for (Document d : c.docs(b)) expected.add(d.docid);
+		assertEquals(expected, ids);
+		assertEquals(ids, expected);
+		assertEquals(expected, new HashSet<>(ids));
+		assertEquals(c.docs(b), c.getDocs(ids));
+		assertEquals(ids, c.docIdSet(b.copy()));
+
+		// appending drops the grid; the next one has the new docs
+		PointGridIndex before = c.pointIndex("x", "y");
+		List<Document> more = new ArrayList<>(corpus(10, 6).docsInOriginalOrder);
+		for (Document d : more) d.docid = null;
+		c.appendDocuments(more);
+		assertNotSame(before, c.pointIndex("x", "y"));
+		assertEquals(310, c.pointIndex("x", "y").size());
+	}
+}
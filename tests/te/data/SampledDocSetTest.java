@@ -0,0 +1,73 @@
+package te.data;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import utility.util.FastRandom;
+
+import static org.junit.Assert.*;
+
+public class SampledDocSetTest {
+
+	static List<Document> docs(int n, long seed) {
+		Random r = new Random(seed);
+		List<Document> docs = new ArrayList<>();
+		for (int i=0; i<n; i++) {
+			Document d = new Document();
+			d.termVec = new TermVector();
+			int len = 5 + r.nextInt(30);
+			for (int j=0; j<len; j++) {
+				// "rare" is in about one doc in ten, in bursts
+				if (r.nextInt(10)==0 && j==0) d.termVec.increment("rare", 1 + r.nextInt(5));
+				d.termVec.increment("w" + r.nextInt(10), 1);
+			}
+			docs.add(d);
+		}
+		return docs;
+	}
+
+	static TermVector sum(List<Document> docs) {
+		TermVector tv = new TermVector();
+		for (Document d : docs) tv.addInPlace(d.termVec);
+		return tv;
+	}
+
+	@Test
+	public void exactOnceEverythingIsSampled() {
+		List<Document> docs = docs(500, 1);
+		TermVector truth = sum(docs);
+		SampledDocSet s = new SampledDocSet(docs, new FastRandom(2));
+		s.sampleMore(100);
+		SampledDocSet.Estimate e = s.estimate(truth);
+		assertFalse(e.isExact());
+		assertEquals(truth.totalCount, e.focus.totalCount, 1e-9);
+		assertTrue(e.countHalfWidth("w3") > 0);
+
+		s.sampleMore(1000);
+		e = s.estimate(truth);
+		assertTrue(e.isExact());
+		assertEquals(500, e.numSampled);
+		for (String w : truth.map.keySet()) {
+			assertEquals(truth.value(w), e.focus.value(w), 1e-9);
+			assertEquals(0, e.countHalfWidth(w), 0);
+		}
+	}
+
+	@Test
+	public void intervalsCoverTheTruth() {
+		List<Document> docs = docs(2000, 3);
+		TermVector truth = sum(docs);
+		int covered = 0, trials = 200;
+		for (int t=0; t<trials; t++) {
+			SampledDocSet s = new SampledDocSet(docs, new FastRandom(100+t));
+			s.sampleMore(200);
+			SampledDocSet.Estimate e = s.estimate(truth);
+			if (Math.abs(e.focus.value("rare") - truth.value("rare")) <= e.countHalfWidth("rare")) covered++;
+		}
+		// nominally 95%
+		assertTrue("covered " + covered, covered >= 0.88*trials);
+	}
+}
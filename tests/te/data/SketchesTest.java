@@ -0,0 +1,122 @@
+package te.data;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SketchesTest {
+
+	static Document doc(String... terms) {
+		Document d = new Document();
+		d.termVec = new TermVector();
+		for (String t : terms) d.termVec.increment(t);
+		return d;
+	}
+
+	/** zipfian-ish stream of terms w0, w1, ... */
+	static Map<String,Double> stream(int n, Random r) {
+		Map<String,Double> counts = new HashMap<>();
+		for (int i=0; i<n; i++) {
+			String t = "w" + (int) Math.floor(Math.exp(r.nextDouble() * Math.log(5000)));
+			counts.merge(t, 1.0, Double::sum);
+		}
+		return counts;
+	}
+
+	@Test
+	public void spaceSavingBounds() {
+		Random r = new Random(1);
+		SpaceSaving ss = new SpaceSaving(100);
+		Map<String,Double> truth = new HashMap<>();
+		for (int i=0; i<20000; i++) {
+			String t = "w" + (int) Math.floor(Math.exp(r.nextDouble() * Math.log(5000)));
+			truth.merge(t, 1.0, Double::sum);
+			ss.add(t, 1);
+		}
+		assertEquals(20000, ss.total(), 0);
+		assertEquals(100, ss.size());
+		double bound = ss.total() / ss.capacity;
+		for (Map.Entry<String,Double> e : truth.entrySet()) {
+			String t = e.getKey();
+			double c = ss.count(t);
+			if (c > 0) {
+				assertTrue(c >= e.getValue());
+				assertTrue(c - ss.error(t) <= e.getValue());
+				assertTrue(ss.error(t) <= bound);
+			} else {
+				assertTrue(e.getValue() <= ss.minCount());
+			}
+			if (e.getValue() > bound) assertTrue(t, c > 0);
+		}
+	}
+
+	@Test
+	public void countMinNeverUndercounts() {
+		Map<String,Double> truth = stream(20000, new Random(2));
+		CountMinSketch cms = new CountMinSketch(512, 4);
+		for (Map.Entry<String,Double> e : truth.entrySet()) cms.add(e.getKey(), e.getValue());
+		int close = 0;
+		for (Map.Entry<String,Double> e : truth.entrySet()) {
+			double est = cms.estimate(e.getKey());
+			assertTrue(est >= e.getValue());
+			if (est - e.getValue() <= Math.E * cms.total() / 512) close++;
+		}
+		assertTrue(close >= 0.9 * truth.size());
+		assertEquals(0, cms.estimate("never seen"), 20000 * Math.E / 512);
+	}
+
+	/** "Aa" and "BB" have the same String.hashCode, but the rows hash the string itself */
+	@Test
+	public void countMinRowsDontShareStringHashCollisions() {
+		assertEquals("Aa".hashCode(), "BB".hashCode());
+		CountMinSketch cms = new CountMinSketch(512, 4);
+		cms.add("Aa", 100);
+		assertEquals(100, cms.estimate("Aa"), 0);
+		assertEquals(0, cms.estimate("BB"), 0);
+	}
+
+	@Test
+	public void windowSlidesByPanes() {
+		SlidingTermWindow w = new SlidingTermWindow(10, 5, 100);
+		w.add(doc("old", "both"), 1);
+		w.add(doc("both", "new"), 9);
+		assertEquals(2, w.numDocs());
+		assertEquals(2, w.terms().value("both"), 0);
+
+		// the pane starting at 0 is out once the end passes 12
+		w.add(doc("new"), 12.5);
+		assertEquals(2, w.numDocs());
+		TermVector tv = w.terms();
+		assertEquals(0, tv.value("old"), 0);
+		assertEquals(2, tv.value("new"), 0);
+		assertEquals(3, tv.totalCount, 0);
+
+		// too old to count
+		w.add(doc("late"), 0.5);
+		assertEquals(0, w.terms().value("late"), 0);
+
+		w.advanceTo(100);
+		assertEquals(0, w.numDocs());
+	}
+
+	@Test
+	public void decayHalvesOldCounts() {
+		DecayedTermCounts dc = new DecayedTermCounts(10, 1024, 4);
+		dc.add(doc("a"), 0);
+		dc.add(doc("b"), 10);
+		TermVector tv = dc.estimates(Arrays.asList("a", "b"));
+		assertEquals(0.5, tv.value("a") / tv.value("b"), 1e-9);
+		assertEquals(tv.value("a") + tv.value("b"), tv.totalCount, 1e-9);
+
+		// rescaling for far-off times keeps the ratios
+		dc.add(doc("c"), 10 + 10*600);
+		tv = dc.estimates(Arrays.asList("b", "c"));
+		assertEquals(-600, Math.log(tv.value("b") / tv.value("c")) / Math.log(2), 1e-9);
+		assertTrue(tv.value("c") > 0 && !Double.isInfinite(tv.totalCount));
+	}
+}
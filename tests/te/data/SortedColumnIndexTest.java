@@ -0,0 +1,75 @@
+package te.data;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class SortedColumnIndexTest {
+
+	static Corpus corpus(int n, long seed) {
+		Random r = new Random(seed);
+		List<Document> docs = new ArrayList<>();
+		for (int i=0; i<n; i++) docs.add(doc(r.nextInt(100), r.nextGaussian(), r.nextDouble()));
+		return TestCorpora.corpus(docs, "x", "y", "z");
+	}
+	static Document doc(double x, double y, double z) {
+		Document d = TestCorpora.doc("a b");
+		d.covariates.put("x", x);
+		d.covariates.put("y", y);
+		d.covariates.put("z", z);
+		return d;
+	}
+
+	static Set<String> ids(Iterable<Document> docs) {
+		Set<String> s = new HashSet<>();
+		for (Document d : docs) s.add(d.docid);
+		return s;
+	}
+
+	@Test
+	public void rangesMatchAScan() {
+		Corpus c = corpus(500, 1);
+		// appended after the indexes were built, so merged in
+		c.appendDocuments(Arrays.asList(doc(50, 0, 0.5), doc(-1, 0, 0.5)));
+
+		assertEquals(ids(c.naiveSelect("x", "y", 10, 40, -1, 1).docs()), ids(c.select("x", "y", 10, 40, -1, 1).docs()));
+
+		Map<String,double[]> ranges = new HashMap<>();
+		ranges.put("x", new double[] { 20, 80 });
+		ranges.put("z", new double[] { 0.25, 0.5 });
+		Set<String> expected = new HashSet<>();
+		for (Document d : c.allDocs()) {
+			double x = (Double) d.covariates.get("x"), z = (Double) d.covariates.get("z");
+			if (x >= 20 && x <= 80 && z >= 0.25 && z <= 0.5) expected.add(d.docid);
+		}
+		assertEquals(expected, ids(c.docs(c.selectRanges(ranges))));
+	}
+
+	@Test
+	public void countsQuantilesHistograms() {
+		Corpus c = corpus(1000, 2);
+		SortedColumnIndex x = c.columnIndex("x");
+		assertEquals(1000, x.size());
+		int n = 0;
+		for (Document d : c.allDocs()) if ((Double) d.covariates.get("x") <= 49) n++;
+		assertEquals(n, x.count(0, 49));
+		assertEquals(0, x.count(200, 300));
+		assertEquals(x.min(), x.quantile(0), 0);
+		assertEquals(x.max(), x.quantile(1), 0);
+
+		int[] h = x.equalWidthHistogram(x.min(), x.max(), 7);
+		assertEquals(1000, Arrays.stream(h).sum());
+		double[] edges = c.columnIndex("z").equalFrequencyEdges(4);
+		int q1 = c.columnIndex("z").count(edges[0], edges[1]);
+		assertTrue("first quarter has " + q1, Math.abs(q1 - 250) <= 2);
+	}
+}
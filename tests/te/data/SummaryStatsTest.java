@@ -0,0 +1,90 @@
+package te.data;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import te.data.Schema.ColumnInfo;
+import te.data.Schema.DataType;
+
+import static org.junit.Assert.*;
+
+public class SummaryStatsTest {
+
+	@Test
+	public void mergedEqualsOnePass() {
+		Random r = new Random(1);
+		SummaryStats all = new SummaryStats(), a = new SummaryStats(), b = new SummaryStats();
+		for (int i=0; i<5000; i++) {
+			double x = 100 + 10*r.nextGaussian();
+			all.add(x);
+			(i < 1200 ? a : b).add(x);
+		}
+		a.merge(b);
+		assertEquals(all.n(), a.n(), 0);
+		assertEquals(all.mean(), a.mean(), 1e-9);
+		assertEquals(all.sd(), a.sd(), 1e-9);
+		assertEquals(all.min(), a.min(), 0);
+		assertEquals(all.max(), a.max(), 0);
+		assertEquals(all.median(), a.median(), 0.5);
+	}
+
+	@Test
+	public void kllQuantiles() {
+		Random r = new Random(2);
+		int n = 100000;
+		double[] xs = new double[n];
+		KllSketch whole = new KllSketch();
+		KllSketch[] parts = new KllSketch[4];
+		for (int p=0; p<4; p++) parts[p] = new KllSketch();
+		for (int i=0; i<n; i++) {
+			xs[i] = Math.exp(r.nextGaussian());
+			whole.add(xs[i]);
+			parts[i % 4].add(xs[i]);
+		}
+		for (int p=1; p<4; p++) parts[0].merge(parts[p]);
+		Arrays.sort(xs);
+		for (KllSketch s : new KllSketch[] { whole, parts[0] }) {
+			assertEquals(n, s.n());
+			for (double q : new double[] { 0.01, 0.25, 0.5, 0.75, 0.99 }) {
+				// rank error, which is what the sketch bounds
+				int rank = Arrays.binarySearch(xs, s.quantile(q));
+				assertTrue(q + " -> rank " + rank, Math.abs(rank - q*n) < 0.02*n);
+			}
+		}
+		KllSketch small = new KllSketch();
+		for (int i=1; i<=99; i++) small.add(i);
+		assertEquals(50, small.quantile(0.5), 0);
+	}
+
+	@Test
+	public void parallelSummaries() {
+		Corpus c = new Corpus();
+		c.getSchema().columnTypes.put("x", new ColumnInfo(DataType.NUMBER));
+		List<Document> docs = new ArrayList<>();
+		Random r = new Random(3);
+		for (int i=0; i<1000; i++) {
+			Document d = new Document();
+			d.covariates.put("x", r.nextDouble());
+			docs.add(d);
+		}
+		SummaryStats serial = c.summarize(docs).get("x");
+		int oldMin = Parallel.MIN_ITEMS, oldTasks = Parallel.NUM_TASKS;
+		Parallel.MIN_ITEMS = 10;
+		Parallel.NUM_TASKS = 4;
+		try {
+			Map<String,SummaryStats> par = c.summarize(docs);
+			assertEquals(serial.n(), par.get("x").n(), 0);
+			assertEquals(serial.mean(), par.get("x").mean(), 1e-9);
+			assertEquals(serial.sd(), par.get("x").sd(), 1e-9);
+			assertEquals(serial.max(), par.get("x").max(), 0);
+		} finally {
+			Parallel.MIN_ITEMS = oldMin;
+			Parallel.NUM_TASKS = oldTasks;
+		}
+	}
+}
@@ -0,0 +1,83 @@
+package te.data;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import te.data.Analysis.TermTermAssociations;
+
+import static org.junit.Assert.*;
+
+public class TermTermAssociationsTest {
+
+	static Corpus corpus(int numDocs, long seed) {
+		Random r = new Random(seed);
+		List<Document> docs = new ArrayList<>();
+		for (int i=0; i<numDocs; i++) {
+			Document d = new Document();
+			d.termVec = new TermVector();
+			int len = 1 + r.nextInt(30);
+			for (int j=0; j<len; j++) d.termVec.increment("w" + (int) Math.floor(Math.exp(r.nextDouble() * Math.log(300))));
+			docs.add(d);
+		}
+		// two batches, so the matrix gets built and then appended to
+		Corpus c = TestCorpora.corpus(docs.subList(0, numDocs/2));
+		c.termDocMatrix();
+		c.appendDocuments(docs.subList(numDocs/2, numDocs));
+		return c;
+	}
+
+	/** the old per-document formulation */
+	static double naiveInner(Corpus c, List<String> query, String u) {
+		double sum = 0;
+		for (Document d : c.select(query).docs()) sum += d.termVec.valueSum(query) * d.termVec.value(u);
+		return sum;
+	}
+
+	void check(Corpus c) {
+		List<String> query = Arrays.asList("w2", "w7");
+		TermTermAssociations tta = c.termTermAssociations(query);
+		DocSet ds = c.select(query);
+		assertEquals(ds.docs().size(), tta.numDocs);
+		assertEquals(ds.terms.totalCount, tta.focus.totalCount, 1e-6);
+		double lenWeighted = 0;
+		for (Document d : ds.docs()) lenWeighted += d.termVec.totalCount * d.termVec.valueSum(query);
+		assertEquals(lenWeighted, tta.lengthWeightedQueryTotal, 1e-6);
+		for (String u : Arrays.asList("w1", "w2", "w3", "w50", "w299")) {
+			assertEquals(ds.terms.value(u), tta.focus.value(u), 1e-6);
+			assertEquals(naiveInner(c, query, u), tta.candInnerProducts.value(u), 1e-6);
+		}
+
+		List<String> ranked = tta.topEpmi(0, 2);
+		for (int i=1; i<ranked.size(); i++) {
+			assertTrue(tta.leftratio(ranked.get(i-1)) >= tta.leftratio(ranked.get(i)));
+		}
+		// same ranking, different normalizers
+		String top = ranked.get(0);
+		assertEquals(tta.score(TermTermAssociations.Score.JOINT, top) / tta.score(TermTermAssociations.Score.COND, top),
+				tta.score(TermTermAssociations.Score.JOINT, ranked.get(1)) / tta.score(TermTermAssociations.Score.COND, ranked.get(1)), 1e-9);
+
+		assertSame(tta, c.termTermAssociations(Arrays.asList("w7", "w2")));
+	}
+
+	@Test
+	public void matchesNaive() {
+		check(corpus(500, 1));
+	}
+
+	@Test
+	public void parallelMatchesNaive() {
+		int oldMin = Parallel.MIN_ITEMS, oldTasks = Parallel.NUM_TASKS;
+		Parallel.MIN_ITEMS = 10;
+		Parallel.NUM_TASKS = 4;
+		try {
+			check(corpus(500, 2));
+		} finally {
+			Parallel.MIN_ITEMS = oldMin;
+			Parallel.NUM_TASKS = oldTasks;
+		}
+	}
+}
@@ -0,0 +1,42 @@
+package te.data;
+
+import java.util.List;
+
+import te.data.Schema.ColumnInfo;
+import te.data.Schema.DataType;
+
+/** fixtures shared by the tests: whitespace-tokenized docs with unigram terms, and small corpora of them */
+public class TestCorpora {
+
+	static Document doc(String text) {
+		return doc(new NLP.UnigramAnalyzer(), text);
+	}
+
+	static Document doc(NLP.DocAnalyzer da, String text) {
+		Document d = new Document();
+		d.text = text;
+		d.tokens = NLP.whitespaceTokenize(text);
+		NLP.analyzeDocument(da, d);
+		return d;
+	}
+
+	/** the docs, with numeric covariates of these names.  docs can be empty, to append to later. */
+	static Corpus corpus(List<Document> docs, String... numericVars) {
+		return corpus(docs, null, null, numericVars);
+	}
+
+	/** the same, plus a categorical covariate with these levels */
+	static Corpus corpus(List<Document> docs, String categVar, String[] levels, String... numericVars) {
+		Corpus c = new Corpus();
+		if (categVar != null) {
+			ColumnInfo ci = new ColumnInfo(DataType.CATEG);
+			for (String l : levels) ci.levels.addLevel(l);
+			c.getSchema().columnTypes.put(categVar, ci);
+		}
+		for (String v : numericVars) c.getSchema().columnTypes.put(v, new ColumnInfo(DataType.NUMBER));
+		// the column indexes get set up here, then kept up to date by the append
+		c.calculateCovariateSummaries();
+		c.appendDocuments(docs);
+		return c;
+	}
+}
@@ -0,0 +1,87 @@
+package te.data;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import te.data.Analysis.WindowedCooccurrence;
+
+import static org.junit.Assert.*;
+
+public class WindowedCooccurrenceTest {
+
+	static Corpus corpus(NLP.DocAnalyzer da, String... texts) {
+		List<Document> docs = new ArrayList<>();
+		for (String t : texts) docs.add(TestCorpora.doc(da, t));
+		return TestCorpora.corpus(docs);
+	}
+
+	@Test
+	public void contextsWithinWindow() {
+		Corpus c = corpus(new NLP.UnigramAnalyzer(),
+				"a b q c d e f",
+				"q x x x b",
+				"b b");
+		WindowedCooccurrence wc = c.windowedCooccurrence(Arrays.asList("q"), 2);
+		assertEquals(2, wc.numOccurrences);
+		assertEquals(2, wc.numDocs);
+		assertEquals(1, wc.left.value("a"), 0);
+		assertEquals(1, wc.left.value("b"), 0);
+		assertEquals(1, wc.right.value("c"), 0);
+		assertEquals(1, wc.right.value("d"), 0);
+		assertEquals(0, wc.right.value("e"), 0);
+		assertEquals(2, wc.right.value("x"), 0);
+		// "b" in doc 2 is 4 tokens away
+		assertEquals(1, wc.window.value("b"), 0);
+		assertEquals(1, wc.prev.value("b"), 0);
+		assertEquals(1, wc.next.value("c"), 0);
+		assertEquals(1, wc.next.value("x"), 0);
+
+		// 2 occurrences * 4 slots * 3/14 of the instances are x
+		assertEquals(2 / (2 * 4 * 3.0 / 14), wc.lift("x"), 1e-9);
+		assertEquals(wc.topPmi(0, 2).get(0), "x");
+	}
+
+	@Test
+	public void multitokenTermsDontOverlapTheirContext() {
+		NLP.NgramAnalyzer da = new NLP.NgramAnalyzer();
+		da.order = 2;
+		Corpus c = corpus(da, "a b c d");
+		WindowedCooccurrence wc = c.windowedCooccurrence(Arrays.asList("b_c"), 1);
+		assertEquals(1, wc.left.value("a"), 0);
+		assertEquals(0, wc.left.value("a_b"), 0);
+		assertEquals(1, wc.right.value("d"), 0);
+		assertEquals(0, wc.right.value("c_d"), 0);
+		assertEquals(0, wc.window.value("b"), 0);
+		assertEquals(1, wc.next.value("d"), 0);
+	}
+
+	@Test
+	public void parallelMatchesSerial() {
+		Random r = new Random(3);
+		String[] texts = new String[300];
+		for (int i=0; i<texts.length; i++) {
+			StringBuilder sb = new StringBuilder();
+			for (int j=0; j<40; j++) sb.append("w").append(r.nextInt(20)).append(' ');
+			texts[i] = sb.toString();
+		}
+		WindowedCooccurrence serial = corpus(new NLP.UnigramAnalyzer(), texts).windowedCooccurrence(Arrays.asList("w1", "w2"), 3);
+		int oldMin = Parallel.MIN_ITEMS, oldTasks = Parallel.NUM_TASKS;
+		Parallel.MIN_ITEMS = 10;
+		Parallel.NUM_TASKS = 4;
+		try {
+			WindowedCooccurrence par = corpus(new NLP.UnigramAnalyzer(), texts).windowedCooccurrence(Arrays.asList("w1", "w2"), 3);
+			assertEquals(serial.numOccurrences, par.numOccurrences);
+			assertEquals(serial.numDocs, par.numDocs);
+			assertEquals(serial.left.map, par.left.map);
+			assertEquals(serial.right.map, par.right.map);
+			assertEquals(serial.next.map, par.next.map);
+		} finally {
+			Parallel.MIN_ITEMS = oldMin;
+			Parallel.NUM_TASKS = oldTasks;
+		}
+	}
+}
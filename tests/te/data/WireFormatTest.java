@@ -0,0 +1,75 @@
+package te.data;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import te.data.Schema.ColumnInfo;
+import te.data.Schema.DataType;
+import utility.util.JsonUtil;
+
+import static org.junit.Assert.*;
+
+public class WireFormatTest {
+
+	static Document doc() {
+		Document d = TestCorpora.doc("the cat sat");
+		d.docid = "d7";
+		d.docnumOriginalOrder = 7;
+		d.covariates.put("x", 1.5);
+		d.covariates.put("group", "b");
+		return d;
+	}
+
+	static JsonNode roundtrip(JsonNode j) throws Exception {
+		return JsonUtil.readJson(j.toString());
+	}
+
+	@Test
+	public void schemaKeepsLevelNumbers() throws Exception {
+		Schema s = new Schema();
+		ColumnInfo ci = new ColumnInfo(DataType.CATEG);
+		ci.levels.addLevel("a");
+		ci.levels.addLevel("b");
+		s.columnTypes.put("group", ci);
+		s.columnTypes.put("x", new ColumnInfo(DataType.NUMBER));
+		Schema t = WireFormat.schemaFromJson(roundtrip(WireFormat.schemaToJson(s)));
+		assertEquals(DataType.NUMBER, t.column("x").dataType);
+		assertEquals(1, t.column("group").levels.name2level.get("b").number);
+	}
+
+	@Test
+	public void documents() throws Exception {
+		Document d = doc();
+		Document stub = WireFormat.metadataFromJson(roundtrip(WireFormat.metadataToJson(d)));
+		assertEquals("d7", stub.docid);
+		assertEquals(7, stub.docnumOriginalOrder);
+		assertEquals(1.5, stub.covariates.get("x"));
+		assertEquals("b", stub.covariates.get("group"));
+		assertNull(stub.text);
+
+		Document full = WireFormat.contentsFromJson(roundtrip(WireFormat.contentsToJson(d)), stub);
+		assertNull(stub.text);
+		assertEquals(d.text, full.text);
+		assertEquals(d.tokens.size(), full.tokens.size());
+		assertEquals(d.tokens.get(2).startChar, full.tokens.get(2).startChar);
+		assertEquals(d.termInstances.size(), full.termInstances.size());
+		assertEquals(1.0, full.termVec.value("cat"), 0);
+		assertEquals("sat", full.tisByStartTokindex.get(2).get(0).termName);
+	}
+
+	@Test
+	public void docSets() throws Exception {
+		Document d = doc();
+		DocSet ds = new DocSet();
+		ds.add(d);
+		Map<String,Document> byId = new HashMap<>();
+		byId.put(d.docid, d);
+		DocSet back = WireFormat.docSetFromJson(roundtrip(WireFormat.docSetToJson(ds)), byId);
+		assertSame(d, back.docsById.get("d7"));
+		assertEquals(3, back.terms.totalCount, 0);
+	}
+}
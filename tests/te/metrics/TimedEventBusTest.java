@@ -0,0 +1,92 @@
+package te.metrics;
+
+import com.google.common.eventbus.DeadEvent;
+import com.google.common.eventbus.Subscribe;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TimedEventBusTest {
+
+	static class A {}
+	static class B extends A {}
+
+	public static class Listener {
+		TimedEventBus bus;
+		List<String> log = new ArrayList<>();
+		@Subscribe public void onA(A e) {
+			log.add("A:" + e.getClass().getSimpleName());
+			// nested posts run after the current handlers, like guava's
+			if (e instanceof B) bus.post("nested");
+		}
+		@Subscribe public void onB(B e) { log.add("B"); }
+		@Subscribe public void onString(String e) { log.add("S:" + e); }
+		@Subscribe public void onDead(DeadEvent e) { log.add("dead"); }
+	}
+
+	public static class Thrower {
+		@Subscribe public void boom(A e) { throw new RuntimeException("expected in test"); }
+	}
+
+	@Test
+	public void dispatch() {
+		TimedEventBus bus = new TimedEventBus();
+		Listener l = new Listener();
+		l.bus = bus;
+		bus.register(new Thrower());
+		bus.register(l);
+		bus.post(new B());
+		assertEquals(3, l.log.size());
+		assertTrue(l.log.subList(0,2).contains("A:B"));
+		assertTrue(l.log.subList(0,2).contains("B"));
+		assertEquals("S:nested", l.log.get(2));
+
+		bus.post(42);
+		assertEquals("dead", l.log.get(3));
+
+		bus.unregister(l);
+		bus.post(new A());
+		assertEquals(4, l.log.size());
+
+		assertTrue(Metrics.timer("handler.Listener.onA").getCount() >= 1);
+		assertTrue(Metrics.timer("event.B").getCount() >= 1);
+	}
+
+	/** like guava's bus: the same object registered twice still gets each event once */
+	@Test
+	public void registerTwice() {
+		TimedEventBus bus = new TimedEventBus();
+		Listener l = new Listener();
+		l.bus = bus;
+		bus.register(l);
+		bus.register(l);
+		bus.post("x");
+		assertEquals(Arrays.asList("S:x"), l.log);
+
+		// another instance is a separate handler
+		Listener other = new Listener();
+		bus.register(other);
+		bus.post("y");
+		assertEquals(Arrays.asList("S:x", "S:y"), l.log);
+		assertEquals(Arrays.asList("S:y"), other.log);
+
+		bus.unregister(l);
+		bus.post("z");
+		assertEquals(2, l.log.size());
+	}
+
+	@Test
+	public void histogramQuantiles() {
+		LatencyHistogram h = new LatencyHistogram("test");
+		for (int i=1; i<=1000; i++) h.record(i * 1000_000L);  // 1..1000 ms
+		assertEquals(1000, h.getCount());
+		assertEquals(500, h.getP50Millis(), 500*0.1);
+		assertEquals(990, h.getP99Millis(), 990*0.1);
+		assertEquals(1000, h.getMaxMillis(), 1e-9);
+		assertEquals(500.5, h.getMeanMillis(), 1e-9);
+	}
+}
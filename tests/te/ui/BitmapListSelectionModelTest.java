@@ -0,0 +1,144 @@
+package te.ui;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import javax.swing.DefaultListSelectionModel;
+import javax.swing.ListSelectionModel;
+
+import te.data.DocBitmap;
+
+import static org.junit.Assert.*;
+
+public class BitmapListSelectionModelTest {
+
+	static final int N = 40;
+
+	static void assertSameState(String msg, ListSelectionModel expected, BitmapListSelectionModel actual) {
+		List<Integer> want = new ArrayList<>(), got = new ArrayList<>();
+		for (int i=0; i<2*N; i++) {
+			if (expected.isSelectedIndex(i)) want.add(i);
+			if (actual.isSelectedIndex(i)) got.add(i);
+		}
+		assertEquals(msg, want, got);
+		assertEquals(msg + " min", expected.getMinSelectionIndex(), actual.getMinSelectionIndex());
+		assertEquals(msg + " max", expected.getMaxSelectionIndex(), actual.getMaxSelectionIndex());
+		assertEquals(msg + " empty", expected.isSelectionEmpty(), actual.isSelectionEmpty());
+		assertEquals(msg + " anchor", expected.getAnchorSelectionIndex(), actual.getAnchorSelectionIndex());
+		assertEquals(msg + " lead", expected.getLeadSelectionIndex(), actual.getLeadSelectionIndex());
+		assertEquals(msg + " count", want.size(), actual.getSelectedItemsCount());
+	}
+
+	/** random interval edits, applied to both models, in each selection mode */
+	@Test
+	public void matchesTheJdkModel() {
+		int[] modes = { ListSelectionModel.SINGLE_SELECTION, ListSelectionModel.SINGLE_INTERVAL_SELECTION,
+				ListSelectionModel.MULTIPLE_INTERVAL_SELECTION };
+		for (int mode : modes) {
+			Random r = new Random(mode);
+			for (int trial=0; trial<50; trial++) {
+				DefaultListSelectionModel jdk = new DefaultListSelectionModel();
+				BitmapListSelectionModel bm = new BitmapListSelectionModel();
+				jdk.setSelectionMode(mode);
+				bm.setSelectionMode(mode);
+				assertSameState("fresh", jdk, bm);
+				for (int step=0; step<40; step++) {
+					int a = r.nextInt(N), b = r.nextInt(N);
+					String op;
+					switch (r.nextInt(6)) {
+					case 0: op = "set"; jdk.setSelectionInterval(a, b); bm.setSelectionInterval(a, b); break;
+					case 1: op = "add"; jdk.addSelectionInterval(a, b); bm.addSelectionInterval(a, b); break;
+					case 2: op = "remove"; jdk.removeSelectionInterval(a, b); bm.removeSelectionInterval(a, b); break;
+					case 3: op = "anchor"; jdk.setAnchorSelectionIndex(a); bm.setAnchorSelectionIndex(a); break;
+					case 4: op = "lead"; jdk.setLeadSelectionIndex(a); bm.setLeadSelectionIndex(a); break;
+					default: op = "clear"; jdk.clearSelection(); bm.clearSelection(); break;
+					}
+					assertSameState(String.format("mode %d trial %d step %d %s(%d,%d)", mode, trial, step, op, a, b), jdk, bm);
+				}
+			}
+		}
+	}
+
+	/** rows inserted into and removed from the list shift the selection and anchor/lead the same way */
+	@Test
+	public void rowInsertsAndRemovesMatchTheJdkModel() {
+		Random r = new Random(7);
+		for (int trial=0; trial<150; trial++) {
+			DefaultListSelectionModel jdk = new DefaultListSelectionModel();
+			BitmapListSelectionModel bm = new BitmapListSelectionModel();
+			jdk.setSelectionMode(trial % 3);
+			bm.setSelectionMode(trial % 3);
+			for (int k=0; k<3; k++) {
+				int a = r.nextInt(N), b = r.nextInt(N);
+				jdk.addSelectionInterval(a, b);
+				bm.addSelectionInterval(a, b);
+			}
+			for (int step=0; step<10; step++) {
+				int a = r.nextInt(N), len = 1 + r.nextInt(5);
+				if (r.nextBoolean()) {
+					boolean before = r.nextBoolean();
+					jdk.insertIndexInterval(a, len, before);
+					bm.insertIndexInterval(a, len, before);
+				} else {
+					jdk.removeIndexInterval(a, a+len-1);
+					bm.removeIndexInterval(a, a+len-1);
+				}
+				assertSameState(String.format("trial %d step %d", trial, step), jdk, bm);
+			}
+		}
+	}
+
+	@Test
+	public void minMaxAndAnchorLead() {
+		BitmapListSelectionModel bm = new BitmapListSelectionModel();
+		assertEquals(-1, bm.getMinSelectionIndex());
+		assertEquals(-1, bm.getMaxSelectionIndex());
+		assertEquals(-1, bm.getAnchorSelectionIndex());
+		assertEquals(-1, bm.getLeadSelectionIndex());
+
+		bm.setSelectionInterval(9, 4);
+		assertEquals(4, bm.getMinSelectionIndex());
+		assertEquals(9, bm.getMaxSelectionIndex());
+		assertEquals(9, bm.getAnchorSelectionIndex());
+		assertEquals(4, bm.getLeadSelectionIndex());
+		bm.addSelectionInterval(20, 22);
+		assertEquals(22, bm.getMaxSelectionIndex());
+		assertEquals(20, bm.getAnchorSelectionIndex());
+		assertEquals(22, bm.getLeadSelectionIndex());
+		bm.removeSelectionInterval(4, 6);
+		assertEquals(7, bm.getMinSelectionIndex());
+		// -1 is a no-op, like the JDK's
+		bm.setSelectionInterval(-1, 3);
+		assertEquals(7, bm.getMinSelectionIndex());
+	}
+
+	/** a bulk selection fires one event covering old and new, and keeps the anchor->lead direction */
+	@Test
+	public void setSelectionFiresOnce() {
+		BitmapListSelectionModel bm = new BitmapListSelectionModel();
+		bm.setSelectionInterval(30, 10);
+		List<int[]> events = new ArrayList<>();
+		bm.addListSelectionListener(e -> events.add(new int[] { e.getFirstIndex(), e.getLastIndex() }));
+
+		DocBitmap rows = new DocBitmap();
+		rows.setRange(40, 50);
+		rows.set(60);
+		bm.setSelection(rows);
+		assertEquals(1, events.size());
+		assertArrayEquals(new int[] { 10, 60 }, events.get(0));
+		assertEquals(rows, bm.getSelection());
+		assertEquals(11, bm.getSelectedItemsCount());
+		// backwards before, so still backwards
+		assertEquals(60, bm.getAnchorSelectionIndex());
+		assertEquals(40, bm.getLeadSelectionIndex());
+
+		// shift-extension from there works like the JDK's
+		bm.setLeadSelectionIndex(55);
+		assertTrue(bm.isSelectedIndex(55));
+		assertFalse(bm.isSelectedIndex(54));
+		assertEquals(55, bm.getLeadSelectionIndex());
+	}
+}
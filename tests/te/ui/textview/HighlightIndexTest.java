@@ -0,0 +1,110 @@
+package te.ui.textview;
+
+import org.junit.Test;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import te.data.Document;
+import te.data.TermInstance;
+import te.data.Token;
+
+import static org.junit.Assert.*;
+
+public class HighlightIndexTest {
+
+	/** a doc with one token and one term instance per span */
+	static Document doc(int[][] spans) {
+		Document d = new Document();
+		d.tokens = new ArrayList<>();
+		d.termInstances = new ArrayList<>();
+		for (int i=0; i<spans.length; i++) {
+			Token t = new Token();
+			t.startChar = spans[i][0];
+			t.endChar = spans[i][1];
+			d.tokens.add(t);
+			d.termInstances.add(new TermInstance("t" + i, Arrays.asList(i)));
+		}
+		return d;
+	}
+
+	/** every span checked; sorted by start, ties in doc order, like the index */
+	static List<TermInstance> bruteForce(Document d, int from, int to) {
+		List<TermInstance> ret = new ArrayList<>();
+		List<TermInstance> byStart = new ArrayList<>(d.termInstances);
+		byStart.sort((a, b) -> Integer.compare(d.tokens.get(a.tokIndsInDoc.get(0)).startChar, d.tokens.get(b.tokIndsInDoc.get(0)).startChar));
+		for (TermInstance ti : byStart) {
+			Token t = d.tokens.get(ti.tokIndsInDoc.get(0));
+			if (t.startChar < to && t.endChar > from) ret.add(ti);
+		}
+		return ret;
+	}
+
+	static List<TermInstance> query(HighlightIndex index, int from, int to) {
+		List<TermInstance> ret = new ArrayList<>();
+		index.forEachOverlapping(from, to, (ti, c, s, e) -> ret.add(ti));
+		return ret;
+	}
+
+	static void assertMatchesScan(Document d, HighlightIndex index, int maxChar) {
+		for (int from=0; from<=maxChar; from++) {
+			for (int to=from; to<=maxChar+1; to++) {
+				assertEquals(from + "," + to, bruteForce(d, from, to), query(index, from, to));
+			}
+			List<TermInstance> at = bruteForce(d, from, from+1);
+			assertSame("at " + from, at.isEmpty() ? null : at.get(at.size()-1), index.terminstAt(from));
+		}
+	}
+
+	@Test
+	public void nestedAdjacentAndEmptySpans() {
+		Document d = doc(new int[][] {
+			{ 0, 20 }, { 2, 5 }, { 3, 4 }, { 2, 5 },	// nested, and a duplicate
+			{ 20, 25 }, { 25, 30 },					// adjacent to each other and to the first
+			{ 10, 10 }, { 25, 25 }, { 40, 40 },		// zero-length
+			{ 35, 38 },								// after a gap
+		});
+		HighlightIndex index = new HighlightIndex(d, ti -> Color.YELLOW);
+		assertEquals(10, index.size());
+		assertMatchesScan(d, index, 45);
+
+		List<TermInstance> tis = d.termInstances;
+		// nested: in start order, equal starts in doc order
+		assertEquals(Arrays.asList(tis.get(0), tis.get(1), tis.get(3), tis.get(2)), query(index, 3, 4));
+		// the long span is found through the running max end, past the short ones after it
+		assertEquals(Arrays.asList(tis.get(0)), query(index, 15, 16));
+		// adjacent spans don't overlap at their shared edge
+		assertEquals(Arrays.asList(tis.get(5)), query(index, 25, 26));
+		// the later one of equal spans is painted on top
+		assertSame(tis.get(3), index.terminstAt(2));
+	}
+
+	@Test
+	public void randomSpansMatchAScan() {
+		Random r = new Random(3);
+		for (int trial=0; trial<100; trial++) {
+			int[][] spans = new int[r.nextInt(30)][];
+			for (int i=0; i<spans.length; i++) {
+				int s = r.nextInt(60);
+				// mostly short, sometimes long, sometimes empty
+				int len = r.nextInt(10) == 0 ? r.nextInt(40) : r.nextInt(4);
+				spans[i] = new int[] { s, s + len };
+			}
+			Document d = doc(spans);
+			assertMatchesScan(d, new HighlightIndex(d, ti -> Color.YELLOW), 100);
+		}
+	}
+
+	@Test
+	public void highlighterPicksSpans() {
+		Document d = doc(new int[][] { { 0, 5 }, { 3, 8 }, { 6, 9 } });
+		HighlightIndex index = new HighlightIndex(d, ti -> ti.termName.equals("t1") ? null : Color.RED);
+		assertEquals(2, index.size());
+		assertEquals(Arrays.asList(d.termInstances.get(0), d.termInstances.get(2)), query(index, 0, 10));
+		assertNull(index.terminstAt(5));
+		assertEquals(0, query(HighlightIndex.EMPTY, 0, 100).size());
+	}
+}